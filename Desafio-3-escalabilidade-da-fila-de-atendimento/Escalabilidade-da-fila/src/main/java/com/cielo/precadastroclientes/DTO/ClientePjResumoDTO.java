@@ -0,0 +1,22 @@
+package com.cielo.precadastroclientes.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Linha da listagem de clientes PJ, montada direto pela consulta (sem carregar a entidade)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientePjResumoDTO {
+    // Chave da paginação; vai para o cliente apenas dentro do cursor
+    @JsonIgnore
+    private Long id;
+    private String cnpj;
+    private String razaoSocial;
+    private String mcc;
+    private String cpf;
+    private String nome;
+    private String email;
+}
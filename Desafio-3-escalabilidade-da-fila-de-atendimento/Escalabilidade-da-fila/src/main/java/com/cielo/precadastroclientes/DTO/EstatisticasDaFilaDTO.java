@@ -0,0 +1,51 @@
+package com.cielo.precadastroclientes.DTO;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Montado pelo builder, campo a campo pelo nome: o construtor com todos os campos é privado para que
+// nenhum contador seja preenchido pela posição
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class EstatisticasDaFilaDTO {
+    private int tamanho;
+    private int capacidade;
+    private String politicaDeTransbordo;
+    private long adicionados;
+    private long retirados;
+    private long rejeitados;
+    private long bloqueios;
+    private long bloqueiosExpirados;
+    private long descartados;
+    private long derramadosEmDisco;
+    private long recarregadosDoDisco;
+    private int emProcessamento;
+    private long recebidos;
+    private long confirmados;
+    private long devolvidos;
+    private long expirados;
+    private long reentregas;
+    private long duplicados;
+    private long copiasObsoletas;
+    private long cancelados;
+    private long copiasCanceladas;
+    private int agendamentosPendentes;
+    private long agendados;
+    private long agendamentosLiberados;
+    private long agendamentosRecusados;
+    private int atendentesAguardando;
+    private long esperasAtendidas;
+    private long esperasExpiradas;
+    private long esperasRecusadas;
+    private long[] profundidadePorParticao;
+    private long[] roubosPorParticao;
+    private String[] raias;
+    private long[] profundidadePorRaia;
+    private int assinaturasDeEventos;
+    private long assinaturasDeEventosDescartadas;
+}
@@ -0,0 +1,22 @@
+package com.cielo.precadastroclientes.DTO;
+
+import com.cielo.precadastroclientes.queue.FalhaNaFila;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilaDeFalhasDTO {
+    private int tamanho;
+    private int capacidade;
+    private long falhasDeConsulta;
+    private long identificadoresInvalidos;
+    private long reenvios;
+    private long descartadas;
+    // Das mais antigas para as mais novas
+    private List<FalhaNaFila> falhas;
+}
@@ -0,0 +1,16 @@
+package com.cielo.precadastroclientes.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDaFilaDTO {
+    private List<String> clientes;
+    // Cursor da próxima página; null quando esta página chegou ao fim da fila
+    private Long proximoCursor;
+}
@@ -0,0 +1,16 @@
+package com.cielo.precadastroclientes.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDeClientesDTO<T> {
+    private List<T> clientes;
+    // Cursor opaco da próxima página; null quando esta página chegou ao fim da listagem
+    private String proximoCursor;
+}
@@ -0,0 +1,14 @@
+package com.cielo.precadastroclientes.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PosicaoNaFilaDTO {
+    private String documento;
+    // A partir de 1: o próximo cliente a ser atendido está na posição 1
+    private long posicao;
+}
@@ -0,0 +1,15 @@
+package com.cielo.precadastroclientes.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecebimentoDTO {
+    private String recibo;
+    private int entregas;
+    private long tempoDeVisibilidadeMs;
+    private Object cliente;
+}
@@ -0,0 +1,155 @@
+package com.cielo.precadastroclientes.configuration;
+
+import com.cielo.precadastroclientes.queue.ModoDeDeduplicacao;
+import com.cielo.precadastroclientes.queue.ModoDePrioridade;
+import com.cielo.precadastroclientes.queue.PoliticaDeSincronizacao;
+import com.cielo.precadastroclientes.queue.PoliticaDeTransbordo;
+import com.cielo.precadastroclientes.queue.RaiaDeAtendimento;
+import com.cielo.precadastroclientes.queue.TipoDeBackend;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Configurações da fila de atendimento (prefixo "fila" no application.properties)
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "fila")
+public class FilaProperties {
+
+    // Onde a fila fica guardada; com SQS ou JDBC as demais configurações de memória e de log não se aplicam
+    private TipoDeBackend backend = TipoDeBackend.MEMORIA;
+
+    // Quantidade máxima de clientes aguardando em memória
+    private int capacidade = 100;
+
+    // Quantidade de posições alocadas de cada vez quando a fila cresce
+    private int tamanhoDoSegmento = 1024;
+
+    private PoliticaDeTransbordo politicaDeTransbordo = PoliticaDeTransbordo.REJEITAR;
+
+    // Tempo máximo de espera por uma vaga quando a política é BLOQUEAR
+    private long tempoDeBloqueioMs = 500;
+
+    // Valor do cabeçalho Retry-After enviado quando a política é REJEITAR
+    private long retryAfterSegundos = 5;
+
+    // Quantidade máxima de clientes retirados por chamada em /fila/atendimento/proximos
+    private int maximoPorLote = 100;
+
+    // Clientes retirados cuja consulta ao cadastro falhou, guardados para inspeção e reenvio; cheia, a falha
+    // mais antiga é descartada
+    private int capacidadeDaFilaDeFalhas = 1000;
+
+    // Caixa de saída entre o cadastro e a fila: entradas retransmitidas por transação e intervalo entre as
+    // buscas (um cadastro confirmado adianta a busca seguinte)
+    private int loteDaCaixaDeSaida = 100;
+
+    private long intervaloDaCaixaDeSaidaMs = 200;
+
+    // Tempo em que um cliente recebido fica invisível aguardando confirmação antes de voltar para a fila
+    private long tempoDeVisibilidadeMs = 30000;
+
+    // Duração de cada tick da roda de temporização dos prazos de visibilidade
+    private long resolucaoDaRodaMs = 100;
+
+    private int casasDaRoda = 512;
+
+    // Entradas agendadas (notBefore): níveis da roda hierárquica, com casasDaRoda casas de resolucaoDaRodaMs
+    // cada (com os padrões, 4 níveis alcançam mais de 200 anos), e quantidade máxima de agendamentos pendentes
+    private int niveisDaRodaDeAgendamentos = 4;
+
+    private int maximoDeAgendamentos = 1000000;
+
+    // Backend JDBC: intervalo entre as buscas por agendamentos vencidos na tabela de agendamentos
+    private long intervaloDeLiberacaoDeAgendamentosMs = 1000;
+
+    // Tratamento de um cliente adicionado de novo enquanto ainda está na fila (cadastro atualizado, por exemplo)
+    private ModoDeDeduplicacao deduplicacao = ModoDeDeduplicacao.DESLIGADO;
+
+    // Clientes cancelados ainda ocupando posição na fila em memória a partir dos quais ela é compactada,
+    // e o intervalo entre as verificações
+    private int limiteDeCanceladas = 1000;
+
+    private long intervaloDeCompactacaoMs = 1000;
+
+    // Quantidade de partições em memória; com 1 a fila não é particionada
+    private int particoes = 1;
+
+    // Consulta da posição de um CPF/CNPJ em /fila/atendimento/posicao. Exige a fila em memória numa única
+    // sequência: com partições ou raias de prioridade ela precisa ser desligada, senão a aplicação não sobe.
+    private boolean posicaoNaFila = true;
+
+    // Com partições: entrega aproximadamente na ordem global de chegada, ao custo de um contador compartilhado
+    private boolean ordemGlobal = false;
+
+    // Raias de prioridade por tipo de cliente e faixa de MCC; com elas as partições não se aplicam. Com
+    // fila.backend=JDBC a aplicação não sobe com as raias ligadas.
+    private ModoDePrioridade prioridade = ModoDePrioridade.DESLIGADA;
+
+    // Na ordem de prioridade; quem não atende nenhuma regra vai para a raia padrão, a última
+    private List<RaiaDeAtendimento> raias = new ArrayList<>();
+
+    private int pesoDaRaiaPadrao = 1;
+
+    // Prioridade ESTRITA: o cliente na frente de uma raia há mais tempo que isso é atendido antes das demais
+    private long envelhecimentoMs = 60000;
+
+    // Long polling em /fila/atendimento/proximo?waitMs=: atendentes aguardando ao mesmo tempo e espera máxima
+    private int maximoDeEsperas = 200;
+
+    private long esperaMaximaMs = 30000;
+
+    // Stream de eventos (SSE): eventos guardados para quem reconecta, buffer de cada painel e intervalo de despacho
+    private int historicoDeEventos = 4096;
+
+    private int bufferDeEventosPorAssinatura = 1024;
+
+    private long intervaloDeDespachoDeEventosMs = 50;
+
+    // Diretório do arquivo de excedentes quando a política é DERRAMAR_EM_DISCO
+    private String diretorioDeTransbordo = "fila-transbordo";
+
+    // Fila durável: entradas e saídas registradas em log para sobreviver a reinícios (implícito com backend ARQUIVO)
+    private boolean duravel = false;
+
+    private String diretorioDoLog = "fila-log";
+
+    private PoliticaDeSincronizacao sincronizacao = PoliticaDeSincronizacao.PERIODICA;
+
+    // Intervalo entre gravações em disco (fsync) quando a sincronização é PERIODICA
+    private long intervaloDeSincronizacaoMs = 100;
+
+    private int tamanhoDoSegmentoDoLogMb = 64;
+
+    // Intervalo entre checkpoints; os segmentos anteriores ao checkpoint são apagados
+    private long intervaloDeCheckpointMs = 60000;
+
+    // Backend SQS: endpoint do serviço (protocolo JSON), fila e credenciais. Sem chaves as requisições
+    // não são assinadas, o que basta para o SQS embarcado e para emuladores locais.
+    private String sqsEndpoint = "https://sqs.us-east-1.amazonaws.com";
+
+    private String sqsNomeDaFila = "fila-de-atendimento";
+
+    private String sqsRegiao = "us-east-1";
+
+    private String sqsChaveDeAcesso;
+
+    private String sqsChaveSecreta;
+
+    // Sobe um SQS compatível dentro do próprio processo e ignora o endpoint; para testes e benchmarks sem rede
+    private boolean sqsEmbarcado = false;
+
+    // Espera de cada ReceiveMessage (long polling); o máximo aceito pelo SQS é 20 segundos
+    private int sqsEsperaDoLongPollingSegundos = 20;
+
+    // Mensagens recebidas antecipadamente e guardadas para os próximos atendentes
+    private int sqsPreBusca = 20;
+
+    // Threads enviando lotes (SendMessageBatch) ao mesmo tempo
+    private int sqsEnviosSimultaneos = 4;
+}
@@ -0,0 +1,139 @@
+package com.cielo.precadastroclientes.configuration;
+
+import com.cielo.precadastroclientes.queue.ContadoresDaFila;
+import com.cielo.precadastroclientes.queue.FaixaDeMcc;
+import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import com.cielo.precadastroclientes.queue.FilaDeFalhas;
+import com.cielo.precadastroclientes.queue.QueueBackend;
+import com.cielo.precadastroclientes.queue.TipoDeCliente;
+import com.cielo.precadastroclientes.service.CaixaDeSaidaDaFila;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+// Métricas da fila de atendimento publicadas pelo Actuator em /actuator/prometheus.
+// Nada é contado duas vezes: os contadores leem os LongAdder da própria fila na hora da coleta, e o tempo
+// na fila usa timers criados aqui para cada tipo de cliente e faixa de MCC, sem montar tags a cada registro.
+@Component
+public class MetricasDaFila implements MeterBinder {
+
+    private final QueueBackend filaDeAtendimento;
+    // null com fila.backend=SQS ou JDBC: só a profundidade e a fila de falhas são publicadas
+    private final FilaDeAtendimento filaEmMemoria;
+    private final FilaDeFalhas filaDeFalhas;
+    private final CaixaDeSaidaDaFila caixaDeSaida;
+
+    public MetricasDaFila(QueueBackend filaDeAtendimento, Optional<FilaDeAtendimento> filaEmMemoria, FilaDeFalhas filaDeFalhas,
+                          CaixaDeSaidaDaFila caixaDeSaida) {
+        this.filaDeAtendimento = filaDeAtendimento;
+        this.filaEmMemoria = filaEmMemoria.orElse(null);
+        this.filaDeFalhas = filaDeFalhas;
+        this.caixaDeSaida = caixaDeSaida;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("fila.profundidade", filaDeAtendimento, QueueBackend::getTamanho)
+                .description("Clientes aguardando na fila, incluindo os em processamento")
+                .register(registry);
+
+        // Fila de falhas, com qualquer backend: falhas na consulta deixam de parecer uma fila vazia
+        Gauge.builder("fila.falhas.tamanho", filaDeFalhas, FilaDeFalhas::getTamanho)
+                .description("Clientes retirados que não puderam ser entregues, aguardando inspeção ou reenvio")
+                .register(registry);
+        FunctionCounter.builder("fila.falhas", filaDeFalhas, FilaDeFalhas::getFalhasDeConsulta)
+                .tag("motivo", "consulta")
+                .register(registry);
+        FunctionCounter.builder("fila.falhas", filaDeFalhas, FilaDeFalhas::getIdentificadoresInvalidos)
+                .tag("motivo", "identificador_invalido")
+                .register(registry);
+        FunctionCounter.builder("fila.falhas.reenviadas", filaDeFalhas, FilaDeFalhas::getReenvios)
+                .register(registry);
+        FunctionCounter.builder("fila.falhas.descartadas", filaDeFalhas, FilaDeFalhas::getDescartadas)
+                .register(registry);
+
+        // Caixa de saída do cadastro, com qualquer backend; a quantidade pendente é um COUNT na tabela
+        Gauge.builder("fila.caixa.de.saida.pendentes", caixaDeSaida, CaixaDeSaidaDaFila::getPendentes)
+                .description("Clientes cadastrados cuja entrada na fila ainda não foi retransmitida")
+                .register(registry);
+        FunctionCounter.builder("fila.caixa.de.saida.retransmitidos", caixaDeSaida, CaixaDeSaidaDaFila::getRetransmitidos)
+                .register(registry);
+
+        if (filaEmMemoria == null) {
+            return;
+        }
+        Gauge.builder("fila.capacidade", filaEmMemoria, FilaDeAtendimento::getCapacidade)
+                .register(registry);
+        Gauge.builder("fila.em.processamento", filaEmMemoria, FilaDeAtendimento::getEmProcessamento)
+                .description("Clientes recebidos e ainda não confirmados")
+                .register(registry);
+        Gauge.builder("fila.atendentes.aguardando", filaEmMemoria, FilaDeAtendimento::getAtendentesAguardando)
+                .register(registry);
+        Gauge.builder("fila.agendamentos.pendentes", filaEmMemoria, FilaDeAtendimento::getAgendamentosPendentes)
+                .description("Clientes com entrada agendada (notBefore) que ainda não entraram na fila")
+                .register(registry);
+
+        ContadoresDaFila contadores = filaEmMemoria.getContadores();
+        contador(registry, "fila.clientes.adicionados", contadores, ContadoresDaFila::getAdicionados);
+        contador(registry, "fila.clientes.retirados", contadores, ContadoresDaFila::getRetirados);
+        contador(registry, "fila.clientes.descartados", contadores, ContadoresDaFila::getDescartados);
+        contador(registry, "fila.clientes.cancelados", contadores, ContadoresDaFila::getCancelados);
+        contador(registry, "fila.clientes.agendados", contadores, ContadoresDaFila::getAgendados);
+        FunctionCounter.builder("fila.clientes.rejeitados", contadores, ContadoresDaFila::getRejeitados)
+                .tag("motivo", "fila_cheia")
+                .register(registry);
+        FunctionCounter.builder("fila.clientes.rejeitados", contadores, ContadoresDaFila::getBloqueiosExpirados)
+                .tag("motivo", "bloqueio_expirado")
+                .register(registry);
+
+        TipoDeCliente[] tipos = TipoDeCliente.values();
+        FaixaDeMcc[] faixas = FaixaDeMcc.values();
+        Timer[][] temposNaFila = new Timer[tipos.length][faixas.length];
+        for (TipoDeCliente tipo : tipos) {
+            for (FaixaDeMcc faixa : faixas) {
+                temposNaFila[tipo.ordinal()][faixa.ordinal()] = Timer.builder("fila.tempo.na.fila")
+                        .description("Tempo entre a entrada do cliente na fila em memória e a sua retirada")
+                        .tags("tipo", tipo.name(), "mcc", faixa.name())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofHours(1))
+                        .register(registry);
+            }
+        }
+        filaEmMemoria.setRegistroDeTempoNaFila((tipo, faixa, nanos) ->
+                temposNaFila[tipo.ordinal()][faixa.ordinal()].record(nanos, TimeUnit.NANOSECONDS));
+
+        // Com raias de prioridade: profundidade e tempo na fila de cada raia, para calibrar os pesos
+        String[] raias = filaEmMemoria.getRaias();
+        Timer[] temposNaRaia = new Timer[raias.length];
+        for (int i = 0; i < raias.length; i++) {
+            int raia = i;
+            Gauge.builder("fila.raia.profundidade", filaEmMemoria, fila -> fila.getProfundidadePorRaia()[raia])
+                    .tag("raia", raias[i])
+                    .register(registry);
+            temposNaRaia[i] = Timer.builder("fila.raia.tempo.na.fila")
+                    .description("Tempo na fila em memória dos clientes retirados de cada raia de prioridade")
+                    .tag("raia", raias[i])
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofHours(1))
+                    .register(registry);
+        }
+        if (raias.length > 0) {
+            filaEmMemoria.setRegistroDeTempoNaRaia((raia, nanos) -> temposNaRaia[raia].record(nanos, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private static void contador(MeterRegistry registry, String nome, ContadoresDaFila contadores,
+                                 ToDoubleFunction<ContadoresDaFila> valor) {
+        FunctionCounter.builder(nome, contadores, valor).register(registry);
+    }
+}
@@ -2,11 +2,15 @@ package com.cielo.precadastroclientes.controller;
 
 import com.cielo.precadastroclientes.DTO.ClientePfRequestDTO;
 import com.cielo.precadastroclientes.DTO.ClientePfResponseDTO;
+import com.cielo.precadastroclientes.DTO.ClientePfResumoDTO;
+import com.cielo.precadastroclientes.DTO.GenericResponseDTO;
+import com.cielo.precadastroclientes.DTO.PaginaDeClientesDTO;
 import com.cielo.precadastroclientes.DTO.ValidationErrorResponse;
 import com.cielo.precadastroclientes.exception.ClienteException;
 import com.cielo.precadastroclientes.model.ClientePf;
-import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import com.cielo.precadastroclientes.queue.QueueBackend;
 import com.cielo.precadastroclientes.service.ClientePfServiceImpl;
+import com.cielo.precadastroclientes.service.ListagemDeClientes;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -16,14 +20,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+
 @RestController
 @RequestMapping("/cliente-pf")
 public class ClientePfController {
 
-    private FilaDeAtendimento filaDeAtendimento;
+    private QueueBackend filaDeAtendimento;
     private final ClientePfServiceImpl clientePfService;
 
-    public ClientePfController(ClientePfServiceImpl clientePfService, FilaDeAtendimento filaDeAtendimento) {
+    public ClientePfController(ClientePfServiceImpl clientePfService, QueueBackend filaDeAtendimento) {
         this.filaDeAtendimento = filaDeAtendimento;
         this.clientePfService = clientePfService;
     }
@@ -37,6 +43,17 @@ public class ClientePfController {
         return responseDTO;
     }
 
+    // A entrada na fila é retransmitida depois do commit, então um notBefore que o backend não agenda é
+    // recusado antes de salvar o cliente
+    private boolean agendamentoNaoSuportado(Instant notBefore) {
+        return notBefore != null && !filaDeAtendimento.suportaAgendamento();
+    }
+
+    private ResponseEntity<ClientePfResponseDTO> agendamentoNaoSuportado() {
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED)
+                .body(new ClientePfResponseDTO("O backend da fila de atendimento não agenda entradas (notBefore)"));
+    }
+
     @Operation(
             summary = "Cadastrar Cliente Pf",
             description = "Cadastrar Cliente Pf",
@@ -55,22 +72,28 @@ public class ClientePfController {
                             responseCode = "409",
                             description = "Cliente já cadastrado",
                             content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "501",
+                            description = "notBefore informado, mas o backend da fila não agenda entradas; nada foi salvo",
+                            content = @Content(mediaType = "application/json")
                     )
             }
     )
     @PostMapping("/cadastrar")
-    public ResponseEntity<ClientePfResponseDTO> cadastrarClientePj(@Valid @RequestBody ClientePfRequestDTO clientePfRequestDTO) {
+    public ResponseEntity<ClientePfResponseDTO> cadastrarClientePj(@Valid @RequestBody ClientePfRequestDTO clientePfRequestDTO,
+                                                                   @RequestParam(required = false) Instant notBefore) {
         try {
 
+            if (agendamentoNaoSuportado(notBefore)) {
+                return agendamentoNaoSuportado();
+            }
+
             // Use o método público para converter o DTO em uma entidade ClientePf
             ClientePf clientePf = clientePfService.convertRequestDTOToEntity(clientePfRequestDTO);
 
-            // Chame o serviço para cadastrar o cliente Pf
-            clientePfService.cadastrarCliente(clientePf);
-
-            // Adicione o CPF do cliente à fila de atendimento
-            filaDeAtendimento.adicionarClienteNaFila(clientePf.getCpf());
-
+            // Chame o serviço para cadastrar o cliente Pf; a entrada na fila é salva na mesma transação
+            clientePfService.cadastrarCliente(clientePf, notBefore);
 
             //Crie um objeto de resposta e preencha-o com os dados relevantes
             ClientePfResponseDTO responseDTO = createResponseDTO(clientePf);
@@ -103,32 +126,28 @@ public class ClientePfController {
                             description = "Cliente Não Cadastrado",
                             content = @Content(mediaType = "application/json")
                     ),
+                    @ApiResponse(
+                            responseCode = "501",
+                            description = "notBefore informado, mas o backend da fila não agenda entradas; nada foi salvo",
+                            content = @Content(mediaType = "application/json")
+                    ),
             }
     )
     @PutMapping("/atualizar")
-    public ResponseEntity<ClientePfResponseDTO> atualizarClientePf(@Valid @RequestBody ClientePfRequestDTO clientePfRequestDTO) {
+    public ResponseEntity<ClientePfResponseDTO> atualizarClientePf(@Valid @RequestBody ClientePfRequestDTO clientePfRequestDTO,
+                                                                   @RequestParam(required = false) Instant notBefore) {
         try {
 
-            // Verifique se o cliente já existe com base no CNPJ
-            ClientePf clienteExistente = clientePfService.consultarClientePorCpf(clientePfRequestDTO.getCpf());
-
-            // Se o cliente não existir, retorne uma resposta de erro
-            if (clienteExistente == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ClientePfResponseDTO("Cliente não cadastrado"));
+            if (agendamentoNaoSuportado(notBefore)) {
+                return agendamentoNaoSuportado();
             }
 
-            // Atualize os campos relevantes do cliente com base nos dados do DTO
-            clienteExistente.setMcc(clientePfRequestDTO.getMcc());
-            clienteExistente.setCpf(clientePfRequestDTO.getCpf());
-            clienteExistente.setNome(clientePfRequestDTO.getNome());
-            clienteExistente.setEmail(clientePfRequestDTO.getEmail());
-            // Atualize outros campos conforme necessário
-
-            // Chame o serviço para efetuar a atualização no banco de dados
-            clientePfService.atualizarCliente(clienteExistente);
+            // Converta o DTO sem consultar o cliente: a atualização é um único UPDATE pelo CPF, e o cliente
+            // não cadastrado chega como ClienteNaoCadastradoException
+            ClientePf clienteExistente = clientePfService.convertRequestDTOToEntity(clientePfRequestDTO);
 
-            // Adicione o ID do cliente à fila de atendimento
-            filaDeAtendimento.adicionarClienteNaFila(clienteExistente.getCpf());
+            // Chame o serviço para efetuar a atualização no banco de dados e salvar a entrada na fila
+            clientePfService.atualizarCliente(clienteExistente, notBefore);
 
             // Crie um objeto de resposta com os valores atualizados
             ClientePfResponseDTO responseDTO = createResponseDTO(clienteExistente);
@@ -182,6 +201,38 @@ public class ClientePfController {
         }
     }
 
+    @Operation(
+            summary = "Listar Clientes Pf",
+            description = "Lista os clientes Pf em páginas ordenadas pelo cadastro, com filtros opcionais de MCC e prefixo do nome. "
+                    + "Envie o proximoCursor da resposta para a página seguinte.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Página de clientes; proximoCursor null na última",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Cursor inválido ou limite menor que 1",
+                            content = @Content(mediaType = "application/json")
+                    )
+            }
+    )
+    @GetMapping("/listar")
+    public ResponseEntity<GenericResponseDTO<PaginaDeClientesDTO<ClientePfResumoDTO>>> listarClientesPf(
+            @RequestParam(required = false) String mcc,
+            @RequestParam(required = false) String nome,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ListagemDeClientes.TAMANHO_PADRAO_DA_PAGINA) int limit) {
+        try {
+            // O limite é reduzido a ListagemDeClientes.MAXIMO_POR_PAGINA no serviço
+            return ResponseEntity.status(HttpStatus.OK)
+                    .body(new GenericResponseDTO<>(clientePfService.listarClientes(mcc, nome, cursor, limit), null));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new GenericResponseDTO<>(null, ex.getMessage()));
+        }
+    }
+
 
     @Operation(
             summary = "Excluir Cliente Pf",
@@ -207,14 +258,8 @@ public class ClientePfController {
     @DeleteMapping("/excluir")
     public ResponseEntity<ClientePfResponseDTO> excluirClientePf(@Valid @RequestParam String cpf) {
         try {
-            ClientePf clientePf = clientePfService.consultarClientePorCpf(cpf);
-
-            if (clientePf == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ClientePfResponseDTO("Cliente não encontrado"));
-            }
-
-            // Chame o serviço para excluir o cliente
-            clientePfService.excluirCliente(cpf);
+            // Chame o serviço para excluir o cliente; o mesmo comando devolve os dados dele para a resposta
+            ClientePf clientePf = clientePfService.excluirCliente(cpf);
 
             ClientePfResponseDTO responseDTO = createResponseDTO(clientePf);
             responseDTO.setMessage("Cliente excluído com sucesso");
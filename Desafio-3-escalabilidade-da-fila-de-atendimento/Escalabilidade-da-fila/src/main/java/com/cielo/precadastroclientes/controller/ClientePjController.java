@@ -2,11 +2,15 @@ package com.cielo.precadastroclientes.controller;
 
 import com.cielo.precadastroclientes.DTO.ClientePjRequestDTO;
 import com.cielo.precadastroclientes.DTO.ClientePjResponseDTO;
+import com.cielo.precadastroclientes.DTO.ClientePjResumoDTO;
+import com.cielo.precadastroclientes.DTO.GenericResponseDTO;
+import com.cielo.precadastroclientes.DTO.PaginaDeClientesDTO;
 import com.cielo.precadastroclientes.DTO.ValidationErrorResponse;
 import com.cielo.precadastroclientes.exception.ClienteException;
 import com.cielo.precadastroclientes.model.ClientePj;
-import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import com.cielo.precadastroclientes.queue.QueueBackend;
 import com.cielo.precadastroclientes.service.ClientePjServiceImpl;
+import com.cielo.precadastroclientes.service.ListagemDeClientes;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -17,15 +21,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+
 @RestController
 @RequestMapping("/cliente-pj")
 public class ClientePjController {
 
-    private FilaDeAtendimento filaDeAtendimento;
+    private QueueBackend filaDeAtendimento;
     private final ClientePjServiceImpl clientePjService;
 
     @Autowired
-    public ClientePjController(ClientePjServiceImpl clientePjService, FilaDeAtendimento filaDeAtendimento) {
+    public ClientePjController(ClientePjServiceImpl clientePjService, QueueBackend filaDeAtendimento) {
         this.clientePjService = clientePjService;
         this.filaDeAtendimento = filaDeAtendimento;
     }
@@ -41,6 +47,17 @@ public class ClientePjController {
         return responseDTO;
     }
 
+    // A entrada na fila é retransmitida depois do commit, então um notBefore que o backend não agenda é
+    // recusado antes de salvar o cliente
+    private boolean agendamentoNaoSuportado(Instant notBefore) {
+        return notBefore != null && !filaDeAtendimento.suportaAgendamento();
+    }
+
+    private ResponseEntity<ClientePjResponseDTO> agendamentoNaoSuportado() {
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED)
+                .body(new ClientePjResponseDTO("O backend da fila de atendimento não agenda entradas (notBefore)"));
+    }
+
 
     @Operation(
             summary = "Cadastrar Cliente Pj",
@@ -60,20 +77,27 @@ public class ClientePjController {
                             responseCode = "409",
                             description = "Cliente já cadastrado",
                             content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "501",
+                            description = "notBefore informado, mas o backend da fila não agenda entradas; nada foi salvo",
+                            content = @Content(mediaType = "application/json")
                     )
             }
     )
     @PostMapping("/cadastrar")
-    public ResponseEntity<ClientePjResponseDTO> cadastrarClientePj(@Valid @RequestBody ClientePjRequestDTO clientePjRequestDTO) {
+    public ResponseEntity<ClientePjResponseDTO> cadastrarClientePj(@Valid @RequestBody ClientePjRequestDTO clientePjRequestDTO,
+                                                                   @RequestParam(required = false) Instant notBefore) {
         try {
 
+            if (agendamentoNaoSuportado(notBefore)) {
+                return agendamentoNaoSuportado();
+            }
+
             // Use o método público para converter o DTO em uma entidade ClientePj
             ClientePj clientePj = clientePjService.convertRequestDTOToEntity(clientePjRequestDTO);
-            // Chame o serviço para cadastrar o cliente PJ
-            clientePjService.cadastrarClientePj(clientePj);
-
-            // Adicione o ID do cliente à fila de atendimento
-            filaDeAtendimento.adicionarClienteNaFila(clientePj.getCnpj());
+            // Chame o serviço para cadastrar o cliente PJ; a entrada na fila é salva na mesma transação
+            clientePjService.cadastrarClientePj(clientePj, notBefore);
 
             //Crie um objeto de resposta e preencha-o com os dados relevantes
             ClientePjResponseDTO responseDTO = createResponseDTO(clientePj);
@@ -106,34 +130,28 @@ public class ClientePjController {
                             description = "Cliente Não Cadastrado",
                             content = @Content(mediaType = "application/json")
                     ),
+                    @ApiResponse(
+                            responseCode = "501",
+                            description = "notBefore informado, mas o backend da fila não agenda entradas; nada foi salvo",
+                            content = @Content(mediaType = "application/json")
+                    ),
             }
     )
     @PutMapping("/atualizar")
-    public ResponseEntity<ClientePjResponseDTO> atualizarClientePj(@Valid @RequestBody ClientePjRequestDTO clientePjRequestDTO) {
+    public ResponseEntity<ClientePjResponseDTO> atualizarClientePj(@Valid @RequestBody ClientePjRequestDTO clientePjRequestDTO,
+                                                                   @RequestParam(required = false) Instant notBefore) {
         try {
 
-            // Verifique se o cliente já existe com base no CNPJ
-            ClientePj clienteExistente = clientePjService.consultarClientePorCnpj(clientePjRequestDTO.getCnpj());
-
-            // Se o cliente não existir, retorne uma resposta de erro
-            if (clienteExistente == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ClientePjResponseDTO("Cliente não cadastrado"));
+            if (agendamentoNaoSuportado(notBefore)) {
+                return agendamentoNaoSuportado();
             }
 
-            // Atualize os campos relevantes do cliente com base nos dados do DTO
-            clienteExistente.setMcc(clientePjRequestDTO.getMcc());
-            clienteExistente.setCnpj(clientePjRequestDTO.getCnpj());
-            clienteExistente.setCpfContatoEstabelecimento(clientePjRequestDTO.getCpf());
-            clienteExistente.setRazaoSocial(clientePjRequestDTO.getRazaoSocial());
-            clienteExistente.setNomeContatoEstabelecimento(clientePjRequestDTO.getNome());
-            clienteExistente.setEmail(clientePjRequestDTO.getEmail());
-            // Atualize outros campos conforme necessário
-
-            // Chame o serviço para efetuar a atualização no banco de dados
-            clientePjService.atualizarCliente(clienteExistente);
+            // Converta o DTO sem consultar o cliente: a atualização é um único UPDATE pelo CNPJ, e o cliente
+            // não cadastrado chega como ClienteNaoCadastradoException
+            ClientePj clienteExistente = clientePjService.convertRequestDTOToEntity(clientePjRequestDTO);
 
-            // Adicione o ID do cliente à fila de atendimento
-            filaDeAtendimento.adicionarClienteNaFila(clienteExistente.getCnpj());
+            // Chame o serviço para efetuar a atualização no banco de dados e salvar a entrada na fila
+            clientePjService.atualizarCliente(clienteExistente, notBefore);
 
             // Crie um objeto de resposta com os valores atualizados
             ClientePjResponseDTO responseDTO = createResponseDTO(clienteExistente);
@@ -188,6 +206,38 @@ public class ClientePjController {
         }
     }
 
+    @Operation(
+            summary = "Listar Clientes Pj",
+            description = "Lista os clientes Pj em páginas ordenadas pelo cadastro, com filtros opcionais de MCC e prefixo da razão social. "
+                    + "Envie o proximoCursor da resposta para a página seguinte.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Página de clientes; proximoCursor null na última",
+                            content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Cursor inválido ou limite menor que 1",
+                            content = @Content(mediaType = "application/json")
+                    )
+            }
+    )
+    @GetMapping("/listar")
+    public ResponseEntity<GenericResponseDTO<PaginaDeClientesDTO<ClientePjResumoDTO>>> listarClientesPj(
+            @RequestParam(required = false) String mcc,
+            @RequestParam(required = false) String razaoSocial,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ListagemDeClientes.TAMANHO_PADRAO_DA_PAGINA) int limit) {
+        try {
+            // O limite é reduzido a ListagemDeClientes.MAXIMO_POR_PAGINA no serviço
+            return ResponseEntity.status(HttpStatus.OK)
+                    .body(new GenericResponseDTO<>(clientePjService.listarClientes(mcc, razaoSocial, cursor, limit), null));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new GenericResponseDTO<>(null, ex.getMessage()));
+        }
+    }
+
 
     @Operation(
             summary = "Excluir Cliente PJ",
@@ -213,14 +263,8 @@ public class ClientePjController {
     @DeleteMapping("/excluir")
     public ResponseEntity<ClientePjResponseDTO> excluirClientePj(@Valid @RequestParam String cnpj) {
         try {
-            ClientePj clientePj = clientePjService.consultarClientePorCnpj(cnpj);
-
-            if (clientePj == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ClientePjResponseDTO("Cliente não encontrado"));
-            }
-
-            // Chame o serviço para excluir o cliente
-            clientePjService.excluirClientePorCnpj(cnpj);
+            // Chame o serviço para excluir o cliente; o mesmo comando devolve os dados dele para a resposta
+            ClientePj clientePj = clientePjService.excluirClientePorCnpj(cnpj);
 
             ClientePjResponseDTO responseDTO = createResponseDTO(clientePj);
             responseDTO.setMessage("Cliente excluído com sucesso");
@@ -2,116 +2,582 @@ package com.cielo.precadastroclientes.controller;
 
 import com.cielo.precadastroclientes.DTO.ClientePfResponseDTO;
 import com.cielo.precadastroclientes.DTO.ClientePjResponseDTO;
+import com.cielo.precadastroclientes.DTO.EstatisticasDaFilaDTO;
+import com.cielo.precadastroclientes.DTO.FilaDeFalhasDTO;
 import com.cielo.precadastroclientes.DTO.GenericResponseDTO;
+import com.cielo.precadastroclientes.DTO.PaginaDaFilaDTO;
+import com.cielo.precadastroclientes.DTO.PosicaoNaFilaDTO;
+import com.cielo.precadastroclientes.DTO.RecebimentoDTO;
 import com.cielo.precadastroclientes.model.ClientePf;
 import com.cielo.precadastroclientes.model.ClientePj;
+import com.cielo.precadastroclientes.queue.AssinaturaDeEventos;
+import com.cielo.precadastroclientes.queue.ContadoresDaFila;
+import com.cielo.precadastroclientes.queue.EsperaPorCliente;
+import com.cielo.precadastroclientes.queue.EventoDaFila;
 import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import com.cielo.precadastroclientes.queue.FilaDeFalhas;
+import com.cielo.precadastroclientes.queue.QueueBackend;
+import com.cielo.precadastroclientes.queue.Recebimento;
+import com.cielo.precadastroclientes.queue.TipoDeCliente;
 import com.cielo.precadastroclientes.service.ClientePfService;
 import com.cielo.precadastroclientes.service.ClientePjService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/fila-atendimento")
 public class QueueController {
+    // Tempo além da espera pedida antes de o Spring encerrar a requisição por conta própria;
+    // o prazo normal é controlado pela própria fila
+    private static final long MARGEM_DO_LONG_POLLING_MS = 5000;
+    // Depois disso o painel reconecta com Last-Event-ID e continua de onde parou
+    private static final long DURACAO_DO_STREAM_DE_EVENTOS_MS = 30 * 60 * 1000;
+    private static final int TAMANHO_PADRAO_DA_PAGINA = 100;
+    private static final int MAXIMO_POR_PAGINA = 1000;
+    private static final JsonFactory FABRICA_DE_JSON = new JsonFactory();
+    private static final String APENAS_FILA_EM_MEMORIA = "Disponível apenas com fila.backend MEMORIA ou ARQUIVO";
+    private static final String IDENTIFICADOR_INVALIDO = "Identificador inválido na fila; enviado para a fila de falhas";
+
     private final ClientePfService clientePfService;
     private final ClientePjService clientePjService;
-    private final FilaDeAtendimento filaDeAtendimento;
+    private final QueueBackend filaDeAtendimento;
+    // Long polling, eventos e estatísticas dependem da fila estar neste processo; null com fila.backend=SQS ou JDBC
+    private final FilaDeAtendimento filaEmMemoria;
+    // Consulta o cliente entregue a um long polling fora da thread do cadastro que o colocou na fila
+    private final TaskExecutor consultasDeEspera;
+    // Clientes retirados que não puderam ser entregues: consulta ao cadastro com erro ou identificador inválido
+    private final FilaDeFalhas filaDeFalhas;
 
-    public QueueController(FilaDeAtendimento filaDeAtendimento, ClientePfService clientePfService1, ClientePjService clientePjService) {
+    public QueueController(QueueBackend filaDeAtendimento, Optional<FilaDeAtendimento> filaEmMemoria,
+                           ClientePfService clientePfService1, ClientePjService clientePjService,
+                           @Qualifier("applicationTaskExecutor") TaskExecutor consultasDeEspera,
+                           FilaDeFalhas filaDeFalhas) {
         this.filaDeAtendimento = filaDeAtendimento;
+        this.filaEmMemoria = filaEmMemoria.orElse(null);
         this.clientePfService = clientePfService1;
         this.clientePjService = clientePjService;
+        this.consultasDeEspera = consultasDeEspera;
+        this.filaDeFalhas = filaDeFalhas;
+    }
+
+    private GenericResponseDTO<?> criarRespostaPf(ClientePf clientePf) {
+        if (clientePf == null) {
+            return new GenericResponseDTO<>(null, "Cliente PF não encontrado na fila");
+        }
+        // Crie um ClientePfResponseDTO com as informações apropriadas
+        ClientePfResponseDTO clienteResponseDTO = new ClientePfResponseDTO();
+        clienteResponseDTO.setCpf(clientePf.getCpf());
+        clienteResponseDTO.setNome(clientePf.getNome());
+        clienteResponseDTO.setEmail(clientePf.getEmail());
+        clienteResponseDTO.setMcc(clientePf.getMcc());
+        clienteResponseDTO.setMessage("Cliente PF retirado com sucesso da fila");
+        return new GenericResponseDTO<>(clienteResponseDTO, null);
+    }
+
+    private GenericResponseDTO<?> criarRespostaPj(ClientePj clientePj) {
+        if (clientePj == null) {
+            return new GenericResponseDTO<>(null, "Cliente PJ não encontrado na fila");
+        }
+        // Crie um ClientePjResponseDTO com as informações apropriadas
+        ClientePjResponseDTO clienteResponseDTO = new ClientePjResponseDTO();
+        clienteResponseDTO.setCnpj(clientePj.getCnpj());
+        clienteResponseDTO.setEmail(clientePj.getEmail());
+        clienteResponseDTO.setMcc(clientePj.getMcc());
+        clienteResponseDTO.setRazaoSocial(clientePj.getRazaoSocial());
+        clienteResponseDTO.setNome(clientePj.getNomeContatoEstabelecimento());
+        clienteResponseDTO.setCpf(clientePj.getCpfContatoEstabelecimento());
+        clienteResponseDTO.setMessage("Cliente PJ retirado com sucesso da fila");
+        return new GenericResponseDTO<>(clienteResponseDTO, null);
+    }
+
+    // Uma exceção da consulta chega a quem chamou, que envia o cliente para a fila de falhas
+    private GenericResponseDTO<?> consultarCliente(String clienteIdentificador) {
+        GenericResponseDTO<?> resposta;
+        switch (TipoDeCliente.de(clienteIdentificador)) {
+            case PF:
+                // Consulta o cliente PF por CPF usando o serviço
+                resposta = criarRespostaPf(clientePfService.consultarClientePorCpf(clienteIdentificador));
+                break;
+            case PJ:
+                // Consulta o cliente PJ por CNPJ usando o serviço PJ correspondente
+                resposta = criarRespostaPj(clientePjService.consultarClientePorCnpj(clienteIdentificador));
+                break;
+            default:
+                filaDeFalhas.identificadorInvalido(clienteIdentificador);
+                return new GenericResponseDTO<>(null, IDENTIFICADOR_INVALIDO);
+        }
+        filaDeFalhas.consultou(clienteIdentificador);
+        return resposta;
+    }
+
+    // O cliente já saiu da fila: não responde "fila vazia", que esconderia a falha do atendente
+    private ResponseEntity<GenericResponseDTO<?>> falhaNaConsulta(String clienteIdentificador, RuntimeException ex) {
+        filaDeFalhas.falhaDeConsulta(clienteIdentificador, ex);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new GenericResponseDTO<>(null, "Falha ao consultar o cliente retirado da fila; ele foi enviado para a fila de falhas"));
     }
 
     // Endpoint para retirar o próximo cliente da fila de atendimento
     @GetMapping("/fila/atendimento/proximo")
     public ResponseEntity<GenericResponseDTO<?>> retirarProximoClienteDaFila() {
+        String clienteIdentificador;
         try {
-            if (filaDeAtendimento.getTamanho() == 0) {
+            // Retirada atômica: não há mais janela entre verificar o tamanho e retirar o cliente
+            clienteIdentificador = filaDeAtendimento.poll();
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new GenericResponseDTO<>(null, "Erro interno do servidor"));
+        }
+
+        if (clienteIdentificador == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Fila de atendimento vazia"));
+        }
+        return respostaDoCliente(clienteIdentificador);
+    }
+
+    // Endpoint de long polling: com waitMs, uma fila vazia não responde 404 na hora. A requisição fica
+    // estacionada (sem ocupar uma thread do Tomcat) até chegar um cliente ou o prazo vencer.
+    @Operation(summary = "Aguardar próximo cliente da fila de atendimento", description = "Retira o próximo cliente, aguardando até waitMs milissegundos se a fila estiver vazia.")
+    @ApiResponse(responseCode = "429", description = "Limite de atendentes aguardando atingido")
+    @GetMapping(value = "/fila/atendimento/proximo", params = "waitMs")
+    public DeferredResult<ResponseEntity<GenericResponseDTO<?>>> aguardarProximoClienteDaFila(@RequestParam long waitMs) {
+        if (filaEmMemoria == null) {
+            DeferredResult<ResponseEntity<GenericResponseDTO<?>>> resultado = new DeferredResult<>();
+            resultado.setResult(ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(new GenericResponseDTO<>(null, APENAS_FILA_EM_MEMORIA)));
+            return resultado;
+        }
+        ResponseEntity<GenericResponseDTO<?>> vazia = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Fila de atendimento vazia"));
+        long espera = Math.max(0, Math.min(waitMs, filaEmMemoria.getEsperaMaximaMs()));
+        DeferredResult<ResponseEntity<GenericResponseDTO<?>>> resultado = new DeferredResult<>(espera + MARGEM_DO_LONG_POLLING_MS, vazia);
+
+        EsperaPorCliente esperaPorCliente = filaEmMemoria.aguardarCliente(espera,
+                recebimento -> consultasDeEspera.execute(() -> entregarAoAtendente(resultado, recebimento)),
+                () -> resultado.setResult(vazia));
+        if (esperaPorCliente == null) {
+            resultado.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(filaDeAtendimento.getRetryAfterSegundos()))
+                    .body(new GenericResponseDTO<>(null, "Muitos atendentes aguardando a fila. Tente novamente mais tarde.")));
+            return resultado;
+        }
+        // Conexão encerrada ou margem vencida: libera o lugar do atendente entre os que aguardam
+        resultado.onTimeout(esperaPorCliente::cancelar);
+        resultado.onError(erro -> esperaPorCliente.cancelar());
+        return resultado;
+    }
+
+    // O cliente chega com um recibo e só sai de vez da fila quando a resposta é aceita. Se o atendente desistiu
+    // (margem vencida ou conexão encerrada) depois da entrega, o recibo é devolvido e o cliente volta para a
+    // fila, em vez de se perder. Consulta com erro, identificador inválido ou cadastro excluído não voltam: os
+    // dois primeiros já estão na fila de falhas.
+    private void entregarAoAtendente(DeferredResult<ResponseEntity<GenericResponseDTO<?>>> resultado, Recebimento recebimento) {
+        if (resultado.isSetOrExpired()) {
+            filaEmMemoria.devolver(recebimento.getRecibo());
+            return;
+        }
+        ResponseEntity<GenericResponseDTO<?>> resposta = respostaDoCliente(recebimento.getCliente());
+        boolean encontrado = resposta.getBody() != null && resposta.getBody().getData() != null;
+        if (resultado.setResult(resposta) || !encontrado) {
+            filaEmMemoria.confirmar(recebimento.getRecibo());
+        } else {
+            filaEmMemoria.devolver(recebimento.getRecibo());
+        }
+    }
+
+    private ResponseEntity<GenericResponseDTO<?>> respostaDoCliente(String clienteIdentificador) {
+        try {
+            return ResponseEntity.status(HttpStatus.OK).body(consultarCliente(clienteIdentificador));
+        } catch (RuntimeException ex) {
+            return falhaNaConsulta(clienteIdentificador, ex);
+        }
+    }
+
+    // Endpoint para retirar vários clientes de uma vez: uma chamada HTTP e uma consulta por tipo de cliente
+    @Operation(summary = "Retirar próximos clientes da fila de atendimento", description = "Retira até n clientes da fila, na ordem de chegada.")
+    @GetMapping("/fila/atendimento/proximos")
+    public ResponseEntity<GenericResponseDTO<List<GenericResponseDTO<?>>>> retirarProximosClientesDaFila(@RequestParam(defaultValue = "10") int n) {
+        if (n < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new GenericResponseDTO<>(null, "A quantidade deve ser maior que zero"));
+        }
+        try {
+            List<String> identificadores = filaDeAtendimento.retirarClientes(n);
+
+            if (identificadores.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Fila de atendimento vazia"));
             }
 
-            String clienteIdentificador = filaDeAtendimento.proximoCliente();
-            GenericResponseDTO<?> responseDTO;
+            // Separa CPFs e CNPJs para buscar cada tipo com uma única consulta IN
+            List<String> cpfs = new ArrayList<>();
+            List<String> cnpjs = new ArrayList<>();
+            for (String identificador : identificadores) {
+                TipoDeCliente tipo = TipoDeCliente.de(identificador);
+                if (tipo == TipoDeCliente.PF) {
+                    cpfs.add(identificador);
+                } else if (tipo == TipoDeCliente.PJ) {
+                    cnpjs.add(identificador);
+                }
+            }
 
-            // Verifica se o identificador do cliente é um CPF (para PF)
-            if (clienteIdentificador != null && clienteIdentificador.length() == 11) {
-                // Consulta o cliente PF por CPF usando o serviço
-                ClientePf clientePf = clientePfService.consultarClientePorCpf(clienteIdentificador);
-
-                if (clientePf != null) {
-                    // Crie um ClientePfResponseDTO com as informações apropriadas
-                    ClientePfResponseDTO clienteResponseDTO = new ClientePfResponseDTO();
-                    clienteResponseDTO.setCpf(clientePf.getCpf());
-                    clienteResponseDTO.setNome(clientePf.getNome());
-                    clienteResponseDTO.setEmail(clientePf.getEmail());
-                    clienteResponseDTO.setMcc(clientePf.getMcc());
-                    clienteResponseDTO.setMessage("Cliente PF retirado com sucesso da fila");
-                    responseDTO = new GenericResponseDTO<>(clienteResponseDTO, null);
-                } else {
-                    responseDTO = new GenericResponseDTO<>(null, "Cliente PF não encontrado na fila");
+            Map<String, ClientePf> clientesPf = new HashMap<>();
+            Map<String, ClientePj> clientesPj = new HashMap<>();
+            try {
+                for (ClientePf clientePf : clientePfService.consultarClientesPorCpfs(cpfs)) {
+                    clientesPf.put(clientePf.getCpf(), clientePf);
+                }
+                for (ClientePj clientePj : clientePjService.consultarClientesPorCnpjs(cnpjs)) {
+                    clientesPj.put(clientePj.getCnpj(), clientePj);
+                }
+            } catch (RuntimeException ex) {
+                // O lote inteiro já saiu da fila: vai todo para a fila de falhas
+                for (String identificador : identificadores) {
+                    if (TipoDeCliente.de(identificador) == TipoDeCliente.DESCONHECIDO) {
+                        filaDeFalhas.identificadorInvalido(identificador);
+                    } else {
+                        filaDeFalhas.falhaDeConsulta(identificador, ex);
+                    }
                 }
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(new GenericResponseDTO<>(null, "Falha ao consultar os clientes retirados da fila; eles foram enviados para a fila de falhas"));
             }
 
-            // Se não for CPF, verifica se é CNPJ (para PJ)
-            else if (clienteIdentificador != null && clienteIdentificador.length() == 14) {
-                // Consulta o cliente PJ por CNPJ usando o serviço PJ correspondente
-                ClientePj clientePj = clientePjService.consultarClientePorCnpj(clienteIdentificador);
-
-                if (clientePj != null) {
-                    // Crie um ClientePjResponseDTO com as informações apropriadas
-                    ClientePjResponseDTO clienteResponseDTO = new ClientePjResponseDTO();
-                    clienteResponseDTO.setCnpj(clientePj.getCnpj());
-                    clienteResponseDTO.setEmail(clientePj.getEmail());
-                    clienteResponseDTO.setMcc(clientePj.getMcc());
-                    clienteResponseDTO.setRazaoSocial(clientePj.getRazaoSocial());
-                    clienteResponseDTO.setNome(clientePj.getNomeContatoEstabelecimento());
-                    clienteResponseDTO.setCpf(clientePj.getCpfContatoEstabelecimento());
-                    clienteResponseDTO.setMessage("Cliente PJ retirado com sucesso da fila");
-                    responseDTO = new GenericResponseDTO<>(clienteResponseDTO, null);
-                } else {
-                    responseDTO = new GenericResponseDTO<>(null, "Cliente PJ não encontrado na fila");
+            // Monta a resposta na ordem em que os clientes estavam na fila
+            List<GenericResponseDTO<?>> clientes = new ArrayList<>(identificadores.size());
+            for (String identificador : identificadores) {
+                switch (TipoDeCliente.de(identificador)) {
+                    case PF:
+                        clientes.add(criarRespostaPf(clientesPf.get(identificador)));
+                        filaDeFalhas.consultou(identificador);
+                        break;
+                    case PJ:
+                        clientes.add(criarRespostaPj(clientesPj.get(identificador)));
+                        filaDeFalhas.consultou(identificador);
+                        break;
+                    default:
+                        filaDeFalhas.identificadorInvalido(identificador);
+                        clientes.add(new GenericResponseDTO<>(null, IDENTIFICADOR_INVALIDO));
                 }
-            } else {
-                responseDTO = new GenericResponseDTO<>(null, "Identificador inválido na fila");
             }
 
-            return ResponseEntity.status(HttpStatus.OK).body(responseDTO);
-        } catch (RuntimeException ex) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Fila de atendimento vazia"));
+            return ResponseEntity.status(HttpStatus.OK).body(new GenericResponseDTO<>(clientes, null));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new GenericResponseDTO<>(null, "Erro interno do servidor"));
+        }
+    }
+
+    // Endpoint para receber o próximo cliente sem retirá-lo de vez: se o atendimento não for confirmado
+    // dentro do tempo de visibilidade, o cliente volta para a fila e é entregue a outro atendente
+    @Operation(summary = "Receber próximo cliente da fila de atendimento", description = "Entrega o próximo cliente com um recibo. O cliente volta para a fila se o recibo não for confirmado dentro do tempo de visibilidade.")
+    @ApiResponse(responseCode = "404", description = "Fila vazia, ou cadastro do cliente recebido excluído (recibo já confirmado)")
+    @ApiResponse(responseCode = "422", description = "Identificador inválido na fila; enviado para a fila de falhas e recibo já confirmado")
+    @GetMapping("/fila/atendimento/receber")
+    public ResponseEntity<GenericResponseDTO<RecebimentoDTO>> receberProximoClienteDaFila() {
+        try {
+            Recebimento recebimento = filaDeAtendimento.receber();
+
+            if (recebimento == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Fila de atendimento vazia"));
+            }
+
+            GenericResponseDTO<?> cliente;
+            try {
+                cliente = consultarCliente(recebimento.getCliente());
+            } catch (RuntimeException ex) {
+                // Confirmado para não voltar à fila e falhar de novo a cada prazo de visibilidade
+                filaDeAtendimento.confirmar(recebimento.getRecibo());
+                filaDeFalhas.falhaDeConsulta(recebimento.getCliente(), ex);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(new GenericResponseDTO<>(null, "Falha ao consultar o cliente recebido; ele foi enviado para a fila de falhas"));
+            }
+            if (cliente.getData() == null) {
+                // Identificador inválido (já na fila de falhas) ou cadastro excluído: sem atendimento possível,
+                // confirmado para não ser entregue de novo a cada prazo de visibilidade
+                filaDeAtendimento.confirmar(recebimento.getRecibo());
+                HttpStatus status = TipoDeCliente.de(recebimento.getCliente()) == TipoDeCliente.DESCONHECIDO
+                        ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.NOT_FOUND;
+                return ResponseEntity.status(status).body(new GenericResponseDTO<>(null, cliente.getMessage()));
+            }
+            RecebimentoDTO recebimentoDTO = new RecebimentoDTO(recebimento.getRecibo(), recebimento.getEntregas(),
+                    filaDeAtendimento.getTempoDeVisibilidadeMs(), cliente.getData());
+            return ResponseEntity.status(HttpStatus.OK).body(new GenericResponseDTO<>(recebimentoDTO, cliente.getMessage()));
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new GenericResponseDTO<>(null, "Erro interno do servidor"));
         }
     }
 
-    // Endpoint para visualizar o conteúdo da fila de atendimento
-    @Operation(summary = "Visualizar conteúdo da fila de atendimento", description = "Retorna o conteúdo da fila de atendimento.")
+    // Endpoint para confirmar o atendimento de um cliente recebido, retirando-o de vez da fila
+    @Operation(summary = "Confirmar atendimento", description = "Retira de vez da fila o cliente entregue com o recibo informado.")
+    @ApiResponse(responseCode = "404", description = "Recibo não encontrado ou com tempo de visibilidade vencido")
+    @PostMapping("/fila/atendimento/confirmar/{recibo}")
+    public ResponseEntity<GenericResponseDTO<?>> confirmarAtendimento(@PathVariable String recibo) {
+        if (!filaDeAtendimento.confirmar(recibo)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Recibo não encontrado ou expirado"));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(new GenericResponseDTO<>(null, "Atendimento confirmado"));
+    }
+
+    // Endpoint para devolver imediatamente à fila um cliente recebido que não será atendido
+    @Operation(summary = "Devolver cliente à fila", description = "Devolve à fila, sem esperar o tempo de visibilidade, o cliente entregue com o recibo informado.")
+    @ApiResponse(responseCode = "404", description = "Recibo não encontrado ou com tempo de visibilidade vencido")
+    @PostMapping("/fila/atendimento/devolver/{recibo}")
+    public ResponseEntity<GenericResponseDTO<?>> devolverClienteParaFila(@PathVariable String recibo) {
+        if (!filaDeAtendimento.devolver(recibo)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Recibo não encontrado ou expirado"));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(new GenericResponseDTO<>(null, "Cliente devolvido à fila"));
+    }
+
+    // Endpoint para o cliente desistir do atendimento: todas as cópias do CPF/CNPJ que aguardam saem da fila
+    @Operation(summary = "Cancelar cliente na fila", description = "Remove da fila o CPF/CNPJ que ainda aguarda atendimento.")
+    @ApiResponse(responseCode = "404", description = "Cliente não está aguardando na fila")
+    @ApiResponse(responseCode = "501", description = "Backend da fila sem remoção de clientes")
+    @PostMapping("/fila/atendimento/cancelar/{documento}")
+    public ResponseEntity<GenericResponseDTO<?>> cancelarClienteNaFila(@PathVariable String documento) {
+        try {
+            if (!filaDeAtendimento.removerClienteDaFila(documento)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Cliente não está aguardando na fila"));
+            }
+            return ResponseEntity.status(HttpStatus.OK).body(new GenericResponseDTO<>(null, "Cliente removido da fila"));
+        } catch (UnsupportedOperationException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(new GenericResponseDTO<>(null, ex.getMessage()));
+        }
+    }
+
+    // Endpoint para visualizar o conteúdo da fila de atendimento. Sem parâmetros a fila inteira é escrita na
+    // resposta enquanto é percorrida, sem montar uma cópia; com cursor e/ou limit, uma página de cada vez.
+    @Operation(summary = "Visualizar conteúdo da fila de atendimento", description = "Retorna o conteúdo da fila de atendimento. Com cursor e/ou limit retorna uma página e o cursor da próxima.")
     @GetMapping("/fila/atendimento")
-    public ResponseEntity<?> visualizarFilaDeAtendimento() {
+    public ResponseEntity<?> visualizarFilaDeAtendimento(@RequestParam(required = false) Long cursor,
+                                                         @RequestParam(required = false) Integer limit) {
         try {
-            // Obtenha o conteúdo da fila (por exemplo, uma lista de IDs de clientes)
-            String[] conteudoDaFilaArray = filaDeAtendimento.obterConteudoDaFila();
+            if (cursor != null || limit != null) {
+                return paginaDaFila(cursor == null ? 0 : cursor, limit == null ? TAMANHO_PADRAO_DA_PAGINA : limit);
+            }
 
-            if (conteudoDaFilaArray == null || conteudoDaFilaArray.length == 0) {
+            // Percorre só até o primeiro cliente; o SQS, que não permite listar a fila, falha já aqui
+            boolean[] vazia = {true};
+            filaDeAtendimento.percorrerConteudo(0, cliente -> {
+                vazia[0] = false;
+                return false;
+            });
+            if (vazia[0]) {
                 // Se a fila está vazia, retorne uma mensagem apropriada com o status 200 (OK)
                 return ResponseEntity.status(HttpStatus.OK).body("Fila de atendimento vazia");
             }
 
             // Retorne o conteúdo da fila como uma lista de strings com o status 200 (OK)
-            return ResponseEntity.status(HttpStatus.OK).body(Arrays.asList(conteudoDaFilaArray));
+            StreamingResponseBody conteudo = this::escreverConteudoDaFila;
+            return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(conteudo);
+        } catch (UnsupportedOperationException ex) {
+            // Backend SQS: o serviço não permite listar as mensagens
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(ex.getMessage());
         } catch (Exception ex) {
             // Trate qualquer outra exceção que possa ocorrer aqui e retorne uma resposta apropriada, por exemplo, HTTP 500 - Internal Server Error
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erro interno do servidor");
         }
     }
 
+    // Endpoint para o cliente acompanhar a sua vez pelo CPF/CNPJ, sem copiar a fila
+    @Operation(summary = "Consultar posição na fila", description = "Retorna a posição do CPF/CNPJ na fila de atendimento, a partir de 1.")
+    @ApiResponse(responseCode = "404", description = "Cliente não está aguardando na fila")
+    @ApiResponse(responseCode = "501", description = "Backend ou configuração da fila sem consulta de posição")
+    @GetMapping("/fila/atendimento/posicao/{documento}")
+    public ResponseEntity<GenericResponseDTO<PosicaoNaFilaDTO>> consultarPosicaoNaFila(@PathVariable String documento) {
+        try {
+            long posicao = filaDeAtendimento.posicaoNaFila(documento);
+            if (posicao < 1) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponseDTO<>(null, "Cliente não está aguardando na fila"));
+            }
+            return ResponseEntity.status(HttpStatus.OK).body(new GenericResponseDTO<>(new PosicaoNaFilaDTO(documento, posicao), null));
+        } catch (UnsupportedOperationException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(new GenericResponseDTO<>(null, ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new GenericResponseDTO<>(null, "Erro interno do servidor"));
+        }
+    }
+
+    private ResponseEntity<?> paginaDaFila(long cursor, int limite) {
+        if (cursor < 0 || limite < 1 || limite > MAXIMO_POR_PAGINA) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new GenericResponseDTO<>(null, "O cursor não pode ser negativo e o limite deve estar entre 1 e " + MAXIMO_POR_PAGINA));
+        }
+        List<String> clientes = new ArrayList<>(limite);
+        boolean[] haMais = {false};
+        long proximoCursor = filaDeAtendimento.percorrerConteudo(cursor, cliente -> {
+            if (clientes.size() == limite) {
+                haMais[0] = true;
+                return false;
+            }
+            clientes.add(cliente);
+            return true;
+        });
+        return ResponseEntity.status(HttpStatus.OK).body(new PaginaDaFilaDTO(clientes, haMais[0] ? proximoCursor : null));
+    }
+
+    // Escreve cada cliente assim que é visitado; o gerador de JSON envia a resposta em blocos
+    private void escreverConteudoDaFila(OutputStream saida) throws IOException {
+        try (JsonGenerator json = FABRICA_DE_JSON.createGenerator(saida)) {
+            json.writeStartArray();
+            try {
+                filaDeAtendimento.percorrerConteudo(0, cliente -> {
+                    try {
+                        json.writeString(cliente);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    return true;
+                });
+            } catch (UncheckedIOException ex) {
+                // Painel desconectado no meio da resposta
+                throw ex.getCause();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    // Endpoint de acompanhamento para painéis: um SNAPSHOT da fila e depois apenas as mudanças (ENTRADA/SAIDA),
+    // numeradas no id do evento. Substitui consultas repetidas a /fila/atendimento, que copiam a fila inteira.
+    @Operation(summary = "Acompanhar fila de atendimento", description = "Stream (Server-Sent Events) com o conteúdo da fila e, em seguida, as entradas e saídas. Envie o cabeçalho Last-Event-ID para retomar após uma reconexão.")
+    @GetMapping(value = "/fila/atendimento/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter acompanharFilaDeAtendimento(@RequestHeader(value = "Last-Event-ID", required = false) Long ultimoEvento) {
+        if (filaEmMemoria == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, APENAS_FILA_EM_MEMORIA);
+        }
+        SseEmitter emitter = new SseEmitter(DURACAO_DO_STREAM_DE_EVENTOS_MS);
+        AssinaturaDeEventos assinatura = filaEmMemoria.getEventos().assinar(ultimoEvento,
+                pendente -> consultasDeEspera.execute(() -> enviarEventos(emitter, pendente)),
+                emitter::complete);
+        emitter.onCompletion(assinatura::cancelar);
+        emitter.onTimeout(assinatura::cancelar);
+        emitter.onError(erro -> assinatura.cancelar());
+        return emitter;
+    }
+
+    private void enviarEventos(SseEmitter emitter, AssinaturaDeEventos assinatura) {
+        assinatura.enviarPendentes(evento -> {
+            Object dados = evento.getTipo() == EventoDaFila.Tipo.SNAPSHOT ? evento.getConteudo() : evento.getCliente();
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(evento.getSequencia()))
+                        .name(evento.getTipo().name())
+                        .data(dados));
+            } catch (IOException ex) {
+                // Painel desconectado
+                assinatura.cancelar();
+                emitter.completeWithError(ex);
+            }
+        });
+    }
+
+    // Endpoint para inspecionar a fila de falhas: clientes retirados que não puderam ser entregues, com o motivo
+    @Operation(summary = "Fila de falhas", description = "Retorna os contadores e as falhas mais antigas (consulta ao cadastro com erro ou identificador inválido).")
+    @GetMapping("/fila/atendimento/falhas")
+    public ResponseEntity<GenericResponseDTO<FilaDeFalhasDTO>> visualizarFilaDeFalhas(@RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAXIMO_POR_PAGINA) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new GenericResponseDTO<>(null, "O limite deve estar entre 1 e " + MAXIMO_POR_PAGINA));
+        }
+        FilaDeFalhasDTO falhas = new FilaDeFalhasDTO(
+                filaDeFalhas.getTamanho(),
+                filaDeFalhas.getCapacidade(),
+                filaDeFalhas.getFalhasDeConsulta(),
+                filaDeFalhas.getIdentificadoresInvalidos(),
+                filaDeFalhas.getReenvios(),
+                filaDeFalhas.getDescartadas(),
+                filaDeFalhas.listar(limit)
+        );
+        return ResponseEntity.status(HttpStatus.OK).body(new GenericResponseDTO<>(falhas, null));
+    }
+
+    // Endpoint para devolver à fila de atendimento, em lote, as falhas mais antigas (depois de corrigir a causa)
+    @Operation(summary = "Reenviar falhas para a fila", description = "Devolve ao fim da fila de atendimento até n clientes da fila de falhas, dos mais antigos para os mais novos.")
+    @ApiResponse(responseCode = "429", description = "Fila de atendimento cheia antes do primeiro reenvio")
+    @PostMapping("/fila/atendimento/falhas/reenviar")
+    public ResponseEntity<GenericResponseDTO<?>> reenviarFalhasParaAFila(@RequestParam(defaultValue = "100") int n) {
+        if (n < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new GenericResponseDTO<>(null, "A quantidade deve ser maior que zero"));
+        }
+        try {
+            int reenviados = filaDeFalhas.reenviar(n, filaDeAtendimento);
+            if (reenviados == 0 && filaDeFalhas.getTamanho() > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(filaDeAtendimento.getRetryAfterSegundos()))
+                        .body(new GenericResponseDTO<>(null, "Fila de atendimento cheia. Tente novamente mais tarde."));
+            }
+            return ResponseEntity.status(HttpStatus.OK)
+                    .body(new GenericResponseDTO<>(null, reenviados + " cliente(s) reenviado(s) para a fila de atendimento"));
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new GenericResponseDTO<>(null, "Erro interno do servidor"));
+        }
+    }
+
+    // Endpoint com os contadores da fila, para dimensionar a capacidade a partir do tráfego real
+    @Operation(summary = "Estatísticas da fila de atendimento", description = "Retorna tamanho, capacidade e os contadores de cada política de transbordo.")
+    @GetMapping("/fila/atendimento/estatisticas")
+    public ResponseEntity<EstatisticasDaFilaDTO> estatisticasDaFila() {
+        if (filaEmMemoria == null) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+        ContadoresDaFila contadores = filaEmMemoria.getContadores();
+        EstatisticasDaFilaDTO estatisticas = EstatisticasDaFilaDTO.builder()
+                .tamanho(filaEmMemoria.getTamanho())
+                .capacidade(filaEmMemoria.getCapacidade())
+                .politicaDeTransbordo(filaEmMemoria.getPolitica().name())
+                .adicionados(contadores.getAdicionados())
+                .retirados(contadores.getRetirados())
+                .rejeitados(contadores.getRejeitados())
+                .bloqueios(contadores.getBloqueios())
+                .bloqueiosExpirados(contadores.getBloqueiosExpirados())
+                .descartados(contadores.getDescartados())
+                .derramadosEmDisco(contadores.getDerramadosEmDisco())
+                .recarregadosDoDisco(contadores.getRecarregadosDoDisco())
+                .emProcessamento(filaEmMemoria.getEmProcessamento())
+                .recebidos(contadores.getRecebidos())
+                .confirmados(contadores.getConfirmados())
+                .devolvidos(contadores.getDevolvidos())
+                .expirados(contadores.getExpirados())
+                .reentregas(contadores.getReentregas())
+                .duplicados(contadores.getDuplicados())
+                .copiasObsoletas(contadores.getCopiasObsoletas())
+                .cancelados(contadores.getCancelados())
+                .copiasCanceladas(contadores.getCopiasCanceladas())
+                .agendamentosPendentes(filaEmMemoria.getAgendamentosPendentes())
+                .agendados(contadores.getAgendados())
+                .agendamentosLiberados(contadores.getAgendamentosLiberados())
+                .agendamentosRecusados(contadores.getAgendamentosRecusados())
+                .atendentesAguardando(filaEmMemoria.getAtendentesAguardando())
+                .esperasAtendidas(contadores.getEsperasAtendidas())
+                .esperasExpiradas(contadores.getEsperasExpiradas())
+                .esperasRecusadas(contadores.getEsperasRecusadas())
+                .profundidadePorParticao(filaEmMemoria.getProfundidadePorParticao())
+                .roubosPorParticao(filaEmMemoria.getRoubosPorParticao())
+                .raias(filaEmMemoria.getRaias())
+                .profundidadePorRaia(filaEmMemoria.getProfundidadePorRaia())
+                .assinaturasDeEventos(filaEmMemoria.getEventos().getAssinaturas())
+                .assinaturasDeEventosDescartadas(filaEmMemoria.getEventos().getAssinaturasDescartadas())
+                .build();
+        return ResponseEntity.status(HttpStatus.OK).body(estatisticas);
+    }
+
 }
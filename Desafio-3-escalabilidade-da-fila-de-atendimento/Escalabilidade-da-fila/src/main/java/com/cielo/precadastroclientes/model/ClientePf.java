@@ -5,6 +5,9 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +21,10 @@ import java.util.UUID;
 @ToString
 @RequiredArgsConstructor
 @Entity
+// Esquema nas migrações de db/migration; a restrição única no CPF é também o índice das consultas por documento
+@Table(name = "cliente_pf",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cliente_pf_cpf", columnNames = "cpf"),
+        indexes = @Index(name = "idx_cliente_pf_mcc_id", columnList = "mcc, id"))
 public class ClientePf {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,6 +5,9 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -18,6 +21,11 @@ import java.util.UUID;
 @ToString
 @RequiredArgsConstructor
 @Entity
+// Esquema nas migrações de db/migration; a restrição única no CNPJ é também o índice das consultas por documento
+@Table(name = "cliente_pj",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cliente_pj_cnpj", columnNames = "cnpj"),
+        indexes = {@Index(name = "idx_cliente_pj_cpf_contato_estabelecimento", columnList = "cpfContatoEstabelecimento"),
+                @Index(name = "idx_cliente_pj_mcc_id", columnList = "mcc, id")})
 public class ClientePj {
 
     @Id
@@ -0,0 +1,40 @@
+package com.cielo.precadastroclientes.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+// Entrada na fila de atendimento ainda não retransmitida (caixa de saída). Gravada na mesma transação do
+// cadastro do cliente e apagada pela CaixaDeSaidaDaFila depois que o cliente entra na fila.
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@Entity
+@Table(name = "caixa_de_saida_da_fila", indexes = @Index(name = "idx_caixa_de_saida_da_fila_cliente", columnList = "cliente"))
+public class EnvioParaFila {
+    // Crescente: a retransmissão segue o id, o que preserva a ordem dos envios de cada cliente
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String cliente;
+
+    @Column(length = 4)
+    private String mcc;
+
+    // Entrada agendada (notBefore), epoch em ms; null para entrar assim que retransmitido
+    private Long naoAntesDeMs;
+
+    @Column(nullable = false)
+    private long criadoEmMs;
+}
@@ -0,0 +1,135 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+// Clientes com entrada agendada (notBefore) na FilaDeAtendimento, numa roda hierárquica pelo relógio de parede:
+// o prazo vem de fora como instante absoluto e precisa continuar valendo depois de um reinício. No modo durável
+// ficam num log próprio, com entrada ao agendar e saída ao passar para a fila.
+final class AgendamentosDaFila {
+
+    private final RodaHierarquica<Agendamento> roda;
+    private final int maximo;
+    // null fora do modo durável
+    private final LogDaFila log;
+    private final ContadoresDaFila contadores;
+
+    // Os agendamentos recuperados do log voltam para a roda; os vencidos durante a parada entram no primeiro tick
+    AgendamentosDaFila(long resolucaoMs, int casas, int niveis, int maximo, LogDaFila log, ContadoresDaFila contadores) {
+        this.roda = new RodaHierarquica<>(resolucaoMs, casas, niveis, System.currentTimeMillis());
+        this.maximo = maximo;
+        this.log = log;
+        this.contadores = contadores;
+        if (log != null) {
+            for (String registro : log.recuperar()) {
+                Agendamento agendamento = Agendamento.de(registro);
+                roda.agendar(agendamento, agendamento.naoAntesDeMs);
+            }
+        }
+    }
+
+    // Retorna false quando o limite de agendamentos foi atingido
+    boolean agendar(String cliente, FaixaDeMcc faixa, long naoAntesDeMs) {
+        // Verificação aproximada: agendamentos simultâneos podem passar o limite por poucas unidades
+        if (roda.size() >= maximo) {
+            contadores.agendamentosRecusados.increment();
+            return false;
+        }
+        Agendamento agendamento = new Agendamento(cliente, faixa, naoAntesDeMs);
+        if (log == null) {
+            roda.agendar(agendamento, naoAntesDeMs);
+        } else {
+            // Sob o lock do log, para que um checkpoint veja o agendamento na roda e no log
+            synchronized (log) {
+                roda.agendar(agendamento, naoAntesDeMs);
+                log.registrarEntrada(agendamento.registro());
+            }
+        }
+        contadores.agendados.increment();
+        return true;
+    }
+
+    // Passa para a fila, com "entrar", os agendamentos vencidos até agoraMs e retorna quantos entraram. Se a fila
+    // não aceita um cliente, ele e os seguintes do lote voltam para a roda e são tentados no próximo tick.
+    int amadurecer(long agoraMs, BiPredicate<String, FaixaDeMcc> entrar) {
+        if (log == null) {
+            return amadurecer(roda.avancar(agoraMs), entrar);
+        }
+        // Um checkpoint vê cada agendamento na roda ou já na fila, nunca em nenhum dos dois. A entrada na fila é
+        // registrada antes da saída do agendamento: uma queda entre as duas repete a entrada no reinício, o que
+        // a deduplicação absorve, em vez de perder o cliente.
+        synchronized (log) {
+            return amadurecer(roda.avancar(agoraMs), entrar);
+        }
+    }
+
+    private int amadurecer(List<Agendamento> vencidos, BiPredicate<String, FaixaDeMcc> entrar) {
+        int movidos = 0;
+        boolean semVaga = false;
+        for (Agendamento agendamento : vencidos) {
+            semVaga = semVaga || !entrar.test(agendamento.cliente, agendamento.faixa);
+            if (semVaga) {
+                // Prazo vencido: volta para a casa do tick atual
+                roda.agendar(agendamento, agendamento.naoAntesDeMs);
+                continue;
+            }
+            if (log != null) {
+                log.registrarSaida(agendamento.registro());
+            }
+            contadores.agendamentosLiberados.increment();
+            movidos++;
+        }
+        return movidos;
+    }
+
+    // Grava os agendamentos pendentes no log e descarta os segmentos antigos
+    void checkpoint() {
+        if (log == null) {
+            return;
+        }
+        synchronized (log) {
+            List<String> registros = new ArrayList<>();
+            for (Agendamento agendamento : roda.valores()) {
+                registros.add(agendamento.registro());
+            }
+            log.checkpoint(registros);
+        }
+    }
+
+    void close() {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // Clientes agendados que ainda não entraram na fila
+    int size() {
+        return roda.size();
+    }
+
+    // Cliente agendado com a faixa de MCC do cadastro. No log, "prazo;faixa;cliente" num único identificador.
+    private static final class Agendamento {
+        private final String cliente;
+        private final FaixaDeMcc faixa;
+        private final long naoAntesDeMs;
+
+        Agendamento(String cliente, FaixaDeMcc faixa, long naoAntesDeMs) {
+            this.cliente = cliente;
+            this.faixa = faixa;
+            this.naoAntesDeMs = naoAntesDeMs;
+        }
+
+        String registro() {
+            return naoAntesDeMs + ";" + faixa.name() + ";" + cliente;
+        }
+
+        static Agendamento de(String registro) {
+            int primeiro = registro.indexOf(';');
+            int segundo = registro.indexOf(';', primeiro + 1);
+            return new Agendamento(registro.substring(segundo + 1),
+                    FaixaDeMcc.valueOf(registro.substring(primeiro + 1, segundo)),
+                    Long.parseLong(registro.substring(0, primeiro)));
+        }
+    }
+}
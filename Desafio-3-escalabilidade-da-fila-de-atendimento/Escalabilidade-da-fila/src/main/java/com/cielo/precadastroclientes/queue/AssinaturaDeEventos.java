@@ -0,0 +1,63 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Um painel acompanhando a fila. Os eventos ficam num buffer limitado próprio; se ele enche porque o
+// painel não consome a tempo, a assinatura é descartada em vez de segurar os demais.
+public final class AssinaturaDeEventos {
+
+    private final PublicadorDeEventos publicador;
+    private final BufferCircularMpmc<EventoDaFila> pendentes;
+    private final Consumer<AssinaturaDeEventos> aoTerEventos;
+    private final Runnable aoDescartar;
+    // Garante uma única tarefa de envio por vez, para os eventos saírem na ordem
+    private final AtomicBoolean emEnvio = new AtomicBoolean();
+    private volatile boolean encerrada;
+
+    AssinaturaDeEventos(PublicadorDeEventos publicador, int tamanhoDoBuffer,
+                        Consumer<AssinaturaDeEventos> aoTerEventos, Runnable aoDescartar) {
+        this.publicador = publicador;
+        this.pendentes = new BufferCircularMpmc<>(tamanhoDoBuffer);
+        this.aoTerEventos = aoTerEventos;
+        this.aoDescartar = aoDescartar;
+    }
+
+    // Chamado pelo despachante; false quando o buffer está cheio
+    boolean entregar(EventoDaFila evento) {
+        return pendentes.offer(evento);
+    }
+
+    // Agenda o envio se houver eventos e nenhum envio em andamento
+    void notificar() {
+        if (!encerrada && !pendentes.isEmpty() && emEnvio.compareAndSet(false, true)) {
+            aoTerEventos.accept(this);
+        }
+    }
+
+    void descartar() {
+        encerrada = true;
+        aoDescartar.run();
+    }
+
+    // Chamado pela tarefa agendada em aoTerEventos: envia os eventos pendentes, em ordem, até esvaziar o buffer
+    public void enviarPendentes(Consumer<EventoDaFila> envio) {
+        do {
+            EventoDaFila evento;
+            while (!encerrada && (evento = pendentes.poll()) != null) {
+                envio.accept(evento);
+            }
+            emEnvio.set(false);
+            // Um evento entregue entre o último poll e a liberação não pode ficar esperando a próxima notificação
+        } while (!encerrada && !pendentes.isEmpty() && emEnvio.compareAndSet(false, true));
+    }
+
+    public void cancelar() {
+        encerrada = true;
+        publicador.remover(this);
+    }
+
+    public boolean isEncerrada() {
+        return encerrada;
+    }
+}
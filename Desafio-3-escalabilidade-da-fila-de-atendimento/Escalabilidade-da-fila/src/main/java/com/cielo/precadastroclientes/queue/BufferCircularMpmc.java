@@ -0,0 +1,126 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Buffer circular limitado, sem locks, para múltiplos produtores e múltiplos consumidores.
+// Cada posição guarda um número de sequência que indica se ela está livre para o produtor
+// da volta atual (sequencia == posicao) ou pronta para o consumidor (sequencia == posicao + 1).
+// Produtores disputam apenas a cauda e consumidores apenas a cabeça, ambas com CAS.
+// Usado pelos eventos da fila: o PublicadorDeEventos recebe os eventos nele e cada AssinaturaDeEventos guarda
+// nele os pendentes. A FilaDeAtendimento não guarda os clientes aqui: a fila precisa crescer além de uma
+// capacidade fixa e aplicar a política de estouro, e por isso usa uma FilaEmMemoria.
+public final class BufferCircularMpmc<E> {
+
+    private final int capacidade;
+    private final Object[] elementos;
+    private final AtomicLongArray sequencias;
+    private final ContadorPreenchido cabeca = new ContadorPreenchido();
+    private final ContadorPreenchido cauda = new ContadorPreenchido();
+
+    public BufferCircularMpmc(int capacidade) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("A capacidade do buffer deve ser maior que zero");
+        }
+        this.capacidade = capacidade;
+        this.elementos = new Object[capacidade];
+        this.sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    // Retorna false quando o buffer está cheio
+    public boolean offer(E elemento) {
+        if (elemento == null) {
+            throw new NullPointerException("O buffer não aceita elementos nulos");
+        }
+        long posicao = cauda.get();
+        while (true) {
+            int indice = indice(posicao);
+            long diferenca = sequencias.get(indice) - posicao;
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    elementos[indice] = elemento;
+                    // A escrita volátil da sequência publica o elemento para os consumidores
+                    sequencias.set(indice, posicao + 1);
+                    return true;
+                }
+                posicao = cauda.get();
+            } else if (diferenca < 0) {
+                return false;
+            } else {
+                posicao = cauda.get();
+            }
+        }
+    }
+
+    // Retira atomicamente o próximo elemento, ou null quando o buffer está vazio
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long posicao = cabeca.get();
+        while (true) {
+            int indice = indice(posicao);
+            long diferenca = sequencias.get(indice) - (posicao + 1);
+            if (diferenca == 0) {
+                if (cabeca.compareAndSet(posicao, posicao + 1)) {
+                    E elemento = (E) elementos[indice];
+                    elementos[indice] = null;
+                    // Libera a posição para o produtor da próxima volta
+                    sequencias.set(indice, posicao + capacidade);
+                    return elemento;
+                }
+                posicao = cabeca.get();
+            } else if (diferenca < 0) {
+                return null;
+            } else {
+                posicao = cabeca.get();
+            }
+        }
+    }
+
+    public int size() {
+        // Lê a cabeça antes da cauda para nunca obter um tamanho negativo por corrida
+        long inicio = cabeca.get();
+        long fim = cauda.get();
+        long tamanho = fim - inicio;
+        if (tamanho < 0) {
+            return 0;
+        }
+        return (int) Math.min(tamanho, capacidade);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacidade() {
+        return capacidade;
+    }
+
+    // Cópia fracamente consistente do conteúdo, da cabeça para a cauda.
+    // Não bloqueia produtores nem consumidores; posições ainda não publicadas são ignoradas.
+    @SuppressWarnings("unchecked")
+    public List<E> snapshot() {
+        long inicio = cabeca.get();
+        long fim = cauda.get();
+        List<E> conteudo = new ArrayList<>((int) Math.max(0, Math.min(fim - inicio, capacidade)));
+        for (long posicao = inicio; posicao < fim; posicao++) {
+            int indice = indice(posicao);
+            if (sequencias.get(indice) != posicao + 1) {
+                continue;
+            }
+            Object elemento = elementos[indice];
+            // Confere de novo a sequência: a posição pode ter sido consumida durante a leitura
+            if (elemento != null && sequencias.get(indice) == posicao + 1) {
+                conteudo.add((E) elemento);
+            }
+        }
+        return conteudo;
+    }
+
+    private int indice(long posicao) {
+        return (int) (posicao % capacidade);
+    }
+}
@@ -0,0 +1,22 @@
+package com.cielo.precadastroclientes.queue;
+
+// Cliente guardado fora da memória (log ou excedente em disco) junto com a faixa de MCC com que entrou,
+// para voltar à fila na mesma raia e com as mesmas métricas.
+public final class ClienteNaFila {
+
+    private final String cliente;
+    private final FaixaDeMcc faixa;
+
+    public ClienteNaFila(String cliente, FaixaDeMcc faixa) {
+        this.cliente = cliente;
+        this.faixa = faixa;
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+
+    public FaixaDeMcc getFaixa() {
+        return faixa;
+    }
+}
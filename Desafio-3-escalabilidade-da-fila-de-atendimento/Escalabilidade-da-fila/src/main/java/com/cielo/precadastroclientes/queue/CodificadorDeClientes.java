@@ -0,0 +1,82 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Identificadores da fila compactados em um long. CPF e CNPJ numéricos viram o próprio número com o tipo
+// nos dois bits baixos, sem nenhum objeto; na saída o texto é refeito com os zeros à esquerda. Qualquer
+// outro identificador recebe um número sequencial e fica numa tabela até sair da fila, então a fila
+// continua aceitando qualquer texto, mas só CPF e CNPJ têm o custo mínimo.
+public final class CodificadorDeClientes {
+
+    private static final int BITS_DO_TIPO = 2;
+    private static final int TIPO_CPF = 1;
+    private static final int TIPO_CNPJ = 2;
+    private static final int TIPO_OUTRO = 3;
+    private static final int MASCARA_DO_TIPO = (1 << BITS_DO_TIPO) - 1;
+
+    private final ConcurrentHashMap<Long, String> outros = new ConcurrentHashMap<>();
+    private final AtomicLong proximoOutro = new AtomicLong(1);
+
+    // Nunca retorna 0 nem -1, que a FilaSegmentadaDeLongs reserva para posições vazias e consumidas
+    public long codificar(String identificador) {
+        int tamanho = identificador.length();
+        if (tamanho == 11 || tamanho == 14) {
+            long numero = 0;
+            int i = 0;
+            for (; i < tamanho; i++) {
+                char digito = identificador.charAt(i);
+                if (digito < '0' || digito > '9') {
+                    break;
+                }
+                numero = numero * 10 + (digito - '0');
+            }
+            if (i == tamanho) {
+                return (numero << BITS_DO_TIPO) | (tamanho == 11 ? TIPO_CPF : TIPO_CNPJ);
+            }
+        }
+        long numero = proximoOutro.getAndIncrement();
+        outros.put(numero, identificador);
+        return (numero << BITS_DO_TIPO) | TIPO_OUTRO;
+    }
+
+    // Identificador de um código que continua na fila
+    public String decodificar(long codigo) {
+        long numero = codigo >>> BITS_DO_TIPO;
+        switch ((int) (codigo & MASCARA_DO_TIPO)) {
+            case TIPO_CPF:
+                return digitos(numero, 11);
+            case TIPO_CNPJ:
+                return digitos(numero, 14);
+            default:
+                return outros.get(numero);
+        }
+    }
+
+    // Identificador de um código que acabou de sair da fila: se não é CPF/CNPJ, deixa a tabela
+    public String retirar(long codigo) {
+        if ((codigo & MASCARA_DO_TIPO) == TIPO_OUTRO) {
+            return outros.remove(codigo >>> BITS_DO_TIPO);
+        }
+        return decodificar(codigo);
+    }
+
+    public static TipoDeCliente tipo(long codigo) {
+        long tipo = codigo & MASCARA_DO_TIPO;
+        return tipo == TIPO_CPF ? TipoDeCliente.PF : tipo == TIPO_CNPJ ? TipoDeCliente.PJ : TipoDeCliente.DESCONHECIDO;
+    }
+
+    // Identificadores fora do padrão CPF/CNPJ guardados na tabela
+    public int getOutros() {
+        return outros.size();
+    }
+
+    private static String digitos(long numero, int tamanho) {
+        char[] texto = new char[tamanho];
+        for (int i = tamanho - 1; i >= 0; i--) {
+            texto[i] = (char) ('0' + numero % 10);
+            numero /= 10;
+        }
+        return new String(texto);
+    }
+}
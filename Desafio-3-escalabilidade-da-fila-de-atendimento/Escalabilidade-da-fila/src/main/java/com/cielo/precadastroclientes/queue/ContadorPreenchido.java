@@ -0,0 +1,37 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Contador de 64 bits isolado em sua própria linha de cache.
+// Os campos de preenchimento antes e depois do valor evitam "false sharing"
+// entre a cabeça (consumidores) e a cauda (produtores) do buffer circular.
+abstract class PreenchimentoEsquerdo {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class ValorDoContador extends PreenchimentoEsquerdo {
+    volatile long valor;
+}
+
+final class ContadorPreenchido extends ValorDoContador {
+    long p11, p12, p13, p14, p15, p16, p17;
+
+    private static final VarHandle VALOR;
+
+    static {
+        try {
+            VALOR = MethodHandles.lookup().findVarHandle(ValorDoContador.class, "valor", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    long get() {
+        return valor;
+    }
+
+    boolean compareAndSet(long esperado, long novo) {
+        return VALOR.compareAndSet(this, esperado, novo);
+    }
+}
@@ -0,0 +1,130 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Contadores da fila de atendimento, usados para dimensionar a capacidade a partir do tráfego real.
+// LongAdder evita que os próprios contadores virem um ponto de disputa entre as threads.
+public class ContadoresDaFila {
+    final LongAdder adicionados = new LongAdder();
+    final LongAdder retirados = new LongAdder();
+    final LongAdder rejeitados = new LongAdder();
+    final LongAdder bloqueios = new LongAdder();
+    final LongAdder bloqueiosExpirados = new LongAdder();
+    final LongAdder descartados = new LongAdder();
+    final LongAdder derramadosEmDisco = new LongAdder();
+    final LongAdder recarregadosDoDisco = new LongAdder();
+    final LongAdder recebidos = new LongAdder();
+    final LongAdder confirmados = new LongAdder();
+    final LongAdder devolvidos = new LongAdder();
+    final LongAdder expirados = new LongAdder();
+    final LongAdder reentregas = new LongAdder();
+    final LongAdder duplicados = new LongAdder();
+    final LongAdder copiasObsoletas = new LongAdder();
+    final LongAdder cancelados = new LongAdder();
+    final LongAdder copiasCanceladas = new LongAdder();
+    final LongAdder agendados = new LongAdder();
+    final LongAdder agendamentosLiberados = new LongAdder();
+    final LongAdder agendamentosRecusados = new LongAdder();
+    final LongAdder esperasAtendidas = new LongAdder();
+    final LongAdder esperasExpiradas = new LongAdder();
+    final LongAdder esperasRecusadas = new LongAdder();
+
+    public long getAdicionados() {
+        return adicionados.sum();
+    }
+
+    public long getRetirados() {
+        return retirados.sum();
+    }
+
+    public long getRejeitados() {
+        return rejeitados.sum();
+    }
+
+    public long getBloqueios() {
+        return bloqueios.sum();
+    }
+
+    public long getBloqueiosExpirados() {
+        return bloqueiosExpirados.sum();
+    }
+
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    public long getDerramadosEmDisco() {
+        return derramadosEmDisco.sum();
+    }
+
+    public long getRecarregadosDoDisco() {
+        return recarregadosDoDisco.sum();
+    }
+
+    public long getRecebidos() {
+        return recebidos.sum();
+    }
+
+    public long getConfirmados() {
+        return confirmados.sum();
+    }
+
+    public long getDevolvidos() {
+        return devolvidos.sum();
+    }
+
+    public long getExpirados() {
+        return expirados.sum();
+    }
+
+    // Entregas de clientes que já haviam sido entregues antes (devolvidos ou com prazo vencido)
+    public long getReentregas() {
+        return reentregas.sum();
+    }
+
+    // Clientes adicionados quando já estavam na fila (deduplicação ligada)
+    public long getDuplicados() {
+        return duplicados.sum();
+    }
+
+    // Cópias antigas de clientes movidos para o fim, descartadas ao chegar à frente da fila
+    public long getCopiasObsoletas() {
+        return copiasObsoletas.sum();
+    }
+
+    // Clientes removidos da fila por cancelamento ou exclusão do cadastro
+    public long getCancelados() {
+        return cancelados.sum();
+    }
+
+    // Cópias de clientes cancelados descartadas ao chegar à frente ou removidas pela compactação
+    public long getCopiasCanceladas() {
+        return copiasCanceladas.sum();
+    }
+
+    // Entradas agendadas (notBefore): aceitas, já movidas para a fila e recusadas pelo limite de agendamentos
+    public long getAgendados() {
+        return agendados.sum();
+    }
+
+    public long getAgendamentosLiberados() {
+        return agendamentosLiberados.sum();
+    }
+
+    public long getAgendamentosRecusados() {
+        return agendamentosRecusados.sum();
+    }
+
+    // Long polling: esperas encerradas com um cliente, pelo prazo e recusadas pelo limite de atendentes aguardando
+    public long getEsperasAtendidas() {
+        return esperasAtendidas.sum();
+    }
+
+    public long getEsperasExpiradas() {
+        return esperasExpiradas.sum();
+    }
+
+    public long getEsperasRecusadas() {
+        return esperasRecusadas.sum();
+    }
+}
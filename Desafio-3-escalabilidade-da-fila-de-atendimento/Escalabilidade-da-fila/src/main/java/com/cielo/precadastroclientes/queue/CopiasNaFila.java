@@ -0,0 +1,155 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Cópias de cada cliente na FilaDeAtendimento, em memória ou em disco: quantas são, para a deduplicação e para
+// cancelar um cliente sem procurá-lo na fila, quantas canceladas ainda ocupam posição e quantas vezes um cliente
+// devolvido já havia sido entregue. Não guarda a fila em si: a FilaDeAtendimento avisa cada cópia que entra e
+// sai e, com log, chama estes métodos sob o lock dele.
+final class CopiasNaFila {
+
+    private final ModoDeDeduplicacao deduplicacao;
+    private final IndiceDeClientes indice = new IndiceDeClientes();
+    // Cópias canceladas que ainda ocupam posição; acima de fila.limite-de-canceladas a fila é compactada
+    private final AtomicInteger canceladasNaFila = new AtomicInteger();
+    private final int limiteDeCanceladas;
+    private volatile int canceladasForaDaMemoria;
+    // Quantas vezes cada cliente que voltou para a fila já havia sido entregue. A entrada vale enquanto a cópia
+    // devolvida estiver na fila: sai com ela por qualquer caminho (ver sair e compactar).
+    private final ConcurrentHashMap<String, Integer> entregasAnteriores = new ConcurrentHashMap<>();
+    private final ContadoresDaFila contadores;
+
+    CopiasNaFila(ModoDeDeduplicacao deduplicacao, int limiteDeCanceladas, ContadoresDaFila contadores) {
+        this.deduplicacao = deduplicacao;
+        this.limiteDeCanceladas = limiteDeCanceladas;
+        this.contadores = contadores;
+    }
+
+    // Com deduplicação, uma cópia anterior ainda na fila pode ser obsoleta
+    boolean deduplica() {
+        return deduplicacao != ModoDeDeduplicacao.DESLIGADO;
+    }
+
+    // Nova cópia do cliente a caminho da fila. Com DUPLICADA ela não deve entrar; se não couber, desfazerEntrada.
+    EntradaNaFila entrar(String cliente) {
+        long chave = IndiceDeClientes.chave(cliente);
+        if (chave == IndiceDeClientes.SEM_CHAVE) {
+            return EntradaNaFila.NOVA;
+        }
+        if (deduplicacao == ModoDeDeduplicacao.MANTER_POSICAO) {
+            if (!indice.adicionarSeAusente(chave)) {
+                contadores.duplicados.increment();
+                return EntradaNaFila.DUPLICADA;
+            }
+        } else if (indice.incrementar(chave) > 1 && deduplicacao == ModoDeDeduplicacao.MOVER_PARA_O_FIM) {
+            // A cópia que já estava na fila passa a ser obsoleta; a nova vai para o fim
+            contadores.duplicados.increment();
+            return EntradaNaFila.MOVIDA;
+        }
+        return EntradaNaFila.NOVA;
+    }
+
+    // Sem vaga para a cópia de entrar: com MOVER_PARA_O_FIM a cópia antiga volta a ser a válida
+    void desfazerEntrada(String cliente) {
+        long chave = IndiceDeClientes.chave(cliente);
+        if (chave != IndiceDeClientes.SEM_CHAVE) {
+            indice.decrementar(chave);
+        }
+    }
+
+    // Cliente recebido que volta para a fila depois de "entregas" entregas. Com MANTER_POSICAO, DUPLICADA se ele
+    // foi adicionado de novo enquanto estava em processamento: ele já está na fila e esta cópia é descartada.
+    EntradaNaFila voltar(String cliente, int entregas) {
+        EntradaNaFila entrada = EntradaNaFila.NOVA;
+        long chave = IndiceDeClientes.chave(cliente);
+        if (chave != IndiceDeClientes.SEM_CHAVE) {
+            if (deduplicacao == ModoDeDeduplicacao.MANTER_POSICAO) {
+                if (!indice.adicionarSeAusente(chave)) {
+                    contadores.copiasObsoletas.increment();
+                    return EntradaNaFila.DUPLICADA;
+                }
+            } else if (indice.incrementar(chave) > 1 && deduplicacao == ModoDeDeduplicacao.MOVER_PARA_O_FIM) {
+                entrada = EntradaNaFila.MOVIDA;
+            }
+        }
+        entregasAnteriores.put(cliente, entregas);
+        return entrada;
+    }
+
+    // Cópia recuperada do log, sem deduplicar: duplicados gravados antes de a deduplicação ser ligada viram
+    // cópias obsoletas e são descartados na saída
+    void restaurada(String cliente) {
+        long chave = IndiceDeClientes.chave(cliente);
+        if (chave != IndiceDeClientes.SEM_CHAVE) {
+            indice.incrementar(chave);
+        }
+    }
+
+    // Lido antes de sair, que descarta a entrada; o mapa só tem entradas com clientes devolvidos na fila
+    int entregasAnteriores(String cliente) {
+        return entregasAnteriores.isEmpty() ? 0 : entregasAnteriores.getOrDefault(cliente, 0);
+    }
+
+    // Chamado uma vez para cada cópia que sai da fila, da memória ou do disco, com a chave já calculada por quem
+    // chama. Uma cópia obsoleta (existe uma mais nova atrás dela, por deduplicação) ou cancelada é descartada em
+    // vez de entregue.
+    SaidaDaFila sair(String cliente, long chave) {
+        if (!entregasAnteriores.isEmpty()) {
+            entregasAnteriores.remove(cliente);
+        }
+        if (chave == IndiceDeClientes.SEM_CHAVE) {
+            return SaidaDaFila.ENTREGAR;
+        }
+        int restantes = indice.sair(chave);
+        if (restantes == IndiceDeClientes.CANCELADA) {
+            canceladasNaFila.decrementAndGet();
+            contadores.copiasCanceladas.increment();
+            return SaidaDaFila.CANCELADA;
+        }
+        if (deduplicacao == ModoDeDeduplicacao.DESLIGADO || restantes == 0) {
+            return SaidaDaFila.ENTREGAR;
+        }
+        contadores.copiasObsoletas.increment();
+        return SaidaDaFila.OBSOLETA;
+    }
+
+    // Cancela todas as cópias aguardando e retorna quantas eram (0: o cliente não estava aguardando)
+    int cancelar(long chave) {
+        int copias = indice.cancelar(chave);
+        if (copias > 0) {
+            canceladasNaFila.addAndGet(copias);
+        }
+        return copias;
+    }
+
+    // As canceladas que restarem depois de uma compactação estão no disco e não disparam outra
+    boolean compactacaoNecessaria() {
+        return canceladasNaFila.get() - canceladasForaDaMemoria >= limiteDeCanceladas;
+    }
+
+    // Remove da fila em memória as cópias canceladas e retorna quantas cópias saíram, cada uma com uma vaga a
+    // liberar. Percorre a fila inteira; com log, chamado sob o lock dele.
+    int compactar(FilaEmMemoria<String> fila) {
+        int[] canceladas = new int[1];
+        int removidas = fila.remover(cliente -> {
+            long chave = IndiceDeClientes.chave(cliente);
+            return chave != IndiceDeClientes.SEM_CHAVE && indice.temCancelada(chave);
+        }, cliente -> {
+            if (!entregasAnteriores.isEmpty()) {
+                entregasAnteriores.remove(cliente);
+            }
+            long chave = IndiceDeClientes.chave(cliente);
+            if (indice.retirarCancelada(chave)) {
+                canceladas[0]++;
+            } else {
+                // Sem log, um consumidor pode ter levado a cópia cancelada mais antiga enquanto esta, válida,
+                // era removida: o cliente foi cancelado e uma das cópias saiu, o que dá no mesmo
+                indice.decrementar(chave);
+            }
+        });
+        canceladasForaDaMemoria = canceladasNaFila.addAndGet(-canceladas[0]);
+        contadores.copiasCanceladas.add(canceladas[0]);
+        return removidas;
+    }
+}
@@ -0,0 +1,8 @@
+package com.cielo.precadastroclientes.queue;
+
+// Como uma cópia entra na FilaDeAtendimento, pela deduplicação (ver CopiasNaFila.entrar e voltar):
+// NOVA é a única do cliente ou uma cópia a mais sem deduplicação, MOVIDA torna obsoleta a que já estava
+// na fila (MOVER_PARA_O_FIM) e DUPLICADA não entra, porque o cliente já está na fila (MANTER_POSICAO).
+enum EntradaNaFila {
+    NOVA, MOVIDA, DUPLICADA
+}
@@ -0,0 +1,72 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Atendente aguardando um cliente numa fila vazia (long polling). A espera termina exatamente uma vez:
+// com um cliente, pelo prazo ou cancelada por quem a criou (por exemplo, quando a conexão HTTP cai).
+public final class EsperaPorCliente {
+
+    private static final int ATIVA = 0;
+    private static final int RESERVADA = 1;   // um cliente está sendo retirado para esta espera
+    private static final int ENCERRANDO = 2;  // prazo ou cancelamento chegou durante a reserva
+    private static final int ENCERRADA = 3;
+
+    private final AtomicInteger estado = new AtomicInteger(ATIVA);
+    private final FilaDeAtendimento fila;
+    final Consumer<Recebimento> aoReceber;
+    final Runnable aoExpirar;
+    volatile RodaDeTemporizacao.Temporizador<EsperaPorCliente> temporizador;
+    volatile boolean expirou;
+
+    EsperaPorCliente(FilaDeAtendimento fila, Consumer<Recebimento> aoReceber, Runnable aoExpirar) {
+        this.fila = fila;
+        this.aoReceber = aoReceber;
+        this.aoExpirar = aoExpirar;
+    }
+
+    // Desiste da espera sem chamar nenhum dos callbacks; sem efeito se ela já terminou
+    public void cancelar() {
+        if (encerrar(false)) {
+            fila.esperaEncerrada(this);
+        }
+    }
+
+    boolean reservar() {
+        return estado.compareAndSet(ATIVA, RESERVADA);
+    }
+
+    // A retirada não encontrou cliente. Retorna false se a espera foi encerrada durante a reserva:
+    // quem reservou passa a ser responsável por finalizá-la.
+    boolean liberarReserva() {
+        if (estado.compareAndSet(RESERVADA, ATIVA)) {
+            return true;
+        }
+        estado.set(ENCERRADA);
+        return false;
+    }
+
+    void concluir() {
+        estado.set(ENCERRADA);
+    }
+
+    // Retorna true se a espera estava ativa e foi encerrada agora. Durante uma reserva o encerramento
+    // fica pendente e é concluído por quem reservou (entregando o cliente ou em liberarReserva).
+    boolean encerrar(boolean porPrazo) {
+        while (true) {
+            int atual = estado.get();
+            if (atual == ATIVA) {
+                if (estado.compareAndSet(ATIVA, ENCERRADA)) {
+                    return true;
+                }
+            } else if (atual == RESERVADA) {
+                expirou = porPrazo;
+                if (estado.compareAndSet(RESERVADA, ENCERRANDO)) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.List;
+
+// Mudança na fila de atendimento enviada aos painéis de acompanhamento.
+// A sequência é atribuída pelo despachante, na ordem em que os eventos são entregues.
+public final class EventoDaFila {
+
+    public enum Tipo {
+        SNAPSHOT, // conteúdo completo da fila; os eventos seguintes se aplicam sobre ele
+        ENTRADA,  // cliente entrou no fim da fila
+        SAIDA     // cliente saiu da fila (retirado, recebido por um atendente ou descartado)
+    }
+
+    private final Tipo tipo;
+    private final String cliente;
+    private final List<String> conteudo;
+    long sequencia;
+
+    EventoDaFila(Tipo tipo, String cliente) {
+        this.tipo = tipo;
+        this.cliente = cliente;
+        this.conteudo = null;
+    }
+
+    EventoDaFila(long sequencia, List<String> conteudo) {
+        this.tipo = Tipo.SNAPSHOT;
+        this.cliente = null;
+        this.conteudo = conteudo;
+        this.sequencia = sequencia;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public long getSequencia() {
+        return sequencia;
+    }
+
+    // null para SNAPSHOT
+    public String getCliente() {
+        return cliente;
+    }
+
+    // Somente para SNAPSHOT
+    public List<String> getConteudo() {
+        return conteudo;
+    }
+}
@@ -0,0 +1,50 @@
+package com.cielo.precadastroclientes.queue;
+
+// Faixas de MCC (Merchant Category Code) usadas para separar as métricas da fila por ramo de atividade.
+// Poucas faixas largas em vez do MCC exato mantêm pequeno o número de séries publicadas.
+public enum FaixaDeMcc {
+    SERVICOS_CONTRATADOS(0, 2999),
+    VIAGEM(3000, 3999),
+    TRANSPORTE_E_UTILIDADES(4000, 4999),
+    VAREJO(5000, 5999),
+    SERVICOS(6000, 7999),
+    PROFISSIONAIS(8000, 8999),
+    GOVERNO(9000, 9999),
+    // MCC ausente ou fora do padrão de quatro dígitos
+    DESCONHECIDA(-1, -1);
+
+    private static final FaixaDeMcc[] FAIXAS = values();
+
+    private final int inicio;
+    private final int fim;
+
+    FaixaDeMcc(int inicio, int fim) {
+        this.inicio = inicio;
+        this.fim = fim;
+    }
+
+    // Sem exceções nem alocação: chamado a cada cadastro que entra na fila
+    public static FaixaDeMcc de(String mcc) {
+        if (mcc == null || mcc.isEmpty() || mcc.length() > 4) {
+            return DESCONHECIDA;
+        }
+        int codigo = 0;
+        for (int i = 0; i < mcc.length(); i++) {
+            char digito = mcc.charAt(i);
+            if (digito < '0' || digito > '9') {
+                return DESCONHECIDA;
+            }
+            codigo = codigo * 10 + (digito - '0');
+        }
+        for (FaixaDeMcc faixa : FAIXAS) {
+            if (codigo >= faixa.inicio && codigo <= faixa.fim) {
+                return faixa;
+            }
+        }
+        return DESCONHECIDA;
+    }
+
+    static FaixaDeMcc porOrdinal(int ordinal) {
+        return FAIXAS[ordinal];
+    }
+}
@@ -0,0 +1,43 @@
+package com.cielo.precadastroclientes.queue;
+
+// Cliente retirado da fila que não pôde ser entregue ao atendente, guardado na FilaDeFalhas.
+// Imutável: uma nova falha do mesmo cliente substitui a anterior com uma tentativa a mais.
+public final class FalhaNaFila {
+
+    private final String cliente;
+    private final String motivo;
+    private final int tentativas;
+    private final long primeiraFalhaEm;
+    private final long ultimaFalhaEm;
+
+    FalhaNaFila(String cliente, String motivo, int tentativas, long primeiraFalhaEm, long ultimaFalhaEm) {
+        this.cliente = cliente;
+        this.motivo = motivo;
+        this.tentativas = tentativas;
+        this.primeiraFalhaEm = primeiraFalhaEm;
+        this.ultimaFalhaEm = ultimaFalhaEm;
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+
+    // Motivo da última falha
+    public String getMotivo() {
+        return motivo;
+    }
+
+    // Falhas do cliente, incluindo as anteriores a um reenvio para a fila
+    public int getTentativas() {
+        return tentativas;
+    }
+
+    // Epoch em ms
+    public long getPrimeiraFalhaEm() {
+        return primeiraFalhaEm;
+    }
+
+    public long getUltimaFalhaEm() {
+        return ultimaFalhaEm;
+    }
+}
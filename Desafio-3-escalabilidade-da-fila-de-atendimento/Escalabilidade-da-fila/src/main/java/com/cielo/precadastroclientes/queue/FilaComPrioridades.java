@@ -0,0 +1,279 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Fila dividida em raias de prioridade, cada uma uma FilaSegmentadaDeLongs sem locks como as partições da
+// FilaParticionada. A raia de um cliente sai de uma tabela por tipo (PF/PJ) e faixa de MCC montada a partir
+// das regras (RaiaDeAtendimento), então a entrada continua O(1) e sem locks.
+//
+// Na saída, com PESOS, uma escala fixa intercala as raias na proporção dos pesos (round robin ponderado
+// suave: peso 3 e 1 dão A A B A, e não A A A B) e um contador atômico indica a vez; com ESTRITA a raia de
+// maior prioridade é atendida primeiro, mas uma frente que espera além do envelhecimento passa na frente,
+// para que as raias de baixa prioridade não fiquem sem atendimento. Nos dois modos, se a raia da vez está
+// vazia o atendente segue para as outras na ordem de prioridade. Com poucas raias, cada retirada consulta
+// um número constante delas.
+public final class FilaComPrioridades implements FilaEmMemoria<String> {
+
+    // Cursor de percorrer: raia nos bits altos, posição dentro dela nos 48 bits baixos
+    private static final int BITS_DA_POSICAO = 48;
+    private static final long MASCARA_DA_POSICAO = (1L << BITS_DA_POSICAO) - 1;
+
+    private static final String NOME_DA_RAIA_PADRAO = "padrao";
+
+    private final Raia[] raias;
+    private final String[] nomes;
+    // Raia de cada combinação de tipo de cliente e faixa de MCC
+    private final int[][] raiaPorTipoEFaixa = new int[TipoDeCliente.values().length][FaixaDeMcc.values().length];
+    private final ModoDePrioridade modo;
+    private final int[] escala;
+    private final AtomicLong vez = new AtomicLong();
+    private final long envelhecimentoNanos;
+    private final CodificadorDeClientes codificador = new CodificadorDeClientes();
+    private final RelogioDaFila relogio;
+
+    public FilaComPrioridades(List<RaiaDeAtendimento> regras, int pesoDaRaiaPadrao, ModoDePrioridade modo,
+                              long envelhecimentoMs, int tamanhoDoSegmento) {
+        this(regras, pesoDaRaiaPadrao, modo, envelhecimentoMs, tamanhoDoSegmento, RegistroDeTempoNaFila.NENHUM,
+                RegistroDeTempoNaRaia.NENHUM);
+    }
+
+    public FilaComPrioridades(List<RaiaDeAtendimento> regras, int pesoDaRaiaPadrao, ModoDePrioridade modo,
+                              long envelhecimentoMs, int tamanhoDoSegmento, RegistroDeTempoNaFila registro,
+                              RegistroDeTempoNaRaia registroDaRaia) {
+        if (modo == ModoDePrioridade.DESLIGADA) {
+            throw new IllegalArgumentException("A fila com prioridades precisa do modo PESOS ou ESTRITA");
+        }
+        this.modo = modo;
+        this.envelhecimentoNanos = TimeUnit.MILLISECONDS.toNanos(envelhecimentoMs);
+        this.relogio = new RelogioDaFila(registro);
+
+        int quantidade = regras.size() + 1;
+        this.raias = new Raia[quantidade];
+        this.nomes = new String[quantidade];
+        int[] pesos = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            RaiaDeAtendimento regra = i < regras.size() ? regras.get(i) : null;
+            nomes[i] = regra == null ? NOME_DA_RAIA_PADRAO
+                    : regra.getNome() != null ? regra.getNome() : "raia-" + i;
+            pesos[i] = regra == null ? pesoDaRaiaPadrao : regra.getPeso();
+            if (pesos[i] < 1) {
+                throw new IllegalArgumentException("O peso da raia " + nomes[i] + " deve ser maior que zero");
+            }
+            raias[i] = new Raia(i, tamanhoDoSegmento, relogio, registroDaRaia);
+        }
+        for (TipoDeCliente tipo : TipoDeCliente.values()) {
+            for (FaixaDeMcc faixa : FaixaDeMcc.values()) {
+                int raia = regras.size();
+                for (int i = 0; i < regras.size(); i++) {
+                    if (regras.get(i).aceita(tipo, faixa)) {
+                        raia = i;
+                        break;
+                    }
+                }
+                raiaPorTipoEFaixa[tipo.ordinal()][faixa.ordinal()] = raia;
+            }
+        }
+        this.escala = escala(pesos);
+    }
+
+    // Round robin ponderado suave: a cada passo cada raia acumula o seu peso e a de maior crédito é
+    // escolhida e paga o total. Calculado uma vez; na saída basta ler a posição da vez.
+    private static int[] escala(int[] pesos) {
+        int total = 0;
+        for (int peso : pesos) {
+            total += peso;
+        }
+        int[] escala = new int[total];
+        int[] credito = new int[pesos.length];
+        for (int passo = 0; passo < total; passo++) {
+            int escolhida = 0;
+            for (int i = 0; i < pesos.length; i++) {
+                credito[i] += pesos[i];
+                if (credito[i] > credito[escolhida]) {
+                    escolhida = i;
+                }
+            }
+            credito[escolhida] -= total;
+            escala[passo] = escolhida;
+        }
+        return escala;
+    }
+
+    @Override
+    public long offer(String cliente, FaixaDeMcc faixa) {
+        if (cliente == null) {
+            throw new NullPointerException("A fila não aceita elementos nulos");
+        }
+        long codigo = codificador.codificar(cliente);
+        Raia raia = raias[raiaPorTipoEFaixa[CodificadorDeClientes.tipo(codigo).ordinal()][faixa.ordinal()]];
+        // Como na FilaParticionada, a profundidade sobe antes da inserção
+        raia.profundidade.incrementAndGet();
+        raia.itens.offer(codigo, relogio.carimbar(faixa));
+        return SEM_POSICAO;
+    }
+
+    @Override
+    public String poll(FaixaDeMcc[] faixa) {
+        int preferida = modo == ModoDePrioridade.PESOS ? proximaDaEscala() : envelhecida();
+        if (preferida >= 0) {
+            String cliente = retirarDa(raias[preferida], faixa);
+            if (cliente != null) {
+                return cliente;
+            }
+        }
+        for (int i = 0; i < raias.length; i++) {
+            if (i != preferida) {
+                String cliente = retirarDa(raias[i], faixa);
+                if (cliente != null) {
+                    return cliente;
+                }
+            }
+        }
+        return null;
+    }
+
+    private int proximaDaEscala() {
+        return escala[(int) Math.floorMod(vez.getAndIncrement(), (long) escala.length)];
+    }
+
+    // A raia cuja frente espera há mais tempo, se passou do envelhecimento; senão -1 (ordem de prioridade)
+    private int envelhecida() {
+        int escolhida = -1;
+        long maisAntigo = Long.MAX_VALUE;
+        for (int i = 0; i < raias.length; i++) {
+            if (raias[i].profundidade.get() <= 0) {
+                continue;
+            }
+            long carimbo = raias[i].itens.carimboDaFrente();
+            if (carimbo < maisAntigo && relogio.tempoNaFila(carimbo) >= envelhecimentoNanos) {
+                maisAntigo = carimbo;
+                escolhida = i;
+            }
+        }
+        return escolhida;
+    }
+
+    private String retirarDa(Raia raia, FaixaDeMcc[] faixa) {
+        if (raia.profundidade.get() <= 0) {
+            return null;
+        }
+        long[] carimbo = faixa == null ? null : new long[1];
+        long codigo = raia.itens.poll(carimbo);
+        if (codigo == FilaSegmentadaDeLongs.VAZIO) {
+            return null;
+        }
+        raia.profundidade.decrementAndGet();
+        if (faixa != null) {
+            faixa[0] = RelogioDaFila.faixa(carimbo[0]);
+        }
+        return codificador.retirar(codigo);
+    }
+
+    // Um cliente de cada vez, para respeitar a escolha da raia a cada retirada
+    @Override
+    public List<String> drenar(int maximo) {
+        List<String> elementos = new ArrayList<>(Math.min(maximo, 1024));
+        String elemento;
+        while (elementos.size() < maximo && (elemento = poll()) != null) {
+            elementos.add(elemento);
+        }
+        return elementos;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Raia raia : raias) {
+            if (!raia.itens.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Cada raia tem a sua própria sequência de posições
+    @Override
+    public long frente() {
+        return SEM_POSICAO;
+    }
+
+    // As raias aparecem uma após a outra, na ordem de prioridade, e não na ordem em que serão atendidas
+    @Override
+    public void snapshot(BiConsumer<String, FaixaDeMcc> destino) {
+        for (Raia raia : raias) {
+            raia.itens.percorrerComCarimbos((codigo, carimbo) -> {
+                String cliente = codificador.decodificar(codigo);
+                if (cliente != null) {
+                    destino.accept(cliente, RelogioDaFila.faixa(carimbo));
+                }
+            });
+        }
+    }
+
+    @Override
+    public int remover(Predicate<String> criterio, Consumer<String> removido) {
+        int removidos = 0;
+        for (Raia raia : raias) {
+            int daRaia = raia.itens.remover(codigo -> {
+                String cliente = codificador.decodificar(codigo);
+                return cliente != null && criterio.test(cliente);
+            }, codigo -> removido.accept(codificador.retirar(codigo)));
+            raia.profundidade.addAndGet(-daRaia);
+            removidos += daRaia;
+        }
+        return removidos;
+    }
+
+    @Override
+    public long percorrer(long cursor, Predicate<String> visitante) {
+        int primeira = (int) (cursor >>> BITS_DA_POSICAO);
+        long posicao = cursor & MASCARA_DA_POSICAO;
+        boolean[] recusou = new boolean[1];
+        for (int i = primeira; i < raias.length; i++) {
+            posicao = raias[i].itens.percorrer(i == primeira ? posicao : 0, codigo -> {
+                String cliente = codificador.decodificar(codigo);
+                if (cliente == null || visitante.test(cliente)) {
+                    return true;
+                }
+                recusou[0] = true;
+                return false;
+            });
+            if (recusou[0] || i == raias.length - 1) {
+                return ((long) i << BITS_DA_POSICAO) | posicao;
+            }
+        }
+        return cursor;
+    }
+
+    // Nomes das raias na ordem de prioridade; a última é a padrão
+    public String[] nomes() {
+        return nomes.clone();
+    }
+
+    public long[] profundidades() {
+        long[] profundidades = new long[raias.length];
+        for (int i = 0; i < raias.length; i++) {
+            profundidades[i] = raias[i].profundidade.get();
+        }
+        return profundidades;
+    }
+
+    private static final class Raia {
+        final FilaSegmentadaDeLongs itens;
+        final AtomicLong profundidade = new AtomicLong();
+
+        // Cada retirada registra o tempo na fila por tipo e faixa de MCC e também pela raia
+        Raia(int indice, int tamanhoDoSegmento, RelogioDaFila relogio, RegistroDeTempoNaRaia registroDaRaia) {
+            this.itens = new FilaSegmentadaDeLongs(tamanhoDoSegmento, true, (codigo, carimbo) -> {
+                long nanos = relogio.tempoNaFila(carimbo);
+                relogio.registrar(codigo, carimbo, nanos);
+                registroDaRaia.registrar(indice, nanos);
+            });
+        }
+    }
+}
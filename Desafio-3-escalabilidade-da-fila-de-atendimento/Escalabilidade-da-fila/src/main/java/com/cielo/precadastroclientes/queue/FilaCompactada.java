@@ -0,0 +1,92 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Fila não particionada da FilaDeAtendimento: os identificadores ficam compactados em longs numa
+// FilaSegmentadaDeLongs. Um CPF/CNPJ ocupa 8 bytes na fila, contra cerca de 60 de uma String com seu
+// array de bytes, e percorrer a fila lê arrays primitivos em vez de seguir um ponteiro por cliente.
+// Ao lado de cada código fica o carimbo de entrada (RelogioDaFila), usado para medir o tempo na fila.
+public final class FilaCompactada implements FilaEmMemoria<String> {
+
+    private final FilaSegmentadaDeLongs codigos;
+    private final CodificadorDeClientes codificador = new CodificadorDeClientes();
+    private final RelogioDaFila relogio;
+
+    public FilaCompactada(int tamanhoDoSegmento) {
+        this(tamanhoDoSegmento, RegistroDeTempoNaFila.NENHUM);
+    }
+
+    public FilaCompactada(int tamanhoDoSegmento, RegistroDeTempoNaFila registro) {
+        this.relogio = new RelogioDaFila(registro);
+        this.codigos = new FilaSegmentadaDeLongs(tamanhoDoSegmento, true, relogio);
+    }
+
+    @Override
+    public long offer(String cliente, FaixaDeMcc faixa) {
+        if (cliente == null) {
+            throw new NullPointerException("A fila não aceita elementos nulos");
+        }
+        return codigos.offer(codificador.codificar(cliente), relogio.carimbar(faixa));
+    }
+
+    @Override
+    public String poll(FaixaDeMcc[] faixa) {
+        long[] carimbo = faixa == null ? null : new long[1];
+        long codigo = codigos.poll(carimbo);
+        if (codigo == FilaSegmentadaDeLongs.VAZIO) {
+            return null;
+        }
+        if (faixa != null) {
+            faixa[0] = RelogioDaFila.faixa(carimbo[0]);
+        }
+        return codificador.retirar(codigo);
+    }
+
+    @Override
+    public List<String> drenar(int maximo) {
+        List<String> clientes = new ArrayList<>(Math.min(maximo, 1024));
+        codigos.drenar(maximo, codigo -> clientes.add(codificador.retirar(codigo)));
+        return clientes;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return codigos.isEmpty();
+    }
+
+    @Override
+    public long frente() {
+        return codigos.frente();
+    }
+
+    @Override
+    public void snapshot(BiConsumer<String, FaixaDeMcc> destino) {
+        codigos.percorrerComCarimbos((codigo, carimbo) -> {
+            String cliente = codificador.decodificar(codigo);
+            if (cliente != null) {
+                destino.accept(cliente, RelogioDaFila.faixa(carimbo));
+            }
+        });
+    }
+
+    @Override
+    public int remover(Predicate<String> criterio, Consumer<String> removido) {
+        return codigos.remover(codigo -> {
+            String cliente = codificador.decodificar(codigo);
+            return cliente != null && criterio.test(cliente);
+        }, codigo -> removido.accept(codificador.retirar(codigo)));
+    }
+
+    @Override
+    public long percorrer(long cursor, Predicate<String> visitante) {
+        return codigos.percorrer(cursor, codigo -> {
+            String cliente = codificador.decodificar(codigo);
+            // null: identificador fora do padrão CPF/CNPJ retirado por outra thread durante a visita
+            return cliente == null || visitante.test(cliente);
+        });
+    }
+}
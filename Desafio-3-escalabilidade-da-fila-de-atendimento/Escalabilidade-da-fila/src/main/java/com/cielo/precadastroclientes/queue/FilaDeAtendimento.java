@@ -1,62 +1,957 @@
 package com.cielo.precadastroclientes.queue;
 
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Backends MEMORIA e ARQUIVO; com fila.backend=SQS ou JDBC quem atende os controllers é a FilaSqs ou a FilaJdbc
 @Component
-public class FilaDeAtendimento {
-    private static final int TAMANHO_MAXIMO = 100; // Defina o tamanho máximo da fila
+@ConditionalOnExpression("'${fila.backend:MEMORIA}' == 'MEMORIA' or '${fila.backend:MEMORIA}' == 'ARQUIVO'")
+public class FilaDeAtendimento implements QueueBackend {
+
+    // Fila sem locks que cresce sob demanda: cadastros e atendentes não disputam um único monitor.
+    // Com fila.particoes > 1, várias filas independentes com roubo de trabalho entre os consumidores;
+    // com fila.prioridade, uma fila por raia de prioridade.
+    private final FilaEmMemoria<String> fila;
+    // Posição de cada CPF/CNPJ na fila em memória; null com partições ou raias, que não têm uma sequência única
+    private final PosicoesNaFila posicoes;
+
+    // Uma permissão por vaga livre; o caminho rápido de tryAcquire/release é um CAS
+    private final Semaphore vagas;
+    private final int capacidade;
+    private final PoliticaDeTransbordo politica;
+    private final long tempoDeBloqueioMs;
+    private final long retryAfterSegundos;
+    private final int maximoPorLote;
+    private final TransbordoEmDisco transbordo;
+    private final ContadoresDaFila contadores = new ContadoresDaFila();
+    // Mudanças da fila para os painéis (SSE); publicar não bloqueia quem altera a fila
+    private final PublicadorDeEventos eventos;
+
+    // Deduplicação, cancelamento e entregas anteriores de cada cliente na fila
+    private final CopiasNaFila copias;
+
+    // Somente no modo durável. Com o log, entrada/saída e registro acontecem sob o lock do log,
+    // para que a ordem gravada seja exatamente a ordem da fila.
+    private final LogDaFila log;
+    private final ScheduledExecutorService checkpoints;
+
+    // Clientes recebidos e ainda não confirmados, por recibo; os prazos de visibilidade ficam na roda
+    private final ConcurrentHashMap<String, Recebimento> emProcessamento = new ConcurrentHashMap<>();
+    private final RodaDeTemporizacao<Recebimento> roda;
+    private final long tempoDeVisibilidadeMs;
+    private final ScheduledExecutorService visibilidade;
+
+    // Atendentes aguardando cliente (long polling), na ordem em que chegaram; os prazos usam uma roda própria
+    private final ConcurrentLinkedDeque<EsperaPorCliente> esperas = new ConcurrentLinkedDeque<>();
+    private final RodaDeTemporizacao<EsperaPorCliente> rodaDeEsperas;
+    private final AtomicInteger aguardando = new AtomicInteger();
+    private final int maximoDeEsperas;
+    private final long esperaMaximaMs;
 
-    private String[] fila;
-    private int tamanho;
-    private int inicio;
-    private int fim;
+    // Clientes com entrada agendada (notBefore), até o prazo vencer
+    private final AgendamentosDaFila agendamentos;
+    // Thread própria: com BLOQUEAR, mover um agendamento vencido pode esperar vaga sem atrasar os outros prazos
+    private final ScheduledExecutorService amadurecimento;
+
+    // Tempo na fila de cada cliente retirado da memória; trocado pelas métricas quando a aplicação sobe
+    private volatile RegistroDeTempoNaFila registroDeTempoNaFila = RegistroDeTempoNaFila.NENHUM;
+    private volatile RegistroDeTempoNaRaia registroDeTempoNaRaia = RegistroDeTempoNaRaia.NENHUM;
+
+    // Bytes em UTF-8 de um identificador aceito na fila. O log grava o tamanho num byte (ver LogDaFila), e os
+    // registros de entrada com faixa e de agendamento levam ainda a faixa de MCC (e o prazo) à frente dele.
+    public static final int TAMANHO_MAXIMO_DO_CLIENTE = 200;
 
     public FilaDeAtendimento() {
-        this.fila = new String[TAMANHO_MAXIMO];
-        this.tamanho = 0;
-        this.inicio = 0;
-        this.fim = -1;
+        this(new FilaProperties());
+    }
+
+    @Autowired
+    public FilaDeAtendimento(FilaProperties properties) {
+        this.capacidade = properties.getCapacidade();
+        int tamanhoDoSegmento = Math.min(properties.getTamanhoDoSegmento(), capacidade);
+        RegistroDeTempoNaFila tempoNaFila = (tipo, faixa, nanos) -> registroDeTempoNaFila.registrar(tipo, faixa, nanos);
+        RegistroDeTempoNaRaia tempoNaRaia = (raia, nanos) -> registroDeTempoNaRaia.registrar(raia, nanos);
+        boolean numaSequencia = properties.getPrioridade() == ModoDePrioridade.DESLIGADA && properties.getParticoes() <= 1;
+        if (properties.isPosicaoNaFila() && !numaSequencia) {
+            // Partições e raias não têm uma ordem única de atendimento em que a posição faça sentido
+            throw new IllegalArgumentException("A posição na fila não é acompanhada com partições ou raias de prioridade;"
+                    + " desligue-a com fila.posicao-na-fila=false");
+        }
+        if (properties.getPrioridade() != ModoDePrioridade.DESLIGADA) {
+            this.fila = new FilaComPrioridades(properties.getRaias(), properties.getPesoDaRaiaPadrao(),
+                    properties.getPrioridade(), properties.getEnvelhecimentoMs(), tamanhoDoSegmento, tempoNaFila, tempoNaRaia);
+        } else if (properties.getParticoes() > 1) {
+            this.fila = new FilaParticionada(properties.getParticoes(), tamanhoDoSegmento, properties.isOrdemGlobal(), tempoNaFila);
+        } else {
+            this.fila = new FilaCompactada(tamanhoDoSegmento, tempoNaFila);
+        }
+        this.posicoes = properties.isPosicaoNaFila() ? new PosicoesNaFila(fila) : null;
+        this.politica = properties.getPoliticaDeTransbordo();
+        this.tempoDeBloqueioMs = properties.getTempoDeBloqueioMs();
+        this.retryAfterSegundos = properties.getRetryAfterSegundos();
+        this.maximoPorLote = properties.getMaximoPorLote();
+        this.eventos = new PublicadorDeEventos(() -> fila.snapshot(), properties.getHistoricoDeEventos(),
+                properties.getBufferDeEventosPorAssinatura(), properties.getIntervaloDeDespachoDeEventosMs());
+        this.copias = new CopiasNaFila(properties.getDeduplicacao(), properties.getLimiteDeCanceladas(), contadores);
+        this.transbordo = politica == PoliticaDeTransbordo.DERRAMAR_EM_DISCO
+                ? new TransbordoEmDisco(Paths.get(properties.getDiretorioDeTransbordo()))
+                : null;
+
+        long resolucao = properties.getResolucaoDaRodaMs();
+        int ocupadas = 0;
+        if (properties.isDuravel() || properties.getBackend() == TipoDeBackend.ARQUIVO) {
+            this.log = new LogDaFila(Paths.get(properties.getDiretorioDoLog()), properties.getSincronizacao(),
+                    properties.getIntervaloDeSincronizacaoMs(), properties.getTamanhoDoSegmentoDoLogMb() * 1024 * 1024);
+            ocupadas = restaurar(log.recuperarComFaixas());
+            LogDaFila logDeAgendamentos = new LogDaFila(Paths.get(properties.getDiretorioDoLog(), "agendamentos"),
+                    properties.getSincronizacao(), properties.getIntervaloDeSincronizacaoMs(),
+                    properties.getTamanhoDoSegmentoDoLogMb() * 1024 * 1024);
+            this.agendamentos = new AgendamentosDaFila(resolucao, properties.getCasasDaRoda(),
+                    properties.getNiveisDaRodaDeAgendamentos(), properties.getMaximoDeAgendamentos(), logDeAgendamentos, contadores);
+            this.checkpoints = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "fila-log-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalo = properties.getIntervaloDeCheckpointMs();
+            checkpoints.scheduleWithFixedDelay(this::checkpoint, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        } else {
+            this.log = null;
+            this.agendamentos = new AgendamentosDaFila(resolucao, properties.getCasasDaRoda(),
+                    properties.getNiveisDaRodaDeAgendamentos(), properties.getMaximoDeAgendamentos(), null, contadores);
+            this.checkpoints = null;
+        }
+        // Se a capacidade foi reduzida desde a última execução, as permissões começam negativas
+        this.vagas = new Semaphore(capacidade - ocupadas);
+
+        this.tempoDeVisibilidadeMs = properties.getTempoDeVisibilidadeMs();
+        this.roda = new RodaDeTemporizacao<>(resolucao, properties.getCasasDaRoda(), agoraMs());
+        this.rodaDeEsperas = new RodaDeTemporizacao<>(resolucao, properties.getCasasDaRoda(), agoraMs());
+        this.maximoDeEsperas = properties.getMaximoDeEsperas();
+        this.esperaMaximaMs = properties.getEsperaMaximaMs();
+        this.visibilidade = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "fila-visibilidade");
+            thread.setDaemon(true);
+            return thread;
+        });
+        visibilidade.scheduleWithFixedDelay(() -> {
+            long agora = agoraMs();
+            expirarRecebimentos(agora);
+            expirarEsperas(agora);
+        }, resolucao, resolucao, TimeUnit.MILLISECONDS);
+        long intervaloDeCompactacao = properties.getIntervaloDeCompactacaoMs();
+        visibilidade.scheduleWithFixedDelay(this::compactarSeNecessario, intervaloDeCompactacao, intervaloDeCompactacao,
+                TimeUnit.MILLISECONDS);
+        this.amadurecimento = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "fila-agendamentos");
+            thread.setDaemon(true);
+            return thread;
+        });
+        amadurecimento.scheduleWithFixedDelay(() -> amadurecerAgendamentos(System.currentTimeMillis()),
+                resolucao, resolucao, TimeUnit.MILLISECONDS);
+    }
+
+    // Devolve os clientes recuperados do log à fila, sem registrá-los de novo; retorna as vagas ocupadas
+    private int restaurar(List<ClienteNaFila> recuperados) {
+        int emMemoria = 0;
+        for (ClienteNaFila recuperado : recuperados) {
+            copias.restaurada(recuperado.getCliente());
+            if (emMemoria >= capacidade && transbordo != null) {
+                transbordo.gravar(recuperado.getCliente(), recuperado.getFaixa());
+            } else {
+                ofertar(recuperado.getCliente(), recuperado.getFaixa());
+                emMemoria++;
+            }
+        }
+        return emMemoria;
+    }
+
+    // Retorna false apenas quando o cliente não entrou na fila (REJEITAR ou BLOQUEAR sem vaga a tempo).
+    // Com deduplicação, um cliente que já está na fila conta como adicionado. Lança IllegalArgumentException
+    // para um identificador acima de TAMANHO_MAXIMO_DO_CLIENTE bytes.
+    @Override
+    public boolean adicionarClienteNaFila(String cliente) {
+        return adicionarNaFila(cliente, FaixaDeMcc.DESCONHECIDA);
+    }
+
+    @Override
+    public boolean adicionarClienteNaFila(String cliente, String mcc) {
+        return adicionarNaFila(cliente, FaixaDeMcc.de(mcc));
+    }
+
+    // O cliente só entra na fila a partir de naoAntesDeMs (epoch em ms); até lá não ocupa vaga, não tem posição
+    // e não conta para a deduplicação. Um prazo já vencido é uma entrada imediata. Retorna false quando o
+    // limite de agendamentos foi atingido.
+    @Override
+    public boolean agendarClienteNaFila(String cliente, String mcc, long naoAntesDeMs) {
+        if (naoAntesDeMs <= System.currentTimeMillis()) {
+            return adicionarClienteNaFila(cliente, mcc);
+        }
+        validar(cliente);
+        return agendamentos.agendar(cliente, FaixaDeMcc.de(mcc), naoAntesDeMs);
+    }
+
+    // Move para a fila, em lote, os agendamentos vencidos até o instante informado. Se a fila não aceita um
+    // cliente (REJEITAR ou BLOQUEAR sem vaga a tempo), ele e os seguintes do lote voltam para a roda e são
+    // tentados de novo no próximo tick. Chamado a cada tick; package-private para os testes controlarem o relógio.
+    void amadurecerAgendamentos(long agoraMs) {
+        if (agendamentos.amadurecer(agoraMs, this::adicionar) > 0 && aguardando.get() > 0) {
+            atenderEsperas();
+        }
+    }
+
+    private boolean adicionarNaFila(String cliente, FaixaDeMcc faixa) {
+        validar(cliente);
+        boolean adicionado = adicionar(cliente, faixa);
+        if (adicionado && aguardando.get() > 0) {
+            atenderEsperas();
+        }
+        return adicionado;
+    }
+
+    // Recusado na entrada, e não ao gravar no log, quando o cliente já estaria na fila em memória
+    private static void validar(String cliente) {
+        if (cliente.getBytes(StandardCharsets.UTF_8).length > TAMANHO_MAXIMO_DO_CLIENTE) {
+            throw new IllegalArgumentException("Identificador do cliente acima de " + TAMANHO_MAXIMO_DO_CLIENTE + " bytes");
+        }
+    }
+
+    // Um cliente que já está na fila conta como adicionado com MANTER_POSICAO
+    private boolean adicionar(String cliente, FaixaDeMcc faixa) {
+        EntradaNaFila entrada = copias.entrar(cliente);
+        if (entrada == EntradaNaFila.DUPLICADA) {
+            return true;
+        }
+        if (!enfileirar(cliente, faixa)) {
+            copias.desfazerEntrada(cliente);
+            return false;
+        }
+        if (entrada == EntradaNaFila.MOVIDA) {
+            eventos.publicar(EventoDaFila.Tipo.SAIDA, cliente);
+        }
+        eventos.publicar(EventoDaFila.Tipo.ENTRADA, cliente);
+        return true;
+    }
+
+    private boolean enfileirar(String cliente, FaixaDeMcc faixa) {
+        if (transbordo != null && transbordo.possuiPendentes()) {
+            // Já existe excedente em disco: o novo cliente vai para o fim dele para manter a ordem
+            return derramarEmDisco(cliente, faixa);
+        }
+
+        if (!vagas.tryAcquire()) {
+            if (politica == PoliticaDeTransbordo.DERRAMAR_EM_DISCO) {
+                return derramarEmDisco(cliente, faixa);
+            }
+            if (!aguardarVaga()) {
+                return false;
+            }
+        }
+
+        inserir(cliente, faixa);
+        contadores.adicionados.increment();
+        return true;
+    }
+
+    // Chamado com a fila cheia; retorna true se uma vaga foi obtida para o cliente
+    private boolean aguardarVaga() {
+        switch (politica) {
+            case BLOQUEAR:
+                contadores.bloqueios.increment();
+                try {
+                    if (vagas.tryAcquire(tempoDeBloqueioMs, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                contadores.bloqueiosExpirados.increment();
+                return false;
+            case DESCARTAR_MAIS_ANTIGO:
+                // Reaproveita a vaga do cliente mais antigo; se outro consumidor o levou antes, tenta a vaga liberada
+                SaidaDaFila descartado = retirar(new String[1]);
+                if (descartado != null) {
+                    // Uma cópia obsoleta ou cancelada também ocupava vaga, então também serve para abrir espaço
+                    if (descartado == SaidaDaFila.ENTREGAR) {
+                        contadores.descartados.increment();
+                    }
+                    return true;
+                }
+                return vagas.tryAcquire() || aguardarVaga();
+            default:
+                contadores.rejeitados.increment();
+                return false;
+        }
+    }
+
+    private boolean derramarEmDisco(String cliente, FaixaDeMcc faixa) {
+        synchronized (transbordo) {
+            // Revalida sob o lock: o excedente pode ter acabado e haver vaga em memória
+            if (!transbordo.possuiPendentes() && vagas.tryAcquire()) {
+                inserir(cliente, faixa);
+            } else {
+                transbordo.gravar(cliente, faixa);
+                if (log != null) {
+                    log.registrarEntrada(cliente, faixa);
+                }
+                contadores.derramadosEmDisco.increment();
+            }
+        }
+        contadores.adicionados.increment();
+        return true;
+    }
+
+    private void inserir(String cliente, FaixaDeMcc faixa) {
+        if (log == null) {
+            ofertar(cliente, faixa);
+            return;
+        }
+        synchronized (log) {
+            ofertar(cliente, faixa);
+            log.registrarEntrada(cliente, faixa);
+        }
+    }
+
+    // Toda entrada na fila em memória passa por aqui para que a posição do cliente possa ser consultada.
+    // Com deduplicação, uma cópia anterior ainda na fila é obsoleta (ver saiuDaFila).
+    private void ofertar(String cliente, FaixaDeMcc faixa) {
+        long posicao = fila.offer(cliente, faixa);
+        if (posicoes != null) {
+            posicoes.entrou(IndiceDeClientes.chave(cliente), posicao, copias.deduplica());
+        }
+    }
+
+    // Próxima cópia da memória, em retirada[0], e como ela saiu; null se a memória estiver vazia. Uma cópia
+    // obsoleta ou cancelada não é entregue, mas ainda assim ocupava vaga.
+    private SaidaDaFila retirar(String[] retirada) {
+        if (log == null) {
+            retirada[0] = fila.poll();
+            return retirada[0] == null ? null : saiuDaMemoria(retirada[0]);
+        }
+        synchronized (log) {
+            retirada[0] = fila.poll();
+            return retirada[0] == null ? null : saiuDaMemoria(retirada[0]);
+        }
+    }
+
+    // Com log, chamado sob o lock dele
+    private SaidaDaFila saiuDaMemoria(String cliente) {
+        SaidaDaFila saida = saiuDaFila(cliente);
+        registrarSaida(cliente, saida);
+        return saida;
+    }
+
+    // A saída de uma cópia cancelada já foi registrada no cancelamento
+    private void registrarSaida(String cliente, SaidaDaFila saida) {
+        if (log != null && saida != SaidaDaFila.CANCELADA) {
+            log.registrarSaida(cliente);
+        }
+    }
+
+    // Retira atomicamente o próximo cliente, ou null se a fila estiver vazia.
+    // Evita a corrida entre consultar getTamanho() e depois chamar proximoCliente().
+    @Override
+    public String poll() {
+        String[] cliente = new String[1];
+        while (true) {
+            SaidaDaFila saida = retirar(cliente);
+            if (saida == null) {
+                return transbordo == null ? null : retirarDoDisco();
+            }
+            liberarVaga();
+            if (saida == SaidaDaFila.ENTREGAR) {
+                contadores.retirados.increment();
+                return cliente[0];
+            }
+        }
+    }
+
+    // Retira até "quantidade" clientes (limitado a fila.maximo-por-lote) de uma só vez, na ordem da fila
+    @Override
+    public List<String> retirarClientes(int quantidade) {
+        int limite = Math.min(quantidade, maximoPorLote);
+        List<String> clientes = new ArrayList<>(limite);
+        int retiradas = retirarLote(limite, clientes);
+        for (int i = 0; i < retiradas; i++) {
+            liberarVaga();
+        }
+        contadores.retirados.add(clientes.size());
+        // Completa com o excedente em disco que não coube na memória durante a retirada
+        while (clientes.size() < limite && transbordo != null && transbordo.possuiPendentes()) {
+            String cliente = poll();
+            if (cliente == null) {
+                break;
+            }
+            clientes.add(cliente);
+        }
+        return clientes;
+    }
+
+    // Acrescenta a "entregar" as cópias que devem ser entregues; retorna quantas saíram da memória, contando as
+    // descartadas, para liberar a vaga de todas
+    private int retirarLote(int quantidade, List<String> entregar) {
+        if (log == null) {
+            return saiuDaMemoria(fila.drenar(quantidade), entregar);
+        }
+        synchronized (log) {
+            return saiuDaMemoria(fila.drenar(quantidade), entregar);
+        }
+    }
+
+    private int saiuDaMemoria(List<String> retiradas, List<String> entregar) {
+        for (String cliente : retiradas) {
+            if (saiuDaMemoria(cliente) == SaidaDaFila.ENTREGAR) {
+                entregar.add(cliente);
+            }
+        }
+        return retiradas.size();
+    }
+
+    // A vaga liberada é ocupada pelo cliente mais antigo do disco, se houver
+    private void liberarVaga() {
+        if (transbordo != null && transbordo.possuiPendentes()) {
+            synchronized (transbordo) {
+                ClienteNaFila excedente = transbordo.ler();
+                if (excedente != null) {
+                    // Continua na fila do ponto de vista do log: não há novo registro
+                    ofertar(excedente.getCliente(), excedente.getFaixa());
+                    contadores.recarregadosDoDisco.increment();
+                    return;
+                }
+            }
+        }
+        vagas.release();
+    }
+
+    // Caso raro: memória vazia por um instante enquanto ainda há excedente em disco
+    private String retirarDoDisco() {
+        synchronized (transbordo) {
+            while (true) {
+                ClienteNaFila excedente = transbordo.ler();
+                if (excedente == null) {
+                    return null;
+                }
+                String cliente = excedente.getCliente();
+                SaidaDaFila saida = saiuDaFila(cliente);
+                registrarSaida(cliente, saida);
+                if (saida == SaidaDaFila.ENTREGAR) {
+                    contadores.retirados.increment();
+                    return cliente;
+                }
+            }
+        }
+    }
+
+    // Chamado uma vez para cada cópia que sai da fila, da memória ou do disco; ver CopiasNaFila.sair
+    private SaidaDaFila saiuDaFila(String cliente) {
+        long chave = IndiceDeClientes.chave(cliente);
+        if (posicoes != null) {
+            posicoes.saiu(chave);
+        }
+        SaidaDaFila saida = copias.sair(cliente, chave);
+        if (saida == SaidaDaFila.ENTREGAR) {
+            eventos.publicar(EventoDaFila.Tipo.SAIDA, cliente);
+        }
+        return saida;
+    }
+
+    // Cancela o cliente (excluído ou que desistiu): todas as cópias aguardando, em memória ou em disco,
+    // deixam de contar e são descartadas ao chegar à frente, sem ocupar um atendimento. Não procura o cliente
+    // na fila, então custa O(1); a compactação libera antes as vagas quando as canceladas se acumulam.
+    // Um cliente já recebido e aguardando confirmação não é afetado. Retorna false se ele não estava aguardando.
+    @Override
+    public boolean removerClienteDaFila(String cliente) {
+        long chave = IndiceDeClientes.chave(cliente);
+        if (chave == IndiceDeClientes.SEM_CHAVE) {
+            return false;
+        }
+        int canceladas;
+        if (log == null) {
+            canceladas = copias.cancelar(chave);
+        } else {
+            // Cada cópia cancelada tem a saída registrada aqui, e não quando chegar à frente
+            synchronized (log) {
+                canceladas = copias.cancelar(chave);
+                for (int i = 0; i < canceladas; i++) {
+                    log.registrarSaida(cliente);
+                }
+            }
+        }
+        if (canceladas == 0) {
+            return false;
+        }
+        if (posicoes != null) {
+            posicoes.cancelou(chave);
+        }
+        contadores.cancelados.increment();
+        eventos.publicar(EventoDaFila.Tipo.SAIDA, cliente);
+        return true;
     }
 
-    public synchronized boolean adicionarClienteNaFila(String cliente) {
-        if (tamanho < TAMANHO_MAXIMO) {
-            fim = (fim + 1) % TAMANHO_MAXIMO;
-            fila[fim] = cliente;
-            tamanho++;
+    private void compactarSeNecessario() {
+        if (copias.compactacaoNecessaria()) {
+            compactar();
+        }
+    }
+
+    // Remove de uma vez as cópias canceladas do meio da fila em memória e libera as vagas delas, sem esperar
+    // que cheguem à frente (com log, sob o lock dele). Package-private para os testes.
+    void compactar() {
+        int removidas;
+        if (log == null) {
+            removidas = copias.compactar(fila);
+        } else {
+            synchronized (log) {
+                removidas = copias.compactar(fila);
+            }
+        }
+        // Fora do lock do log: a vaga pode ser ocupada por um excedente do disco, sob o lock do transbordo
+        for (int i = 0; i < removidas; i++) {
+            liberarVaga();
+        }
+    }
+
+    // Entrega o próximo cliente sem removê-lo de vez: ele fica invisível por fila.tempo-de-visibilidade-ms
+    // e volta para a fila se não for confirmado nesse prazo. Retorna null se a fila estiver vazia.
+    @Override
+    public Recebimento receber() {
+        Recebimento recebimento = receberDaMemoria();
+        if (recebimento == null && transbordo != null) {
+            recebimento = receberDoDisco();
+        }
+        if (recebimento != null) {
+            contadores.recebidos.increment();
+            if (recebimento.getEntregas() > 1) {
+                contadores.reentregas.increment();
+            }
+        }
+        return recebimento;
+    }
+
+    // Sob o lock do log para que um checkpoint veja o cliente na fila ou em processamento, nunca em nenhum dos dois
+    private Recebimento receberDaMemoria() {
+        FaixaDeMcc[] faixa = new FaixaDeMcc[1];
+        while (true) {
+            String cliente;
+            Recebimento recebimento = null;
+            if (log == null) {
+                cliente = fila.poll(faixa);
+                if (cliente != null) {
+                    int anteriores = copias.entregasAnteriores(cliente);
+                    if (saiuDaFila(cliente) == SaidaDaFila.ENTREGAR) {
+                        recebimento = registrarRecebimento(cliente, faixa[0], anteriores, true);
+                    }
+                }
+            } else {
+                synchronized (log) {
+                    cliente = fila.poll(faixa);
+                    if (cliente != null) {
+                        int anteriores = copias.entregasAnteriores(cliente);
+                        SaidaDaFila saida = saiuDaFila(cliente);
+                        if (saida == SaidaDaFila.ENTREGAR) {
+                            recebimento = registrarRecebimento(cliente, faixa[0], anteriores, true);
+                        } else {
+                            registrarSaida(cliente, saida);
+                        }
+                    }
+                }
+            }
+            if (cliente == null || recebimento != null) {
+                return recebimento;
+            }
+            // Cópia obsoleta ou cancelada descartada: libera a vaga dela (fora do lock do log) e tenta o próximo
+            liberarVaga();
+        }
+    }
+
+    private Recebimento receberDoDisco() {
+        synchronized (transbordo) {
+            while (true) {
+                ClienteNaFila excedente = transbordo.ler();
+                if (excedente == null) {
+                    return null;
+                }
+                String cliente = excedente.getCliente();
+                int anteriores = copias.entregasAnteriores(cliente);
+                SaidaDaFila saida = saiuDaFila(cliente);
+                if (saida == SaidaDaFila.ENTREGAR) {
+                    return registrarRecebimento(cliente, excedente.getFaixa(), anteriores, false);
+                }
+                registrarSaida(cliente, saida);
+            }
+        }
+    }
+
+    // Nada é gravado no log: até a confirmação o cliente continua na fila do ponto de vista da recuperação
+    private Recebimento registrarRecebimento(String cliente, FaixaDeMcc faixa, int entregasAnteriores, boolean possuiVaga) {
+        Recebimento recebimento = new Recebimento(UUID.randomUUID().toString(), cliente, entregasAnteriores + 1, faixa,
+                possuiVaga);
+        emProcessamento.put(recebimento.getRecibo(), recebimento);
+        recebimento.temporizador = roda.agendar(recebimento, agoraMs() + tempoDeVisibilidadeMs);
+        return recebimento;
+    }
+
+    // Remove de vez o cliente recebido; false se o recibo não existe ou o prazo já venceu
+    @Override
+    public boolean confirmar(String recibo) {
+        Recebimento recebimento;
+        if (log == null) {
+            recebimento = emProcessamento.remove(recibo);
+        } else {
+            synchronized (log) {
+                recebimento = emProcessamento.remove(recibo);
+                if (recebimento != null) {
+                    log.registrarSaida(recebimento.getCliente());
+                }
+            }
+        }
+        if (recebimento == null) {
+            return false;
+        }
+        roda.cancelar(recebimento.temporizador);
+        contadores.confirmados.increment();
+        contadores.retirados.increment();
+        if (recebimento.possuiVaga) {
+            liberarVaga();
+        }
+        return true;
+    }
+
+    // Devolve imediatamente à fila um cliente recebido, sem esperar o prazo de visibilidade
+    @Override
+    public boolean devolver(String recibo) {
+        Recebimento recebimento = emProcessamento.get(recibo);
+        if (recebimento == null) {
+            return false;
+        }
+        roda.cancelar(recebimento.temporizador);
+        if (!reenfileirar(recebimento)) {
+            return false;
+        }
+        contadores.devolvidos.increment();
+        atenderEsperas();
+        return true;
+    }
+
+    // Chamado a cada tick da roda; package-private para os testes controlarem o relógio
+    void expirarRecebimentos(long agoraMs) {
+        for (Recebimento recebimento : roda.avancar(agoraMs)) {
+            if (reenfileirar(recebimento)) {
+                contadores.expirados.increment();
+            }
+        }
+        atenderEsperas();
+    }
+
+    // Long polling: registra um atendente que aguarda até "esperaMs" (limitado a fila.espera-maxima-ms) por um cliente. "aoReceber" é chamado com o
+    // cliente recebido (na thread que o adicionou) e "aoExpirar" se o prazo vencer antes. Como em receber(), quem
+    // aguardava confirma o recibo depois de entregar o cliente; se o atendente já desistiu, devolve, e sem nenhum
+    // dos dois o cliente volta para a fila no fim do tempo de visibilidade.
+    // Os atendentes são atendidos na ordem de chegada. Retorna null se o limite fila.maximo-de-esperas foi atingido.
+    public EsperaPorCliente aguardarCliente(long esperaMs, Consumer<Recebimento> aoReceber, Runnable aoExpirar) {
+        if (aguardando.incrementAndGet() > maximoDeEsperas) {
+            aguardando.decrementAndGet();
+            contadores.esperasRecusadas.increment();
+            return null;
+        }
+        EsperaPorCliente espera = new EsperaPorCliente(this, aoReceber, aoExpirar);
+        espera.temporizador = rodaDeEsperas.agendar(espera, agoraMs() + Math.min(esperaMs, esperaMaximaMs));
+        esperas.offer(espera);
+        // Se já houver cliente na fila, a espera é atendida aqui mesmo
+        atenderEsperas();
+        return espera;
+    }
+
+    // Entrega os clientes disponíveis às esperas mais antigas
+    private void atenderEsperas() {
+        EsperaPorCliente espera;
+        while (!filaVazia() && (espera = esperas.poll()) != null) {
+            if (!espera.reservar()) {
+                continue; // já expirou ou foi cancelada
+            }
+            Recebimento recebimento = receber();
+            if (recebimento == null) {
+                // Outro consumidor levou o cliente: a espera volta para a frente, sem perder a vez.
+                // O laço confere a fila de novo, então um cliente que chegue agora não fica sem atendente.
+                if (espera.liberarReserva()) {
+                    esperas.offerFirst(espera);
+                } else {
+                    finalizarEspera(espera, espera.expirou);
+                }
+                continue;
+            }
+            espera.concluir();
+            aguardando.decrementAndGet();
+            rodaDeEsperas.cancelar(espera.temporizador);
+            contadores.esperasAtendidas.increment();
+            espera.aoReceber.accept(recebimento);
+        }
+    }
+
+    // Chamado a cada tick da roda; package-private para os testes controlarem o relógio
+    void expirarEsperas(long agoraMs) {
+        for (EsperaPorCliente espera : rodaDeEsperas.avancar(agoraMs)) {
+            if (espera.encerrar(true)) {
+                finalizarEspera(espera, true);
+            }
+        }
+    }
+
+    private void finalizarEspera(EsperaPorCliente espera, boolean expirou) {
+        esperaEncerrada(espera);
+        if (expirou) {
+            contadores.esperasExpiradas.increment();
+            espera.aoExpirar.run();
+        }
+    }
+
+    // A espera já está encerrada: libera o lugar dela no limite de atendentes aguardando
+    void esperaEncerrada(EsperaPorCliente espera) {
+        aguardando.decrementAndGet();
+        esperas.remove(espera);
+        rodaDeEsperas.cancelar(espera.temporizador);
+    }
+
+    // Coloca o cliente de volta no fim da fila; false se ele já foi confirmado ou devolvido por outra thread
+    private boolean reenfileirar(Recebimento recebimento) {
+        String cliente = recebimento.getCliente();
+        if (recebimento.possuiVaga) {
+            // A vaga continua ocupada desde o recebimento, então não há permissão a adquirir
+            boolean descartado;
+            if (log == null) {
+                if (!emProcessamento.remove(recebimento.getRecibo(), recebimento)) {
+                    return false;
+                }
+                descartado = !voltarParaAFila(recebimento);
+                if (!descartado) {
+                    ofertar(cliente, recebimento.faixa);
+                }
+            } else {
+                synchronized (log) {
+                    if (!emProcessamento.remove(recebimento.getRecibo(), recebimento)) {
+                        return false;
+                    }
+                    descartado = !voltarParaAFila(recebimento);
+                    if (descartado) {
+                        log.registrarSaida(cliente);
+                    } else {
+                        ofertar(cliente, recebimento.faixa);
+                    }
+                }
+            }
+            if (descartado) {
+                liberarVaga();
+            }
+            return true;
+        }
+        synchronized (transbordo) {
+            if (!emProcessamento.remove(recebimento.getRecibo(), recebimento)) {
+                return false;
+            }
+            if (!voltarParaAFila(recebimento)) {
+                if (log != null) {
+                    log.registrarSaida(cliente);
+                }
+            } else if (!transbordo.possuiPendentes() && vagas.tryAcquire()) {
+                ofertar(cliente, recebimento.faixa);
+            } else {
+                transbordo.gravar(cliente, recebimento.faixa);
+            }
             return true;
         }
-        return false; // A fila está cheia
     }
 
-    public synchronized String proximoCliente() {
-        if (tamanho > 0) {
-            String cliente = fila[inicio];
-            inicio = (inicio + 1) % TAMANHO_MAXIMO;
-            tamanho--;
-            return cliente;
+    // Com MANTER_POSICAO, false se o cliente foi adicionado de novo enquanto estava em processamento: ele já
+    // está na fila e esta cópia é descartada
+    private boolean voltarParaAFila(Recebimento recebimento) {
+        EntradaNaFila entrada = copias.voltar(recebimento.getCliente(), recebimento.getEntregas());
+        if (entrada == EntradaNaFila.DUPLICADA) {
+            return false;
         }
-        return null; // A fila está vazia
+        if (entrada == EntradaNaFila.MOVIDA) {
+            eventos.publicar(EventoDaFila.Tipo.SAIDA, recebimento.getCliente());
+        }
+        eventos.publicar(EventoDaFila.Tipo.ENTRADA, recebimento.getCliente());
+        return true;
     }
 
+    static long agoraMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
 
-    public synchronized boolean filaVazia() {
-        return tamanho == 0;
+    public String proximoCliente() {
+        return poll(); // A fila está vazia quando retorna null
     }
 
 
+    @Override
+    public boolean filaVazia() {
+        return fila.isEmpty() && (transbordo == null || !transbordo.possuiPendentes());
+    }
 
-    public synchronized String[] obterConteudoDaFila() {
-        String[] conteudoDaFila = new String[tamanho];
-        int indiceAtual = inicio;
-        for (int i = 0; i < tamanho; i++) {
-            conteudoDaFila[i] = fila[indiceAtual];
-            indiceAtual = (indiceAtual + 1) % TAMANHO_MAXIMO;
+
+
+    @Override
+    public String[] obterConteudoDaFila() {
+        List<String> conteudoDaFila = fila.snapshot();
+        return conteudoDaFila.toArray(new String[0]);
+    }
+
+    // Sem locks: cadastros e atendimentos continuam enquanto um painel percorre a fila
+    @Override
+    public long percorrerConteudo(long cursor, Predicate<String> visitante) {
+        return fila.percorrer(cursor, visitante);
+    }
+
+    // Posição do cliente na fila a partir de 1, sem percorrê-la; SEM_POSICAO se ele não está aguardando na
+    // memória: fora da fila, já recebido e aguardando confirmação, ou no excedente em disco, que não é numerado
+    @Override
+    public long posicaoNaFila(String cliente) {
+        if (posicoes == null) {
+            throw new UnsupportedOperationException("A consulta de posição na fila está desligada (fila.posicao-na-fila=false)");
         }
-        return conteudoDaFila;
+        return posicoes.posicao(IndiceDeClientes.chave(cliente));
     }
 
+    // Grava o conteúdo atual no log e descarta os segmentos antigos.
+    // Os locks (transbordo e depois log) congelam a fila durante a cópia.
+    public void checkpoint() {
+        if (log == null) {
+            return;
+        }
+        agendamentos.checkpoint();
+        if (transbordo == null) {
+            synchronized (log) {
+                log.checkpointComFaixas(conteudoParaCheckpoint());
+            }
+            return;
+        }
+        synchronized (transbordo) {
+            synchronized (log) {
+                List<ClienteNaFila> conteudo = conteudoParaCheckpoint();
+                conteudo.addAll(transbordo.listarPendentes());
+                log.checkpointComFaixas(conteudo);
+            }
+        }
+    }
+
+    // Clientes em processamento entram primeiro: numa recuperação eles voltam para a frente da fila
+    private List<ClienteNaFila> conteudoParaCheckpoint() {
+        List<ClienteNaFila> conteudo = new ArrayList<>();
+        for (Recebimento recebimento : emProcessamento.values()) {
+            conteudo.add(new ClienteNaFila(recebimento.getCliente(), recebimento.faixa));
+        }
+        fila.snapshot((cliente, faixa) -> conteudo.add(new ClienteNaFila(cliente, faixa)));
+        return conteudo;
+    }
+
+    @Override
+    @PreDestroy
+    public void encerrar() {
+        visibilidade.shutdownNow();
+        amadurecimento.shutdownNow();
+        eventos.encerrar();
+        if (log == null) {
+            return;
+        }
+        checkpoints.shutdownNow();
+        checkpoint();
+        log.close();
+        agendamentos.close();
+    }
+
+    // Inclui os clientes em processamento, que continuam ocupando vaga até serem confirmados
+    @Override
     public int getTamanho() {
-        return tamanho;
+        long emDisco = transbordo == null ? 0 : transbordo.getPendentes();
+        return (int) (capacidade - vagas.availablePermits() + emDisco);
+    }
+
+    public PublicadorDeEventos getEventos() {
+        return eventos;
+    }
+
+    public int getAtendentesAguardando() {
+        return aguardando.get();
+    }
+
+    public long getEsperaMaximaMs() {
+        return esperaMaximaMs;
+    }
+
+    public int getEmProcessamento() {
+        return emProcessamento.size();
+    }
+
+    @Override
+    public long getTempoDeVisibilidadeMs() {
+        return tempoDeVisibilidadeMs;
+    }
+
+    // Vazios quando a fila não é particionada
+    public long[] getProfundidadePorParticao() {
+        return fila instanceof FilaParticionada particionada ? particionada.profundidades() : new long[0];
+    }
+
+    public long[] getRoubosPorParticao() {
+        return fila instanceof FilaParticionada particionada ? particionada.roubos() : new long[0];
+    }
+
+    // Vazios sem raias de prioridade
+    public String[] getRaias() {
+        return fila instanceof FilaComPrioridades comPrioridades ? comPrioridades.nomes() : new String[0];
+    }
+
+    public long[] getProfundidadePorRaia() {
+        return fila instanceof FilaComPrioridades comPrioridades ? comPrioridades.profundidades() : new long[0];
+    }
+
+    // Clientes agendados que ainda não entraram na fila
+    public int getAgendamentosPendentes() {
+        return agendamentos.size();
+    }
+
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    public PoliticaDeTransbordo getPolitica() {
+        return politica;
+    }
+
+    @Override
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+
+    public ContadoresDaFila getContadores() {
+        return contadores;
+    }
+
+    public void setRegistroDeTempoNaFila(RegistroDeTempoNaFila registroDeTempoNaFila) {
+        this.registroDeTempoNaFila = registroDeTempoNaFila;
+    }
+
+    public void setRegistroDeTempoNaRaia(RegistroDeTempoNaRaia registroDeTempoNaRaia) {
+        this.registroDeTempoNaRaia = registroDeTempoNaRaia;
     }
 
 }
@@ -0,0 +1,139 @@
+package com.cielo.precadastroclientes.queue;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fila de falhas (dead-letter queue): clientes já retirados da fila de atendimento cuja consulta ao cadastro
+// falhou ou cujo identificador não é um CPF nem um CNPJ. Sem ela o cliente se perdia e o atendente recebia
+// "fila vazia". As falhas acontecem depois da retirada, então a fila de falhas vale para qualquer backend.
+//
+// Fica em memória, uma entrada por CPF/CNPJ na ordem da primeira falha, limitada a
+// fila.capacidade-da-fila-de-falhas: cheia, a falha mais antiga é descartada e contada. O reenvio devolve as
+// mais antigas ao fim da fila de atendimento; se o cliente falhar de novo, as tentativas continuam somando.
+@Component
+public class FilaDeFalhas {
+
+    private final int capacidade;
+    // Protegido pelo lock da própria fila de falhas
+    private final LinkedHashMap<String, FalhaNaFila> falhas = new LinkedHashMap<>();
+    // Falha anterior de quem foi reenviado, até a próxima consulta dele dar certo ou falhar de novo
+    private final ConcurrentHashMap<String, FalhaNaFila> reenviados = new ConcurrentHashMap<>();
+
+    private final LongAdder falhasDeConsulta = new LongAdder();
+    private final LongAdder identificadoresInvalidos = new LongAdder();
+    private final LongAdder reenvios = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+
+    public FilaDeFalhas() {
+        this(new FilaProperties());
+    }
+
+    @Autowired
+    public FilaDeFalhas(FilaProperties properties) {
+        this.capacidade = properties.getCapacidadeDaFilaDeFalhas();
+    }
+
+    // A consulta ao cadastro do cliente retirado lançou uma exceção (banco indisponível, por exemplo)
+    public void falhaDeConsulta(String cliente, RuntimeException erro) {
+        falhasDeConsulta.increment();
+        registrar(cliente, erro.getMessage() == null ? erro.getClass().getSimpleName()
+                : erro.getClass().getSimpleName() + ": " + erro.getMessage());
+    }
+
+    public void identificadorInvalido(String cliente) {
+        identificadoresInvalidos.increment();
+        registrar(cliente, "Identificador inválido na fila");
+    }
+
+    // Consulta bem-sucedida: um cliente reenviado deixa de carregar as tentativas anteriores.
+    // No caminho de todo atendimento, então só toca o mapa quando há reenviados.
+    public void consultou(String cliente) {
+        if (!reenviados.isEmpty()) {
+            reenviados.remove(cliente);
+        }
+    }
+
+    private synchronized void registrar(String cliente, String motivo) {
+        long agora = System.currentTimeMillis();
+        FalhaNaFila anterior = falhas.remove(cliente);
+        if (anterior == null) {
+            anterior = reenviados.remove(cliente);
+        }
+        FalhaNaFila falha = anterior == null
+                ? new FalhaNaFila(cliente, motivo, 1, agora, agora)
+                : new FalhaNaFila(cliente, motivo, anterior.getTentativas() + 1, anterior.getPrimeiraFalhaEm(), agora);
+        if (falhas.size() >= capacidade) {
+            Iterator<FalhaNaFila> maisAntiga = falhas.values().iterator();
+            maisAntiga.next();
+            maisAntiga.remove();
+            descartadas.increment();
+        }
+        falhas.put(cliente, falha);
+    }
+
+    // As "maximo" falhas mais antigas, sem retirá-las
+    public synchronized List<FalhaNaFila> listar(int maximo) {
+        List<FalhaNaFila> lista = new ArrayList<>(Math.min(maximo, falhas.size()));
+        for (FalhaNaFila falha : falhas.values()) {
+            if (lista.size() == maximo) {
+                break;
+            }
+            lista.add(falha);
+        }
+        return lista;
+    }
+
+    // Devolve ao fim da fila de atendimento até "maximo" clientes, dos mais antigos para os mais novos.
+    // Para no primeiro que a fila recusar (cheia): ele e os seguintes continuam aqui. Retorna os reenviados.
+    public synchronized int reenviar(int maximo, QueueBackend fila) {
+        int quantidade = 0;
+        Iterator<FalhaNaFila> iterador = falhas.values().iterator();
+        while (quantidade < maximo && iterador.hasNext()) {
+            FalhaNaFila falha = iterador.next();
+            if (!fila.adicionarClienteNaFila(falha.getCliente())) {
+                break;
+            }
+            iterador.remove();
+            // Limitado como a própria fila de falhas; além disso, as tentativas recomeçam do zero
+            if (reenviados.size() < capacidade) {
+                reenviados.put(falha.getCliente(), falha);
+            }
+            reenvios.increment();
+            quantidade++;
+        }
+        return quantidade;
+    }
+
+    public synchronized int getTamanho() {
+        return falhas.size();
+    }
+
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    public long getFalhasDeConsulta() {
+        return falhasDeConsulta.sum();
+    }
+
+    public long getIdentificadoresInvalidos() {
+        return identificadoresInvalidos.sum();
+    }
+
+    public long getReenvios() {
+        return reenvios.sum();
+    }
+
+    // Falhas mais antigas descartadas com a fila de falhas cheia
+    public long getDescartadas() {
+        return descartadas.sum();
+    }
+}
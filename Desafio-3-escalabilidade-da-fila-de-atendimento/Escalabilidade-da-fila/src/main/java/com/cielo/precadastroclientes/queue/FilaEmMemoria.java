@@ -0,0 +1,63 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Armazenamento em memória da FilaDeAtendimento: uma única fila segmentada ou várias partições.
+// A capacidade é controlada por quem a utiliza; aqui as filas não têm limite próprio.
+public interface FilaEmMemoria<E> {
+
+    // Retornado por offer e frente quando a fila não numera os elementos numa única sequência
+    long SEM_POSICAO = -1;
+
+    default long offer(E elemento) {
+        return offer(elemento, FaixaDeMcc.DESCONHECIDA);
+    }
+
+    // A faixa de MCC acompanha o elemento: escolhe a raia (FilaComPrioridades), separa as métricas de tempo na
+    // fila e volta na retirada, para que um elemento devolvido ou guardado fora da memória entre de novo com ela.
+    // Retorna a posição estável em que o elemento entrou (a mesma de percorrer), ou SEM_POSICAO.
+    long offer(E elemento, FaixaDeMcc faixa);
+
+    // null quando a fila está vazia
+    default E poll() {
+        return poll(null);
+    }
+
+    // Como poll, guardando em faixa[0] a faixa de MCC com que o elemento entrou (se faixa não for null)
+    E poll(FaixaDeMcc[] faixa);
+
+    // Retira até "maximo" elementos de uma vez
+    List<E> drenar(int maximo);
+
+    boolean isEmpty();
+
+    // Posição do próximo elemento a sair: quem entrou numa posição menor já saiu da fila. SEM_POSICAO
+    // quando a fila não numera os elementos numa única sequência (partições).
+    long frente();
+
+    // Cópia fracamente consistente do conteúdo, da frente para o fim
+    default List<E> snapshot() {
+        List<E> conteudo = new ArrayList<>();
+        snapshot((elemento, faixa) -> conteudo.add(elemento));
+        return conteudo;
+    }
+
+    // Como snapshot, entregando cada elemento com a sua faixa de MCC
+    void snapshot(BiConsumer<E, FaixaDeMcc> destino);
+
+    // Visita, sem copiar a fila, os elementos a partir da posição "cursor" (inclusive) até o visitante
+    // retornar false. Retorna a posição do elemento recusado, ou a seguinte ao último visitado, para
+    // continuar de onde parou. As posições são atribuídas na entrada e nunca mudam, então retiradas entre
+    // uma página e outra não deslocam os elementos seguintes. Comece com 0.
+    long percorrer(long cursor, Predicate<E> visitante);
+
+    // Remove do meio da fila, sem esperar que cheguem à frente, os elementos aceitos pelo critério, entrega
+    // cada um a "removido" e retorna quantos. O critério é consultado antes da remoção: um elemento que um
+    // consumidor leve nesse meio tempo é aceito mas não é removido, então o critério não deve alterar estado.
+    // Percorre a fila inteira, então é para tarefas de manutenção.
+    int remover(Predicate<E> criterio, Consumer<E> removido);
+}
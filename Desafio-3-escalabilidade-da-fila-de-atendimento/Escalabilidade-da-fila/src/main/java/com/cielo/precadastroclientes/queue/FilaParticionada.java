@@ -0,0 +1,260 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Fila dividida em partições independentes, cada uma uma FilaSegmentadaDeLongs sem locks com os
+// identificadores compactados (CodificadorDeClientes).
+// O elemento vai para a partição dada pelo hash do identificador (CPF/CNPJ); cada consumidor retira
+// primeiro da sua partição "de casa" e, se ela estiver vazia, rouba das demais. Assim produtores e
+// consumidores se espalham por N cabeças e caudas em vez de disputar as mesmas.
+//
+// Cada elemento recebe na entrada um carimbo com o instante de chegada (RelogioDaFila), guardado ao lado
+// do código e usado para medir o tempo na fila. Sem ordem global, a ordem de chegada vale apenas dentro
+// de cada partição. Com ordem global os carimbos são estritamente crescentes e o consumidor retira da
+// partição cuja frente tem o menor carimbo; sob concorrência a ordem é aproximada, pois outra thread
+// pode levar a frente escolhida.
+public final class FilaParticionada implements FilaEmMemoria<String> {
+
+    // Cursor de percorrer: partição nos bits altos, posição dentro dela nos 48 bits baixos
+    private static final int BITS_DA_POSICAO = 48;
+    private static final long MASCARA_DA_POSICAO = (1L << BITS_DA_POSICAO) - 1;
+
+    private final Particao[] particoes;
+    private final boolean ordemGlobal;
+    private final CodificadorDeClientes codificador = new CodificadorDeClientes();
+    private final RelogioDaFila relogio;
+
+    public FilaParticionada(int quantidadeDeParticoes, int tamanhoDoSegmento, boolean ordemGlobal) {
+        this(quantidadeDeParticoes, tamanhoDoSegmento, ordemGlobal, RegistroDeTempoNaFila.NENHUM);
+    }
+
+    public FilaParticionada(int quantidadeDeParticoes, int tamanhoDoSegmento, boolean ordemGlobal,
+                            RegistroDeTempoNaFila registro) {
+        if (quantidadeDeParticoes < 1) {
+            throw new IllegalArgumentException("A quantidade de partições deve ser maior que zero");
+        }
+        this.relogio = new RelogioDaFila(registro);
+        this.particoes = new Particao[quantidadeDeParticoes];
+        for (int i = 0; i < quantidadeDeParticoes; i++) {
+            particoes[i] = new Particao(tamanhoDoSegmento, relogio);
+        }
+        this.ordemGlobal = ordemGlobal;
+    }
+
+    @Override
+    public long offer(String cliente, FaixaDeMcc faixa) {
+        if (cliente == null) {
+            throw new NullPointerException("A fila não aceita elementos nulos");
+        }
+        // O carimbo só é disputado entre as threads quando a ordem global foi pedida
+        long carimbo = ordemGlobal ? relogio.carimbarEmOrdem(faixa) : relogio.carimbar(faixa);
+        long codigo = codificador.codificar(cliente);
+        Particao particao = particoes[particaoDo(codigo)];
+        // A profundidade sobe antes da inserção: um consumidor nunca pula uma partição que já tem elemento visível
+        particao.profundidade.incrementAndGet();
+        particao.itens.offer(codigo, carimbo);
+        return SEM_POSICAO;
+    }
+
+    @Override
+    public String poll(FaixaDeMcc[] faixa) {
+        if (ordemGlobal) {
+            return pollEmOrdem(faixa);
+        }
+        long[] carimbo = faixa == null ? null : new long[1];
+        int casa = particaoDaThread();
+        for (int i = 0; i < particoes.length; i++) {
+            Particao particao = particoes[(casa + i) % particoes.length];
+            if (particao.profundidade.get() <= 0) {
+                continue;
+            }
+            long codigo = particao.itens.poll(carimbo);
+            if (codigo != FilaSegmentadaDeLongs.VAZIO) {
+                particao.profundidade.decrementAndGet();
+                if (i > 0) {
+                    particao.roubos.increment();
+                }
+                return retirado(codigo, carimbo, faixa);
+            }
+        }
+        return null;
+    }
+
+    private String pollEmOrdem(FaixaDeMcc[] faixa) {
+        int casa = particaoDaThread();
+        long[] carimboRetirado = faixa == null ? null : new long[1];
+        while (true) {
+            int escolhida = -1;
+            long menorCarimbo = Long.MAX_VALUE;
+            for (int i = 0; i < particoes.length; i++) {
+                long carimbo = particoes[i].itens.carimboDaFrente();
+                if (carimbo < menorCarimbo) {
+                    menorCarimbo = carimbo;
+                    escolhida = i;
+                }
+            }
+            if (escolhida < 0) {
+                return null;
+            }
+            Particao particao = particoes[escolhida];
+            long codigo = particao.itens.poll(carimboRetirado);
+            if (codigo != FilaSegmentadaDeLongs.VAZIO) {
+                particao.profundidade.decrementAndGet();
+                if (escolhida != casa) {
+                    particao.roubos.increment();
+                }
+                return retirado(codigo, carimboRetirado, faixa);
+            }
+            // Outra thread esvaziou a partição escolhida entre a consulta e a retirada: escolhe de novo
+        }
+    }
+
+    @Override
+    public List<String> drenar(int maximo) {
+        List<String> elementos = new ArrayList<>(Math.min(maximo, 1024));
+        if (ordemGlobal) {
+            String elemento;
+            while (elementos.size() < maximo && (elemento = pollEmOrdem(null)) != null) {
+                elementos.add(elemento);
+            }
+            return elementos;
+        }
+        int casa = particaoDaThread();
+        for (int i = 0; i < particoes.length && elementos.size() < maximo; i++) {
+            Particao particao = particoes[(casa + i) % particoes.length];
+            int retirados = particao.itens.drenar(maximo - elementos.size(), codigo -> elementos.add(codificador.retirar(codigo)));
+            if (retirados == 0) {
+                continue;
+            }
+            particao.profundidade.addAndGet(-retirados);
+            if (i > 0) {
+                particao.roubos.add(retirados);
+            }
+        }
+        return elementos;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Particao particao : particoes) {
+            if (!particao.itens.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Cada partição tem a sua própria sequência de posições
+    @Override
+    public long frente() {
+        return SEM_POSICAO;
+    }
+
+    // Com ordem global o conteúdo é intercalado pelos carimbos; sem ela, as partições aparecem uma após a outra
+    @Override
+    public void snapshot(BiConsumer<String, FaixaDeMcc> destino) {
+        List<long[]> entradas = new ArrayList<>();
+        for (Particao particao : particoes) {
+            particao.itens.percorrerComCarimbos((codigo, carimbo) -> entradas.add(new long[]{carimbo, codigo}));
+        }
+        if (ordemGlobal) {
+            entradas.sort((a, b) -> Long.compare(a[0], b[0]));
+        }
+        for (long[] entrada : entradas) {
+            String cliente = codificador.decodificar(entrada[1]);
+            if (cliente != null) {
+                destino.accept(cliente, RelogioDaFila.faixa(entrada[0]));
+            }
+        }
+    }
+
+    // As partições são percorridas uma após a outra, mesmo com ordem global
+    @Override
+    public int remover(Predicate<String> criterio, Consumer<String> removido) {
+        int removidos = 0;
+        for (Particao particao : particoes) {
+            int daParticao = particao.itens.remover(codigo -> {
+                String cliente = codificador.decodificar(codigo);
+                return cliente != null && criterio.test(cliente);
+            }, codigo -> removido.accept(codificador.retirar(codigo)));
+            particao.profundidade.addAndGet(-daParticao);
+            removidos += daParticao;
+        }
+        return removidos;
+    }
+
+    @Override
+    public long percorrer(long cursor, Predicate<String> visitante) {
+        int primeira = (int) (cursor >>> BITS_DA_POSICAO);
+        long posicao = cursor & MASCARA_DA_POSICAO;
+        boolean[] recusou = new boolean[1];
+        for (int i = primeira; i < particoes.length; i++) {
+            posicao = particoes[i].itens.percorrer(i == primeira ? posicao : 0, codigo -> {
+                String cliente = codificador.decodificar(codigo);
+                if (cliente == null || visitante.test(cliente)) {
+                    return true;
+                }
+                recusou[0] = true;
+                return false;
+            });
+            if (recusou[0] || i == particoes.length - 1) {
+                return ((long) i << BITS_DA_POSICAO) | posicao;
+            }
+        }
+        return cursor;
+    }
+
+    public int getQuantidadeDeParticoes() {
+        return particoes.length;
+    }
+
+    public long[] profundidades() {
+        long[] profundidades = new long[particoes.length];
+        for (int i = 0; i < particoes.length; i++) {
+            profundidades[i] = particoes[i].profundidade.get();
+        }
+        return profundidades;
+    }
+
+    // Quantos elementos cada partição perdeu para consumidores de outras partições
+    public long[] roubos() {
+        long[] roubos = new long[particoes.length];
+        for (int i = 0; i < particoes.length; i++) {
+            roubos[i] = particoes[i].roubos.sum();
+        }
+        return roubos;
+    }
+
+    private String retirado(long codigo, long[] carimbo, FaixaDeMcc[] faixa) {
+        if (faixa != null) {
+            faixa[0] = RelogioDaFila.faixa(carimbo[0]);
+        }
+        return codificador.retirar(codigo);
+    }
+
+    private int particaoDo(long codigo) {
+        long hash = codigo * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) particoes.length);
+    }
+
+    // A partição de casa é fixa por thread, então cada consumidor volta sempre à mesma
+    private int particaoDaThread() {
+        return (int) (Thread.currentThread().getId() % particoes.length);
+    }
+
+    private static final class Particao {
+        final FilaSegmentadaDeLongs itens;
+        final AtomicLong profundidade = new AtomicLong();
+        final LongAdder roubos = new LongAdder();
+
+        Particao(int tamanhoDoSegmento, RelogioDaFila relogio) {
+            this.itens = new FilaSegmentadaDeLongs(tamanhoDoSegmento, true, relogio);
+        }
+    }
+}
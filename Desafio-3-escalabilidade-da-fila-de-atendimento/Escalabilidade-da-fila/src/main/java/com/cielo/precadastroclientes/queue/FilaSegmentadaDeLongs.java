@@ -0,0 +1,284 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+// Fila sem locks que cresce em segmentos de tamanho fixo, alocados apenas quando necessário.
+// Produtores e consumidores reservam posições no segmento com getAndIncrement (fetch-and-add);
+// quando o segmento acaba, um novo é encadeado com CAS. Segmentos já consumidos ficam
+// inalcançáveis e são recolhidos pelo GC, então a memória acompanha o tamanho real da fila.
+//
+// Os valores long ficam diretamente em arrays primitivos: 8 bytes por posição, sem um objeto por elemento
+// nem ponteiros para seguir. O valor 0 marca uma posição ainda não escrita e -1 uma posição consumida (ou
+// abandonada por um consumidor que chegou antes do produtor), então nenhum dos dois pode ser inserido.
+//
+// Opcionalmente cada posição tem um carimbo (por exemplo, a ordem ou a hora de entrada) num long[] paralelo.
+// O produtor escreve o carimbo antes de publicar o valor com CAS, e quem lê o valor vê o carimbo escrito.
+// Quem cria a fila pode ainda receber cada valor retirado (poll e drenar) junto com o seu carimbo.
+public final class FilaSegmentadaDeLongs {
+
+    public static final long VAZIO = 0;
+    private static final long RETIRADO = -1;
+
+    private final int tamanhoDoSegmento;
+    private final boolean comCarimbos;
+    // null quando ninguém acompanha as retiradas
+    private final VisitanteComCarimbo aoRetirar;
+    private final AtomicReference<Segmento> cabeca;
+    private final AtomicReference<Segmento> cauda;
+
+    public FilaSegmentadaDeLongs(int tamanhoDoSegmento, boolean comCarimbos) {
+        this(tamanhoDoSegmento, comCarimbos, null);
+    }
+
+    public FilaSegmentadaDeLongs(int tamanhoDoSegmento, boolean comCarimbos, VisitanteComCarimbo aoRetirar) {
+        if (tamanhoDoSegmento < 1) {
+            throw new IllegalArgumentException("O tamanho do segmento deve ser maior que zero");
+        }
+        this.tamanhoDoSegmento = tamanhoDoSegmento;
+        this.comCarimbos = comCarimbos;
+        this.aoRetirar = aoRetirar;
+        Segmento inicial = new Segmento(tamanhoDoSegmento, comCarimbos, 0);
+        this.cabeca = new AtomicReference<>(inicial);
+        this.cauda = new AtomicReference<>(inicial);
+    }
+
+    // Retorna a posição estável em que o valor entrou
+    public long offer(long valor, long carimbo) {
+        if (valor == VAZIO || valor == RETIRADO) {
+            throw new IllegalArgumentException("Valor reservado: " + valor);
+        }
+        while (true) {
+            Segmento segmento = cauda.get();
+            int indice = segmento.indiceDeEntrada.getAndIncrement();
+            if (indice >= tamanhoDoSegmento) {
+                if (segmento != cauda.get()) {
+                    continue;
+                }
+                Segmento proximo = segmento.proximo.get();
+                if (proximo == null) {
+                    Segmento novo = new Segmento(tamanhoDoSegmento, comCarimbos, segmento.base + tamanhoDoSegmento);
+                    novo.escreverPrimeiro(valor, carimbo);
+                    if (segmento.proximo.compareAndSet(null, novo)) {
+                        cauda.compareAndSet(segmento, novo);
+                        return novo.base;
+                    }
+                } else {
+                    cauda.compareAndSet(segmento, proximo);
+                }
+                continue;
+            }
+            if (comCarimbos) {
+                segmento.carimbos[indice] = carimbo;
+            }
+            // Falha apenas se um consumidor abandonou esta posição antes da escrita; tenta a próxima
+            if (segmento.valores.compareAndSet(indice, VAZIO, valor)) {
+                return segmento.base + indice;
+            }
+        }
+    }
+
+    // VAZIO quando a fila está vazia
+    public long poll() {
+        return poll(null);
+    }
+
+    // Como poll, guardando em carimbo[0] o carimbo do valor retirado (se carimbo não for null)
+    public long poll(long[] carimbo) {
+        while (true) {
+            Segmento segmento = cabeca.get();
+            if (segmento.indiceDeSaida.get() >= segmento.indiceDeEntrada.get() && segmento.proximo.get() == null) {
+                return VAZIO;
+            }
+            int indice = segmento.indiceDeSaida.getAndIncrement();
+            if (indice >= tamanhoDoSegmento) {
+                Segmento proximo = segmento.proximo.get();
+                if (proximo == null) {
+                    return VAZIO;
+                }
+                cabeca.compareAndSet(segmento, proximo);
+                continue;
+            }
+            long valor = segmento.valores.getAndSet(indice, RETIRADO);
+            if (valor == VAZIO || valor == RETIRADO) {
+                // O produtor ainda não escreveu nesta posição (ele tentará outra) ou o valor foi removido
+                continue;
+            }
+            retirado(segmento, indice, valor);
+            if (carimbo != null) {
+                carimbo[0] = comCarimbos ? segmento.carimbos[indice] : 0;
+            }
+            return valor;
+        }
+    }
+
+    // Retira até "maximo" valores em ordem. Cada passo reserva de uma vez, com um único CAS, um trecho
+    // contíguo do segmento da cabeça, então o lote não se intercala com outros consumidores.
+    public int drenar(int maximo, LongConsumer destino) {
+        int retirados = 0;
+        while (retirados < maximo) {
+            Segmento segmento = cabeca.get();
+            int saida = segmento.indiceDeSaida.get();
+            if (saida >= tamanhoDoSegmento) {
+                Segmento proximo = segmento.proximo.get();
+                if (proximo == null) {
+                    break;
+                }
+                cabeca.compareAndSet(segmento, proximo);
+                continue;
+            }
+            int disponiveis = Math.min(segmento.indiceDeEntrada.get(), tamanhoDoSegmento) - saida;
+            if (disponiveis <= 0) {
+                break;
+            }
+            int quantidade = Math.min(disponiveis, maximo - retirados);
+            if (!segmento.indiceDeSaida.compareAndSet(saida, saida + quantidade)) {
+                continue;
+            }
+            for (int i = saida; i < saida + quantidade; i++) {
+                long valor = segmento.valores.getAndSet(i, RETIRADO);
+                if (valor != VAZIO && valor != RETIRADO) {
+                    retirado(segmento, i, valor);
+                    destino.accept(valor);
+                    retirados++;
+                }
+            }
+        }
+        return retirados;
+    }
+
+    // A leitura do valor com getAndSet garante que o carimbo escrito antes do CAS do produtor está visível
+    private void retirado(Segmento segmento, int indice, long valor) {
+        if (aoRetirar != null) {
+            aoRetirar.visitar(valor, comCarimbos ? segmento.carimbos[indice] : 0);
+        }
+    }
+
+    // Carimbo do elemento da frente, ou Long.MAX_VALUE se a fila estiver vazia (fracamente consistente)
+    public long carimboDaFrente() {
+        Segmento segmento = cabeca.get();
+        while (segmento != null) {
+            int saida = Math.min(segmento.indiceDeSaida.get(), tamanhoDoSegmento);
+            int entrada = Math.min(segmento.indiceDeEntrada.get(), tamanhoDoSegmento);
+            for (int i = saida; i < entrada; i++) {
+                long valor = segmento.valores.get(i);
+                if (valor != VAZIO && valor != RETIRADO) {
+                    return comCarimbos ? segmento.carimbos[i] : 0;
+                }
+            }
+            segmento = segmento.proximo.get();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public boolean isEmpty() {
+        Segmento segmento = cabeca.get();
+        while (segmento != null) {
+            int saida = Math.min(segmento.indiceDeSaida.get(), tamanhoDoSegmento);
+            int entrada = Math.min(segmento.indiceDeEntrada.get(), tamanhoDoSegmento);
+            if (saida < entrada) {
+                return false;
+            }
+            segmento = segmento.proximo.get();
+        }
+        return true;
+    }
+
+    // Posição do próximo valor a sair (ver FilaEmMemoria.frente)
+    public long frente() {
+        Segmento segmento = cabeca.get();
+        return segmento.base + Math.min(segmento.indiceDeSaida.get(), tamanhoDoSegmento);
+    }
+
+    // Mesmo contrato de FilaEmMemoria.percorrer, com a posição estável de cada valor
+    public long percorrer(long cursor, LongPredicate visitante) {
+        long seguinte = cursor;
+        Segmento segmento = cabeca.get();
+        while (segmento != null) {
+            if (segmento.base + tamanhoDoSegmento > cursor) {
+                int saida = Math.min(segmento.indiceDeSaida.get(), tamanhoDoSegmento);
+                int entrada = Math.min(segmento.indiceDeEntrada.get(), tamanhoDoSegmento);
+                for (int i = (int) Math.max(saida, cursor - segmento.base); i < entrada; i++) {
+                    long valor = segmento.valores.get(i);
+                    if (valor != VAZIO && valor != RETIRADO && !visitante.test(valor)) {
+                        return segmento.base + i;
+                    }
+                }
+                seguinte = Math.max(seguinte, segmento.base + entrada);
+            }
+            segmento = segmento.proximo.get();
+        }
+        return seguinte;
+    }
+
+    // Remove do meio da fila, sem esperar que cheguem à frente, os valores aceitos pelo critério e entrega
+    // cada um a "removido"; retorna quantos. A posição fica marcada como retirada e é pulada na saída.
+    // Se um consumidor levar o valor entre o critério e a remoção, o valor é dele e não é removido.
+    public int remover(LongPredicate criterio, LongConsumer removido) {
+        int removidos = 0;
+        Segmento segmento = cabeca.get();
+        while (segmento != null) {
+            int saida = Math.min(segmento.indiceDeSaida.get(), tamanhoDoSegmento);
+            int entrada = Math.min(segmento.indiceDeEntrada.get(), tamanhoDoSegmento);
+            for (int i = saida; i < entrada; i++) {
+                long valor = segmento.valores.get(i);
+                if (valor != VAZIO && valor != RETIRADO && criterio.test(valor)
+                        && segmento.valores.compareAndSet(i, valor, RETIRADO)) {
+                    removido.accept(valor);
+                    removidos++;
+                }
+            }
+            segmento = segmento.proximo.get();
+        }
+        return removidos;
+    }
+
+    // Visita todos os valores com seus carimbos, da frente para o fim (fracamente consistente)
+    public void percorrerComCarimbos(VisitanteComCarimbo visitante) {
+        Segmento segmento = cabeca.get();
+        while (segmento != null) {
+            int saida = Math.min(segmento.indiceDeSaida.get(), tamanhoDoSegmento);
+            int entrada = Math.min(segmento.indiceDeEntrada.get(), tamanhoDoSegmento);
+            for (int i = saida; i < entrada; i++) {
+                long valor = segmento.valores.get(i);
+                if (valor != VAZIO && valor != RETIRADO) {
+                    visitante.visitar(valor, comCarimbos ? segmento.carimbos[i] : 0);
+                }
+            }
+            segmento = segmento.proximo.get();
+        }
+    }
+
+    @FunctionalInterface
+    public interface VisitanteComCarimbo {
+        void visitar(long valor, long carimbo);
+    }
+
+    private static final class Segmento {
+        final long base;
+        final AtomicLongArray valores;
+        // Escritos antes do CAS que publica o valor da mesma posição; null sem carimbos
+        final long[] carimbos;
+        final AtomicInteger indiceDeEntrada = new AtomicInteger();
+        final AtomicInteger indiceDeSaida = new AtomicInteger();
+        final AtomicReference<Segmento> proximo = new AtomicReference<>();
+
+        Segmento(int tamanho, boolean comCarimbos, long base) {
+            this.base = base;
+            this.valores = new AtomicLongArray(tamanho);
+            this.carimbos = comCarimbos ? new long[tamanho] : null;
+        }
+
+        // Antes de o segmento ser publicado com CAS, quando nenhuma outra thread o enxerga
+        void escreverPrimeiro(long valor, long carimbo) {
+            if (carimbos != null) {
+                carimbos[0] = carimbo;
+            }
+            valores.lazySet(0, valor);
+            indiceDeEntrada.set(1);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.cielo.precadastroclientes.queue;
+
+// Índice de pertinência da fila: quantas cópias de cada cliente estão na fila, por CPF/CNPJ numérico.
+// Cada faixa é uma tabela de endereçamento aberto com sondagem linear sobre arrays primitivos
+// (sem Long nem nós de HashMap), então o custo por cliente é de poucos bytes e as operações são O(1)
+// mesmo com milhões de entradas. As chaves são distribuídas entre faixas com locks próprios para que
+// cadastros de clientes diferentes raramente disputem o mesmo lock.
+//
+// Um cliente excluído ou que desistiu tem as cópias canceladas: elas deixam de contar como cópias na fila,
+// mas continuam ocupando posições até saírem da fila, quando sair as identifica para serem descartadas.
+public class IndiceDeClientes {
+
+    // Identificador que não é um CPF/CNPJ numérico: não participa da deduplicação
+    public static final long SEM_CHAVE = -1;
+
+    // Retornado por sair para uma cópia cancelada
+    public static final int CANCELADA = -1;
+
+    private static final int QUANTIDADE_DE_FAIXAS = 64;
+    private static final int CAPACIDADE_INICIAL_DA_FAIXA = 64;
+
+    private final Faixa[] faixas = new Faixa[QUANTIDADE_DE_FAIXAS];
+
+    public IndiceDeClientes() {
+        for (int i = 0; i < faixas.length; i++) {
+            faixas[i] = new Faixa();
+        }
+    }
+
+    // CPF (11 dígitos) e CNPJ (14 dígitos) em um long; o bit menos significativo separa os dois tipos,
+    // já que "00012345678901" (CNPJ) e "12345678901" (CPF) têm o mesmo valor numérico
+    public static long chave(String identificador) {
+        int tamanho = identificador.length();
+        if (tamanho != 11 && tamanho != 14) {
+            return SEM_CHAVE;
+        }
+        long numero = 0;
+        for (int i = 0; i < tamanho; i++) {
+            char digito = identificador.charAt(i);
+            if (digito < '0' || digito > '9') {
+                return SEM_CHAVE;
+            }
+            numero = numero * 10 + (digito - '0');
+        }
+        return (numero << 1) | (tamanho == 14 ? 1 : 0);
+    }
+
+    // Registra a primeira cópia do cliente; false se ele já está na fila
+    public boolean adicionarSeAusente(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            return faixa.alterar(chave, 1, true) == 1;
+        }
+    }
+
+    // Registra mais uma cópia do cliente e retorna quantas existem agora
+    public int incrementar(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            return faixa.alterar(chave, 1, false);
+        }
+    }
+
+    // Remove uma cópia do cliente e retorna quantas restam (0: o cliente saiu do índice)
+    public int decrementar(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            return faixa.alterar(chave, -1, false);
+        }
+    }
+
+    public boolean contem(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            int i = faixa.posicao(chave);
+            return i >= 0 && faixa.contagens[i] > 0;
+        }
+    }
+
+    // Cancela todas as cópias do cliente na fila e retorna quantas eram (0: ele não estava na fila)
+    public int cancelar(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            return faixa.cancelar(chave);
+        }
+    }
+
+    // Chamado para cada cópia que sai da fila: CANCELADA se ela foi cancelada, ou quantas cópias válidas
+    // restam depois dela. As cópias de um cliente saem na ordem em que entraram, então as primeiras a sair
+    // depois do cancelamento são justamente as canceladas.
+    public int sair(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            return faixa.retirarCancelada(chave) ? CANCELADA : faixa.alterar(chave, -1, false);
+        }
+    }
+
+    // Se o cliente tem cópias canceladas ainda na fila, sem consumir o cancelamento
+    public boolean temCancelada(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            return faixa.temCancelada(chave);
+        }
+    }
+
+    // Consome um cancelamento pendente do cliente, para uma cópia cancelada removida do meio da fila
+    public boolean retirarCancelada(long chave) {
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            return faixa.retirarCancelada(chave);
+        }
+    }
+
+    // Inclui os clientes que só têm cópias canceladas ainda na fila
+    public long tamanho() {
+        long total = 0;
+        for (Faixa faixa : faixas) {
+            synchronized (faixa) {
+                total += faixa.tamanho;
+            }
+        }
+        return total;
+    }
+
+    private Faixa faixa(long chave) {
+        return faixas[(int) (espalhar(chave) >>> 58)];
+    }
+
+    private static long espalhar(long chave) {
+        long hash = chave * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    // Contagem e cancelados 0 marcam uma posição livre, então qualquer valor de chave é válido
+    private static final class Faixa {
+        private long[] chaves = new long[CAPACIDADE_INICIAL_DA_FAIXA];
+        private int[] contagens = new int[CAPACIDADE_INICIAL_DA_FAIXA];
+        private int[] cancelados = new int[CAPACIDADE_INICIAL_DA_FAIXA];
+        private int tamanho;
+
+        private boolean ocupada(int i) {
+            return contagens[i] != 0 || cancelados[i] != 0;
+        }
+
+        // Soma "delta" à contagem da chave (criando-a se necessário) e retorna a nova contagem.
+        // Com "somenteSeAusente", uma chave existente não é alterada e a contagem atual é retornada negativa.
+        int alterar(long chave, int delta, boolean somenteSeAusente) {
+            int mascara = chaves.length - 1;
+            int i = (int) espalhar(chave) & mascara;
+            while (ocupada(i)) {
+                if (chaves[i] == chave) {
+                    if (somenteSeAusente && contagens[i] != 0) {
+                        return -contagens[i];
+                    }
+                    int contagem = contagens[i] + delta;
+                    if (contagem <= 0) {
+                        contagens[i] = 0;
+                        liberarSeVazia(i);
+                        return 0;
+                    }
+                    contagens[i] = contagem;
+                    return contagem;
+                }
+                i = (i + 1) & mascara;
+            }
+            if (delta <= 0) {
+                return 0;
+            }
+            chaves[i] = chave;
+            contagens[i] = delta;
+            if (++tamanho * 2 > chaves.length) {
+                redimensionar();
+            }
+            return delta;
+        }
+
+        int cancelar(long chave) {
+            int i = posicao(chave);
+            if (i < 0) {
+                return 0;
+            }
+            int copias = contagens[i];
+            cancelados[i] += copias;
+            contagens[i] = 0;
+            return copias;
+        }
+
+        boolean temCancelada(long chave) {
+            int i = posicao(chave);
+            return i >= 0 && cancelados[i] != 0;
+        }
+
+        boolean retirarCancelada(long chave) {
+            int i = posicao(chave);
+            if (i < 0 || cancelados[i] == 0) {
+                return false;
+            }
+            cancelados[i]--;
+            liberarSeVazia(i);
+            return true;
+        }
+
+        private void liberarSeVazia(int i) {
+            if (!ocupada(i)) {
+                remover(i);
+            }
+        }
+
+        int posicao(long chave) {
+            int mascara = chaves.length - 1;
+            int i = (int) espalhar(chave) & mascara;
+            while (ocupada(i)) {
+                if (chaves[i] == chave) {
+                    return i;
+                }
+                i = (i + 1) & mascara;
+            }
+            return -1;
+        }
+
+        // Remoção com deslocamento para trás: puxa as chaves seguintes do mesmo agrupamento para o buraco,
+        // em vez de deixar marcadores de removido que alongariam as sondagens
+        private void remover(int livre) {
+            int mascara = chaves.length - 1;
+            int i = livre;
+            while (true) {
+                i = (i + 1) & mascara;
+                if (!ocupada(i)) {
+                    break;
+                }
+                int ideal = (int) espalhar(chaves[i]) & mascara;
+                // A chave em i só pode ocupar "livre" se o buraco estiver entre sua posição ideal e i
+                boolean podeMover = livre <= i ? (ideal <= livre || ideal > i) : (ideal <= livre && ideal > i);
+                if (podeMover) {
+                    chaves[livre] = chaves[i];
+                    contagens[livre] = contagens[i];
+                    cancelados[livre] = cancelados[i];
+                    livre = i;
+                }
+            }
+            contagens[livre] = 0;
+            cancelados[livre] = 0;
+            tamanho--;
+        }
+
+        private void redimensionar() {
+            long[] chavesAntigas = chaves;
+            int[] contagensAntigas = contagens;
+            int[] canceladosAntigos = cancelados;
+            chaves = new long[chavesAntigas.length * 2];
+            contagens = new int[chavesAntigas.length * 2];
+            cancelados = new int[chavesAntigas.length * 2];
+            int mascara = chaves.length - 1;
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (contagensAntigas[j] != 0 || canceladosAntigos[j] != 0) {
+                    int i = (int) espalhar(chavesAntigas[j]) & mascara;
+                    while (ocupada(i)) {
+                        i = (i + 1) & mascara;
+                    }
+                    chaves[i] = chavesAntigas[j];
+                    contagens[i] = contagensAntigas[j];
+                    cancelados[i] = canceladosAntigos[j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.cielo.precadastroclientes.queue;
+
+// Lápides da fila: posições que continuam ocupadas na FilaSegmentadaDeLongs mas não contam mais como
+// clientes aguardando (a cópia antiga de um cliente movido para o fim, por exemplo). Uma árvore de Fenwick
+// conta as lápides entre duas posições em O(log n), sem percorrer a fila.
+//
+// Só importam as lápides à frente da cabeça, então a árvore cobre uma janela circular de posições a partir
+// de "inicio": as marcas que a cabeça já passou são apagadas ao avançar a janela, e ela dobra de tamanho
+// quando uma nova marca não cabe.
+final class LapidesDaFila {
+
+    private static final int CAPACIDADE_INICIAL = 1024;
+
+    // Índices 1..n; a posição p da janela fica no índice (p & mascara) + 1
+    private int[] arvore;
+    // Um bit por posição da janela, para saber o que apagar ao avançar sem consultar a árvore
+    private long[] marcas;
+    private int mascara;
+    private long inicio;
+    private int total;
+
+    LapidesDaFila() {
+        alocar(CAPACIDADE_INICIAL);
+    }
+
+    // Marca a posição como lápide; false se ela já estava marcada ou se a cabeça já passou por ela
+    synchronized boolean marcar(long posicao, long frente) {
+        avancar(frente);
+        if (posicao < inicio) {
+            return false;
+        }
+        while (posicao - inicio > mascara) {
+            crescer();
+        }
+        int i = (int) (posicao & mascara);
+        if ((marcas[i >>> 6] & (1L << i)) != 0) {
+            return false;
+        }
+        marcas[i >>> 6] |= 1L << i;
+        somar(i, 1);
+        total++;
+        return true;
+    }
+
+    synchronized boolean contem(long posicao) {
+        if (posicao < inicio || posicao - inicio > mascara) {
+            return false;
+        }
+        int i = (int) (posicao & mascara);
+        return (marcas[i >>> 6] & (1L << i)) != 0;
+    }
+
+    // Lápides nas posições [de, ate)
+    synchronized int contar(long de, long ate, long frente) {
+        avancar(frente);
+        de = Math.max(de, inicio);
+        ate = Math.min(ate, inicio + mascara + 1);
+        if (total == 0 || de >= ate) {
+            return 0;
+        }
+        int i = (int) (de & mascara);
+        int j = (int) (ate & mascara);
+        // Quando o trecho dá a volta na janela circular, soma o fim dela e o começo
+        return i < j ? prefixo(j) - prefixo(i) : total - prefixo(i) + prefixo(j);
+    }
+
+    synchronized int getTotal() {
+        return total;
+    }
+
+    // Apaga as marcas que a cabeça já passou, uma palavra do bitset de cada vez
+    private void avancar(long frente) {
+        if (frente <= inicio) {
+            return;
+        }
+        long ate = Math.min(frente, inicio + mascara + 1);
+        for (long p = inicio; p < ate && total > 0; p = (p | 63) + 1) {
+            int palavra = (int) ((p & mascara) >>> 6);
+            long bits = marcas[palavra] & (-1L << p);
+            if ((p | 63) + 1 > ate) {
+                bits &= (1L << ate) - 1;
+            }
+            marcas[palavra] &= ~bits;
+            while (bits != 0) {
+                somar((palavra << 6) | Long.numberOfTrailingZeros(bits), -1);
+                total--;
+                bits &= bits - 1;
+            }
+        }
+        inicio = frente;
+    }
+
+    // Dobra a janela e reconstrói a árvore em O(n) a partir do bitset
+    private void crescer() {
+        long[] marcasAntigas = marcas;
+        int mascaraAntiga = mascara;
+        alocar((mascara + 1) * 2);
+        for (int palavra = 0; palavra < marcasAntigas.length; palavra++) {
+            long bits = marcasAntigas[palavra];
+            while (bits != 0) {
+                int i = (palavra << 6) | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                long posicao = inicio + ((i - inicio) & mascaraAntiga);
+                int novo = (int) (posicao & mascara);
+                marcas[novo >>> 6] |= 1L << novo;
+                arvore[novo + 1]++;
+            }
+        }
+        for (int k = 1; k < arvore.length; k++) {
+            int pai = k + (k & -k);
+            if (pai < arvore.length) {
+                arvore[pai] += arvore[k];
+            }
+        }
+    }
+
+    private void alocar(int tamanho) {
+        arvore = new int[tamanho + 1];
+        marcas = new long[tamanho >>> 6];
+        mascara = tamanho - 1;
+    }
+
+    private void somar(int i, int delta) {
+        for (int k = i + 1; k < arvore.length; k += k & -k) {
+            arvore[k] += delta;
+        }
+    }
+
+    // Marcas nos índices [0, j)
+    private int prefixo(int j) {
+        int soma = 0;
+        for (int k = j; k > 0; k -= k & -k) {
+            soma += arvore[k];
+        }
+        return soma;
+    }
+}
@@ -0,0 +1,377 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Log de escrita antecipada (write-ahead log) da fila de atendimento.
+// As entradas e saídas são anexadas a segmentos de tamanho fixo mapeados em memória;
+// um checkpoint grava o conteúdo da fila e a posição do log, e os segmentos anteriores
+// a ele são apagados (compactação). Na inicialização a fila é reconstruída a partir do
+// último checkpoint mais as operações registradas depois dele.
+//
+// Formato do registro: [tipo:1][tamanho:1][identificador:tamanho][crc32:4].
+// O byte de tipo é escrito por último, então um registro incompleto (queda no meio da
+// escrita) é lido como fim do log. O tamanho ocupa um byte: identificadores acima de
+// TAMANHO_MAXIMO_DO_IDENTIFICADOR bytes em UTF-8 são recusados antes de qualquer escrita.
+// Uma entrada com faixa de MCC conhecida leva "FAIXA;cliente" no identificador; a saída
+// leva só o cliente e desfaz a primeira entrada dele, com ou sem faixa.
+public class LogDaFila implements Closeable {
+
+    static final byte ENTRADA = 1;
+    static final byte SAIDA = 2;
+    static final byte ENTRADA_NA_FAIXA = 3;
+    static final int TAMANHO_MAXIMO_DO_IDENTIFICADOR = 255;
+
+    private static final String EXTENSAO_DO_SEGMENTO = ".seg";
+    private static final String ARQUIVO_DE_CHECKPOINT = "checkpoint.dat";
+    // O checkpoint antigo guarda só os identificadores; o atual, cada item como um registro [tipo][tamanho][identificador]
+    private static final int MAGICO_DO_CHECKPOINT_SEM_FAIXAS = 0x46494C41; // "FILA"
+    private static final int MAGICO_DO_CHECKPOINT = 0x46494C32; // "FIL2"
+    private static final int CABECALHO_DO_REGISTRO = 2;
+    private static final int TAMANHO_DO_CRC = 4;
+
+    private final Path diretorio;
+    private final PoliticaDeSincronizacao politica;
+    private final int tamanhoDoSegmento;
+    private final ScheduledExecutorService sincronizador;
+
+    private FileChannel canal;
+    private MappedByteBuffer segmento;
+    private long numeroDoSegmento;
+    private boolean pendenteDeSincronizacao;
+
+    public LogDaFila(Path diretorio, PoliticaDeSincronizacao politica, long intervaloDeSincronizacaoMs, int tamanhoDoSegmento) {
+        this.diretorio = diretorio;
+        this.politica = politica;
+        this.tamanhoDoSegmento = tamanhoDoSegmento;
+        try {
+            Files.createDirectories(diretorio);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Não foi possível criar o diretório do log da fila", ex);
+        }
+        if (politica == PoliticaDeSincronizacao.PERIODICA) {
+            this.sincronizador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "fila-log-sincronizacao");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sincronizador.scheduleWithFixedDelay(this::sincronizar, intervaloDeSincronizacaoMs, intervaloDeSincronizacaoMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.sincronizador = null;
+        }
+    }
+
+    // Reconstrói o conteúdo da fila (checkpoint + operações posteriores) e prepara o log para novas gravações
+    public synchronized List<String> recuperar() {
+        List<String> clientes = new ArrayList<>();
+        for (ClienteNaFila entrada : recuperarComFaixas()) {
+            clientes.add(entrada.getCliente());
+        }
+        return clientes;
+    }
+
+    // Como recuperar, com a faixa de MCC de cada cliente (DESCONHECIDA se foi registrado sem ela)
+    public synchronized List<ClienteNaFila> recuperarComFaixas() {
+        try {
+            Deque<ClienteNaFila> conteudo = new ArrayDeque<>();
+            long segmentoInicial = 0;
+            int posicaoInicial = 0;
+
+            Path checkpoint = diretorio.resolve(ARQUIVO_DE_CHECKPOINT);
+            if (Files.exists(checkpoint)) {
+                ByteBuffer dados = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+                int magico = dados.getInt();
+                if (magico != MAGICO_DO_CHECKPOINT && magico != MAGICO_DO_CHECKPOINT_SEM_FAIXAS) {
+                    throw new IllegalStateException("Checkpoint da fila inválido: " + checkpoint);
+                }
+                segmentoInicial = dados.getLong();
+                posicaoInicial = dados.getInt();
+                int quantidade = dados.getInt();
+                for (int i = 0; i < quantidade; i++) {
+                    byte tipo = magico == MAGICO_DO_CHECKPOINT ? dados.get() : ENTRADA;
+                    conteudo.addLast(entrada(tipo, lerIdentificador(dados, dados.get() & 0xFF)));
+                }
+            }
+
+            List<Long> segmentos = listarSegmentos();
+            long ultimoSegmento = segmentoInicial;
+            int fimDoUltimoSegmento = posicaoInicial;
+            for (long numero : segmentos) {
+                if (numero < segmentoInicial) {
+                    continue;
+                }
+                int inicio = numero == segmentoInicial ? posicaoInicial : 0;
+                ultimoSegmento = numero;
+                fimDoUltimoSegmento = reproduzirSegmento(numero, inicio, conteudo);
+            }
+
+            abrirSegmento(ultimoSegmento);
+            // Zera o que sobrou depois do último registro válido, para não ser lido como log numa próxima recuperação
+            for (int i = fimDoUltimoSegmento; i < tamanhoDoSegmento; i++) {
+                segmento.put(i, (byte) 0);
+            }
+            segmento.position(fimDoUltimoSegmento);
+            return new ArrayList<>(conteudo);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao recuperar a fila a partir do log", ex);
+        }
+    }
+
+    private int reproduzirSegmento(long numero, int inicio, Deque<ClienteNaFila> conteudo) throws IOException {
+        try (FileChannel leitura = FileChannel.open(caminhoDoSegmento(numero), StandardOpenOption.READ)) {
+            MappedByteBuffer dados = leitura.map(FileChannel.MapMode.READ_ONLY, 0, leitura.size());
+            int posicao = inicio;
+            CRC32 crc = new CRC32();
+            while (posicao + CABECALHO_DO_REGISTRO <= dados.limit()) {
+                byte tipo = dados.get(posicao);
+                int tamanho = dados.get(posicao + 1) & 0xFF;
+                int fim = posicao + CABECALHO_DO_REGISTRO + tamanho + TAMANHO_DO_CRC;
+                if ((tipo != ENTRADA && tipo != SAIDA && tipo != ENTRADA_NA_FAIXA) || fim > dados.limit()) {
+                    break;
+                }
+                byte[] identificador = new byte[tamanho];
+                dados.get(posicao + CABECALHO_DO_REGISTRO, identificador);
+                crc.reset();
+                crc.update(tipo);
+                crc.update(identificador);
+                if ((int) crc.getValue() != dados.getInt(fim - TAMANHO_DO_CRC)) {
+                    break; // registro corrompido: fim do log válido
+                }
+
+                String texto = new String(identificador, StandardCharsets.UTF_8);
+                if (tipo != SAIDA) {
+                    conteudo.addLast(entrada(tipo, texto));
+                } else if (!conteudo.isEmpty() && texto.equals(conteudo.peekFirst().getCliente())) {
+                    conteudo.pollFirst();
+                } else {
+                    removerPrimeira(conteudo, texto);
+                }
+                posicao = fim;
+            }
+            return posicao;
+        }
+    }
+
+    private static void removerPrimeira(Deque<ClienteNaFila> conteudo, String cliente) {
+        Iterator<ClienteNaFila> entradas = conteudo.iterator();
+        while (entradas.hasNext()) {
+            if (entradas.next().getCliente().equals(cliente)) {
+                entradas.remove();
+                return;
+            }
+        }
+    }
+
+    public synchronized void registrarEntrada(String cliente) {
+        registrar(ENTRADA, cliente);
+    }
+
+    // Sem faixa conhecida o registro é o mesmo de registrarEntrada(cliente)
+    public synchronized void registrarEntrada(String cliente, FaixaDeMcc faixa) {
+        if (faixa == FaixaDeMcc.DESCONHECIDA) {
+            registrar(ENTRADA, cliente);
+        } else {
+            registrar(ENTRADA_NA_FAIXA, identificadorNaFaixa(cliente, faixa));
+        }
+    }
+
+    public synchronized void registrarSaida(String cliente) {
+        registrar(SAIDA, cliente);
+    }
+
+    private void registrar(byte tipo, String cliente) {
+        byte[] identificador = bytesDo(cliente);
+        int tamanhoDoRegistro = CABECALHO_DO_REGISTRO + identificador.length + TAMANHO_DO_CRC;
+        if (segmento.remaining() < tamanhoDoRegistro) {
+            rotacionarSegmento();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(tipo);
+        crc.update(identificador);
+
+        int inicio = segmento.position();
+        segmento.put(inicio + 1, (byte) identificador.length);
+        segmento.put(inicio + CABECALHO_DO_REGISTRO, identificador);
+        segmento.putInt(inicio + CABECALHO_DO_REGISTRO + identificador.length, (int) crc.getValue());
+        // O tipo por último: até aqui um leitor enxerga o registro como inexistente
+        segmento.put(inicio, tipo);
+        segmento.position(inicio + tamanhoDoRegistro);
+
+        if (politica == PoliticaDeSincronizacao.POR_OPERACAO) {
+            segmento.force(inicio, tamanhoDoRegistro);
+        } else {
+            pendenteDeSincronizacao = true;
+        }
+    }
+
+    // Grava o conteúdo atual da fila junto com a posição do log e apaga os segmentos que ficaram para trás.
+    // Quem chama deve garantir que nenhuma operação acontece entre a cópia do conteúdo e este método.
+    public synchronized void checkpoint(Collection<String> conteudo) {
+        List<ClienteNaFila> entradas = new ArrayList<>(conteudo.size());
+        for (String cliente : conteudo) {
+            entradas.add(new ClienteNaFila(cliente, FaixaDeMcc.DESCONHECIDA));
+        }
+        checkpointComFaixas(entradas);
+    }
+
+    public synchronized void checkpointComFaixas(Collection<ClienteNaFila> conteudo) {
+        try {
+            int tamanho = 4 + 8 + 4 + 4;
+            byte[] tipos = new byte[conteudo.size()];
+            List<byte[]> identificadores = new ArrayList<>(conteudo.size());
+            for (ClienteNaFila entrada : conteudo) {
+                boolean comFaixa = entrada.getFaixa() != FaixaDeMcc.DESCONHECIDA;
+                byte[] identificador = bytesDo(comFaixa
+                        ? identificadorNaFaixa(entrada.getCliente(), entrada.getFaixa()) : entrada.getCliente());
+                tipos[identificadores.size()] = comFaixa ? ENTRADA_NA_FAIXA : ENTRADA;
+                identificadores.add(identificador);
+                tamanho += 2 + identificador.length;
+            }
+            if (segmento.position() > 0) {
+                // Começa um segmento novo para que todos os anteriores possam ser apagados
+                rotacionarSegmento();
+            }
+
+            ByteBuffer dados = ByteBuffer.allocate(tamanho);
+            dados.putInt(MAGICO_DO_CHECKPOINT);
+            dados.putLong(numeroDoSegmento);
+            dados.putInt(segmento.position());
+            dados.putInt(identificadores.size());
+            for (int i = 0; i < identificadores.size(); i++) {
+                dados.put(tipos[i]);
+                dados.put((byte) identificadores.get(i).length);
+                dados.put(identificadores.get(i));
+            }
+            dados.flip();
+
+            Path temporario = diretorio.resolve(ARQUIVO_DE_CHECKPOINT + ".tmp");
+            try (FileChannel arquivo = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (dados.hasRemaining()) {
+                    arquivo.write(dados);
+                }
+                arquivo.force(true);
+            }
+            Files.move(temporario, diretorio.resolve(ARQUIVO_DE_CHECKPOINT),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Compactação: o checkpoint já contém tudo o que os segmentos anteriores descreviam
+            for (long numero : listarSegmentos()) {
+                if (numero < numeroDoSegmento) {
+                    Files.deleteIfExists(caminhoDoSegmento(numero));
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao gravar o checkpoint da fila", ex);
+        }
+    }
+
+    public synchronized void sincronizar() {
+        if (pendenteDeSincronizacao && segmento != null) {
+            segmento.force();
+            pendenteDeSincronizacao = false;
+        }
+    }
+
+    private void rotacionarSegmento() {
+        segmento.force();
+        pendenteDeSincronizacao = false;
+        abrirSegmento(numeroDoSegmento + 1);
+    }
+
+    private void abrirSegmento(long numero) {
+        try {
+            if (canal != null) {
+                canal.close();
+            }
+            canal = FileChannel.open(caminhoDoSegmento(numero), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoDoSegmento);
+            numeroDoSegmento = numero;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Não foi possível abrir o segmento do log da fila", ex);
+        }
+    }
+
+    private List<Long> listarSegmentos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos
+                    .map(arquivo -> arquivo.getFileName().toString())
+                    .filter(nome -> nome.endsWith(EXTENSAO_DO_SEGMENTO))
+                    .map(nome -> Long.parseLong(nome.substring(0, nome.length() - EXTENSAO_DO_SEGMENTO.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path caminhoDoSegmento(long numero) {
+        return diretorio.resolve(String.format("%020d%s", numero, EXTENSAO_DO_SEGMENTO));
+    }
+
+    // Um identificador maior que o campo de tamanho seria gravado truncado e lido errado na recuperação
+    private static byte[] bytesDo(String cliente) {
+        byte[] identificador = cliente.getBytes(StandardCharsets.UTF_8);
+        if (identificador.length > TAMANHO_MAXIMO_DO_IDENTIFICADOR) {
+            throw new IllegalArgumentException("Identificador com " + identificador.length
+                    + " bytes não cabe no log da fila (máximo de " + TAMANHO_MAXIMO_DO_IDENTIFICADOR + ")");
+        }
+        return identificador;
+    }
+
+    private static String identificadorNaFaixa(String cliente, FaixaDeMcc faixa) {
+        return faixa.name() + ";" + cliente;
+    }
+
+    private static ClienteNaFila entrada(byte tipo, String identificador) {
+        if (tipo != ENTRADA_NA_FAIXA) {
+            return new ClienteNaFila(identificador, FaixaDeMcc.DESCONHECIDA);
+        }
+        int separador = identificador.indexOf(';');
+        return new ClienteNaFila(identificador.substring(separador + 1),
+                FaixaDeMcc.valueOf(identificador.substring(0, separador)));
+    }
+
+    private static String lerIdentificador(ByteBuffer dados, int tamanho) {
+        byte[] identificador = new byte[tamanho];
+        dados.get(identificador);
+        return new String(identificador, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sincronizador != null) {
+            sincronizador.shutdownNow();
+        }
+        try {
+            if (segmento != null) {
+                segmento.force();
+            }
+            if (canal != null) {
+                canal.close();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao fechar o log da fila", ex);
+        }
+    }
+}
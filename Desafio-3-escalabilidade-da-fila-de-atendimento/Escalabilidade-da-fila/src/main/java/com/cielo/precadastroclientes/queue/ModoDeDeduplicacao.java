@@ -0,0 +1,8 @@
+package com.cielo.precadastroclientes.queue;
+
+// O que fazer quando um cliente que já está na fila é adicionado de novo (por exemplo, a cada atualização do cadastro)
+public enum ModoDeDeduplicacao {
+    DESLIGADO,        // cada chamada ocupa uma nova posição na fila
+    MANTER_POSICAO,   // o cliente continua na posição original; a nova chamada não tem efeito
+    MOVER_PARA_O_FIM  // o cliente vai para o fim da fila; a cópia antiga é descartada quando chegar à frente
+}
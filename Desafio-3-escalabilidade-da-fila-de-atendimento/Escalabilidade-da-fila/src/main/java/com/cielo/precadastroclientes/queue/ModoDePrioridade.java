@@ -0,0 +1,8 @@
+package com.cielo.precadastroclientes.queue;
+
+// Como os atendentes escolhem entre as raias de prioridade (fila.raias)
+public enum ModoDePrioridade {
+    DESLIGADA, // uma única fila na ordem de chegada; as raias configuradas são ignoradas
+    PESOS,     // round robin ponderado: cada raia recebe atendimentos na proporção do seu peso
+    ESTRITA    // sempre a raia de maior prioridade, exceto quando a frente de outra espera além do envelhecimento
+}
@@ -0,0 +1,8 @@
+package com.cielo.precadastroclientes.queue;
+
+// Quando o log da fila durável força a gravação dos dados em disco (fsync)
+public enum PoliticaDeSincronizacao {
+    POR_OPERACAO,        // a cada entrada ou saída: nenhuma perda, menor vazão
+    PERIODICA,           // a cada intervalo configurado: perde no máximo o último intervalo
+    SISTEMA_OPERACIONAL  // deixa o sistema operacional decidir: sobrevive a falhas da JVM, não do SO
+}
@@ -0,0 +1,9 @@
+package com.cielo.precadastroclientes.queue;
+
+// O que fazer com um cliente quando a fila de atendimento atinge a capacidade configurada
+public enum PoliticaDeTransbordo {
+    REJEITAR,              // recusa o cliente; os controllers respondem HTTP 429 com Retry-After
+    BLOQUEAR,              // aguarda uma vaga até o tempo limite configurado
+    DESCARTAR_MAIS_ANTIGO, // retira o cliente mais antigo da fila para abrir espaço
+    DERRAMAR_EM_DISCO      // grava o excedente em disco e o devolve à fila conforme houver vagas
+}
@@ -0,0 +1,214 @@
+package com.cielo.precadastroclientes.queue;
+
+// Consulta da posição de um CPF/CNPJ na fila sem percorrê-la. Cada cliente em memória tem registrada a
+// posição estável em que entrou (FilaEmMemoria.offer); a posição na fila é a distância até a frente menos as
+// lápides no caminho, contadas pela LapidesDaFila. As posições ficam em faixas com locks próprios, em tabelas
+// de endereçamento aberto sobre arrays primitivos como as do IndiceDeClientes.
+//
+// Vale apenas para uma fila que numera os elementos numa única sequência (FilaCompactada). Um cliente com
+// várias cópias na fila fica com a posição da mais recente; se houver deduplicação, as anteriores são
+// obsoletas e viram lápides.
+final class PosicoesNaFila {
+
+    private static final int QUANTIDADE_DE_FAIXAS = 64;
+    private static final int CAPACIDADE_INICIAL_DA_FAIXA = 64;
+    private static final long AUSENTE = -1;
+
+    private final FilaEmMemoria<String> fila;
+    private final LapidesDaFila lapides = new LapidesDaFila();
+    private final Faixa[] faixas = new Faixa[QUANTIDADE_DE_FAIXAS];
+
+    PosicoesNaFila(FilaEmMemoria<String> fila) {
+        this.fila = fila;
+        for (int i = 0; i < faixas.length; i++) {
+            faixas[i] = new Faixa();
+        }
+    }
+
+    // Registra a posição em que o cliente entrou. Com "copiaAnteriorObsoleta" a cópia que ainda estiver
+    // na fila deixa de contar para os clientes atrás dela.
+    void entrou(long chave, long posicao, boolean copiaAnteriorObsoleta) {
+        if (chave == IndiceDeClientes.SEM_CHAVE || posicao == FilaEmMemoria.SEM_POSICAO) {
+            return;
+        }
+        Faixa faixa = faixa(chave);
+        long anterior;
+        synchronized (faixa) {
+            anterior = faixa.colocar(chave, posicao);
+        }
+        long frente = fila.frente();
+        if (copiaAnteriorObsoleta && anterior != AUSENTE && anterior >= frente) {
+            lapides.marcar(anterior, frente);
+        }
+        // Um consumidor pode ter retirado o cliente antes do registro; nesse caso ninguém mais o removeria
+        if (posicao < frente) {
+            saiu(chave);
+        }
+    }
+
+    // Chamado quando uma cópia do cliente sai da fila: esquece a posição se ela já ficou para trás
+    void saiu(long chave) {
+        if (chave == IndiceDeClientes.SEM_CHAVE) {
+            return;
+        }
+        long frente = fila.frente();
+        Faixa faixa = faixa(chave);
+        synchronized (faixa) {
+            faixa.removerSeAnterior(chave, frente);
+        }
+    }
+
+    // O cliente foi cancelado: a posição dele vira lápide e deixa de contar para os clientes atrás
+    void cancelou(long chave) {
+        Faixa faixa = faixa(chave);
+        long posicao;
+        synchronized (faixa) {
+            posicao = faixa.retirar(chave);
+        }
+        long frente = fila.frente();
+        if (posicao != AUSENTE && posicao >= frente) {
+            lapides.marcar(posicao, frente);
+        }
+    }
+
+    // Posição do cliente contando a partir de 1, ou FilaEmMemoria.SEM_POSICAO se ele não está na fila em memória
+    long posicao(long chave) {
+        if (chave == IndiceDeClientes.SEM_CHAVE) {
+            return FilaEmMemoria.SEM_POSICAO;
+        }
+        Faixa faixa = faixa(chave);
+        long posicao;
+        synchronized (faixa) {
+            posicao = faixa.obter(chave);
+        }
+        long frente = fila.frente();
+        if (posicao == AUSENTE || posicao < frente) {
+            return FilaEmMemoria.SEM_POSICAO;
+        }
+        return posicao - frente - lapides.contar(frente, posicao, frente) + 1;
+    }
+
+    long tamanho() {
+        long total = 0;
+        for (Faixa faixa : faixas) {
+            synchronized (faixa) {
+                total += faixa.tamanho;
+            }
+        }
+        return total;
+    }
+
+    int getLapides() {
+        return lapides.getTotal();
+    }
+
+    private Faixa faixa(long chave) {
+        return faixas[(int) (espalhar(chave) >>> 58)];
+    }
+
+    private static long espalhar(long chave) {
+        long hash = chave * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    // A posição é guardada somada de 1, então 0 marca uma entrada livre (a posição 0 é válida)
+    private static final class Faixa {
+        private long[] chaves = new long[CAPACIDADE_INICIAL_DA_FAIXA];
+        private long[] posicoes = new long[CAPACIDADE_INICIAL_DA_FAIXA];
+        private int tamanho;
+
+        // Retorna a posição substituída, ou AUSENTE
+        long colocar(long chave, long posicao) {
+            int mascara = chaves.length - 1;
+            int i = (int) espalhar(chave) & mascara;
+            while (posicoes[i] != 0) {
+                if (chaves[i] == chave) {
+                    long anterior = posicoes[i] - 1;
+                    posicoes[i] = posicao + 1;
+                    return anterior;
+                }
+                i = (i + 1) & mascara;
+            }
+            chaves[i] = chave;
+            posicoes[i] = posicao + 1;
+            if (++tamanho * 2 > chaves.length) {
+                redimensionar();
+            }
+            return AUSENTE;
+        }
+
+        long obter(long chave) {
+            int i = indice(chave);
+            return i < 0 ? AUSENTE : posicoes[i] - 1;
+        }
+
+        void removerSeAnterior(long chave, long limite) {
+            int i = indice(chave);
+            if (i >= 0 && posicoes[i] - 1 < limite) {
+                remover(i);
+            }
+        }
+
+        // Retorna a posição removida, ou AUSENTE
+        long retirar(long chave) {
+            int i = indice(chave);
+            if (i < 0) {
+                return AUSENTE;
+            }
+            long posicao = posicoes[i] - 1;
+            remover(i);
+            return posicao;
+        }
+
+        private int indice(long chave) {
+            int mascara = chaves.length - 1;
+            int i = (int) espalhar(chave) & mascara;
+            while (posicoes[i] != 0) {
+                if (chaves[i] == chave) {
+                    return i;
+                }
+                i = (i + 1) & mascara;
+            }
+            return -1;
+        }
+
+        // Remoção com deslocamento para trás, como no IndiceDeClientes
+        private void remover(int livre) {
+            int mascara = chaves.length - 1;
+            int i = livre;
+            while (true) {
+                i = (i + 1) & mascara;
+                if (posicoes[i] == 0) {
+                    break;
+                }
+                int ideal = (int) espalhar(chaves[i]) & mascara;
+                boolean podeMover = livre <= i ? (ideal <= livre || ideal > i) : (ideal <= livre && ideal > i);
+                if (podeMover) {
+                    chaves[livre] = chaves[i];
+                    posicoes[livre] = posicoes[i];
+                    livre = i;
+                }
+            }
+            posicoes[livre] = 0;
+            tamanho--;
+        }
+
+        private void redimensionar() {
+            long[] chavesAntigas = chaves;
+            long[] posicoesAntigas = posicoes;
+            chaves = new long[chavesAntigas.length * 2];
+            posicoes = new long[chavesAntigas.length * 2];
+            int mascara = chaves.length - 1;
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (posicoesAntigas[j] != 0) {
+                    int i = (int) espalhar(chavesAntigas[j]) & mascara;
+                    while (posicoes[i] != 0) {
+                        i = (i + 1) & mascara;
+                    }
+                    chaves[i] = chavesAntigas[j];
+                    posicoes[i] = posicoesAntigas[j];
+                }
+            }
+        }
+    }
+}
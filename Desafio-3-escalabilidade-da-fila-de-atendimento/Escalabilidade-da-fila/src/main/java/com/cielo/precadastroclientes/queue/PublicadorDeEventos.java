@@ -0,0 +1,143 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Distribui as mudanças da fila para os painéis de acompanhamento (Server-Sent Events).
+// Quem altera a fila apenas anexa o evento a um buffer circular sem locks; uma thread despachante
+// numera os eventos em ordem, guarda os mais recentes num histórico e os copia para o buffer de cada
+// assinatura. Um painel que reconecta informando o último evento recebido continua a partir do
+// histórico; se ele não alcança mais esse ponto, recebe um novo SNAPSHOT.
+public class PublicadorDeEventos {
+
+    private final BufferCircularMpmc<EventoDaFila> recebidos;
+    // O buffer central encheu e eventos foram perdidos: os painéis precisam de um novo SNAPSHOT
+    private volatile boolean transbordou;
+
+    private final Supplier<List<String>> conteudoAtual;
+    private final int tamanhoDoBufferPorAssinatura;
+    private final CopyOnWriteArrayList<AssinaturaDeEventos> assinaturas = new CopyOnWriteArrayList<>();
+    private final LongAdder assinaturasDescartadas = new LongAdder();
+    private final ScheduledExecutorService despachante;
+
+    // Protegidos pelo lock do publicador (despacho e novas assinaturas)
+    private final EventoDaFila[] historico;
+    private long ultimaSequencia;
+    private long primeiraNoHistorico = 1;
+
+    public PublicadorDeEventos(Supplier<List<String>> conteudoAtual, int tamanhoDoHistorico,
+                               int tamanhoDoBufferPorAssinatura, long intervaloDeDespachoMs) {
+        this.conteudoAtual = conteudoAtual;
+        this.recebidos = new BufferCircularMpmc<>(tamanhoDoHistorico);
+        this.historico = new EventoDaFila[tamanhoDoHistorico];
+        this.tamanhoDoBufferPorAssinatura = tamanhoDoBufferPorAssinatura;
+        this.despachante = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "fila-eventos");
+            thread.setDaemon(true);
+            return thread;
+        });
+        despachante.scheduleWithFixedDelay(this::despachar, intervaloDeDespachoMs, intervaloDeDespachoMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Chamado por quem altera a fila; nunca bloqueia
+    public void publicar(EventoDaFila.Tipo tipo, String cliente) {
+        if (!recebidos.offer(new EventoDaFila(tipo, cliente))) {
+            transbordou = true;
+        }
+    }
+
+    // Com "ultimoEvento" (cabeçalho Last-Event-ID) retoma a partir do histórico quando possível.
+    // "aoTerEventos" deve agendar AssinaturaDeEventos.enviarPendentes fora da thread despachante;
+    // "aoDescartar" é chamado se a assinatura for descartada por não consumir os eventos a tempo.
+    public synchronized AssinaturaDeEventos assinar(Long ultimoEvento, Consumer<AssinaturaDeEventos> aoTerEventos, Runnable aoDescartar) {
+        AssinaturaDeEventos assinatura = new AssinaturaDeEventos(this, tamanhoDoBufferPorAssinatura, aoTerEventos, aoDescartar);
+        if (ultimoEvento != null && podeRetomar(ultimoEvento)) {
+            for (long sequencia = ultimoEvento + 1; sequencia <= ultimaSequencia; sequencia++) {
+                assinatura.entregar(historico[posicaoNoHistorico(sequencia)]);
+            }
+        } else {
+            // O SNAPSHOT leva o número do último evento despachado; os próximos eventos vêm depois dele.
+            // Eventos ainda não despachados podem já estar refletidos no conteúdo, então o painel deve
+            // aplicar ENTRADA/SAIDA de forma idempotente.
+            assinatura.entregar(new EventoDaFila(ultimaSequencia, conteudoAtual.get()));
+        }
+        assinaturas.add(assinatura);
+        assinatura.notificar();
+        return assinatura;
+    }
+
+    private boolean podeRetomar(long ultimoEvento) {
+        return ultimoEvento >= primeiraNoHistorico - 1
+                && ultimoEvento <= ultimaSequencia
+                && ultimaSequencia - ultimoEvento <= tamanhoDoBufferPorAssinatura;
+    }
+
+    synchronized void despachar() {
+        if (transbordou) {
+            transbordou = false;
+            while (recebidos.poll() != null) {
+                // descarta o que sobrou: o novo SNAPSHOT já reflete essas mudanças
+            }
+            EventoDaFila snapshot = new EventoDaFila(++ultimaSequencia, conteudoAtual.get());
+            // Ninguém pode retomar de antes do SNAPSHOT, pois há eventos perdidos
+            primeiraNoHistorico = ultimaSequencia + 1;
+            for (AssinaturaDeEventos assinatura : assinaturas) {
+                entregarOuDescartar(assinatura, snapshot);
+            }
+        }
+
+        EventoDaFila evento;
+        boolean houveEventos = false;
+        while ((evento = recebidos.poll()) != null) {
+            evento.sequencia = ++ultimaSequencia;
+            historico[posicaoNoHistorico(evento.sequencia)] = evento;
+            if (ultimaSequencia - primeiraNoHistorico >= historico.length) {
+                primeiraNoHistorico = ultimaSequencia - historico.length + 1;
+            }
+            for (AssinaturaDeEventos assinatura : assinaturas) {
+                entregarOuDescartar(assinatura, evento);
+            }
+            houveEventos = true;
+        }
+        if (houveEventos) {
+            for (AssinaturaDeEventos assinatura : assinaturas) {
+                assinatura.notificar();
+            }
+        }
+    }
+
+    private void entregarOuDescartar(AssinaturaDeEventos assinatura, EventoDaFila evento) {
+        if (!assinatura.isEncerrada() && !assinatura.entregar(evento)) {
+            // Painel lento: é desconectado e, ao reconectar, recebe um novo SNAPSHOT
+            assinaturas.remove(assinatura);
+            assinaturasDescartadas.increment();
+            assinatura.descartar();
+        }
+    }
+
+    private int posicaoNoHistorico(long sequencia) {
+        return (int) (sequencia % historico.length);
+    }
+
+    void remover(AssinaturaDeEventos assinatura) {
+        assinaturas.remove(assinatura);
+    }
+
+    public int getAssinaturas() {
+        return assinaturas.size();
+    }
+
+    public long getAssinaturasDescartadas() {
+        return assinaturasDescartadas.sum();
+    }
+
+    public void encerrar() {
+        despachante.shutdownNow();
+    }
+}
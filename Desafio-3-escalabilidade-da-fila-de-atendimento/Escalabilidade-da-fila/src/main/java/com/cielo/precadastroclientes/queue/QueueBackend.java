@@ -0,0 +1,82 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+// Operações da fila de atendimento usadas pelos controllers, independentes de onde os clientes ficam
+// guardados. A implementação é escolhida por fila.backend: FilaDeAtendimento (MEMORIA e ARQUIVO),
+// FilaSqs (SQS) ou FilaJdbc (JDBC). Recursos que dependem da fila estar neste processo (long polling,
+// stream de eventos e estatísticas) continuam disponíveis apenas na FilaDeAtendimento.
+public interface QueueBackend {
+
+    // Retorna false quando o cliente não entrou na fila. Lança IllegalArgumentException quando o identificador
+    // excede o tamanho que o backend consegue guardar.
+    boolean adicionarClienteNaFila(String cliente);
+
+    // O MCC do cadastro separa as métricas de tempo na fila por ramo; backends sem essas métricas o ignoram
+    default boolean adicionarClienteNaFila(String cliente, String mcc) {
+        return adicionarClienteNaFila(cliente);
+    }
+
+    // Adiciona os clientes em ordem, com o MCC de cada um na mesma posição de "mccs", numa única ida ao backend
+    // quando ele permite. Retorna quantos clientes do início da lista entraram: o primeiro recusado e os
+    // seguintes ficam de fora. Se a operação falhar no meio, a exceção chega a quem chamou e parte dos clientes
+    // pode já ter entrado.
+    default int adicionarClientesNaFila(List<String> clientes, List<String> mccs) {
+        for (int i = 0; i < clientes.size(); i++) {
+            if (!adicionarClienteNaFila(clientes.get(i), mccs.get(i))) {
+                return i;
+            }
+        }
+        return clientes.size();
+    }
+
+    // Agenda a entrada do cliente para naoAntesDeMs (epoch em ms); um prazo já vencido entra na hora.
+    // Retorna false quando o agendamento (ou, com prazo vencido, a entrada) não foi aceito.
+    // Lança UnsupportedOperationException quando o backend não agenda entradas.
+    boolean agendarClienteNaFila(String cliente, String mcc, long naoAntesDeMs);
+
+    // Permite recusar um notBefore antes de salvar o cadastro, já que a entrada na fila é retransmitida depois
+    default boolean suportaAgendamento() {
+        return true;
+    }
+
+    // Retira o próximo cliente de vez; null se a fila está vazia
+    String poll();
+
+    // Retira de vez até "quantidade" clientes, na ordem da fila
+    List<String> retirarClientes(int quantidade);
+
+    // Entrega o próximo cliente com um recibo; sem confirmação dentro do tempo de visibilidade, ele volta para a fila
+    Recebimento receber();
+
+    boolean confirmar(String recibo);
+
+    boolean devolver(String recibo);
+
+    boolean filaVazia();
+
+    // Lança UnsupportedOperationException quando o backend não permite listar a fila
+    String[] obterConteudoDaFila();
+
+    // Percorre os clientes aguardando a partir do cursor, sem copiar a fila (ver FilaEmMemoria.percorrer).
+    // Lança UnsupportedOperationException quando o backend não permite listar a fila.
+    long percorrerConteudo(long cursor, Predicate<String> visitante);
+
+    // Posição do cliente na fila a partir de 1, ou FilaEmMemoria.SEM_POSICAO (-1) se ele não está aguardando.
+    // Lança UnsupportedOperationException quando o backend não numera a fila.
+    long posicaoNaFila(String cliente);
+
+    // Tira da fila todas as cópias do cliente que ainda aguardam (excluído ou que desistiu); um cliente já
+    // recebido e aguardando confirmação não é afetado. Retorna false se ele não estava aguardando.
+    // Lança UnsupportedOperationException quando o backend não permite remover do meio da fila.
+    boolean removerClienteDaFila(String cliente);
+
+    int getTamanho();
+
+    long getTempoDeVisibilidadeMs();
+
+    long getRetryAfterSegundos();
+
+    void encerrar();
+}
@@ -0,0 +1,63 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Regra de uma raia de prioridade (fila.raias[n] no application.properties). O cliente vai para a primeira
+// raia, na ordem configurada, cujo tipo e faixas de MCC ele atende; um critério vazio aceita qualquer valor.
+// Quem não atende nenhuma vai para a raia padrão, a última.
+public class RaiaDeAtendimento {
+
+    private String nome;
+    // PF ou PJ; null para os dois
+    private TipoDeCliente tipo;
+    private List<FaixaDeMcc> mcc = new ArrayList<>();
+    // Atendimentos a cada rodada do round robin ponderado (modo PESOS)
+    private int peso = 1;
+
+    public RaiaDeAtendimento() {
+    }
+
+    public RaiaDeAtendimento(String nome, TipoDeCliente tipo, List<FaixaDeMcc> mcc, int peso) {
+        this.nome = nome;
+        this.tipo = tipo;
+        this.mcc = new ArrayList<>(mcc);
+        this.peso = peso;
+    }
+
+    public boolean aceita(TipoDeCliente tipoDoCliente, FaixaDeMcc faixa) {
+        return (tipo == null || tipo == tipoDoCliente) && (mcc.isEmpty() || mcc.contains(faixa));
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public TipoDeCliente getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(TipoDeCliente tipo) {
+        this.tipo = tipo;
+    }
+
+    public List<FaixaDeMcc> getMcc() {
+        return mcc;
+    }
+
+    public void setMcc(List<FaixaDeMcc> mcc) {
+        this.mcc = mcc;
+    }
+
+    public int getPeso() {
+        return peso;
+    }
+
+    public void setPeso(int peso) {
+        this.peso = peso;
+    }
+}
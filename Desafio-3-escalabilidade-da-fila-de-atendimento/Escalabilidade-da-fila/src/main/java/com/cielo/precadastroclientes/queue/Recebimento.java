@@ -0,0 +1,43 @@
+package com.cielo.precadastroclientes.queue;
+
+// Cliente entregue a um atendente e ainda não confirmado. Enquanto o prazo de visibilidade
+// não vence ele fica invisível para os demais atendentes; sem confirmação, volta para a fila.
+public final class Recebimento {
+
+    private final String recibo;
+    private final String cliente;
+    private final int entregas;
+
+    // Faixa de MCC com que o cliente entrou: ele volta para a fila com ela, na mesma raia
+    final FaixaDeMcc faixa;
+    // false quando o cliente veio do excedente em disco e, portanto, não ocupa vaga em memória
+    final boolean possuiVaga;
+    volatile RodaDeTemporizacao.Temporizador<Recebimento> temporizador;
+
+    Recebimento(String recibo, String cliente, int entregas, FaixaDeMcc faixa, boolean possuiVaga) {
+        this.recibo = recibo;
+        this.cliente = cliente;
+        this.entregas = entregas;
+        this.faixa = faixa;
+        this.possuiVaga = possuiVaga;
+    }
+
+    // Recebimento de um backend externo (SQS), que controla o prazo de visibilidade por conta própria
+    public Recebimento(String recibo, String cliente, int entregas) {
+        this(recibo, cliente, entregas, FaixaDeMcc.DESCONHECIDA, true);
+    }
+
+    // Identificador usado para confirmar ou devolver este recebimento
+    public String getRecibo() {
+        return recibo;
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+
+    // 1 na primeira entrega; maior que 1 quando o cliente voltou para a fila sem confirmação
+    public int getEntregas() {
+        return entregas;
+    }
+}
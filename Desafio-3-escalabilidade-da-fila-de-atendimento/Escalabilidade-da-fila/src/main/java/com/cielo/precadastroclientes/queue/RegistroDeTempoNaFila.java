@@ -0,0 +1,11 @@
+package com.cielo.precadastroclientes.queue;
+
+// Recebe o tempo que cada cliente passou na fila em memória, no momento em que ele sai dela.
+// Chamado na thread que retirou o cliente, então a implementação não deve bloquear nem alocar.
+@FunctionalInterface
+public interface RegistroDeTempoNaFila {
+
+    RegistroDeTempoNaFila NENHUM = (tipo, faixa, nanos) -> { };
+
+    void registrar(TipoDeCliente tipo, FaixaDeMcc faixa, long nanos);
+}
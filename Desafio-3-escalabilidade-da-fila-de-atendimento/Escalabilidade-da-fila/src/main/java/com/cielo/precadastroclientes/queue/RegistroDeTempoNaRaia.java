@@ -0,0 +1,11 @@
+package com.cielo.precadastroclientes.queue;
+
+// Recebe o tempo na fila de cada cliente retirado de uma raia de prioridade, pelo índice da raia
+// (a ordem de FilaComPrioridades.nomes). Como o RegistroDeTempoNaFila, não deve bloquear nem alocar.
+@FunctionalInterface
+public interface RegistroDeTempoNaRaia {
+
+    RegistroDeTempoNaRaia NENHUM = (raia, nanos) -> { };
+
+    void registrar(int raia, long nanos);
+}
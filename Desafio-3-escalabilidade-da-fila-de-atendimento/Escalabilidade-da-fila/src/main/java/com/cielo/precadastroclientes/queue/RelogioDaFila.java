@@ -0,0 +1,51 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Carimbo de entrada guardado ao lado de cada código na FilaSegmentadaDeLongs: os nanossegundos desde a
+// criação da fila nos bits altos e a faixa de MCC nos 4 bits baixos. Na saída o carimbo vira o tempo na
+// fila, entregue ao RegistroDeTempoNaFila sem nenhum objeto intermediário.
+final class RelogioDaFila implements FilaSegmentadaDeLongs.VisitanteComCarimbo {
+
+    private static final int BITS_DA_FAIXA = 4;
+    private static final long MASCARA_DA_FAIXA = (1L << BITS_DA_FAIXA) - 1;
+
+    private final long origem = System.nanoTime();
+    private final AtomicLong ultimo = new AtomicLong();
+    private final RegistroDeTempoNaFila registro;
+
+    RelogioDaFila(RegistroDeTempoNaFila registro) {
+        this.registro = registro;
+    }
+
+    long carimbar(FaixaDeMcc faixa) {
+        return ((System.nanoTime() - origem) << BITS_DA_FAIXA) | faixa.ordinal();
+    }
+
+    // Carimbos estritamente crescentes, para ordenar a entrega entre partições: dois clientes no mesmo
+    // nanossegundo recebem instantes consecutivos. Disputa um único contador, por isso só com ordem global.
+    long carimbarEmOrdem(FaixaDeMcc faixa) {
+        long agora = System.nanoTime() - origem;
+        long instante = ultimo.accumulateAndGet(agora, (anterior, atual) -> Math.max(anterior + 1, atual));
+        return (instante << BITS_DA_FAIXA) | faixa.ordinal();
+    }
+
+    // Chamado pela FilaSegmentadaDeLongs para cada código retirado
+    @Override
+    public void visitar(long codigo, long carimbo) {
+        registrar(codigo, carimbo, tempoNaFila(carimbo));
+    }
+
+    void registrar(long codigo, long carimbo, long nanos) {
+        registro.registrar(CodificadorDeClientes.tipo(codigo), faixa(carimbo), nanos);
+    }
+
+    static FaixaDeMcc faixa(long carimbo) {
+        return FaixaDeMcc.porOrdinal((int) (carimbo & MASCARA_DA_FAIXA));
+    }
+
+    // Nanossegundos desde o carimbo
+    long tempoNaFila(long carimbo) {
+        return Math.max(System.nanoTime() - origem - (carimbo >>> BITS_DA_FAIXA), 0);
+    }
+}
@@ -0,0 +1,116 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Roda de temporização com hash (hashed timing wheel): cada prazo cai numa casa da roda, calculada
+// pelo número do tick módulo a quantidade de casas. Agendar e cancelar são O(1) e cada avanço visita
+// apenas as casas dos ticks que passaram, então milhares de prazos não exigem varrer todos eles.
+// Prazos além de uma volta completa guardam quantas voltas ainda faltam.
+// Os métodos são sincronizados: a roda é avançada por uma única thread e as demais apenas agendam/cancelam.
+public class RodaDeTemporizacao<T> {
+
+    private final long duracaoDoTickMs;
+    private final Temporizador<T>[] casas;
+    private final long inicioMs;
+    private long tickAtual;
+    private int quantidade;
+
+    @SuppressWarnings("unchecked")
+    public RodaDeTemporizacao(long duracaoDoTickMs, int numeroDeCasas, long inicioMs) {
+        if (duracaoDoTickMs < 1 || numeroDeCasas < 1) {
+            throw new IllegalArgumentException("A duração do tick e o número de casas devem ser maiores que zero");
+        }
+        this.duracaoDoTickMs = duracaoDoTickMs;
+        this.casas = new Temporizador[numeroDeCasas];
+        this.inicioMs = inicioMs;
+    }
+
+    // Agenda o valor para expirar no primeiro tick igual ou posterior ao prazo
+    public synchronized Temporizador<T> agendar(T valor, long prazoMs) {
+        long tick = Math.max(tickAtual, Math.floorDiv(prazoMs - inicioMs + duracaoDoTickMs - 1, duracaoDoTickMs));
+        Temporizador<T> temporizador = new Temporizador<>(valor, prazoMs);
+        temporizador.rodadas = (tick - tickAtual) / casas.length;
+        temporizador.casa = (int) (tick % casas.length);
+        Temporizador<T> primeiro = casas[temporizador.casa];
+        temporizador.proximo = primeiro;
+        if (primeiro != null) {
+            primeiro.anterior = temporizador;
+        }
+        casas[temporizador.casa] = temporizador;
+        quantidade++;
+        return temporizador;
+    }
+
+    // Retorna false se o temporizador já expirou ou já havia sido cancelado
+    public synchronized boolean cancelar(Temporizador<T> temporizador) {
+        if (temporizador.casa < 0) {
+            return false;
+        }
+        remover(temporizador);
+        return true;
+    }
+
+    // Processa todos os ticks até o instante informado e devolve os valores expirados, na ordem dos ticks
+    public synchronized List<T> avancar(long agoraMs) {
+        List<T> expirados = new ArrayList<>();
+        long ultimoTick = Math.floorDiv(agoraMs - inicioMs, duracaoDoTickMs);
+        while (tickAtual <= ultimoTick) {
+            Temporizador<T> temporizador = casas[(int) (tickAtual % casas.length)];
+            while (temporizador != null) {
+                Temporizador<T> proximo = temporizador.proximo;
+                if (temporizador.rodadas == 0) {
+                    remover(temporizador);
+                    expirados.add(temporizador.valor);
+                } else {
+                    temporizador.rodadas--;
+                }
+                temporizador = proximo;
+            }
+            tickAtual++;
+        }
+        return expirados;
+    }
+
+    public synchronized int size() {
+        return quantidade;
+    }
+
+    private void remover(Temporizador<T> temporizador) {
+        if (temporizador.anterior != null) {
+            temporizador.anterior.proximo = temporizador.proximo;
+        } else {
+            casas[temporizador.casa] = temporizador.proximo;
+        }
+        if (temporizador.proximo != null) {
+            temporizador.proximo.anterior = temporizador.anterior;
+        }
+        temporizador.anterior = null;
+        temporizador.proximo = null;
+        temporizador.casa = -1;
+        quantidade--;
+    }
+
+    // Nó da lista duplamente encadeada de uma casa; a remoção direta é o que torna o cancelamento O(1)
+    public static final class Temporizador<T> {
+        private final T valor;
+        private final long prazoMs;
+        private long rodadas;
+        private int casa;
+        private Temporizador<T> anterior;
+        private Temporizador<T> proximo;
+
+        private Temporizador(T valor, long prazoMs) {
+            this.valor = valor;
+            this.prazoMs = prazoMs;
+        }
+
+        public T getValor() {
+            return valor;
+        }
+
+        public long getPrazoMs() {
+            return prazoMs;
+        }
+    }
+}
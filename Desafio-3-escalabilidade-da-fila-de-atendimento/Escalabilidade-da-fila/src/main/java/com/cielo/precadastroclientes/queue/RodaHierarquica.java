@@ -0,0 +1,145 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Roda de temporização hierárquica, para prazos de horas ou dias com a resolução de um tick curto.
+// Cada nível tem a mesma quantidade de casas e cada casa de um nível cobre uma volta inteira do nível
+// abaixo: com 512 casas de 100 ms, o nível 0 cobre 51 segundos, o 1 cerca de 7 horas, o 2 cerca de 155 dias.
+// Um prazo entra no nível mais baixo que o alcança; quando a roda chega à casa de um nível superior, os
+// prazos dela descem (cascata) para os níveis de baixo. Cada prazo é movido no máximo uma vez por nível,
+// então milhões de prazos distantes não custam nada a cada tick, ao contrário da RodaDeTemporizacao, que
+// visita a cada volta os prazos que ainda faltam voltas.
+//
+// Os prazos de uma casa saem na ordem em que entraram. Prazos além do último nível ficam na última casa
+// alcançável e são reagendados quando ela chega. Os métodos são sincronizados, como na RodaDeTemporizacao.
+public class RodaHierarquica<T> {
+
+    private final long duracaoDoTickMs;
+    private final int bitsPorNivel;
+    private final int mascara;
+    private final Casa<T>[][] niveis;
+    private final long inicioMs;
+    private long tickAtual;
+    private int quantidade;
+
+    @SuppressWarnings("unchecked")
+    public RodaHierarquica(long duracaoDoTickMs, int casasPorNivel, int quantidadeDeNiveis, long inicioMs) {
+        if (duracaoDoTickMs < 1 || casasPorNivel < 2 || Integer.bitCount(casasPorNivel) != 1 || quantidadeDeNiveis < 1
+                || Integer.numberOfTrailingZeros(casasPorNivel) * quantidadeDeNiveis > 62) {
+            throw new IllegalArgumentException("A roda precisa de tick positivo, casas em potência de 2 e níveis que caibam num long");
+        }
+        this.duracaoDoTickMs = duracaoDoTickMs;
+        this.bitsPorNivel = Integer.numberOfTrailingZeros(casasPorNivel);
+        this.mascara = casasPorNivel - 1;
+        this.niveis = new Casa[quantidadeDeNiveis][casasPorNivel];
+        for (Casa<T>[] nivel : niveis) {
+            for (int i = 0; i < nivel.length; i++) {
+                nivel[i] = new Casa<>();
+            }
+        }
+        this.inicioMs = inicioMs;
+    }
+
+    // Agenda o valor para o primeiro tick igual ou posterior ao prazo; um prazo no passado sai no próximo avanço
+    public synchronized void agendar(T valor, long prazoMs) {
+        inserir(new No<>(valor, prazoMs));
+        quantidade++;
+    }
+
+    // Processa os ticks até o instante informado e devolve os valores vencidos, na ordem dos ticks
+    public synchronized List<T> avancar(long agoraMs) {
+        List<T> vencidos = new ArrayList<>();
+        long ultimoTick = Math.floorDiv(agoraMs - inicioMs, duracaoDoTickMs);
+        while (tickAtual <= ultimoTick) {
+            // Ao completar uma volta de um nível, a casa seguinte do nível de cima desce
+            for (int nivel = 1; nivel < niveis.length && (tickAtual & ((1L << (bitsPorNivel * nivel)) - 1)) == 0; nivel++) {
+                Casa<T> casa = niveis[nivel][indice(tickAtual, nivel)];
+                No<T> no = casa.esvaziar();
+                while (no != null) {
+                    No<T> proximo = no.proximo;
+                    inserir(no);
+                    no = proximo;
+                }
+            }
+            No<T> no = niveis[0][indice(tickAtual, 0)].esvaziar();
+            while (no != null) {
+                vencidos.add(no.valor);
+                quantidade--;
+                no = no.proximo;
+            }
+            tickAtual++;
+        }
+        return vencidos;
+    }
+
+    public synchronized int size() {
+        return quantidade;
+    }
+
+    // Todos os valores agendados, sem ordem definida; percorre a roda inteira (para checkpoints)
+    public synchronized List<T> valores() {
+        List<T> valores = new ArrayList<>(quantidade);
+        for (Casa<T>[] nivel : niveis) {
+            for (Casa<T> casa : nivel) {
+                for (No<T> no = casa.primeiro; no != null; no = no.proximo) {
+                    valores.add(no.valor);
+                }
+            }
+        }
+        return valores;
+    }
+
+    private void inserir(No<T> no) {
+        long tick = Math.max(tickAtual, Math.floorDiv(no.prazoMs - inicioMs + duracaoDoTickMs - 1, duracaoDoTickMs));
+        long distancia = tick - tickAtual;
+        int nivel = 0;
+        while (nivel < niveis.length - 1 && distancia >= 1L << (bitsPorNivel * (nivel + 1))) {
+            nivel++;
+        }
+        long alcance = 1L << (bitsPorNivel * (nivel + 1));
+        if (distancia >= alcance) {
+            // Além do último nível: espera na casa mais distante e é reagendado quando ela descer
+            tick = tickAtual + alcance - 1;
+        }
+        niveis[nivel][indice(tick, nivel)].anexar(no);
+    }
+
+    private int indice(long tick, int nivel) {
+        return (int) (tick >>> (bitsPorNivel * nivel)) & mascara;
+    }
+
+    // Lista simples com início e fim: anexar e esvaziar são O(1) e preservam a ordem de chegada
+    private static final class Casa<T> {
+        private No<T> primeiro;
+        private No<T> ultimo;
+
+        void anexar(No<T> no) {
+            no.proximo = null;
+            if (ultimo == null) {
+                primeiro = no;
+            } else {
+                ultimo.proximo = no;
+            }
+            ultimo = no;
+        }
+
+        No<T> esvaziar() {
+            No<T> no = primeiro;
+            primeiro = null;
+            ultimo = null;
+            return no;
+        }
+    }
+
+    private static final class No<T> {
+        private final T valor;
+        private final long prazoMs;
+        private No<T> proximo;
+
+        No(T valor, long prazoMs) {
+            this.valor = valor;
+            this.prazoMs = prazoMs;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.cielo.precadastroclientes.queue;
+
+// Como uma cópia sai da FilaDeAtendimento: entregue a um atendente ou descartada (ver CopiasNaFila.sair)
+enum SaidaDaFila {
+    ENTREGAR, OBSOLETA, CANCELADA
+}
@@ -0,0 +1,9 @@
+package com.cielo.precadastroclientes.queue;
+
+// Onde os clientes da fila de atendimento ficam guardados
+public enum TipoDeBackend {
+    MEMORIA,  // FilaDeAtendimento em memória; a fila é perdida num reinício
+    ARQUIVO,  // FilaDeAtendimento com log em disco (o mesmo que fila.duravel=true)
+    SQS,      // fila externa acessada pelo protocolo do Amazon SQS, compartilhada entre instâncias
+    JDBC      // tabela no banco da aplicação, compartilhada entre as instâncias ligadas ao mesmo banco
+}
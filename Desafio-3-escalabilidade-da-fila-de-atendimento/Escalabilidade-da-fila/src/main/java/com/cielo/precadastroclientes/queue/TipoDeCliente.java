@@ -0,0 +1,19 @@
+package com.cielo.precadastroclientes.queue;
+
+// Tipo do cliente identificado na fila: PF pelo CPF (11 dígitos), PJ pelo CNPJ (14 dígitos)
+public enum TipoDeCliente {
+    PF,
+    PJ,
+    DESCONHECIDO;
+
+    public static TipoDeCliente de(String identificador) {
+        switch (identificador.length()) {
+            case 11:
+                return PF;
+            case 14:
+                return PJ;
+            default:
+                return DESCONHECIDO;
+        }
+    }
+}
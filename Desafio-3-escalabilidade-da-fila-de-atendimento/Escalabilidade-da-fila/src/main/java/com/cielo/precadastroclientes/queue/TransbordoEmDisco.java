@@ -0,0 +1,112 @@
+package com.cielo.precadastroclientes.queue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fila FIFO em arquivo para os clientes que excedem a capacidade em memória.
+// Cada cliente é gravado em uma linha "FAIXA;identificador", com a faixa de MCC com que entrou;
+// a leitura avança um cursor e o arquivo é truncado quando todo o excedente volta para a memória.
+// Só é usado no caminho frio (fila cheia), por isso os métodos são sincronizados.
+public class TransbordoEmDisco {
+
+    // Cabe qualquer identificador aceito pela FilaDeAtendimento (TAMANHO_MAXIMO_DO_CLIENTE), a faixa e a quebra de linha
+    private static final int TAMANHO_MAXIMO_DA_LINHA = 256;
+
+    private final FileChannel arquivo;
+    private long posicaoDeLeitura;
+    private volatile long pendentes;
+
+    public TransbordoEmDisco(Path diretorio) {
+        try {
+            Files.createDirectories(diretorio);
+            // O excedente de uma execução anterior não é reaproveitado: ele pode já ter sido atendido
+            this.arquivo = FileChannel.open(diretorio.resolve("transbordo.fila"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Não foi possível abrir o arquivo de transbordo da fila", ex);
+        }
+    }
+
+    public synchronized void gravar(String cliente, FaixaDeMcc faixa) {
+        try {
+            ByteBuffer linha = ByteBuffer.wrap((faixa.name() + ";" + cliente + "\n").getBytes(StandardCharsets.UTF_8));
+            long posicao = arquivo.size();
+            while (linha.hasRemaining()) {
+                posicao += arquivo.write(linha, posicao);
+            }
+            pendentes++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao gravar cliente no transbordo da fila", ex);
+        }
+    }
+
+    // Retorna o cliente mais antigo do transbordo, ou null se não houver pendentes
+    public synchronized ClienteNaFila ler() {
+        if (pendentes == 0) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_MAXIMO_DA_LINHA);
+            arquivo.read(buffer, posicaoDeLeitura);
+            buffer.flip();
+            int fimDaLinha = 0;
+            while (buffer.get(fimDaLinha) != '\n') {
+                fimDaLinha++;
+            }
+            ClienteNaFila cliente = cliente(new String(buffer.array(), 0, fimDaLinha, StandardCharsets.UTF_8));
+            posicaoDeLeitura += fimDaLinha + 1;
+            pendentes--;
+
+            if (pendentes == 0) {
+                // Todo o excedente voltou para a memória: recupera o espaço em disco
+                arquivo.truncate(0);
+                posicaoDeLeitura = 0;
+            }
+            return cliente;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao ler cliente do transbordo da fila", ex);
+        }
+    }
+
+    // Cópia dos clientes ainda em disco, do mais antigo para o mais novo
+    public synchronized List<ClienteNaFila> listarPendentes() {
+        if (pendentes == 0) {
+            return List.of();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (arquivo.size() - posicaoDeLeitura));
+            arquivo.read(buffer, posicaoDeLeitura);
+            String conteudo = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+            List<ClienteNaFila> clientes = new ArrayList<>();
+            for (String linha : conteudo.split("\n")) {
+                clientes.add(cliente(linha));
+            }
+            return clientes;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Falha ao ler o transbordo da fila", ex);
+        }
+    }
+
+    private static ClienteNaFila cliente(String linha) {
+        int separador = linha.indexOf(';');
+        return new ClienteNaFila(linha.substring(separador + 1), FaixaDeMcc.valueOf(linha.substring(0, separador)));
+    }
+
+    public synchronized long getPendentes() {
+        return pendentes;
+    }
+
+    // Leitura sem lock, usada no caminho rápido apenas como dica
+    public boolean possuiPendentes() {
+        return pendentes > 0;
+    }
+}
@@ -0,0 +1,584 @@
+package com.cielo.precadastroclientes.queue.jdbc;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.FilaEmMemoria;
+import com.cielo.precadastroclientes.queue.ModoDePrioridade;
+import com.cielo.precadastroclientes.queue.QueueBackend;
+import com.cielo.precadastroclientes.queue.Recebimento;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// Fila de atendimento guardada numa tabela do banco da aplicação (fila.backend=JDBC). Todas as instâncias
+// que apontam para o mesmo banco atendem a mesma fila: um cliente cadastrado no nó A pode ser atendido no nó B.
+//
+// Cada linha é um cliente; a ordem da fila é a do id (chave primária, o índice ordenado) e "visivel_em"
+// diz a partir de quando a linha pode ser entregue. Receber uma linha grava um recibo e empurra
+// "visivel_em" para o fim do prazo de visibilidade: sem confirmação, ela volta a aparecer sozinha, sem
+// nenhuma thread varrendo prazos.
+//
+// Reserva das linhas entre instâncias concorrentes:
+// - Bancos com SKIP LOCKED (PostgreSQL, MySQL 8, MariaDB): SELECT ... FOR UPDATE SKIP LOCKED numa transação,
+//   cada instância leva linhas diferentes sem esperar pelas outras.
+// - H2 e os demais: as candidatas são lidas sem lock e cada uma é reservada com um UPDATE/DELETE condicionado
+//   a ela continuar visível. O banco reavalia a condição depois de obter o lock da linha, então só uma
+//   instância consegue; as que perderam a disputa tentam as próximas candidatas.
+//
+// Entradas agendadas (notBefore) ficam numa tabela à parte, ordenada pelo prazo, até vencerem: na tabela da
+// fila elas ocupariam a capacidade e, como a ordem é a do id, furariam a fila de quem chegou depois.
+//
+// As entradas vêm da caixa de saída (CaixaDeSaidaDaFila), que retransmite numa transação do Spring. Os
+// métodos que colocam clientes na fila usam a conexão dessa transação: o cliente entra na fila e a entrada sai
+// da caixa no mesmo commit, então uma queda no meio não o perde nem o coloca duas vezes.
+// Os demais métodos usam conexões próprias: a remoção, por exemplo, roda depois do commit da exclusão do
+// cliente, e uma conexão ligada à transação já encerrada não faria mais commit.
+//
+// As tabelas são criadas pela migração V4__fila_de_atendimento.sql (Flyway), como o restante do esquema.
+@Component
+@ConditionalOnProperty(prefix = "fila", name = "backend", havingValue = "JDBC")
+public class FilaJdbc implements QueueBackend {
+
+    static final String TABELA = "fila_de_atendimento";
+    static final String TABELA_DE_AGENDAMENTOS = TABELA + "_agendamentos";
+
+    private static final String INSERIR =
+            "INSERT INTO " + TABELA + " (cliente, entrada, visivel_em, entregas) VALUES (?, ?, ?, 0)";
+    private static final String CONTAR = "SELECT COUNT(*) FROM " + TABELA;
+    private static final String CANDIDATAS =
+            "SELECT id, cliente, entregas FROM " + TABELA + " WHERE visivel_em <= ? ORDER BY id LIMIT ?";
+    private static final String CANDIDATAS_COM_SKIP_LOCKED = CANDIDATAS + " FOR UPDATE SKIP LOCKED";
+    private static final String APAGAR_SE_VISIVEL = "DELETE FROM " + TABELA + " WHERE id = ? AND visivel_em <= ?";
+    private static final String APAGAR = "DELETE FROM " + TABELA + " WHERE id = ?";
+    private static final String RESERVAR_SE_VISIVEL = "UPDATE " + TABELA
+            + " SET recibo = ?, visivel_em = ?, entregas = entregas + 1 WHERE id = ? AND visivel_em <= ?";
+    private static final String RESERVAR = "UPDATE " + TABELA
+            + " SET recibo = ?, visivel_em = ?, entregas = entregas + 1 WHERE id = ?";
+    private static final String CONFIRMAR = "DELETE FROM " + TABELA + " WHERE recibo = ? AND visivel_em > ?";
+    private static final String DEVOLVER = "UPDATE " + TABELA
+            + " SET recibo = NULL, visivel_em = ? WHERE recibo = ? AND visivel_em > ?";
+    private static final String PAGINA = "SELECT id, cliente FROM " + TABELA
+            + " WHERE id >= ? AND visivel_em <= ? ORDER BY id LIMIT ?";
+    // Clientes visíveis até a primeira linha visível do cliente, inclusive: 0 quando ele não está aguardando
+    private static final String POSICAO = "SELECT COUNT(*) FROM " + TABELA + " WHERE visivel_em <= ? AND id <= "
+            + "(SELECT MIN(id) FROM " + TABELA + " WHERE cliente = ? AND visivel_em <= ?)";
+    // Só as linhas visíveis: uma reservada está com um atendente e termina com confirmar ou devolver
+    private static final String REMOVER_CLIENTE = "DELETE FROM " + TABELA + " WHERE cliente = ? AND visivel_em <= ?";
+
+    private static final String AGENDAR =
+            "INSERT INTO " + TABELA_DE_AGENDAMENTOS + " (cliente, disponivel_em) VALUES (?, ?)";
+    private static final String AGENDAMENTOS_VENCIDOS = "SELECT id, cliente FROM " + TABELA_DE_AGENDAMENTOS
+            + " WHERE disponivel_em <= ? ORDER BY disponivel_em, id LIMIT ?";
+    private static final String APAGAR_AGENDAMENTO = "DELETE FROM " + TABELA_DE_AGENDAMENTOS + " WHERE id = ?";
+    private static final String CONTAR_AGENDAMENTOS = "SELECT COUNT(*) FROM " + TABELA_DE_AGENDAMENTOS;
+
+    // Linhas lidas por consulta ao percorrer a fila
+    private static final int TAMANHO_DA_PAGINA = 500;
+
+    private final DataSource dataSource;
+    private final boolean skipLocked;
+    private final int capacidade;
+    private final long tempoDeVisibilidadeMs;
+    private final long retryAfterSegundos;
+    private final int maximoPorLote;
+    private final ScheduledExecutorService agendamentos;
+
+    @Autowired
+    public FilaJdbc(FilaProperties properties, DataSource dataSource) {
+        this(properties, dataSource, null);
+    }
+
+    // skipLocked null: decide pelo banco encontrado
+    public FilaJdbc(FilaProperties properties, DataSource dataSource, Boolean skipLocked) {
+        if (properties.getPrioridade() != ModoDePrioridade.DESLIGADA) {
+            // A tabela tem uma única ordem, a do id: as raias seriam ignoradas sem aviso
+            throw new IllegalArgumentException("As raias de prioridade (fila.prioridade) não são suportadas com"
+                    + " fila.backend=JDBC; use fila.prioridade=DESLIGADA ou a fila em memória");
+        }
+        this.dataSource = dataSource;
+        this.capacidade = properties.getCapacidade();
+        this.tempoDeVisibilidadeMs = properties.getTempoDeVisibilidadeMs();
+        this.retryAfterSegundos = properties.getRetryAfterSegundos();
+        this.maximoPorLote = properties.getMaximoPorLote();
+        try (Connection conexao = dataSource.getConnection()) {
+            this.skipLocked = skipLocked != null ? skipLocked : suportaSkipLocked(conexao);
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+        this.agendamentos = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "fila-jdbc-agendamentos");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalo = properties.getIntervaloDeLiberacaoDeAgendamentosMs();
+        agendamentos.scheduleWithFixedDelay(() -> {
+            try {
+                liberarAgendamentos();
+            } catch (RuntimeException ex) {
+                // Banco indisponível: os agendamentos continuam na tabela e são tentados no próximo intervalo
+            }
+        }, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean suportaSkipLocked(Connection conexao) throws SQLException {
+        String banco = conexao.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        return banco.contains("postgresql") || banco.contains("mysql") || banco.contains("mariadb");
+    }
+
+    // A capacidade é conferida antes da inserção, sem lock: com várias instâncias cadastrando ao mesmo tempo
+    // a tabela pode passar um pouco de fila.capacidade
+    @Override
+    public boolean adicionarClienteNaFila(String cliente) {
+        Connection conexao = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (contar(conexao) >= capacidade) {
+                return false;
+            }
+            long agora = agoraMs();
+            try (PreparedStatement comando = conexao.prepareStatement(INSERIR)) {
+                comando.setString(1, cliente);
+                comando.setLong(2, agora);
+                comando.setLong(3, agora);
+                comando.executeUpdate();
+            }
+            return true;
+        } catch (SQLException ex) {
+            throw falha(ex);
+        } finally {
+            DataSourceUtils.releaseConnection(conexao, dataSource);
+        }
+    }
+
+    // Uma conexão, uma contagem e um lote de INSERTs numa transação para todos os clientes que cabem
+    @Override
+    public int adicionarClientesNaFila(List<String> clientes, List<String> mccs) {
+        if (clientes.isEmpty()) {
+            return 0;
+        }
+        Connection conexao = DataSourceUtils.getConnection(dataSource);
+        try {
+            int quantidade = (int) Math.max(0, Math.min(clientes.size(), capacidade - contar(conexao)));
+            if (quantidade == 0) {
+                return 0;
+            }
+            long agora = agoraMs();
+            return numaTransacao(conexao, () -> {
+                try (PreparedStatement comando = conexao.prepareStatement(INSERIR)) {
+                    for (int i = 0; i < quantidade; i++) {
+                        comando.setString(1, clientes.get(i));
+                        comando.setLong(2, agora);
+                        comando.setLong(3, agora);
+                        comando.addBatch();
+                    }
+                    comando.executeBatch();
+                    return quantidade;
+                }
+            });
+        } catch (SQLException ex) {
+            throw falha(ex);
+        } finally {
+            DataSourceUtils.releaseConnection(conexao, dataSource);
+        }
+    }
+
+    // O agendamento não conta para a capacidade da fila: ela é conferida quando ele vence
+    @Override
+    public boolean agendarClienteNaFila(String cliente, String mcc, long naoAntesDeMs) {
+        if (naoAntesDeMs <= agoraMs()) {
+            return adicionarClienteNaFila(cliente, mcc);
+        }
+        Connection conexao = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement comando = conexao.prepareStatement(AGENDAR)) {
+            comando.setString(1, cliente);
+            comando.setLong(2, naoAntesDeMs);
+            comando.executeUpdate();
+            return true;
+        } catch (SQLException ex) {
+            throw falha(ex);
+        } finally {
+            DataSourceUtils.releaseConnection(conexao, dataSource);
+        }
+    }
+
+    // Move para o fim da fila os agendamentos vencidos, até fila.maximo-por-lote por vez e sem passar da
+    // capacidade; os que não couberem esperam a próxima execução. Cada agendamento é apagado e inserido na
+    // fila na mesma transação e só entra se o DELETE o encontrou: com várias instâncias liberando ao mesmo
+    // tempo, a que chegar depois fica com 0 linhas e o ignora, então cada agendamento entra uma única vez.
+    // Chamado periodicamente por todas as instâncias; retorna quantos entraram na fila.
+    int liberarAgendamentos() {
+        Connection conexao = DataSourceUtils.getConnection(dataSource);
+        try {
+            int limite = (int) Math.min(maximoPorLote, capacidade - contar(conexao));
+            if (limite <= 0) {
+                return 0;
+            }
+            long agora = agoraMs();
+            List<Candidata> vencidos = new ArrayList<>(limite);
+            try (PreparedStatement comando = conexao.prepareStatement(AGENDAMENTOS_VENCIDOS)) {
+                comando.setLong(1, agora);
+                comando.setInt(2, limite);
+                try (ResultSet linhas = comando.executeQuery()) {
+                    while (linhas.next()) {
+                        vencidos.add(new Candidata(linhas.getLong(1), linhas.getString(2), 0));
+                    }
+                }
+            }
+            if (vencidos.isEmpty()) {
+                return 0;
+            }
+            return numaTransacao(conexao, () -> {
+                try (PreparedStatement apagar = conexao.prepareStatement(APAGAR_AGENDAMENTO);
+                     PreparedStatement inserir = conexao.prepareStatement(INSERIR)) {
+                    int liberados = 0;
+                    for (Candidata vencido : vencidos) {
+                        apagar.setLong(1, vencido.id);
+                        if (apagar.executeUpdate() == 1) {
+                            inserir.setString(1, vencido.cliente);
+                            inserir.setLong(2, agora);
+                            inserir.setLong(3, agora);
+                            inserir.addBatch();
+                            liberados++;
+                        }
+                    }
+                    if (liberados > 0) {
+                        inserir.executeBatch();
+                    }
+                    return liberados;
+                }
+            });
+        } catch (SQLException ex) {
+            throw falha(ex);
+        } finally {
+            DataSourceUtils.releaseConnection(conexao, dataSource);
+        }
+    }
+
+    // Com uma transação do Spring em andamento na conexão, os comandos fazem parte dela e o commit ou rollback
+    // fica com quem a abriu; sem ela, rodam numa transação própria
+    private <T> T numaTransacao(Connection conexao, Comandos<T> comandos) throws SQLException {
+        if (DataSourceUtils.isConnectionTransactional(conexao, dataSource)) {
+            return comandos.executar();
+        }
+        boolean autoCommit = conexao.getAutoCommit();
+        conexao.setAutoCommit(false);
+        try {
+            T resultado = comandos.executar();
+            conexao.commit();
+            return resultado;
+        } catch (SQLException | RuntimeException ex) {
+            conexao.rollback();
+            throw ex;
+        } finally {
+            conexao.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Clientes agendados que ainda não entraram na fila, somando todas as instâncias
+    public long getAgendamentosPendentes() {
+        try (Connection conexao = dataSource.getConnection();
+             Statement comando = conexao.createStatement();
+             ResultSet linhas = comando.executeQuery(CONTAR_AGENDAMENTOS)) {
+            linhas.next();
+            return linhas.getLong(1);
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    @Override
+    public String poll() {
+        List<String> clientes = retirarClientes(1);
+        return clientes.isEmpty() ? null : clientes.get(0);
+    }
+
+    // Reserva e apaga até "quantidade" clientes (limitado a fila.maximo-por-lote), na ordem da fila
+    @Override
+    public List<String> retirarClientes(int quantidade) {
+        int limite = Math.min(quantidade, maximoPorLote);
+        List<String> clientes = new ArrayList<>(limite);
+        for (Candidata candidata : reservar(limite, APAGAR_SE_VISIVEL, APAGAR, null)) {
+            clientes.add(candidata.cliente);
+        }
+        return clientes;
+    }
+
+    @Override
+    public Recebimento receber() {
+        String recibo = UUID.randomUUID().toString();
+        List<Candidata> reservadas = reservar(1, RESERVAR_SE_VISIVEL, RESERVAR, recibo);
+        if (reservadas.isEmpty()) {
+            return null;
+        }
+        Candidata candidata = reservadas.get(0);
+        return new Recebimento(recibo, candidata.cliente, candidata.entregas + 1);
+    }
+
+    // Confirma apenas dentro do prazo: depois dele a linha pode já ter sido entregue a outro atendente
+    @Override
+    public boolean confirmar(String recibo) {
+        try (Connection conexao = dataSource.getConnection();
+             PreparedStatement comando = conexao.prepareStatement(CONFIRMAR)) {
+            comando.setString(1, recibo);
+            comando.setLong(2, agoraMs());
+            return comando.executeUpdate() == 1;
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    // A linha mantém o id, então o cliente devolvido volta para a sua posição original na fila
+    @Override
+    public boolean devolver(String recibo) {
+        try (Connection conexao = dataSource.getConnection();
+             PreparedStatement comando = conexao.prepareStatement(DEVOLVER)) {
+            long agora = agoraMs();
+            comando.setLong(1, agora);
+            comando.setString(2, recibo);
+            comando.setLong(3, agora);
+            return comando.executeUpdate() == 1;
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    // Reserva até "quantidade" linhas visíveis. Com SKIP LOCKED, "comandoComLock" é aplicado às linhas já
+    // travadas pelo SELECT; sem ele, "comandoCondicional" só afeta a linha se ela continuar visível.
+    // Os parâmetros dos comandos são (recibo, visivel_em,) id[, agora]; recibo null para as retiradas.
+    private List<Candidata> reservar(int quantidade, String comandoCondicional, String comandoComLock, String recibo) {
+        List<Candidata> reservadas = new ArrayList<>(quantidade);
+        try (Connection conexao = dataSource.getConnection()) {
+            if (skipLocked) {
+                reservarComSkipLocked(conexao, quantidade, comandoComLock, recibo, reservadas);
+                return reservadas;
+            }
+            while (reservadas.size() < quantidade) {
+                long agora = agoraMs();
+                List<Candidata> candidatas = candidatas(conexao, CANDIDATAS, agora, quantidade - reservadas.size());
+                if (candidatas.isEmpty()) {
+                    break;
+                }
+                int[] resultados;
+                try (PreparedStatement comando = conexao.prepareStatement(comandoCondicional)) {
+                    for (Candidata candidata : candidatas) {
+                        preencher(comando, candidata, recibo, agora);
+                        comando.setLong(recibo == null ? 2 : 4, agora);
+                        comando.addBatch();
+                    }
+                    resultados = comando.executeBatch();
+                }
+                // Candidatas levadas por outra instância entre a leitura e o comando ficam com 0
+                for (int i = 0; i < resultados.length; i++) {
+                    if (resultados[i] > 0 || resultados[i] == Statement.SUCCESS_NO_INFO) {
+                        reservadas.add(candidatas.get(i));
+                    }
+                }
+            }
+            return reservadas;
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    private void reservarComSkipLocked(Connection conexao, int quantidade, String comandoComLock, String recibo,
+                                       List<Candidata> reservadas) throws SQLException {
+        reservadas.addAll(numaTransacao(conexao, () -> {
+            long agora = agoraMs();
+            List<Candidata> candidatas = candidatas(conexao, CANDIDATAS_COM_SKIP_LOCKED, agora, quantidade);
+            if (!candidatas.isEmpty()) {
+                try (PreparedStatement comando = conexao.prepareStatement(comandoComLock)) {
+                    for (Candidata candidata : candidatas) {
+                        preencher(comando, candidata, recibo, agora);
+                        comando.addBatch();
+                    }
+                    comando.executeBatch();
+                }
+            }
+            return candidatas;
+        }));
+    }
+
+    private void preencher(PreparedStatement comando, Candidata candidata, String recibo, long agora) throws SQLException {
+        if (recibo == null) {
+            comando.setLong(1, candidata.id);
+            return;
+        }
+        comando.setString(1, recibo);
+        comando.setLong(2, agora + tempoDeVisibilidadeMs);
+        comando.setLong(3, candidata.id);
+    }
+
+    private static List<Candidata> candidatas(Connection conexao, String consulta, long agora, int quantidade)
+            throws SQLException {
+        List<Candidata> candidatas = new ArrayList<>(quantidade);
+        try (PreparedStatement comando = conexao.prepareStatement(consulta)) {
+            comando.setLong(1, agora);
+            comando.setInt(2, quantidade);
+            try (ResultSet linhas = comando.executeQuery()) {
+                while (linhas.next()) {
+                    candidatas.add(new Candidata(linhas.getLong(1), linhas.getString(2), linhas.getInt(3)));
+                }
+            }
+        }
+        return candidatas;
+    }
+
+    @Override
+    public boolean filaVazia() {
+        boolean[] vazia = {true};
+        percorrerConteudo(0, cliente -> {
+            vazia[0] = false;
+            return false;
+        });
+        return vazia[0];
+    }
+
+    @Override
+    public String[] obterConteudoDaFila() {
+        List<String> conteudo = new ArrayList<>();
+        percorrerConteudo(0, conteudo::add);
+        return conteudo.toArray(new String[0]);
+    }
+
+    // O cursor é o id da linha: páginas seguintes começam nele mesmo que linhas anteriores tenham saído
+    @Override
+    public long percorrerConteudo(long cursor, Predicate<String> visitante) {
+        long seguinte = cursor;
+        try (Connection conexao = dataSource.getConnection();
+             PreparedStatement comando = conexao.prepareStatement(PAGINA)) {
+            while (true) {
+                comando.setLong(1, seguinte);
+                comando.setLong(2, agoraMs());
+                comando.setInt(3, TAMANHO_DA_PAGINA);
+                int lidas = 0;
+                try (ResultSet linhas = comando.executeQuery()) {
+                    while (linhas.next()) {
+                        lidas++;
+                        long id = linhas.getLong(1);
+                        if (!visitante.test(linhas.getString(2))) {
+                            return id;
+                        }
+                        seguinte = id + 1;
+                    }
+                }
+                if (lidas < TAMANHO_DA_PAGINA) {
+                    return seguinte;
+                }
+            }
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    // A contagem percorre a chave primária até a linha do cliente; os clientes em processamento não contam
+    @Override
+    public long posicaoNaFila(String cliente) {
+        try (Connection conexao = dataSource.getConnection();
+             PreparedStatement comando = conexao.prepareStatement(POSICAO)) {
+            long agora = agoraMs();
+            comando.setLong(1, agora);
+            comando.setString(2, cliente);
+            comando.setLong(3, agora);
+            try (ResultSet linhas = comando.executeQuery()) {
+                linhas.next();
+                long posicao = linhas.getLong(1);
+                return posicao == 0 ? FilaEmMemoria.SEM_POSICAO : posicao;
+            }
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    // Usa o índice por cliente criado com a tabela
+    @Override
+    public boolean removerClienteDaFila(String cliente) {
+        try (Connection conexao = dataSource.getConnection();
+             PreparedStatement comando = conexao.prepareStatement(REMOVER_CLIENTE)) {
+            comando.setString(1, cliente);
+            comando.setLong(2, agoraMs());
+            return comando.executeUpdate() > 0;
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    // Inclui os clientes em processamento, como na FilaDeAtendimento
+    @Override
+    public int getTamanho() {
+        try (Connection conexao = dataSource.getConnection()) {
+            return (int) contar(conexao);
+        } catch (SQLException ex) {
+            throw falha(ex);
+        }
+    }
+
+    private static long contar(Connection conexao) throws SQLException {
+        try (Statement comando = conexao.createStatement();
+             ResultSet linhas = comando.executeQuery(CONTAR)) {
+            linhas.next();
+            return linhas.getLong(1);
+        }
+    }
+
+    @Override
+    public long getTempoDeVisibilidadeMs() {
+        return tempoDeVisibilidadeMs;
+    }
+
+    @Override
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+
+    // As conexões pertencem ao DataSource da aplicação
+    @Override
+    @PreDestroy
+    public void encerrar() {
+        agendamentos.shutdownNow();
+    }
+
+    public boolean isSkipLocked() {
+        return skipLocked;
+    }
+
+    // Relógio de parede, e não System.nanoTime: os prazos são comparados entre instâncias diferentes
+    private static long agoraMs() {
+        return System.currentTimeMillis();
+    }
+
+    private static IllegalStateException falha(SQLException ex) {
+        return new IllegalStateException("Falha ao acessar a fila de atendimento no banco", ex);
+    }
+
+    @FunctionalInterface
+    private interface Comandos<T> {
+        T executar() throws SQLException;
+    }
+
+    private static final class Candidata {
+        final long id;
+        final String cliente;
+        final int entregas;
+
+        Candidata(long id, String cliente, int entregas) {
+            this.id = id;
+            this.cliente = cliente;
+            this.entregas = entregas;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.cielo.precadastroclientes.queue.sqs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+// Cliente do Amazon SQS pelo protocolo JSON (POST com X-Amz-Target: AmazonSQS.<Ação>), usando apenas o
+// HttpClient do JDK. Implementa somente as ações usadas pela FilaSqs. Com credenciais, as requisições
+// são assinadas com AWS Signature Version 4; sem elas seguem sem assinatura (SQS embarcado e emuladores).
+public class ClienteSqs {
+
+    // Limite do SQS para SendMessageBatch, DeleteMessageBatch e MaxNumberOfMessages
+    public static final int MAXIMO_POR_LOTE = 10;
+
+    private static final String TIPO_DE_CONTEUDO = "application/x-amz-json-1.0";
+    private static final String SERVICO = "sqs";
+    private static final DateTimeFormatter DATA_E_HORA = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final Duration TEMPO_LIMITE = Duration.ofSeconds(10);
+
+    private final HttpClient http;
+    private final URI endpoint;
+    private final String host;
+    private final String regiao;
+    private final String chaveDeAcesso;
+    private final String chaveSecreta;
+    private final ObjectMapper json = new ObjectMapper();
+
+    public ClienteSqs(URI endpoint, String regiao, String chaveDeAcesso, String chaveSecreta) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TEMPO_LIMITE)
+                .build();
+        this.endpoint = endpoint;
+        // O mesmo valor que o HttpClient envia no cabeçalho Host, que faz parte da assinatura
+        this.host = endpoint.getPort() < 0 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+        this.regiao = regiao;
+        this.chaveDeAcesso = chaveDeAcesso;
+        this.chaveSecreta = chaveSecreta;
+    }
+
+    // Cria a fila se ela não existir (a ação é idempotente) e retorna sua URL
+    public String criarFila(String nome) {
+        ObjectNode corpo = json.createObjectNode().put("QueueName", nome);
+        return chamar("CreateQueue", corpo, TEMPO_LIMITE).path("QueueUrl").asText();
+    }
+
+    // Envia até 10 mensagens numa chamada; o resultado indica, na ordem dos corpos, quais foram aceitas
+    public boolean[] enviarLote(String urlDaFila, List<String> corpos) {
+        ObjectNode corpo = json.createObjectNode().put("QueueUrl", urlDaFila);
+        ArrayNode entradas = corpo.putArray("Entries");
+        for (int i = 0; i < corpos.size(); i++) {
+            entradas.addObject().put("Id", String.valueOf(i)).put("MessageBody", corpos.get(i));
+        }
+        return aceitas(chamar("SendMessageBatch", corpo, TEMPO_LIMITE), corpos.size());
+    }
+
+    // Recebe até "maximo" (no máximo 10) mensagens. Com "esperaSegundos" > 0 o SQS segura a resposta até
+    // chegar alguma mensagem ou a espera vencer (long polling), em vez de responder vazio na hora.
+    public List<MensagemSqs> receber(String urlDaFila, int maximo, int esperaSegundos, int visibilidadeSegundos) {
+        ObjectNode corpo = json.createObjectNode()
+                .put("QueueUrl", urlDaFila)
+                .put("MaxNumberOfMessages", maximo)
+                .put("WaitTimeSeconds", esperaSegundos)
+                .put("VisibilityTimeout", visibilidadeSegundos);
+        corpo.putArray("AttributeNames").add("ApproximateReceiveCount");
+        JsonNode resposta = chamar("ReceiveMessage", corpo, TEMPO_LIMITE.plusSeconds(esperaSegundos));
+        long agora = System.nanoTime() / 1_000_000;
+        List<MensagemSqs> mensagens = new ArrayList<>();
+        for (JsonNode mensagem : resposta.path("Messages")) {
+            mensagens.add(new MensagemSqs(
+                    mensagem.path("MessageId").asText(),
+                    mensagem.path("ReceiptHandle").asText(),
+                    mensagem.path("Body").asText(),
+                    mensagem.path("Attributes").path("ApproximateReceiveCount").asInt(1),
+                    agora));
+        }
+        return mensagens;
+    }
+
+    public void apagar(String urlDaFila, String recibo) {
+        ObjectNode corpo = json.createObjectNode().put("QueueUrl", urlDaFila).put("ReceiptHandle", recibo);
+        chamar("DeleteMessage", corpo, TEMPO_LIMITE);
+    }
+
+    // Apaga até 10 mensagens numa chamada; o resultado indica, na ordem dos recibos, quais foram apagadas
+    public boolean[] apagarLote(String urlDaFila, List<String> recibos) {
+        ObjectNode corpo = json.createObjectNode().put("QueueUrl", urlDaFila);
+        ArrayNode entradas = corpo.putArray("Entries");
+        for (int i = 0; i < recibos.size(); i++) {
+            entradas.addObject().put("Id", String.valueOf(i)).put("ReceiptHandle", recibos.get(i));
+        }
+        return aceitas(chamar("DeleteMessageBatch", corpo, TEMPO_LIMITE), recibos.size());
+    }
+
+    // Com 0 a mensagem volta a ser visível imediatamente
+    public void alterarVisibilidade(String urlDaFila, String recibo, int visibilidadeSegundos) {
+        ObjectNode corpo = json.createObjectNode()
+                .put("QueueUrl", urlDaFila)
+                .put("ReceiptHandle", recibo)
+                .put("VisibilityTimeout", visibilidadeSegundos);
+        chamar("ChangeMessageVisibility", corpo, TEMPO_LIMITE);
+    }
+
+    // Quantidade aproximada de mensagens visíveis (aguardando) na fila
+    public int contarMensagens(String urlDaFila) {
+        ObjectNode corpo = json.createObjectNode().put("QueueUrl", urlDaFila);
+        corpo.putArray("AttributeNames").add("ApproximateNumberOfMessages");
+        return chamar("GetQueueAttributes", corpo, TEMPO_LIMITE).path("Attributes").path("ApproximateNumberOfMessages").asInt();
+    }
+
+    private static boolean[] aceitas(JsonNode resposta, int quantidade) {
+        boolean[] aceitas = new boolean[quantidade];
+        for (JsonNode sucesso : resposta.path("Successful")) {
+            aceitas[sucesso.path("Id").asInt()] = true;
+        }
+        return aceitas;
+    }
+
+    private JsonNode chamar(String acao, ObjectNode corpo, Duration tempoLimite) {
+        try {
+            byte[] conteudo = json.writeValueAsBytes(corpo);
+            HttpRequest.Builder requisicao = HttpRequest.newBuilder(endpoint)
+                    .timeout(tempoLimite)
+                    .header("Content-Type", TIPO_DE_CONTEUDO)
+                    .header("X-Amz-Target", "AmazonSQS." + acao)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(conteudo));
+            if (chaveDeAcesso != null && chaveSecreta != null) {
+                assinar(requisicao, acao, conteudo);
+            }
+            HttpResponse<byte[]> resposta = http.send(requisicao.build(), HttpResponse.BodyHandlers.ofByteArray());
+            JsonNode resultado = resposta.body().length == 0 ? json.createObjectNode() : json.readTree(resposta.body());
+            if (resposta.statusCode() != 200) {
+                // "__type" vem como "com.amazonaws.sqs#ReceiptHandleIsInvalid"
+                String tipo = resultado.path("__type").asText("HTTP " + resposta.statusCode());
+                throw new ErroSqs(tipo.substring(tipo.indexOf('#') + 1), resultado.path("message").asText());
+            }
+            return resultado;
+        } catch (IOException ex) {
+            throw new ErroSqs("Falha na chamada " + acao + " ao SQS", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ErroSqs("Chamada " + acao + " ao SQS interrompida", ex);
+        }
+    }
+
+    // AWS Signature Version 4 sobre os cabeçalhos content-type, host, x-amz-date e x-amz-target
+    private void assinar(HttpRequest.Builder requisicao, String acao, byte[] conteudo) {
+        String dataEHora = ZonedDateTime.now(ZoneOffset.UTC).format(DATA_E_HORA);
+        String data = dataEHora.substring(0, 8);
+        String cabecalhosAssinados = "content-type;host;x-amz-date;x-amz-target";
+        String requisicaoCanonica = "POST\n/\n\n"
+                + "content-type:" + TIPO_DE_CONTEUDO + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-date:" + dataEHora + "\n"
+                + "x-amz-target:AmazonSQS." + acao + "\n\n"
+                + cabecalhosAssinados + "\n"
+                + hex(sha256(conteudo));
+        String escopo = data + "/" + regiao + "/" + SERVICO + "/aws4_request";
+        String textoAAssinar = "AWS4-HMAC-SHA256\n" + dataEHora + "\n" + escopo + "\n"
+                + hex(sha256(requisicaoCanonica.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] chave = hmac(("AWS4" + chaveSecreta).getBytes(StandardCharsets.UTF_8), data);
+        chave = hmac(chave, regiao);
+        chave = hmac(chave, SERVICO);
+        chave = hmac(chave, "aws4_request");
+        String assinatura = hex(hmac(chave, textoAAssinar));
+
+        requisicao.header("X-Amz-Date", dataEHora);
+        requisicao.header("Authorization", "AWS4-HMAC-SHA256 Credential=" + chaveDeAcesso + "/" + escopo
+                + ", SignedHeaders=" + cabecalhosAssinados + ", Signature=" + assinatura);
+    }
+
+    private static byte[] sha256(byte[] dados) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(dados);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] hmac(byte[] chave, String dados) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(chave, "HmacSHA256"));
+            return mac.doFinal(dados.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String hex(byte[] dados) {
+        return HexFormat.of().formatHex(dados);
+    }
+}
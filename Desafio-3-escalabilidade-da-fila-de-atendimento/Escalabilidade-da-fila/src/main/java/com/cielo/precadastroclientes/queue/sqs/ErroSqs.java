@@ -0,0 +1,22 @@
+package com.cielo.precadastroclientes.queue.sqs;
+
+// Falha de uma chamada ao SQS: erro devolvido pelo serviço (com o código, por exemplo ReceiptHandleIsInvalid)
+// ou falha de comunicação (sem código)
+public class ErroSqs extends RuntimeException {
+
+    private final String codigo;
+
+    public ErroSqs(String codigo, String mensagem) {
+        super(codigo + ": " + mensagem);
+        this.codigo = codigo;
+    }
+
+    public ErroSqs(String mensagem, Throwable causa) {
+        super(mensagem, causa);
+        this.codigo = null;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+}
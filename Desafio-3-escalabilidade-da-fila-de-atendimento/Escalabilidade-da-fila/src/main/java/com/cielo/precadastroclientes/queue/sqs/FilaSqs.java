@@ -0,0 +1,417 @@
+package com.cielo.precadastroclientes.queue.sqs;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.QueueBackend;
+import com.cielo.precadastroclientes.queue.Recebimento;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+// Fila de atendimento guardada no Amazon SQS (fila.backend=SQS), compartilhada por todas as instâncias.
+//
+// Entradas: cada cadastro entrega o cliente a threads enviadoras e aguarda a confirmação do SQS. Cada
+// enviadora junta o que se acumulou enquanto o lote anterior estava em trânsito em um SendMessageBatch de
+// até 10 mensagens, então sob carga uma chamada leva vários clientes sem atrasar quem chega com a fila parada.
+//
+// Saídas: uma thread receptora mantém até fila.sqs-pre-busca mensagens já recebidas, buscando-as com
+// ReceiveMessage de até 10 mensagens e long polling. Os atendentes são servidos dessa reserva local, sem uma
+// chamada ao SQS por atendimento vazio. O prazo de visibilidade corre desde o recebimento pelo SQS, por isso
+// mensagens que ficaram tempo demais na reserva são devolvidas em vez de entregues.
+@Component
+@ConditionalOnProperty(prefix = "fila", name = "backend", havingValue = "SQS")
+public class FilaSqs implements QueueBackend {
+
+    // Tempo máximo que um cadastro espera a confirmação do envio
+    private static final long ESPERA_PELO_ENVIO_MS = 15000;
+
+    private final ClienteSqs cliente;
+    private final String urlDaFila;
+    // Somente com fila.sqs-embarcado
+    private final SqsEmbarcado embarcado;
+
+    private final long tempoDeVisibilidadeMs;
+    private final int visibilidadeSegundos;
+    private final long retryAfterSegundos;
+    private final int maximoPorLote;
+    private final int esperaDoLongPollingSegundos;
+
+    private final LinkedBlockingQueue<Envio> envios = new LinkedBlockingQueue<>();
+    private final List<Thread> enviadoras = new ArrayList<>();
+
+    private final LinkedBlockingQueue<MensagemSqs> preBuscadas = new LinkedBlockingQueue<>();
+    // Uma permissão por lugar livre na reserva; a receptora só pede ao SQS o que cabe nela
+    private final Semaphore lugaresNaPreBusca;
+    private final Thread receptora;
+
+    private volatile boolean encerrada;
+
+    public FilaSqs(FilaProperties properties) {
+        if (properties.isSqsEmbarcado()) {
+            this.embarcado = new SqsEmbarcado(0);
+            this.cliente = new ClienteSqs(embarcado.getEndpoint(), properties.getSqsRegiao(), null, null);
+        } else {
+            this.embarcado = null;
+            this.cliente = new ClienteSqs(URI.create(properties.getSqsEndpoint()), properties.getSqsRegiao(),
+                    properties.getSqsChaveDeAcesso(), properties.getSqsChaveSecreta());
+        }
+        this.urlDaFila = cliente.criarFila(properties.getSqsNomeDaFila());
+
+        this.tempoDeVisibilidadeMs = properties.getTempoDeVisibilidadeMs();
+        this.visibilidadeSegundos = (int) Math.max(1, tempoDeVisibilidadeMs / 1000);
+        this.retryAfterSegundos = properties.getRetryAfterSegundos();
+        this.maximoPorLote = properties.getMaximoPorLote();
+        this.esperaDoLongPollingSegundos = Math.min(properties.getSqsEsperaDoLongPollingSegundos(), 20);
+        this.lugaresNaPreBusca = new Semaphore(properties.getSqsPreBusca());
+
+        for (int i = 0; i < properties.getSqsEnviosSimultaneos(); i++) {
+            Thread enviadora = new Thread(this::enviarLotes, "fila-sqs-envio-" + i);
+            enviadora.setDaemon(true);
+            enviadoras.add(enviadora);
+            enviadora.start();
+        }
+        this.receptora = new Thread(this::receberLotes, "fila-sqs-recebimento");
+        receptora.setDaemon(true);
+        receptora.start();
+    }
+
+    // Retorna true depois que o SQS confirmou o envio. Se a confirmação não chegar a tempo o resultado é
+    // false, mas o cliente ainda pode ter entrado na fila (entrega ao menos uma vez).
+    @Override
+    public boolean adicionarClienteNaFila(String cliente) {
+        if (encerrada) {
+            return false;
+        }
+        Envio envio = new Envio(cliente);
+        envios.offer(envio);
+        try {
+            return envio.resultado.get(ESPERA_PELO_ENVIO_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException ex) {
+            return false;
+        }
+    }
+
+    // Todos os clientes vão de uma vez para as enviadoras, que os juntam em SendMessageBatch de até 10, e só
+    // então as confirmações são aguardadas. Um cliente não confirmado a tempo encerra a contagem, mas os
+    // seguintes ainda podem ter entrado na fila (entrega ao menos uma vez).
+    @Override
+    public int adicionarClientesNaFila(List<String> clientes, List<String> mccs) {
+        if (encerrada) {
+            return 0;
+        }
+        List<Envio> lote = new ArrayList<>(clientes.size());
+        for (String cliente : clientes) {
+            lote.add(new Envio(cliente));
+        }
+        envios.addAll(lote);
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ESPERA_PELO_ENVIO_MS);
+        for (int i = 0; i < lote.size(); i++) {
+            try {
+                if (!lote.get(i).resultado.get(Math.max(0, prazo - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    return i;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return i;
+            } catch (ExecutionException | TimeoutException ex) {
+                return i;
+            }
+        }
+        return lote.size();
+    }
+
+    private void enviarLotes() {
+        List<Envio> lote = new ArrayList<>(ClienteSqs.MAXIMO_POR_LOTE);
+        List<String> corpos = new ArrayList<>(ClienteSqs.MAXIMO_POR_LOTE);
+        while (!encerrada) {
+            try {
+                Envio primeiro = envios.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                envios.drainTo(lote, ClienteSqs.MAXIMO_POR_LOTE - 1);
+                for (Envio envio : lote) {
+                    corpos.add(envio.cliente);
+                }
+                boolean[] aceitas = cliente.enviarLote(urlDaFila, corpos);
+                for (int i = 0; i < lote.size(); i++) {
+                    lote.get(i).resultado.complete(aceitas[i]);
+                }
+            } catch (InterruptedException ex) {
+                break;
+            } catch (RuntimeException ex) {
+                for (Envio envio : lote) {
+                    envio.resultado.complete(false);
+                }
+            } finally {
+                lote.clear();
+                corpos.clear();
+            }
+        }
+    }
+
+    private void receberLotes() {
+        while (!encerrada) {
+            int lugares = 0;
+            try {
+                lugaresNaPreBusca.acquire();
+                lugares = 1 + drenarLugares(ClienteSqs.MAXIMO_POR_LOTE - 1);
+                List<MensagemSqs> mensagens = cliente.receber(urlDaFila, lugares, esperaDoLongPollingSegundos, visibilidadeSegundos);
+                preBuscadas.addAll(mensagens);
+                lugares -= mensagens.size();
+            } catch (InterruptedException ex) {
+                break;
+            } catch (RuntimeException ex) {
+                // SQS indisponível: tenta de novo sem martelar o serviço
+                pausar();
+            } finally {
+                lugaresNaPreBusca.release(lugares);
+            }
+        }
+    }
+
+    private int drenarLugares(int maximo) {
+        int obtidos = 0;
+        while (obtidos < maximo && lugaresNaPreBusca.tryAcquire()) {
+            obtidos++;
+        }
+        return obtidos;
+    }
+
+    private void pausar() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Próxima mensagem da reserva que ainda tem pelo menos metade do prazo de visibilidade pela frente
+    private MensagemSqs proximaMensagem() {
+        MensagemSqs mensagem;
+        while ((mensagem = preBuscadas.poll()) != null) {
+            lugaresNaPreBusca.release();
+            if (System.nanoTime() / 1_000_000 - mensagem.getRecebidaEmMs() < tempoDeVisibilidadeMs / 2) {
+                return mensagem;
+            }
+            devolverAoSqs(mensagem.getRecibo());
+        }
+        return null;
+    }
+
+    @Override
+    public String poll() {
+        MensagemSqs mensagem;
+        while ((mensagem = proximaMensagem()) != null) {
+            try {
+                cliente.apagar(urlDaFila, mensagem.getRecibo());
+                return mensagem.getCorpo();
+            } catch (ErroSqs ex) {
+                if (ex.getCodigo() == null) {
+                    throw ex;
+                }
+                // Recibo vencido: a mensagem já voltou para a fila e será entregue de novo
+            }
+        }
+        return null;
+    }
+
+    // Retira da reserva local; não espera o SQS para completar a quantidade pedida
+    @Override
+    public List<String> retirarClientes(int quantidade) {
+        int limite = Math.min(quantidade, maximoPorLote);
+        List<String> clientes = new ArrayList<>(Math.min(limite, 1024));
+        List<MensagemSqs> lote = new ArrayList<>(ClienteSqs.MAXIMO_POR_LOTE);
+        List<String> recibos = new ArrayList<>(ClienteSqs.MAXIMO_POR_LOTE);
+        MensagemSqs mensagem;
+        while (clientes.size() + lote.size() < limite && (mensagem = proximaMensagem()) != null) {
+            lote.add(mensagem);
+            recibos.add(mensagem.getRecibo());
+            if (lote.size() == ClienteSqs.MAXIMO_POR_LOTE) {
+                apagarLote(lote, recibos, clientes);
+            }
+        }
+        if (!lote.isEmpty()) {
+            apagarLote(lote, recibos, clientes);
+        }
+        return clientes;
+    }
+
+    private void apagarLote(List<MensagemSqs> lote, List<String> recibos, List<String> clientes) {
+        boolean[] apagadas = cliente.apagarLote(urlDaFila, recibos);
+        for (int i = 0; i < lote.size(); i++) {
+            if (apagadas[i]) {
+                clientes.add(lote.get(i).getCorpo());
+            }
+        }
+        lote.clear();
+        recibos.clear();
+    }
+
+    @Override
+    public Recebimento receber() {
+        MensagemSqs mensagem = proximaMensagem();
+        if (mensagem == null) {
+            return null;
+        }
+        return new Recebimento(codificar(mensagem.getRecibo()), mensagem.getCorpo(), mensagem.getRecebimentos());
+    }
+
+    @Override
+    public boolean confirmar(String recibo) {
+        String reciboDoSqs = decodificar(recibo);
+        if (reciboDoSqs == null) {
+            return false;
+        }
+        try {
+            cliente.apagar(urlDaFila, reciboDoSqs);
+            return true;
+        } catch (ErroSqs ex) {
+            if (ex.getCodigo() == null) {
+                throw ex;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public boolean devolver(String recibo) {
+        String reciboDoSqs = decodificar(recibo);
+        if (reciboDoSqs == null) {
+            return false;
+        }
+        try {
+            cliente.alterarVisibilidade(urlDaFila, reciboDoSqs, 0);
+            return true;
+        } catch (ErroSqs ex) {
+            if (ex.getCodigo() == null) {
+                throw ex;
+            }
+            return false;
+        }
+    }
+
+    // Melhor esforço: se falhar, a mensagem volta sozinha quando o prazo de visibilidade vencer
+    private void devolverAoSqs(String recibo) {
+        try {
+            cliente.alterarVisibilidade(urlDaFila, recibo, 0);
+        } catch (ErroSqs ex) {
+            // ignorado
+        }
+    }
+
+    // O recibo do SQS pode conter "/", "+" e "=", que não cabem em /fila/atendimento/confirmar/{recibo}
+    private static String codificar(String reciboDoSqs) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(reciboDoSqs.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodificar(String recibo) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(recibo), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean filaVazia() {
+        return getTamanho() == 0;
+    }
+
+    @Override
+    public String[] obterConteudoDaFila() {
+        throw new UnsupportedOperationException("O SQS não permite listar as mensagens da fila");
+    }
+
+    @Override
+    public long percorrerConteudo(long cursor, Predicate<String> visitante) {
+        throw new UnsupportedOperationException("O SQS não permite listar as mensagens da fila");
+    }
+
+    @Override
+    public long posicaoNaFila(String cliente) {
+        throw new UnsupportedOperationException("O SQS não permite consultar a posição de uma mensagem na fila");
+    }
+
+    // O DelaySeconds do SQS vai até 15 minutos, curto demais para os retornos agendados
+    @Override
+    public boolean agendarClienteNaFila(String cliente, String mcc, long naoAntesDeMs) {
+        throw new UnsupportedOperationException("O SQS não agenda entradas com prazo de horas ou dias");
+    }
+
+    @Override
+    public boolean suportaAgendamento() {
+        return false;
+    }
+
+    @Override
+    public boolean removerClienteDaFila(String cliente) {
+        throw new UnsupportedOperationException("O SQS só permite apagar uma mensagem já recebida");
+    }
+
+    // Aproximado: mensagens visíveis no SQS mais as que aguardam na reserva local
+    @Override
+    public int getTamanho() {
+        return cliente.contarMensagens(urlDaFila) + preBuscadas.size();
+    }
+
+    @Override
+    public long getTempoDeVisibilidadeMs() {
+        return tempoDeVisibilidadeMs;
+    }
+
+    @Override
+    public long getRetryAfterSegundos() {
+        return retryAfterSegundos;
+    }
+
+    @Override
+    @PreDestroy
+    public void encerrar() {
+        if (encerrada) {
+            return;
+        }
+        encerrada = true;
+        receptora.interrupt();
+        for (Thread enviadora : enviadoras) {
+            enviadora.interrupt();
+        }
+        Envio envio;
+        while ((envio = envios.poll()) != null) {
+            envio.resultado.complete(false);
+        }
+        // Mensagens da reserva voltam para a fila já, sem esperar o prazo de visibilidade
+        MensagemSqs mensagem;
+        while ((mensagem = preBuscadas.poll()) != null) {
+            devolverAoSqs(mensagem.getRecibo());
+        }
+        if (embarcado != null) {
+            embarcado.encerrar();
+        }
+    }
+
+    private static final class Envio {
+        final String cliente;
+        final CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+
+        Envio(String cliente) {
+            this.cliente = cliente;
+        }
+    }
+}
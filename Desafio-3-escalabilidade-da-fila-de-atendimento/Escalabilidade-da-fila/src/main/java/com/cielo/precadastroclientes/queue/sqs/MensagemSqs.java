@@ -0,0 +1,41 @@
+package com.cielo.precadastroclientes.queue.sqs;
+
+// Mensagem devolvida por ReceiveMessage. O recibo (ReceiptHandle) vale apenas para esta entrega:
+// é ele que apaga a mensagem ou altera sua visibilidade.
+public final class MensagemSqs {
+
+    private final String id;
+    private final String recibo;
+    private final String corpo;
+    private final int recebimentos;
+    private final long recebidaEmMs;
+
+    public MensagemSqs(String id, String recibo, String corpo, int recebimentos, long recebidaEmMs) {
+        this.id = id;
+        this.recibo = recibo;
+        this.corpo = corpo;
+        this.recebimentos = recebimentos;
+        this.recebidaEmMs = recebidaEmMs;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRecibo() {
+        return recibo;
+    }
+
+    public String getCorpo() {
+        return corpo;
+    }
+
+    // ApproximateReceiveCount: 1 na primeira entrega
+    public int getRecebimentos() {
+        return recebimentos;
+    }
+
+    public long getRecebidaEmMs() {
+        return recebidaEmMs;
+    }
+}
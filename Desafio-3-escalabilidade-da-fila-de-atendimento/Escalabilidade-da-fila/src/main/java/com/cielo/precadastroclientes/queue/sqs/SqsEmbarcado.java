@@ -0,0 +1,377 @@
+package com.cielo.precadastroclientes.queue.sqs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Substituto local do Amazon SQS: um servidor HTTP dentro do processo que fala o mesmo protocolo JSON
+// das ações usadas pela FilaSqs (CreateQueue, GetQueueUrl, SendMessage, SendMessageBatch, ReceiveMessage
+// com long polling, DeleteMessage, DeleteMessageBatch, ChangeMessageVisibility e GetQueueAttributes).
+// Serve para testar e medir a FilaSqs sem rede nem conta na AWS; não verifica assinaturas nem persiste nada.
+public class SqsEmbarcado {
+
+    private static final String CONTA = "000000000000";
+    private static final int VISIBILIDADE_PADRAO_SEGUNDOS = 30;
+    private static final int ESPERA_MAXIMA_SEGUNDOS = 20;
+
+    private final HttpServer servidor;
+    // Cada ReceiveMessage com long polling ocupa uma thread enquanto espera
+    private final ExecutorService threads;
+    private final URI endpoint;
+    private final Map<String, FilaLocal> filas = new ConcurrentHashMap<>();
+    private final ObjectMapper json = new ObjectMapper();
+
+    // Com porta 0 o sistema escolhe uma porta livre; o endereço fica em getEndpoint()
+    public SqsEmbarcado(int porta) {
+        try {
+            InetAddress local = InetAddress.getLoopbackAddress();
+            this.servidor = HttpServer.create(new InetSocketAddress(local, porta), 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Não foi possível iniciar o SQS embarcado", ex);
+        }
+        this.threads = Executors.newCachedThreadPool(tarefa -> {
+            Thread thread = new Thread(tarefa, "sqs-embarcado");
+            thread.setDaemon(true);
+            return thread;
+        });
+        servidor.setExecutor(threads);
+        servidor.createContext("/", this::atender);
+        servidor.start();
+        this.endpoint = URI.create("http://" + servidor.getAddress().getHostString() + ":" + servidor.getAddress().getPort());
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    public void encerrar() {
+        servidor.stop(0);
+        threads.shutdownNow();
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            String alvo = troca.getRequestHeaders().getFirst("X-Amz-Target");
+            if (!"POST".equals(troca.getRequestMethod()) || alvo == null || !alvo.startsWith("AmazonSQS.")) {
+                responder(troca, 400, erro("InvalidAction", "Apenas o protocolo JSON (X-Amz-Target) é suportado"));
+                return;
+            }
+            JsonNode requisicao;
+            try (InputStream corpo = troca.getRequestBody()) {
+                requisicao = json.readTree(corpo.readAllBytes());
+            }
+            ObjectNode resposta;
+            try {
+                resposta = executar(alvo.substring("AmazonSQS.".length()), requisicao);
+            } catch (ErroSqs ex) {
+                responder(troca, 400, erro(ex.getCodigo(), ex.getMessage()));
+                return;
+            }
+            responder(troca, 200, resposta);
+        }
+    }
+
+    private ObjectNode executar(String acao, JsonNode requisicao) {
+        ObjectNode resposta = json.createObjectNode();
+        switch (acao) {
+            case "CreateQueue": {
+                String nome = requisicao.path("QueueName").asText();
+                int visibilidade = requisicao.path("Attributes").path("VisibilityTimeout").asInt(VISIBILIDADE_PADRAO_SEGUNDOS);
+                filas.computeIfAbsent(nome, chave -> new FilaLocal(visibilidade * 1000L));
+                return resposta.put("QueueUrl", urlDaFila(nome));
+            }
+            case "GetQueueUrl": {
+                String nome = requisicao.path("QueueName").asText();
+                if (!filas.containsKey(nome)) {
+                    throw new ErroSqs("QueueDoesNotExist", "A fila " + nome + " não existe");
+                }
+                return resposta.put("QueueUrl", urlDaFila(nome));
+            }
+            case "SendMessage": {
+                String corpo = requisicao.path("MessageBody").asText();
+                String id = fila(requisicao).enviar(corpo);
+                return resposta.put("MessageId", id).put("MD5OfMessageBody", md5(corpo));
+            }
+            case "SendMessageBatch": {
+                FilaLocal fila = fila(requisicao);
+                JsonNode entradas = lote(requisicao);
+                ArrayNode sucessos = resposta.putArray("Successful");
+                resposta.putArray("Failed");
+                for (JsonNode entrada : entradas) {
+                    String corpo = entrada.path("MessageBody").asText();
+                    sucessos.addObject()
+                            .put("Id", entrada.path("Id").asText())
+                            .put("MessageId", fila.enviar(corpo))
+                            .put("MD5OfMessageBody", md5(corpo));
+                }
+                return resposta;
+            }
+            case "ReceiveMessage": {
+                int maximo = requisicao.path("MaxNumberOfMessages").asInt(1);
+                int espera = requisicao.path("WaitTimeSeconds").asInt(0);
+                if (maximo < 1 || maximo > ClienteSqs.MAXIMO_POR_LOTE || espera < 0 || espera > ESPERA_MAXIMA_SEGUNDOS) {
+                    throw new ErroSqs("InvalidParameterValue", "MaxNumberOfMessages deve estar entre 1 e 10 e WaitTimeSeconds entre 0 e 20");
+                }
+                FilaLocal fila = fila(requisicao);
+                long visibilidadeMs = requisicao.has("VisibilityTimeout")
+                        ? requisicao.path("VisibilityTimeout").asLong() * 1000
+                        : fila.visibilidadePadraoMs;
+                ArrayNode mensagens = resposta.putArray("Messages");
+                try {
+                    for (Mensagem mensagem : fila.receber(maximo, espera * 1000L, visibilidadeMs)) {
+                        ObjectNode item = mensagens.addObject()
+                                .put("MessageId", mensagem.id)
+                                .put("ReceiptHandle", mensagem.recibo)
+                                .put("MD5OfBody", md5(mensagem.corpo))
+                                .put("Body", mensagem.corpo);
+                        item.putObject("Attributes").put("ApproximateReceiveCount", String.valueOf(mensagem.recebimentos));
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return resposta;
+            }
+            case "DeleteMessage": {
+                if (!fila(requisicao).apagar(requisicao.path("ReceiptHandle").asText())) {
+                    throw new ErroSqs("ReceiptHandleIsInvalid", "Recibo inválido ou vencido");
+                }
+                return resposta;
+            }
+            case "DeleteMessageBatch": {
+                FilaLocal fila = fila(requisicao);
+                ArrayNode sucessos = resposta.putArray("Successful");
+                ArrayNode falhas = resposta.putArray("Failed");
+                for (JsonNode entrada : lote(requisicao)) {
+                    String id = entrada.path("Id").asText();
+                    if (fila.apagar(entrada.path("ReceiptHandle").asText())) {
+                        sucessos.addObject().put("Id", id);
+                    } else {
+                        falhas.addObject().put("Id", id).put("SenderFault", true)
+                                .put("Code", "ReceiptHandleIsInvalid").put("Message", "Recibo inválido ou vencido");
+                    }
+                }
+                return resposta;
+            }
+            case "ChangeMessageVisibility": {
+                long visibilidadeMs = requisicao.path("VisibilityTimeout").asLong() * 1000;
+                if (!fila(requisicao).alterarVisibilidade(requisicao.path("ReceiptHandle").asText(), visibilidadeMs)) {
+                    throw new ErroSqs("MessageNotInflight", "A mensagem não está em processamento");
+                }
+                return resposta;
+            }
+            case "GetQueueAttributes": {
+                FilaLocal fila = fila(requisicao);
+                ObjectNode atributos = resposta.putObject("Attributes");
+                int[] quantidades = fila.contar();
+                atributos.put("ApproximateNumberOfMessages", String.valueOf(quantidades[0]));
+                atributos.put("ApproximateNumberOfMessagesNotVisible", String.valueOf(quantidades[1]));
+                return resposta;
+            }
+            default:
+                throw new ErroSqs("InvalidAction", "Ação não suportada pelo SQS embarcado: " + acao);
+        }
+    }
+
+    private String urlDaFila(String nome) {
+        return endpoint + "/" + CONTA + "/" + nome;
+    }
+
+    private FilaLocal fila(JsonNode requisicao) {
+        String url = requisicao.path("QueueUrl").asText();
+        FilaLocal fila = filas.get(url.substring(url.lastIndexOf('/') + 1));
+        if (fila == null) {
+            throw new ErroSqs("QueueDoesNotExist", "A fila " + url + " não existe");
+        }
+        return fila;
+    }
+
+    private static JsonNode lote(JsonNode requisicao) {
+        JsonNode entradas = requisicao.path("Entries");
+        if (entradas.size() == 0) {
+            throw new ErroSqs("EmptyBatchRequest", "O lote não tem entradas");
+        }
+        if (entradas.size() > ClienteSqs.MAXIMO_POR_LOTE) {
+            throw new ErroSqs("TooManyEntriesInBatchRequest", "O lote tem mais de 10 entradas");
+        }
+        return entradas;
+    }
+
+    private ObjectNode erro(String codigo, String mensagem) {
+        return json.createObjectNode().put("__type", "com.amazonaws.sqs#" + codigo).put("message", mensagem);
+    }
+
+    private void responder(HttpExchange troca, int status, ObjectNode corpo) throws IOException {
+        byte[] bytes = json.writeValueAsBytes(corpo);
+        troca.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.0");
+        troca.sendResponseHeaders(status, bytes.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(bytes);
+        }
+    }
+
+    private static String md5(String corpo) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(corpo.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static long agoraMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    private static final class Mensagem {
+        final String id;
+        final String corpo;
+        int recebimentos;
+        // Recibo da entrega atual; null enquanto a mensagem está visível
+        String recibo;
+        // Incrementada a cada mudança de visibilidade: prazos antigos na fila de prazos são ignorados
+        long versao;
+
+        Mensagem(String id, String corpo) {
+            this.id = id;
+            this.corpo = corpo;
+        }
+    }
+
+    private static final class Prazo {
+        final Mensagem mensagem;
+        final long versao;
+        final long visivelEmMs;
+
+        Prazo(Mensagem mensagem, long visivelEmMs) {
+            this.mensagem = mensagem;
+            this.versao = mensagem.versao;
+            this.visivelEmMs = visivelEmMs;
+        }
+    }
+
+    // Uma fila: mensagens visíveis na ordem de chegada e mensagens em processamento com seus prazos.
+    // Os long pollings esperam no monitor da fila.
+    private static final class FilaLocal {
+        final long visibilidadePadraoMs;
+        final ArrayDeque<Mensagem> visiveis = new ArrayDeque<>();
+        final Map<String, Mensagem> emProcessamento = new HashMap<>();
+        final PriorityQueue<Prazo> prazos = new PriorityQueue<>((a, b) -> Long.compare(a.visivelEmMs, b.visivelEmMs));
+
+        FilaLocal(long visibilidadePadraoMs) {
+            this.visibilidadePadraoMs = visibilidadePadraoMs;
+        }
+
+        synchronized String enviar(String corpo) {
+            Mensagem mensagem = new Mensagem(UUID.randomUUID().toString(), corpo);
+            visiveis.addLast(mensagem);
+            notifyAll();
+            return mensagem.id;
+        }
+
+        synchronized List<Mensagem> receber(int maximo, long esperaMs, long visibilidadeMs) throws InterruptedException {
+            long prazoDaEspera = agoraMs() + esperaMs;
+            tornarVisiveis(agoraMs());
+            while (visiveis.isEmpty()) {
+                long agora = agoraMs();
+                long restante = prazoDaEspera - agora;
+                if (restante <= 0) {
+                    return List.of();
+                }
+                // Acorda também quando a próxima mensagem em processamento vencer
+                Prazo proximo = prazos.peek();
+                if (proximo != null) {
+                    restante = Math.min(restante, Math.max(1, proximo.visivelEmMs - agora));
+                }
+                TimeUnit.MILLISECONDS.timedWait(this, restante);
+                tornarVisiveis(agoraMs());
+            }
+            long agora = agoraMs();
+            List<Mensagem> entregues = new ArrayList<>(Math.min(maximo, visiveis.size()));
+            while (entregues.size() < maximo && !visiveis.isEmpty()) {
+                Mensagem mensagem = visiveis.pollFirst();
+                mensagem.recebimentos++;
+                mensagem.recibo = UUID.randomUUID() + "/" + mensagem.id;
+                mensagem.versao++;
+                emProcessamento.put(mensagem.recibo, mensagem);
+                prazos.add(new Prazo(mensagem, agora + visibilidadeMs));
+                entregues.add(mensagem);
+            }
+            return entregues;
+        }
+
+        synchronized boolean apagar(String recibo) {
+            tornarVisiveis(agoraMs());
+            Mensagem mensagem = emProcessamento.remove(recibo);
+            if (mensagem == null) {
+                return false;
+            }
+            // O prazo pendente fica obsoleto e é ignorado quando vencer
+            mensagem.versao++;
+            return true;
+        }
+
+        synchronized boolean alterarVisibilidade(String recibo, long visibilidadeMs) {
+            tornarVisiveis(agoraMs());
+            Mensagem mensagem = emProcessamento.get(recibo);
+            if (mensagem == null) {
+                return false;
+            }
+            mensagem.versao++;
+            prazos.add(new Prazo(mensagem, agoraMs() + visibilidadeMs));
+            if (visibilidadeMs == 0) {
+                tornarVisiveis(agoraMs());
+            }
+            return true;
+        }
+
+        synchronized int[] contar() {
+            tornarVisiveis(agoraMs());
+            return new int[]{visiveis.size(), emProcessamento.size()};
+        }
+
+        // Mensagens cujo prazo venceu voltam para a frente da fila e o recibo anterior deixa de valer
+        private void tornarVisiveis(long agora) {
+            boolean houveMensagens = false;
+            while (!prazos.isEmpty() && prazos.peek().visivelEmMs <= agora) {
+                Prazo prazo = prazos.poll();
+                Mensagem mensagem = prazo.mensagem;
+                if (prazo.versao != mensagem.versao) {
+                    continue;
+                }
+                emProcessamento.remove(mensagem.recibo);
+                mensagem.recibo = null;
+                mensagem.versao++;
+                visiveis.addFirst(mensagem);
+                houveMensagens = true;
+            }
+            if (houveMensagens) {
+                notifyAll();
+            }
+        }
+    }
+}
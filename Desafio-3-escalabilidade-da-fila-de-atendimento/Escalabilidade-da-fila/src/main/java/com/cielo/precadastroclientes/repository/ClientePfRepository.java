@@ -1,13 +1,62 @@
 package com.cielo.precadastroclientes.repository;
 
+import com.cielo.precadastroclientes.DTO.ClientePfResumoDTO;
 import com.cielo.precadastroclientes.model.ClientePf;
 import com.cielo.precadastroclientes.model.ClientePj;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface ClientePfRepository extends JpaRepository<ClientePf, Long> {
-    boolean existsByCpf(String cnpj);
-    @Transactional
-    void deleteByCpf(String cnpj);
+import java.util.Collection;
+import java.util.List;
+
+public interface ClientePfRepository extends JpaRepository<ClientePf, Long>, ExclusaoDeClientePf {
     ClientePf findByCpf(String cnpj);
+    List<ClientePf> findAllByCpfIn(Collection<String> cpfs);
+
+    // Página da listagem a partir do id seguinte a "depoisDe" (keyset), já projetada no DTO. Filtros null
+    // não se aplicam; o prefixo do nome chega com os curingas escapados e o % final. Uma consulta por
+    // combinação de filtros, em vez de "(:mcc IS NULL OR c.mcc = :mcc)": com o filtro de MCC a condição fica
+    // "c.mcc = :mcc AND c.id > :depoisDe" e o banco percorre só a faixa do MCC no índice idx_cliente_pf_mcc_id.
+    default List<ClientePfResumoDTO> listarPagina(long depoisDe, String mcc, String prefixoDoNome, Pageable limite) {
+        if (mcc == null) {
+            return prefixoDoNome == null ? listarPagina(depoisDe, limite)
+                    : listarPaginaPorPrefixoDoNome(depoisDe, prefixoDoNome, limite);
+        }
+        return prefixoDoNome == null ? listarPaginaPorMcc(depoisDe, mcc, limite)
+                : listarPaginaPorMccEPrefixoDoNome(depoisDe, mcc, prefixoDoNome, limite);
+    }
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePfResumoDTO(c.id, c.cpf, c.mcc, c.nome, c.email) "
+            + "FROM ClientePf c WHERE c.id > :depoisDe ORDER BY c.id")
+    List<ClientePfResumoDTO> listarPagina(@Param("depoisDe") long depoisDe, Pageable limite);
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePfResumoDTO(c.id, c.cpf, c.mcc, c.nome, c.email) "
+            + "FROM ClientePf c WHERE c.mcc = :mcc AND c.id > :depoisDe ORDER BY c.id")
+    List<ClientePfResumoDTO> listarPaginaPorMcc(@Param("depoisDe") long depoisDe, @Param("mcc") String mcc, Pageable limite);
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePfResumoDTO(c.id, c.cpf, c.mcc, c.nome, c.email) "
+            + "FROM ClientePf c WHERE c.id > :depoisDe AND c.nome LIKE :prefixoDoNome ESCAPE '\\' ORDER BY c.id")
+    List<ClientePfResumoDTO> listarPaginaPorPrefixoDoNome(@Param("depoisDe") long depoisDe,
+                                                          @Param("prefixoDoNome") String prefixoDoNome, Pageable limite);
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePfResumoDTO(c.id, c.cpf, c.mcc, c.nome, c.email) "
+            + "FROM ClientePf c WHERE c.mcc = :mcc AND c.id > :depoisDe AND c.nome LIKE :prefixoDoNome ESCAPE '\\' "
+            + "ORDER BY c.id")
+    List<ClientePfResumoDTO> listarPaginaPorMccEPrefixoDoNome(@Param("depoisDe") long depoisDe, @Param("mcc") String mcc,
+                                                              @Param("prefixoDoNome") String prefixoDoNome, Pageable limite);
+
+    // Cadastro em um único comando: o CPF repetido é recusado pela restrição uk_cliente_pf_cpf
+    @Modifying
+    @Query(value = "INSERT INTO cliente_pf (cpf, mcc, nome, email) "
+            + "VALUES (:#{#cliente.cpf}, :#{#cliente.mcc}, :#{#cliente.nome}, :#{#cliente.email})", nativeQuery = true)
+    int inserir(@Param("cliente") ClientePf cliente);
+
+    // Atualização em um único comando, sem carregar a entidade; retorna 0 se o CPF não está cadastrado
+    @Modifying
+    @Query(value = "UPDATE cliente_pf SET mcc = :#{#cliente.mcc}, nome = :#{#cliente.nome}, email = :#{#cliente.email} "
+            + "WHERE cpf = :#{#cliente.cpf}", nativeQuery = true)
+    int atualizar(@Param("cliente") ClientePf cliente);
 }
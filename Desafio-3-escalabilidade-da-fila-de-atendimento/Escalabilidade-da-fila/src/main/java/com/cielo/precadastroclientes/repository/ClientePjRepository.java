@@ -1,14 +1,71 @@
 package com.cielo.precadastroclientes.repository;
 
+import com.cielo.precadastroclientes.DTO.ClientePjResumoDTO;
 import com.cielo.precadastroclientes.model.ClientePj;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface ClientePjRepository extends JpaRepository<ClientePj, Long> {
-    boolean existsByCnpj(String cnpj);
-    @Transactional
-    void deleteByCnpj(String cnpj);
+public interface ClientePjRepository extends JpaRepository<ClientePj, Long>, ExclusaoDeClientePj {
     ClientePj findByCnpj(String cnpj);
+    List<ClientePj> findAllByCnpjIn(Collection<String> cnpjs);
+
+    // Página da listagem a partir do id seguinte a "depoisDe" (keyset), já projetada no DTO. Filtros null
+    // não se aplicam; o prefixo da razão social chega com os curingas escapados e o % final. Uma consulta por
+    // combinação de filtros, como em ClientePfRepository, para o filtro de MCC usar o índice idx_cliente_pj_mcc_id.
+    default List<ClientePjResumoDTO> listarPagina(long depoisDe, String mcc, String prefixoDaRazaoSocial, Pageable limite) {
+        if (mcc == null) {
+            return prefixoDaRazaoSocial == null ? listarPagina(depoisDe, limite)
+                    : listarPaginaPorPrefixoDaRazaoSocial(depoisDe, prefixoDaRazaoSocial, limite);
+        }
+        return prefixoDaRazaoSocial == null ? listarPaginaPorMcc(depoisDe, mcc, limite)
+                : listarPaginaPorMccEPrefixoDaRazaoSocial(depoisDe, mcc, prefixoDaRazaoSocial, limite);
+    }
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePjResumoDTO(c.id, c.cnpj, c.razaoSocial, c.mcc, "
+            + "c.cpfContatoEstabelecimento, c.nomeContatoEstabelecimento, c.email) "
+            + "FROM ClientePj c WHERE c.id > :depoisDe ORDER BY c.id")
+    List<ClientePjResumoDTO> listarPagina(@Param("depoisDe") long depoisDe, Pageable limite);
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePjResumoDTO(c.id, c.cnpj, c.razaoSocial, c.mcc, "
+            + "c.cpfContatoEstabelecimento, c.nomeContatoEstabelecimento, c.email) "
+            + "FROM ClientePj c WHERE c.mcc = :mcc AND c.id > :depoisDe ORDER BY c.id")
+    List<ClientePjResumoDTO> listarPaginaPorMcc(@Param("depoisDe") long depoisDe, @Param("mcc") String mcc, Pageable limite);
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePjResumoDTO(c.id, c.cnpj, c.razaoSocial, c.mcc, "
+            + "c.cpfContatoEstabelecimento, c.nomeContatoEstabelecimento, c.email) "
+            + "FROM ClientePj c WHERE c.id > :depoisDe AND c.razaoSocial LIKE :prefixoDaRazaoSocial ESCAPE '\\' ORDER BY c.id")
+    List<ClientePjResumoDTO> listarPaginaPorPrefixoDaRazaoSocial(@Param("depoisDe") long depoisDe,
+                                                                 @Param("prefixoDaRazaoSocial") String prefixoDaRazaoSocial,
+                                                                 Pageable limite);
+
+    @Query("SELECT new com.cielo.precadastroclientes.DTO.ClientePjResumoDTO(c.id, c.cnpj, c.razaoSocial, c.mcc, "
+            + "c.cpfContatoEstabelecimento, c.nomeContatoEstabelecimento, c.email) "
+            + "FROM ClientePj c WHERE c.mcc = :mcc AND c.id > :depoisDe "
+            + "AND c.razaoSocial LIKE :prefixoDaRazaoSocial ESCAPE '\\' ORDER BY c.id")
+    List<ClientePjResumoDTO> listarPaginaPorMccEPrefixoDaRazaoSocial(@Param("depoisDe") long depoisDe, @Param("mcc") String mcc,
+                                                                     @Param("prefixoDaRazaoSocial") String prefixoDaRazaoSocial,
+                                                                     Pageable limite);
+
+    // Cadastro em um único comando: o CNPJ repetido é recusado pela restrição uk_cliente_pj_cnpj
+    @Modifying
+    @Query(value = "INSERT INTO cliente_pj (cnpj, razao_social, mcc, cpf_contato_estabelecimento, nome_contato_estabelecimento, email) "
+            + "VALUES (:#{#cliente.cnpj}, :#{#cliente.razaoSocial}, :#{#cliente.mcc}, :#{#cliente.cpfContatoEstabelecimento}, "
+            + ":#{#cliente.nomeContatoEstabelecimento}, :#{#cliente.email})", nativeQuery = true)
+    int inserir(@Param("cliente") ClientePj cliente);
+
+    // Atualização em um único comando, sem carregar a entidade; retorna 0 se o CNPJ não está cadastrado
+    @Modifying
+    @Query(value = "UPDATE cliente_pj SET razao_social = :#{#cliente.razaoSocial}, mcc = :#{#cliente.mcc}, "
+            + "cpf_contato_estabelecimento = :#{#cliente.cpfContatoEstabelecimento}, "
+            + "nome_contato_estabelecimento = :#{#cliente.nomeContatoEstabelecimento}, email = :#{#cliente.email} "
+            + "WHERE cnpj = :#{#cliente.cnpj}", nativeQuery = true)
+    int atualizar(@Param("cliente") ClientePj cliente);
 }
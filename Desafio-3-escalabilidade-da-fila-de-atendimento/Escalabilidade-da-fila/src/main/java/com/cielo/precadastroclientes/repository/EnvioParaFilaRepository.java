@@ -0,0 +1,25 @@
+package com.cielo.precadastroclientes.repository;
+
+import com.cielo.precadastroclientes.model.EnvioParaFila;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface EnvioParaFilaRepository extends JpaRepository<EnvioParaFila, Long> {
+    // SELECT ... FOR UPDATE: com várias instâncias, uma retransmite o lote enquanto as outras aguardam o commit,
+    // e nenhum envio passa à frente de um anterior do mesmo cliente
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<EnvioParaFila> findAllByOrderByIdAsc(Pageable pagina);
+    // Um único DELETE, sem carregar as entradas como faria um deleteBy derivado
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EnvioParaFila e WHERE e.cliente = :cliente")
+    int excluirPorCliente(@Param("cliente") String cliente);
+}
@@ -0,0 +1,30 @@
+package com.cielo.precadastroclientes.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.util.Locale;
+
+// DELETE que devolve a linha apagada no mesmo comando, na sintaxe de cada banco: RETURNING no PostgreSQL,
+// tabela delta (OLD TABLE) no H2. Nos demais bancos a exclusão volta a ser uma consulta com lock seguida
+// do DELETE, na mesma transação.
+final class ExclusaoComRetorno {
+
+    private ExclusaoComRetorno() {
+    }
+
+    // null quando o banco não devolve a linha apagada
+    static String montar(EntityManager entityManager, String tabela, String colunas, String chave) {
+        String banco = entityManager.unwrap(Session.class)
+                .doReturningWork(conexao -> conexao.getMetaData().getDatabaseProductName())
+                .toLowerCase(Locale.ROOT);
+        String exclusao = "DELETE FROM " + tabela + " WHERE " + chave + " = :documento";
+        if (banco.contains("postgresql")) {
+            return exclusao + " RETURNING " + colunas;
+        }
+        if (banco.contains("h2")) {
+            return "SELECT " + colunas + " FROM OLD TABLE (" + exclusao + ")";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,8 @@
+package com.cielo.precadastroclientes.repository;
+
+import com.cielo.precadastroclientes.model.ClientePf;
+
+public interface ExclusaoDeClientePf {
+    // Apaga o cliente e devolve os dados dele em um único comando; null se o CPF não está cadastrado
+    ClientePf excluirPorCpf(String cpf);
+}
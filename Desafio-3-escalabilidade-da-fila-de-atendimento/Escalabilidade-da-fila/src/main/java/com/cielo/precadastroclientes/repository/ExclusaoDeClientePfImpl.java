@@ -0,0 +1,44 @@
+package com.cielo.precadastroclientes.repository;
+
+import com.cielo.precadastroclientes.model.ClientePf;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class ExclusaoDeClientePfImpl implements ExclusaoDeClientePf {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Montado na primeira exclusão, quando o banco já é conhecido; "" quando ele não devolve a linha apagada
+    private volatile String exclusao;
+
+    @Override
+    @Transactional
+    public ClientePf excluirPorCpf(String cpf) {
+        String sql = exclusao;
+        if (sql == null) {
+            sql = ExclusaoComRetorno.montar(entityManager, "cliente_pf", "id, cpf, mcc, nome, email", "cpf");
+            exclusao = sql = sql == null ? "" : sql;
+        }
+        if (sql.isEmpty()) {
+            List<ClientePf> clientes = entityManager.createQuery("SELECT c FROM ClientePf c WHERE c.cpf = :cpf", ClientePf.class)
+                    .setParameter("cpf", cpf)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+            clientes.forEach(entityManager::remove);
+            return clientes.isEmpty() ? null : clientes.get(0);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<ClientePf> apagados = entityManager.createNativeQuery(sql, ClientePf.class)
+                .setParameter("documento", cpf)
+                .getResultList();
+        // A linha não existe mais: a entidade só carrega os dados para a resposta
+        apagados.forEach(entityManager::detach);
+        return apagados.isEmpty() ? null : apagados.get(0);
+    }
+}
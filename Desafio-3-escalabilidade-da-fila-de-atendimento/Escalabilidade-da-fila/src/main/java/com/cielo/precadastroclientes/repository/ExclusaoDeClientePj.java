@@ -0,0 +1,8 @@
+package com.cielo.precadastroclientes.repository;
+
+import com.cielo.precadastroclientes.model.ClientePj;
+
+public interface ExclusaoDeClientePj {
+    // Apaga o cliente e devolve os dados dele em um único comando; null se o CNPJ não está cadastrado
+    ClientePj excluirPorCnpj(String cnpj);
+}
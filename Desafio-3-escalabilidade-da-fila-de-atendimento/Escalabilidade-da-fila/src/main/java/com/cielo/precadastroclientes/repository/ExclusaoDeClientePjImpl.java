@@ -0,0 +1,45 @@
+package com.cielo.precadastroclientes.repository;
+
+import com.cielo.precadastroclientes.model.ClientePj;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class ExclusaoDeClientePjImpl implements ExclusaoDeClientePj {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Montado na primeira exclusão, quando o banco já é conhecido; "" quando ele não devolve a linha apagada
+    private volatile String exclusao;
+
+    @Override
+    @Transactional
+    public ClientePj excluirPorCnpj(String cnpj) {
+        String sql = exclusao;
+        if (sql == null) {
+            sql = ExclusaoComRetorno.montar(entityManager, "cliente_pj", "id, cnpj, razao_social, mcc, "
+                    + "cpf_contato_estabelecimento, nome_contato_estabelecimento, email", "cnpj");
+            exclusao = sql = sql == null ? "" : sql;
+        }
+        if (sql.isEmpty()) {
+            List<ClientePj> clientes = entityManager.createQuery("SELECT c FROM ClientePj c WHERE c.cnpj = :cnpj", ClientePj.class)
+                    .setParameter("cnpj", cnpj)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+            clientes.forEach(entityManager::remove);
+            return clientes.isEmpty() ? null : clientes.get(0);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<ClientePj> apagados = entityManager.createNativeQuery(sql, ClientePj.class)
+                .setParameter("documento", cnpj)
+                .getResultList();
+        // A linha não existe mais: a entidade só carrega os dados para a resposta
+        apagados.forEach(entityManager::detach);
+        return apagados.isEmpty() ? null : apagados.get(0);
+    }
+}
@@ -0,0 +1,188 @@
+package com.cielo.precadastroclientes.service;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.model.EnvioParaFila;
+import com.cielo.precadastroclientes.queue.QueueBackend;
+import com.cielo.precadastroclientes.repository.EnvioParaFilaRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caixa de saída (transactional outbox) entre o cadastro e a fila de atendimento. O cadastro grava a entrada
+// na tabela caixa_de_saida_da_fila na mesma transação do cliente; esta classe retransmite as entradas para a
+// fila em lotes, na ordem do id, e apaga as que entraram. Cada lote vai para a fila numa única chamada
+// (QueueBackend.adicionarClientesNaFila), só interrompida pelas entradas agendadas. Uma queda entre o
+// cadastro e a fila, ou a fila cheia, não deixa mais um cliente cadastrado sem atendimento: a entrada espera
+// na tabela até ter vaga.
+//
+// A retransmissão para no primeiro cliente recusado, então nenhum envio passa à frente de um anterior do
+// mesmo cliente. A entrega é pelo menos uma vez: uma queda entre a fila e o commit, ou uma falha da fila no
+// meio de um lote, reenvia entradas que já tinham entrado. Na fila em memória a cópia é absorvida por
+// fila.deduplicacao. A FilaJdbc insere na transação da retransmissão, junto com a exclusão das entradas, e não
+// recebe cópias; a FilaSqs não deduplica, e o cliente pode ser entregue duas vezes.
+@Component
+public class CaixaDeSaidaDaFila {
+
+    private final EnvioParaFilaRepository envioParaFilaRepository;
+    private final QueueBackend filaDeAtendimento;
+    private final TransactionTemplate transacao;
+    private final int lote;
+    private final ScheduledExecutorService retransmissao;
+    // Evita enfileirar uma retransmissão por cadastro quando vários chegam juntos
+    private final AtomicBoolean sinalizada = new AtomicBoolean();
+    private final LongAdder retransmitidos = new LongAdder();
+
+    public CaixaDeSaidaDaFila(EnvioParaFilaRepository envioParaFilaRepository, QueueBackend filaDeAtendimento,
+                              PlatformTransactionManager transacoes, FilaProperties properties) {
+        this.envioParaFilaRepository = envioParaFilaRepository;
+        this.filaDeAtendimento = filaDeAtendimento;
+        this.transacao = new TransactionTemplate(transacoes);
+        this.lote = properties.getLoteDaCaixaDeSaida();
+        this.retransmissao = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "fila-caixa-de-saida");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalo = properties.getIntervaloDaCaixaDeSaidaMs();
+        retransmissao.scheduleWithFixedDelay(this::retransmitirPendentes, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    // Chamado dentro da transação do cadastro: a entrada só existe se o cliente foi salvo. Depois do commit a
+    // retransmissão é adiantada, para o cliente não esperar o intervalo inteiro com a fila livre.
+    public void registrar(String cliente, String mcc, Instant naoAntesDe) {
+        EnvioParaFila envio = new EnvioParaFila();
+        envio.setCliente(cliente);
+        envio.setMcc(mcc);
+        envio.setNaoAntesDeMs(naoAntesDe == null ? null : naoAntesDe.toEpochMilli());
+        envio.setCriadoEmMs(System.currentTimeMillis());
+        envioParaFilaRepository.save(envio);
+        depoisDoCommit(this::sinalizar);
+    }
+
+    // Cliente excluído: as entradas que ainda não foram para a fila não são mais retransmitidas, e depois do
+    // commit ele sai da fila, inclusive das cópias que a retransmissão tenha colocado lá antes da exclusão
+    public void descartar(String cliente) {
+        envioParaFilaRepository.excluirPorCliente(cliente);
+        depoisDoCommit(() -> removerDaFila(cliente));
+    }
+
+    // Sem transação em andamento, executa na hora
+    private static void depoisDoCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+
+    private void removerDaFila(String cliente) {
+        try {
+            filaDeAtendimento.removerClienteDaFila(cliente);
+        } catch (UnsupportedOperationException ex) {
+            // Backend SQS: a mensagem só pode ser apagada depois de recebida
+        }
+    }
+
+    private void sinalizar() {
+        if (sinalizada.compareAndSet(false, true)) {
+            retransmissao.execute(() -> {
+                sinalizada.set(false);
+                retransmitirPendentes();
+            });
+        }
+    }
+
+    // Lotes seguidos enquanto vierem cheios; um lote incompleto indica a caixa vazia ou a fila sem vaga.
+    // Package-private para os testes dispararem a retransmissão.
+    void retransmitirPendentes() {
+        try {
+            Integer quantidade;
+            do {
+                quantidade = transacao.execute(status -> retransmitirLote());
+            } while (quantidade != null && quantidade == lote);
+        } catch (RuntimeException ex) {
+            // Banco indisponível: as entradas continuam na tabela e são tentadas no próximo intervalo
+        }
+    }
+
+    // Retorna quantas entradas saíram da caixa
+    private int retransmitirLote() {
+        List<EnvioParaFila> envios = envioParaFilaRepository.findAllByOrderByIdAsc(PageRequest.of(0, lote));
+        int aceitas = enfileirar(envios);
+        if (aceitas > 0) {
+            List<Long> enviados = new ArrayList<>(aceitas);
+            for (int i = 0; i < aceitas; i++) {
+                enviados.add(envios.get(i).getId());
+            }
+            envioParaFilaRepository.deleteAllByIdInBatch(enviados);
+            retransmitidos.add(aceitas);
+        }
+        return aceitas;
+    }
+
+    // Entrega as entradas à fila na ordem e retorna quantas do início entraram. Cada sequência de entradas
+    // imediatas vai numa única chamada; as agendadas, uma de cada vez.
+    private int enfileirar(List<EnvioParaFila> envios) {
+        // Gravadas com prazo antes de trocar fila.backend para um que não agenda: entram na hora em vez de ficar presas
+        boolean agenda = filaDeAtendimento.suportaAgendamento();
+        int aceitas = 0;
+        try {
+            while (aceitas < envios.size()) {
+                EnvioParaFila envio = envios.get(aceitas);
+                if (agenda && envio.getNaoAntesDeMs() != null) {
+                    if (!filaDeAtendimento.agendarClienteNaFila(envio.getCliente(), envio.getMcc(), envio.getNaoAntesDeMs())) {
+                        break;
+                    }
+                    aceitas++;
+                    continue;
+                }
+                List<String> clientes = new ArrayList<>();
+                List<String> mccs = new ArrayList<>();
+                for (int i = aceitas; i < envios.size() && !(agenda && envios.get(i).getNaoAntesDeMs() != null); i++) {
+                    clientes.add(envios.get(i).getCliente());
+                    mccs.add(envios.get(i).getMcc());
+                }
+                int daSequencia = filaDeAtendimento.adicionarClientesNaFila(clientes, mccs);
+                aceitas += daSequencia;
+                if (daSequencia < clientes.size()) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Fila indisponível: as entradas já aceitas deste lote são apagadas, as demais esperam
+        }
+        return aceitas;
+    }
+
+    // Entradas gravadas e ainda não retransmitidas; consulta o banco
+    public long getPendentes() {
+        return envioParaFilaRepository.count();
+    }
+
+    public long getRetransmitidos() {
+        return retransmitidos.sum();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        retransmissao.shutdownNow();
+    }
+}
@@ -1,15 +1,25 @@
 package com.cielo.precadastroclientes.service;
 
+import com.cielo.precadastroclientes.DTO.ClientePfResumoDTO;
+import com.cielo.precadastroclientes.DTO.PaginaDeClientesDTO;
 import com.cielo.precadastroclientes.model.ClientePf;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 
 public interface ClientePfService {
     ClientePf cadastrarCliente(ClientePf cliente);
+    // Salva o cliente e, na mesma transação, a entrada dele na fila (agendada se naoAntesDe não for null)
+    ClientePf cadastrarCliente(ClientePf cliente, Instant naoAntesDe);
     ClientePf atualizarCliente(ClientePf cliente);
-    void excluirCliente(String cpf);
-    List<ClientePf> listarClientes();
+    ClientePf atualizarCliente(ClientePf cliente, Instant naoAntesDe);
+    // Retorna os dados do cliente excluído
+    ClientePf excluirCliente(String cpf);
+    // Uma página ordenada por id, com filtros opcionais de MCC e prefixo do nome; cursor null para a primeira
+    PaginaDeClientesDTO<ClientePfResumoDTO> listarClientes(String mcc, String prefixoDoNome, String cursor, int limite);
 
     ClientePf consultarClientePorCpf(String cpf);
+    List<ClientePf> consultarClientesPorCpfs(Collection<String> cpfs);
 }
@@ -1,22 +1,31 @@
 package com.cielo.precadastroclientes.service;
 
 import com.cielo.precadastroclientes.DTO.ClientePfRequestDTO;
+import com.cielo.precadastroclientes.DTO.ClientePfResumoDTO;
+import com.cielo.precadastroclientes.DTO.PaginaDeClientesDTO;
 import com.cielo.precadastroclientes.exception.ClienteException;
 import com.cielo.precadastroclientes.model.ClientePf;
 import com.cielo.precadastroclientes.repository.ClientePfRepository;
 import jakarta.validation.Valid;
 import jakarta.validation.Validator;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Service
 public class ClientePfServiceImpl implements ClientePfService {
 
     private final ClientePfRepository clientePfRepository;
+    private final CaixaDeSaidaDaFila caixaDeSaida;
 
-    public ClientePfServiceImpl(Validator validator, ClientePfRepository clientePfRepository) {
+    public ClientePfServiceImpl(Validator validator, ClientePfRepository clientePfRepository, CaixaDeSaidaDaFila caixaDeSaida) {
         this.clientePfRepository = clientePfRepository;
+        this.caixaDeSaida = caixaDeSaida;
     }
 
     // Método para formatar o CPF
@@ -54,22 +63,45 @@ public class ClientePfServiceImpl implements ClientePfService {
 
 
     @Override
+    @Transactional
     public ClientePf cadastrarCliente(@Valid ClientePf cliente) {
-        if (clientePfRepository.existsByCpf(cliente.getCpf())) {
-            throw new ClienteException.ClienteExistenteException("Cliente Pf já cadastrado.");
+        return cadastrarCliente(cliente, null);
+    }
+
+    @Override
+    @Transactional
+    public ClientePf cadastrarCliente(@Valid ClientePf cliente, Instant naoAntesDe) {
+        // Um único INSERT: o cliente já cadastrado é detectado pela restrição única do CPF, sem consulta antes
+        try {
+            clientePfRepository.inserir(cliente);
+        } catch (DataIntegrityViolationException ex) {
+            if (cpfRepetido(ex)) {
+                throw new ClienteException.ClienteExistenteException("Cliente Pf já cadastrado.");
+            }
+            throw ex;
         }
 
-        return clientePfRepository.save(cliente);
+        // A entrada na fila é gravada na mesma transação e retransmitida pela caixa de saída
+        caixaDeSaida.registrar(cliente.getCpf(), cliente.getMcc(), naoAntesDe);
+        return cliente;
+    }
+
+    // Só a violação da restrição uk_cliente_pf_cpf significa cliente repetido; a mensagem traz o nome dela
+    // no H2 e no PostgreSQL
+    private static boolean cpfRepetido(DataIntegrityViolationException ex) {
+        String mensagem = ex.getMostSpecificCause().getMessage();
+        return mensagem != null && mensagem.toLowerCase().contains("uk_cliente_pf_cpf");
     }
 
     @Override
+    @Transactional
     public ClientePf atualizarCliente(@Valid ClientePf cliente) {
-        String cnpj = cliente.getCpf();
-
-        if (!clientePfRepository.existsByCpf(cnpj)) {
-            throw new ClienteException.ClienteNaoCadastradoException("Cliente Pf não encontrado.");
-        }
+        return atualizarCliente(cliente, null);
+    }
 
+    @Override
+    @Transactional
+    public ClientePf atualizarCliente(@Valid ClientePf cliente, Instant naoAntesDe) {
         // Obtém o CPF do cliente a ser atualizado
         String cpf = cliente.getCpf();
 
@@ -79,23 +111,37 @@ public class ClientePfServiceImpl implements ClientePfService {
         // Defina o CPF formatado no cliente
         cliente.setCpf(cpfFormatado);
 
-        return clientePfRepository.save(cliente);
+        // Um único UPDATE pelo CPF: nenhuma linha alterada significa cliente não cadastrado
+        if (clientePfRepository.atualizar(cliente) == 0) {
+            throw new ClienteException.ClienteNaoCadastradoException("Cliente Pf não encontrado.");
+        }
+
+        caixaDeSaida.registrar(cliente.getCpf(), cliente.getMcc(), naoAntesDe);
+        return cliente;
     }
 
 
     @Override
-    public void excluirCliente(@Valid String cpf) {
-        if (!clientePfRepository.existsByCpf(cpf)) {
+    @Transactional
+    public ClientePf excluirCliente(@Valid String cpf) {
+        // Um único DELETE que devolve o cliente apagado, sem consultá-lo antes
+        ClientePf excluido = clientePfRepository.excluirPorCpf(cpf);
+        if (excluido == null) {
             throw new ClienteException.ClienteNaoCadastradoException("Cliente Pf não encontrado.");
         }
 
-        // Use o novo método personalizado para excluir por Cpf
-        clientePfRepository.deleteByCpf(cpf);
+        // Um cliente excluído não deve mais ser atendido: sai da caixa de saída e, após o commit, da fila
+        caixaDeSaida.descartar(cpf);
+        return excluido;
     }
 
+    // Keyset pelo id em vez de findAll(): só a página é lida, já como DTO, e o custo não cresce com o cursor
     @Override
-    public List<ClientePf> listarClientes() {
-        return clientePfRepository.findAll();
+    public PaginaDeClientesDTO<ClientePfResumoDTO> listarClientes(String mcc, String prefixoDoNome, String cursor, int limite) {
+        int tamanho = ListagemDeClientes.tamanhoDaPagina(limite);
+        List<ClientePfResumoDTO> linhas = clientePfRepository.listarPagina(ListagemDeClientes.depoisDe(cursor),
+                ListagemDeClientes.filtro(mcc), ListagemDeClientes.prefixo(prefixoDoNome), PageRequest.of(0, tamanho + 1));
+        return ListagemDeClientes.pagina(linhas, tamanho, ClientePfResumoDTO::getId);
     }
 
     @Override
@@ -108,4 +154,13 @@ public class ClientePfServiceImpl implements ClientePfService {
 
         return cliente;
     }
+
+    // Consulta vários clientes com uma única query (IN), usada na retirada em lote da fila
+    @Override
+    public List<ClientePf> consultarClientesPorCpfs(Collection<String> cpfs) {
+        if (cpfs.isEmpty()) {
+            return List.of();
+        }
+        return clientePfRepository.findAllByCpfIn(cpfs);
+    }
 }
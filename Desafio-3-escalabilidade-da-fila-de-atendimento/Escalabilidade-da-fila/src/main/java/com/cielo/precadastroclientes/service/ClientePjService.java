@@ -1,15 +1,25 @@
 package com.cielo.precadastroclientes.service;
 
+import com.cielo.precadastroclientes.DTO.ClientePjResumoDTO;
+import com.cielo.precadastroclientes.DTO.PaginaDeClientesDTO;
 import com.cielo.precadastroclientes.model.ClientePj;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 public interface ClientePjService {
     ClientePj cadastrarClientePj(ClientePj cliente);
+    // Salva o cliente e, na mesma transação, a entrada dele na fila (agendada se naoAntesDe não for null)
+    ClientePj cadastrarClientePj(ClientePj cliente, Instant naoAntesDe);
     ClientePj atualizarCliente(ClientePj cliente);
+    ClientePj atualizarCliente(ClientePj cliente, Instant naoAntesDe);
 
-    void excluirClientePorCnpj(String cnpj);
+    // Retorna os dados do cliente excluído
+    ClientePj excluirClientePorCnpj(String cnpj);
 
-    List<ClientePj> listarClientes();
+    // Uma página ordenada por id, com filtros opcionais de MCC e prefixo da razão social; cursor null para a primeira
+    PaginaDeClientesDTO<ClientePjResumoDTO> listarClientes(String mcc, String prefixoDaRazaoSocial, String cursor, int limite);
     ClientePj consultarClientePorCnpj(String cnpj);
+    List<ClientePj> consultarClientesPorCnpjs(Collection<String> cnpjs);
 }
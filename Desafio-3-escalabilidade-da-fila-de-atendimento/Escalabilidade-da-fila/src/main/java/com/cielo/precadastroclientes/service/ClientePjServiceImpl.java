@@ -1,14 +1,21 @@
 package com.cielo.precadastroclientes.service;
 
 import com.cielo.precadastroclientes.DTO.ClientePjRequestDTO;
+import com.cielo.precadastroclientes.DTO.ClientePjResumoDTO;
+import com.cielo.precadastroclientes.DTO.PaginaDeClientesDTO;
 import com.cielo.precadastroclientes.exception.ClienteException;
 import com.cielo.precadastroclientes.model.ClientePj;
 import com.cielo.precadastroclientes.repository.ClientePjRepository;
 import jakarta.validation.Valid;
 import jakarta.validation.Validator;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -16,10 +23,12 @@ public class ClientePjServiceImpl implements ClientePjService {
 
 
     private final ClientePjRepository clientePjRepository;
+    private final CaixaDeSaidaDaFila caixaDeSaida;
 
     @Autowired
-    public ClientePjServiceImpl(Validator validator, ClientePjRepository clientePjRepository) {
+    public ClientePjServiceImpl(Validator validator, ClientePjRepository clientePjRepository, CaixaDeSaidaDaFila caixaDeSaida) {
         this.clientePjRepository = clientePjRepository;
+        this.caixaDeSaida = caixaDeSaida;
     }
 
 
@@ -85,23 +94,46 @@ public class ClientePjServiceImpl implements ClientePjService {
     }
 
     @Override
+    @Transactional
     public ClientePj cadastrarClientePj(@Valid ClientePj cliente) {
+        return cadastrarClientePj(cliente, null);
+    }
 
-        if (clientePjRepository.existsByCnpj(cliente.getCnpj())) {
-            throw new ClienteException.ClienteExistenteException("Cliente PJ já cadastrado.");
+    @Override
+    @Transactional
+    public ClientePj cadastrarClientePj(@Valid ClientePj cliente, Instant naoAntesDe) {
+
+        // Um único INSERT: o cliente já cadastrado é detectado pela restrição única do CNPJ, sem consulta antes
+        try {
+            clientePjRepository.inserir(cliente);
+        } catch (DataIntegrityViolationException ex) {
+            if (cnpjRepetido(ex)) {
+                throw new ClienteException.ClienteExistenteException("Cliente PJ já cadastrado.");
+            }
+            throw ex;
         }
 
-        return clientePjRepository.save(cliente);
+        // A entrada na fila é gravada na mesma transação e retransmitida pela caixa de saída
+        caixaDeSaida.registrar(cliente.getCnpj(), cliente.getMcc(), naoAntesDe);
+        return cliente;
+    }
+
+    // Só a violação da restrição uk_cliente_pj_cnpj significa cliente repetido; a mensagem traz o nome dela
+    // no H2 e no PostgreSQL
+    private static boolean cnpjRepetido(DataIntegrityViolationException ex) {
+        String mensagem = ex.getMostSpecificCause().getMessage();
+        return mensagem != null && mensagem.toLowerCase().contains("uk_cliente_pj_cnpj");
     }
 
     @Override
+    @Transactional
     public ClientePj atualizarCliente(@Valid ClientePj cliente) {
+        return atualizarCliente(cliente, null);
+    }
 
-        String cnpj = cliente.getCnpj();
-
-        if (!clientePjRepository.existsByCnpj(cnpj)) {
-            throw new ClienteException.ClienteNaoCadastradoException("Cliente PJ não encontrado.");
-        }
+    @Override
+    @Transactional
+    public ClientePj atualizarCliente(@Valid ClientePj cliente, Instant naoAntesDe) {
 
         // Obtém o CPF do cliente a ser atualizado
         String cpf = cliente.getCpfContatoEstabelecimento();
@@ -112,23 +144,36 @@ public class ClientePjServiceImpl implements ClientePjService {
         // Defina o CPF formatado no cliente
         cliente.setCpfContatoEstabelecimento(cpfFormatado);
 
+        // Um único UPDATE pelo CNPJ: nenhuma linha alterada significa cliente não cadastrado
+        if (clientePjRepository.atualizar(cliente) == 0) {
+            throw new ClienteException.ClienteNaoCadastradoException("Cliente PJ não encontrado.");
+        }
 
-        return clientePjRepository.save(cliente);
+        caixaDeSaida.registrar(cliente.getCnpj(), cliente.getMcc(), naoAntesDe);
+        return cliente;
     }
 
     @Override
-    public void excluirClientePorCnpj(@Valid String cnpj) {
-        if (!clientePjRepository.existsByCnpj(cnpj)) {
+    @Transactional
+    public ClientePj excluirClientePorCnpj(@Valid String cnpj) {
+        // Um único DELETE que devolve o cliente apagado, sem consultá-lo antes
+        ClientePj excluido = clientePjRepository.excluirPorCnpj(cnpj);
+        if (excluido == null) {
             throw new ClienteException.ClienteNaoCadastradoException("Cliente PJ não encontrado.");
         }
 
-        // Use o novo método personalizado para excluir por CNPJ
-        clientePjRepository.deleteByCnpj(cnpj);
+        // Um cliente excluído não deve mais ser atendido: sai da caixa de saída e, após o commit, da fila
+        caixaDeSaida.descartar(cnpj);
+        return excluido;
     }
 
+    // Keyset pelo id em vez de findAll(): só a página é lida, já como DTO, e o custo não cresce com o cursor
     @Override
-    public List<ClientePj> listarClientes() {
-        return clientePjRepository.findAll();
+    public PaginaDeClientesDTO<ClientePjResumoDTO> listarClientes(String mcc, String prefixoDaRazaoSocial, String cursor, int limite) {
+        int tamanho = ListagemDeClientes.tamanhoDaPagina(limite);
+        List<ClientePjResumoDTO> linhas = clientePjRepository.listarPagina(ListagemDeClientes.depoisDe(cursor),
+                ListagemDeClientes.filtro(mcc), ListagemDeClientes.prefixo(prefixoDaRazaoSocial), PageRequest.of(0, tamanho + 1));
+        return ListagemDeClientes.pagina(linhas, tamanho, ClientePjResumoDTO::getId);
     }
 
     @Override
@@ -142,4 +187,13 @@ public class ClientePjServiceImpl implements ClientePjService {
 
         return cliente;
     }
+
+    // Consulta vários clientes com uma única query (IN), usada na retirada em lote da fila
+    @Override
+    public List<ClientePj> consultarClientesPorCnpjs(Collection<String> cnpjs) {
+        if (cnpjs.isEmpty()) {
+            return List.of();
+        }
+        return clientePjRepository.findAllByCnpjIn(cnpjs);
+    }
 }
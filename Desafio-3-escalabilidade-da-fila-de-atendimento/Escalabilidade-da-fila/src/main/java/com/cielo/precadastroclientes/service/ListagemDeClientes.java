@@ -0,0 +1,72 @@
+package com.cielo.precadastroclientes.service;
+
+import com.cielo.precadastroclientes.DTO.PaginaDeClientesDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// Paginação por chave (keyset) das listagens de clientes PF e PJ. Cada página é buscada a partir do id
+// seguinte ao da última linha entregue, então a página 10.000 custa o mesmo que a primeira, ao contrário
+// de um OFFSET. O cursor é opaco para quem chama: o formato pode mudar sem quebrar a API.
+public final class ListagemDeClientes {
+
+    public static final int TAMANHO_PADRAO_DA_PAGINA = 100;
+    // Limite aplicado no servidor, qualquer que seja o pedido
+    public static final int MAXIMO_POR_PAGINA = 1000;
+
+    private static final String VERSAO_DO_CURSOR = "v1:";
+
+    private ListagemDeClientes() {
+    }
+
+    static int tamanhoDaPagina(int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("O limite deve ser positivo");
+        }
+        return Math.min(limite, MAXIMO_POR_PAGINA);
+    }
+
+    // Id a partir do qual a página começa; sem cursor, do início
+    static long depoisDe(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (texto.startsWith(VERSAO_DO_CURSOR)) {
+                return Long.parseLong(texto.substring(VERSAO_DO_CURSOR.length()));
+            }
+        } catch (IllegalArgumentException ex) {
+            // Base64 ou número inválido (NumberFormatException é uma IllegalArgumentException)
+        }
+        throw new IllegalArgumentException("Cursor inválido");
+    }
+
+    // Filtro vazio é o mesmo que nenhum filtro
+    static String filtro(String valor) {
+        return valor == null || valor.isEmpty() ? null : valor;
+    }
+
+    // Padrão do LIKE para o prefixo, com os curingas digitados escapados
+    static String prefixo(String valor) {
+        if (valor == null || valor.isEmpty()) {
+            return null;
+        }
+        return valor.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    // Recebe até tamanho + 1 linhas: a linha a mais só indica que há uma próxima página, sem COUNT
+    static <T> PaginaDeClientesDTO<T> pagina(List<T> linhas, int tamanho, ToLongFunction<T> id) {
+        if (linhas.size() <= tamanho) {
+            return new PaginaDeClientesDTO<>(linhas, null);
+        }
+        List<T> clientes = new ArrayList<>(linhas.subList(0, tamanho));
+        long ultimo = id.applyAsLong(clientes.get(tamanho - 1));
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSAO_DO_CURSOR + ultimo).getBytes(StandardCharsets.US_ASCII));
+        return new PaginaDeClientesDTO<>(clientes, cursor);
+    }
+}
@@ -0,0 +1,30 @@
+-- Esquema como era gerado pelo Hibernate (ddl-auto) até a adoção das migrações.
+-- Sintaxe aceita pelo H2 e pelo PostgreSQL.
+CREATE TABLE cliente_pf (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cpf VARCHAR(11) NOT NULL,
+    mcc VARCHAR(4) NOT NULL,
+    nome VARCHAR(50) NOT NULL,
+    email VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE cliente_pj (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cnpj VARCHAR(14) NOT NULL,
+    razao_social VARCHAR(50) NOT NULL,
+    mcc VARCHAR(4) NOT NULL,
+    cpf_contato_estabelecimento VARCHAR(11) NOT NULL,
+    nome_contato_estabelecimento VARCHAR(50) NOT NULL,
+    email VARCHAR(255) NOT NULL
+);
+
+-- Caixa de saída entre o cadastro e a fila de atendimento (EnvioParaFila)
+CREATE TABLE caixa_de_saida_da_fila (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cliente VARCHAR(64) NOT NULL,
+    mcc VARCHAR(4),
+    nao_antes_de_ms BIGINT,
+    criado_em_ms BIGINT NOT NULL
+);
+
+CREATE INDEX idx_caixa_de_saida_da_fila_cliente ON caixa_de_saida_da_fila (cliente);
@@ -0,0 +1,8 @@
+-- Consultas, verificações e exclusões por CPF/CNPJ deixam de percorrer a tabela inteira.
+-- As restrições únicas criam o índice e impedem o mesmo documento cadastrado duas vezes.
+ALTER TABLE cliente_pf ADD CONSTRAINT uk_cliente_pf_cpf UNIQUE (cpf);
+
+ALTER TABLE cliente_pj ADD CONSTRAINT uk_cliente_pj_cnpj UNIQUE (cnpj);
+
+-- Sem unicidade: a mesma pessoa pode ser o contato de mais de um estabelecimento
+CREATE INDEX idx_cliente_pj_cpf_contato_estabelecimento ON cliente_pj (cpf_contato_estabelecimento);
@@ -0,0 +1,5 @@
+-- Listagem paginada por id com filtro de MCC: o índice entrega as linhas do MCC já na ordem do id,
+-- e cada página começa direto no id seguinte ao do cursor
+CREATE INDEX idx_cliente_pf_mcc_id ON cliente_pf (mcc, id);
+
+CREATE INDEX idx_cliente_pj_mcc_id ON cliente_pj (mcc, id);
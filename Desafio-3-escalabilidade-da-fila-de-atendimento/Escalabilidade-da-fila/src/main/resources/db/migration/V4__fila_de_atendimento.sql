@@ -0,0 +1,25 @@
+-- Tabelas da fila de atendimento em banco (fila.backend=JDBC, FilaJdbc), antes criadas pela própria classe
+-- ao subir. IF NOT EXISTS mantém os nomes de então e aceita os bancos em que elas já existem.
+-- Sintaxe aceita pelo H2 e pelo PostgreSQL.
+CREATE TABLE IF NOT EXISTS fila_de_atendimento (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cliente VARCHAR(64) NOT NULL,
+    entrada BIGINT NOT NULL,
+    visivel_em BIGINT NOT NULL,
+    recibo VARCHAR(36),
+    entregas INT NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS fila_de_atendimento_recibo ON fila_de_atendimento (recibo);
+
+CREATE INDEX IF NOT EXISTS fila_de_atendimento_cliente ON fila_de_atendimento (cliente);
+
+-- Entradas agendadas (notBefore), na ordem do prazo até vencerem
+CREATE TABLE IF NOT EXISTS fila_de_atendimento_agendamentos (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cliente VARCHAR(64) NOT NULL,
+    disponivel_em BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS fila_de_atendimento_agendamentos_disponivel_em
+    ON fila_de_atendimento_agendamentos (disponivel_em, id);
@@ -0,0 +1,245 @@
+package com.cielo.precadastroclientes.benchmark;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Compara a FilaDeAtendimento (com e sem partições) com a versão sincronizada original e com as filas
+// do JDK, em três cargas: um cadastro e um atendente, vários de cada, e cadastros chegando em rajadas.
+// Cadastros e atendentes são threads separadas do mesmo grupo, então a JMH mede cada lado: um atendimento
+// que encontra a fila vazia também conta como operação. Vazão e latência (amostrada) no mesmo relatório.
+// Execute pela IDE (método main) ou com "mvn -P benchmarks -DskipTests verify", que grava o resultado em JSON.
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparacaoDeFilasBenchmark {
+
+    private static final int CAPACIDADE = 4096;
+
+    @Param({"FILA_DE_ATENDIMENTO", "FILA_PARTICIONADA", "FILA_SINCRONIZADA", "ARRAY_BLOCKING_QUEUE", "CONCURRENT_LINKED_QUEUE"})
+    public Implementacao implementacao;
+
+    // Cadastros por rajada e pausa entre as rajadas, em unidades de Blackhole.consumeCPU
+    @Param({"64"})
+    public int rajada;
+
+    @Param({"10000"})
+    public long pausaEntreRajadas;
+
+    private FilaAvaliada fila;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fila = implementacao.criar(CAPACIDADE);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        fila.encerrar();
+    }
+
+    // CPFs distintos por thread, para que a fila particionada espalhe os cadastros pelo hash
+    @State(Scope.Thread)
+    public static class Clientes {
+        private final String[] cpfs = new String[1024];
+        private int indice;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            long base = Thread.currentThread().getId() * cpfs.length;
+            for (int i = 0; i < cpfs.length; i++) {
+                cpfs[i] = String.format("%011d", base + i);
+            }
+        }
+
+        String proximo() {
+            indice = (indice + 1) & (cpfs.length - 1);
+            return cpfs[indice];
+        }
+    }
+
+    @Benchmark
+    @Group("umParaUm")
+    @GroupThreads(1)
+    public boolean cadastrarUmParaUm(Clientes clientes) {
+        return fila.adicionar(clientes.proximo());
+    }
+
+    @Benchmark
+    @Group("umParaUm")
+    @GroupThreads(1)
+    public String atenderUmParaUm() {
+        return fila.retirar();
+    }
+
+    @Benchmark
+    @Group("variosParaVarios")
+    @GroupThreads(4)
+    public boolean cadastrarVariosParaVarios(Clientes clientes) {
+        return fila.adicionar(clientes.proximo());
+    }
+
+    @Benchmark
+    @Group("variosParaVarios")
+    @GroupThreads(4)
+    public String atenderVariosParaVarios() {
+        return fila.retirar();
+    }
+
+    // Uma operação é uma rajada inteira seguida da pausa: os atendentes alternam entre fila cheia e vazia
+    @Benchmark
+    @Group("rajadas")
+    @GroupThreads(2)
+    public int cadastrarEmRajadas(Clientes clientes) {
+        int aceitos = 0;
+        for (int i = 0; i < rajada; i++) {
+            if (fila.adicionar(clientes.proximo())) {
+                aceitos++;
+            }
+        }
+        Blackhole.consumeCPU(pausaEntreRajadas);
+        return aceitos;
+    }
+
+    @Benchmark
+    @Group("rajadas")
+    @GroupThreads(4)
+    public String atenderEmRajadas() {
+        return fila.retirar();
+    }
+
+    // Operações comuns às filas comparadas; todas limitadas à mesma capacidade
+    interface FilaAvaliada {
+        boolean adicionar(String cliente);
+
+        String retirar();
+
+        default void encerrar() {
+        }
+    }
+
+    public enum Implementacao {
+        FILA_DE_ATENDIMENTO {
+            @Override
+            FilaAvaliada criar(int capacidade) {
+                return deAtendimento(capacidade, 1);
+            }
+        },
+        FILA_PARTICIONADA {
+            @Override
+            FilaAvaliada criar(int capacidade) {
+                return deAtendimento(capacidade, 4);
+            }
+        },
+        FILA_SINCRONIZADA {
+            @Override
+            FilaAvaliada criar(int capacidade) {
+                FilaSincronizada fila = new FilaSincronizada(capacidade);
+                return new FilaAvaliada() {
+                    @Override
+                    public boolean adicionar(String cliente) {
+                        return fila.adicionarClienteNaFila(cliente);
+                    }
+
+                    @Override
+                    public String retirar() {
+                        return fila.proximoCliente();
+                    }
+                };
+            }
+        },
+        ARRAY_BLOCKING_QUEUE {
+            @Override
+            FilaAvaliada criar(int capacidade) {
+                ArrayBlockingQueue<String> fila = new ArrayBlockingQueue<>(capacidade);
+                return new FilaAvaliada() {
+                    @Override
+                    public boolean adicionar(String cliente) {
+                        return fila.offer(cliente);
+                    }
+
+                    @Override
+                    public String retirar() {
+                        return fila.poll();
+                    }
+                };
+            }
+        },
+        // Sem limite próprio: um contador faz o papel das vagas, como o semáforo da FilaDeAtendimento
+        CONCURRENT_LINKED_QUEUE {
+            @Override
+            FilaAvaliada criar(int capacidade) {
+                ConcurrentLinkedQueue<String> fila = new ConcurrentLinkedQueue<>();
+                AtomicInteger ocupadas = new AtomicInteger();
+                return new FilaAvaliada() {
+                    @Override
+                    public boolean adicionar(String cliente) {
+                        if (ocupadas.incrementAndGet() > capacidade) {
+                            ocupadas.decrementAndGet();
+                            return false;
+                        }
+                        return fila.offer(cliente);
+                    }
+
+                    @Override
+                    public String retirar() {
+                        String cliente = fila.poll();
+                        if (cliente != null) {
+                            ocupadas.decrementAndGet();
+                        }
+                        return cliente;
+                    }
+                };
+            }
+        };
+
+        abstract FilaAvaliada criar(int capacidade);
+
+        private static FilaAvaliada deAtendimento(int capacidade, int particoes) {
+            FilaProperties properties = new FilaProperties();
+            properties.setCapacidade(capacidade);
+            properties.setParticoes(particoes);
+            properties.setPosicaoNaFila(particoes == 1);
+            FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+            return new FilaAvaliada() {
+                @Override
+                public boolean adicionar(String cliente) {
+                    return fila.adicionarClienteNaFila(cliente);
+                }
+
+                @Override
+                public String retirar() {
+                    return fila.proximoCliente();
+                }
+
+                @Override
+                public void encerrar() {
+                    fila.encerrar();
+                }
+            };
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(ComparacaoDeFilasBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/comparacao-de-filas.json")
+                .build();
+        new Runner(opcoes).run();
+    }
+}
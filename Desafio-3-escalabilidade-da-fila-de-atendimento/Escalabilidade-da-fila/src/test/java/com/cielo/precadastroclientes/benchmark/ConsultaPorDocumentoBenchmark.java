@@ -0,0 +1,92 @@
+package com.cielo.precadastroclientes.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Latência da consulta por CPF feita pelo ClientePfRepository (findByCpf) com 10 mil,
+// 1 milhão e 10 milhões de clientes, no esquema das migrações sem o índice (só a V1) e com ele (V2).
+// Sem o índice cada consulta percorre a tabela inteira e cresce com ela; com o índice fica praticamente
+// constante. O banco é um H2 em arquivo, para os 10 milhões de linhas não precisarem caber no heap.
+@State(Scope.Benchmark)
+public class ConsultaPorDocumentoBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int clientes;
+
+    @Param({"false", "true"})
+    public boolean indexado;
+
+    Path diretorio;
+    Connection conexao;
+    PreparedStatement consulta;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        diretorio = Files.createTempDirectory("consulta-por-documento-benchmark");
+        String url = "jdbc:h2:file:" + diretorio.resolve("clientes");
+        Flyway.configure()
+                .dataSource(url, "sa", "")
+                .target(indexado ? "latest" : "1")
+                .load()
+                .migrate();
+
+        conexao = DriverManager.getConnection(url, "sa", "");
+        try (PreparedStatement inserir = conexao.prepareStatement("INSERT INTO cliente_pf (cpf, mcc, nome, email) "
+                + "SELECT LPAD(CAST(X AS VARCHAR), 11, '0'), '5411', 'Cliente ' || X, 'cliente' || X || '@teste.com' "
+                + "FROM SYSTEM_RANGE(1, ?)")) {
+            inserir.setInt(1, clientes);
+            inserir.executeUpdate();
+        }
+        // A mesma consulta que o Hibernate gera para o método derivado do repositório
+        consulta = conexao.prepareStatement("SELECT id, cpf, email, mcc, nome FROM cliente_pf WHERE cpf = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        conexao.close();
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    private String cpfAleatorio() {
+        return String.format("%011d", 1 + ThreadLocalRandom.current().nextInt(clientes));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public String findByCpf() throws SQLException {
+        consulta.setString(1, cpfAleatorio());
+        try (ResultSet resultado = consulta.executeQuery()) {
+            return resultado.next() ? resultado.getString("nome") : null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(ConsultaPorDocumentoBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}
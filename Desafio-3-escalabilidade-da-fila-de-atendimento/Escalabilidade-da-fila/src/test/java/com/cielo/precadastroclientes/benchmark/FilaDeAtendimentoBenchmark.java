@@ -0,0 +1,55 @@
+package com.cielo.precadastroclientes.benchmark;
+
+import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Compara a fila sem locks com a versão sincronizada original.
+// Cada thread cadastra e retira um cliente por operação, como um cadastro seguido de um atendimento.
+// Execute pela IDE (método main) para varrer de 1 a 64 threads.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilaDeAtendimentoBenchmark {
+
+    private static final String CPF = "12345678901";
+
+    private FilaDeAtendimento filaSemLock;
+    private FilaSincronizada filaSincronizada;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        filaSemLock = new FilaDeAtendimento();
+        filaSincronizada = new FilaSincronizada(100);
+    }
+
+    @Benchmark
+    public String semLock() {
+        filaSemLock.adicionarClienteNaFila(CPF);
+        return filaSemLock.poll();
+    }
+
+    @Benchmark
+    public String sincronizada() {
+        filaSincronizada.adicionarClienteNaFila(CPF);
+        return filaSincronizada.proximoCliente();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 2, 4, 8, 16, 32, 64}) {
+            Options opcoes = new OptionsBuilder()
+                    .include(FilaDeAtendimentoBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(opcoes).run();
+        }
+    }
+}
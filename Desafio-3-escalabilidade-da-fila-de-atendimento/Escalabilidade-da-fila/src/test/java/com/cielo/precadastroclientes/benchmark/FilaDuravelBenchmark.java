@@ -0,0 +1,108 @@
+package com.cielo.precadastroclientes.benchmark;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import com.cielo.precadastroclientes.queue.PoliticaDeSincronizacao;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Vazão de entrada na fila durável para cada política de sincronização,
+// e tempo de recuperação de uma fila com 1 milhão de clientes registrados no log.
+public class FilaDuravelBenchmark {
+
+    private static final int CLIENTES_NA_RECUPERACAO = 1_000_000;
+
+    private static FilaProperties propriedades(Path diretorio, PoliticaDeSincronizacao sincronizacao) {
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidade(Integer.MAX_VALUE);
+        properties.setDuravel(true);
+        properties.setDiretorioDoLog(diretorio.toString());
+        properties.setSincronizacao(sincronizacao);
+        properties.setIntervaloDeCheckpointMs(Long.MAX_VALUE / 2);
+        return properties;
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Entrada {
+        @Param({"POR_OPERACAO", "PERIODICA", "SISTEMA_OPERACIONAL"})
+        public PoliticaDeSincronizacao sincronizacao;
+
+        Path diretorio;
+        FilaDeAtendimento fila;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            diretorio = Files.createTempDirectory("fila-log-benchmark");
+            fila = new FilaDeAtendimento(propriedades(diretorio, sincronizacao));
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            fila.encerrar();
+            apagar(diretorio);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recuperacao {
+        Path diretorio;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            diretorio = Files.createTempDirectory("fila-log-recuperacao");
+            FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(diretorio, PoliticaDeSincronizacao.SISTEMA_OPERACIONAL));
+            for (int i = 0; i < CLIENTES_NA_RECUPERACAO; i++) {
+                fila.adicionarClienteNaFila(String.format("%011d", i));
+            }
+            // Sem checkpoint: a recuperação reproduz o log inteiro
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            apagar(diretorio);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public boolean adicionarClienteNaFila(Entrada estado) {
+        return estado.fila.adicionarClienteNaFila("12345678901");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    @Fork(1)
+    public int recuperarUmMilhaoDeClientes(Recuperacao estado) {
+        return new FilaDeAtendimento(propriedades(estado.diretorio, PoliticaDeSincronizacao.SISTEMA_OPERACIONAL)).getTamanho();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(FilaDuravelBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}
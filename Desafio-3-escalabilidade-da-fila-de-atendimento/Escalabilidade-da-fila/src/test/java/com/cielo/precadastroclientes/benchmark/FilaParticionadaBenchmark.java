@@ -0,0 +1,84 @@
+package com.cielo.precadastroclientes.benchmark;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mede como a vazão de cadastro + atendimento escala com o número de partições e de threads.
+// Cada thread usa CPFs próprios, que se espalham pelas partições pelo hash.
+// Execute pela IDE (método main) para varrer de 1 até o número de núcleos disponíveis.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilaParticionadaBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int particoes;
+
+    @Param({"false", "true"})
+    public boolean ordemGlobal;
+
+    private FilaDeAtendimento fila;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidade(10_000);
+        properties.setParticoes(particoes);
+        properties.setOrdemGlobal(ordemGlobal);
+        properties.setPosicaoNaFila(particoes == 1);
+        fila = new FilaDeAtendimento(properties);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        fila.encerrar();
+    }
+
+    // CPFs gerados antes da medição, para não medir a formatação
+    @State(Scope.Thread)
+    public static class Clientes {
+        private static final AtomicLong PROXIMA_THREAD = new AtomicLong();
+        private final String[] cpfs = new String[1_024];
+        private int contador;
+
+        @Setup
+        public void setUp() {
+            long base = PROXIMA_THREAD.getAndIncrement() * 1_000_000L;
+            for (int i = 0; i < cpfs.length; i++) {
+                cpfs[i] = String.format("%011d", base + i);
+            }
+        }
+
+        String proximo() {
+            return cpfs[contador++ & (cpfs.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public String cadastrarEAtender(Clientes clientes) {
+        fila.adicionarClienteNaFila(clientes.proximo());
+        return fila.poll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= nucleos; threads *= 2) {
+            Options opcoes = new OptionsBuilder()
+                    .include(FilaParticionadaBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(opcoes).run();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cielo.precadastroclientes.benchmark;
+
+// Cópia da implementação original da FilaDeAtendimento (um único monitor),
+// mantida apenas como linha de base para os benchmarks.
+public class FilaSincronizada {
+    private final String[] fila;
+    private final int tamanhoMaximo;
+    private int tamanho;
+    private int inicio;
+    private int fim;
+
+    public FilaSincronizada(int tamanhoMaximo) {
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.fila = new String[tamanhoMaximo];
+        this.tamanho = 0;
+        this.inicio = 0;
+        this.fim = -1;
+    }
+
+    public synchronized boolean adicionarClienteNaFila(String cliente) {
+        if (tamanho < tamanhoMaximo) {
+            fim = (fim + 1) % tamanhoMaximo;
+            fila[fim] = cliente;
+            tamanho++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized String proximoCliente() {
+        if (tamanho > 0) {
+            String cliente = fila[inicio];
+            inicio = (inicio + 1) % tamanhoMaximo;
+            tamanho--;
+            return cliente;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.cielo.precadastroclientes.benchmark;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.Recebimento;
+import com.cielo.precadastroclientes.queue.TipoDeBackend;
+import com.cielo.precadastroclientes.queue.sqs.FilaSqs;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Vazão do backend SQS contra o SQS embarcado (HTTP local, sem rede). Com mais threads cadastrando,
+// cada SendMessageBatch leva mais clientes; "enviosSimultaneos" é a quantidade de lotes em trânsito.
+// O ciclo de atendimento mede receber (servido pela reserva preenchida com long polling) e confirmar.
+@State(Scope.Benchmark)
+public class FilaSqsBenchmark {
+
+    @Param({"1", "4"})
+    public int enviosSimultaneos;
+
+    FilaSqs fila;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FilaProperties properties = new FilaProperties();
+        properties.setBackend(TipoDeBackend.SQS);
+        properties.setSqsEmbarcado(true);
+        properties.setSqsEnviosSimultaneos(enviosSimultaneos);
+        properties.setSqsPreBusca(100);
+        fila = new FilaSqs(properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fila.encerrar();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @Threads(16)
+    public boolean adicionarClienteNaFila() {
+        return fila.adicionarClienteNaFila("12345678901");
+    }
+
+    // Cada atendimento repõe o cliente, para que a fila nunca esvazie durante a medição
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @Threads(4)
+    public boolean receberEConfirmar() {
+        Recebimento recebimento = fila.receber();
+        if (recebimento == null) {
+            return fila.adicionarClienteNaFila("12345678901");
+        }
+        fila.adicionarClienteNaFila(recebimento.getCliente());
+        return fila.confirmar(recebimento.getRecibo());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(FilaSqsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}
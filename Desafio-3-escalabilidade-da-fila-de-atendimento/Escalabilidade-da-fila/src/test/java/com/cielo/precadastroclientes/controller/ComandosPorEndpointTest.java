@@ -0,0 +1,128 @@
+package com.cielo.precadastroclientes.controller;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import com.jayway.jsonpath.JsonPath;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Comandos SQL de cada endpoint de cadastro, contados pelo Hibernate na thread da requisição (a retransmissão
+// da caixa de saída roda na thread dela e não entra na conta). Cada cadastro, atualização ou exclusão custa um
+// comando na tabela do cliente mais um na caixa de saída.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.cielo.precadastroclientes.controller.ComandosPorEndpointTest$ComandosExecutados")
+@AutoConfigureMockMvc
+public class ComandosPorEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    public static class ComandosExecutados implements StatementInspector {
+        private static final ThreadLocal<List<String>> COMANDOS = ThreadLocal.withInitial(ArrayList::new);
+
+        @Override
+        public String inspect(String sql) {
+            COMANDOS.get().add(sql.trim().toLowerCase());
+            return sql;
+        }
+    }
+
+    private List<String> executar(MockHttpServletRequestBuilder requisicao, String corpo, ResultMatcher esperado) throws Exception {
+        ComandosExecutados.COMANDOS.get().clear();
+        mockMvc.perform(requisicao.contentType(MediaType.APPLICATION_JSON).content(corpo)).andExpect(esperado);
+        return new ArrayList<>(ComandosExecutados.COMANDOS.get());
+    }
+
+    private static void assertComandos(List<String> comandos, String... inicios) {
+        assertEquals(inicios.length, comandos.size(), () -> "Comandos executados: " + comandos);
+        for (int i = 0; i < inicios.length; i++) {
+            assertTrue(comandos.get(i).startsWith(inicios[i]), "Comando " + i + ": " + comandos.get(i));
+        }
+    }
+
+    @Test
+    void testCadastroAtualizacaoEExclusaoDePfCustamUmComandoCadaUm() throws Exception {
+        String cliente = "{\"cpf\":\"90000000001\",\"mcc\":\"5411\",\"nome\":\"Cliente PF\",\"email\":\"pf@teste.com\"}";
+
+        assertComandos(executar(post("/cliente-pf/cadastrar"), cliente, status().isCreated()),
+                "insert into cliente_pf", "insert into caixa_de_saida_da_fila");
+        // O repetido é recusado pela restrição única, no mesmo INSERT
+        assertComandos(executar(post("/cliente-pf/cadastrar"), cliente, status().isConflict()),
+                "insert into cliente_pf");
+        assertComandos(executar(put("/cliente-pf/atualizar"), cliente.replace("Cliente PF", "Novo nome"), status().isOk()),
+                "update cliente_pf", "insert into caixa_de_saida_da_fila");
+        assertComandos(executar(put("/cliente-pf/atualizar"), cliente.replace("90000000001", "90000000002"), status().isBadRequest()),
+                "update cliente_pf");
+
+        // No H2 a exclusão que devolve a linha apagada é uma consulta sobre a tabela delta (OLD TABLE)
+        assertComandos(executar(delete("/cliente-pf/excluir").param("cpf", "90000000001"), "", status().isOk()),
+                "select id, cpf, mcc, nome, email from old table (delete from cliente_pf", "delete from caixa_de_saida_da_fila");
+        assertComandos(executar(delete("/cliente-pf/excluir").param("cpf", "90000000001"), "", status().isNotFound()),
+                "select id, cpf, mcc, nome, email from old table (delete from cliente_pf");
+    }
+
+    @Test
+    void testCadastroAtualizacaoEExclusaoDePjCustamUmComandoCadaUm() throws Exception {
+        String cliente = "{\"cnpj\":\"90000000000001\",\"cpf\":\"90000000003\",\"mcc\":\"5411\",\"razaoSocial\":\"Empresa\","
+                + "\"nome\":\"Contato\",\"email\":\"pj@teste.com\"}";
+
+        assertComandos(executar(post("/cliente-pj/cadastrar"), cliente, status().isCreated()),
+                "insert into cliente_pj", "insert into caixa_de_saida_da_fila");
+        assertComandos(executar(post("/cliente-pj/cadastrar"), cliente, status().isConflict()),
+                "insert into cliente_pj");
+        assertComandos(executar(put("/cliente-pj/atualizar"), cliente.replace("Empresa", "Nova razão"), status().isOk()),
+                "update cliente_pj", "insert into caixa_de_saida_da_fila");
+        assertComandos(executar(delete("/cliente-pj/excluir").param("cnpj", "90000000000001"), "", status().isOk()),
+                "select id, cnpj, razao_social", "delete from caixa_de_saida_da_fila");
+    }
+
+    @Test
+    void testListagemDePfPaginaPeloCursorComUmaConsultaPorPagina() throws Exception {
+        // MCC exclusivo deste teste, para o filtro isolar os clientes dos outros testes
+        for (int i = 1; i <= 3; i++) {
+            executar(post("/cliente-pf/cadastrar"), "{\"cpf\":\"9100000000" + i + "\",\"mcc\":\"7999\",\"nome\":\"Listado "
+                    + i + "\",\"email\":\"listado" + i + "@teste.com\"}", status().isCreated());
+        }
+
+        ComandosExecutados.COMANDOS.get().clear();
+        MvcResult primeira = mockMvc.perform(get("/cliente-pf/listar").param("mcc", "7999").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.clientes.length()").value(2))
+                .andExpect(jsonPath("$.data.clientes[0].cpf").value("91000000001"))
+                .andExpect(jsonPath("$.data.clientes[1].cpf").value("91000000002"))
+                .andReturn();
+        // Sem COUNT: a linha a mais da própria consulta indica a próxima página
+        assertComandos(new ArrayList<>(ComandosExecutados.COMANDOS.get()), "select");
+        String cursor = JsonPath.read(primeira.getResponse().getContentAsString(), "$.data.proximoCursor");
+        assertNotNull(cursor);
+
+        mockMvc.perform(get("/cliente-pf/listar").param("mcc", "7999").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.clientes.length()").value(1))
+                .andExpect(jsonPath("$.data.clientes[0].cpf").value("91000000003"))
+                .andExpect(jsonPath("$.data.proximoCursor").doesNotExist());
+
+        mockMvc.perform(get("/cliente-pf/listar").param("nome", "Listado%").param("mcc", "7999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.clientes.length()").value(0));
+        mockMvc.perform(get("/cliente-pf/listar").param("cursor", "invalido"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,106 @@
+package com.cielo.precadastroclientes.controller;
+
+import com.cielo.precadastroclientes.DTO.GenericResponseDTO;
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.model.ClientePf;
+import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import com.cielo.precadastroclientes.queue.FilaDeFalhas;
+import com.cielo.precadastroclientes.service.ClientePfService;
+import com.cielo.precadastroclientes.service.ClientePjService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class QueueControllerTest {
+
+    private FilaDeAtendimento fila;
+    private FilaDeFalhas filaDeFalhas;
+    private ClientePfService clientePfService;
+    // Consultas de espera enfileiradas, executadas quando o teste quiser
+    private final List<Runnable> consultasDeEspera = new ArrayList<>();
+    private QueueController controller;
+
+    @BeforeEach
+    void setUp() {
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidade(10);
+        fila = new FilaDeAtendimento(properties);
+        clientePfService = mock(ClientePfService.class);
+        ClientePf cliente = new ClientePf();
+        cliente.setCpf("11111111111");
+        when(clientePfService.consultarClientePorCpf("11111111111")).thenReturn(cliente);
+        filaDeFalhas = new FilaDeFalhas();
+        controller = new QueueController(fila, Optional.of(fila), clientePfService, mock(ClientePjService.class),
+                consultasDeEspera::add, filaDeFalhas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fila.encerrar();
+    }
+
+    @Test
+    void testClienteEntregueAUmAtendenteQueDesistiuVoltaParaAFila() {
+        DeferredResult<ResponseEntity<GenericResponseDTO<?>>> resultado = controller.aguardarProximoClienteDaFila(1000);
+        ClientePf cliente = new ClientePf();
+        cliente.setCpf("11111111111");
+        // A conexão cai (ou a margem vence) durante a consulta, depois de o cliente sair da fila para a espera
+        when(clientePfService.consultarClientePorCpf("11111111111")).thenAnswer(consulta -> {
+            resultado.setResult(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+            return cliente;
+        });
+        fila.adicionarClienteNaFila("11111111111");
+        assertEquals(1, consultasDeEspera.size(), "O cliente foi entregue à espera");
+        consultasDeEspera.remove(0).run();
+
+        assertEquals("11111111111", fila.poll(), "O cliente não pode se perder");
+        assertEquals(0, fila.getEmProcessamento());
+        assertEquals(1, fila.getContadores().getDevolvidos());
+    }
+
+    @Test
+    void testClienteEntregueComRespostaAceitaSaiDeVezDaFila() {
+        DeferredResult<ResponseEntity<GenericResponseDTO<?>>> resultado = controller.aguardarProximoClienteDaFila(1000);
+        fila.adicionarClienteNaFila("11111111111");
+        consultasDeEspera.remove(0).run();
+
+        ResponseEntity<?> resposta = (ResponseEntity<?>) resultado.getResult();
+        assertEquals(HttpStatus.OK, resposta.getStatusCode());
+        assertEquals(0, fila.getTamanho());
+        assertEquals(1, fila.getContadores().getConfirmados());
+    }
+
+    @Test
+    void testIdentificadorInvalidoRecebidoEConfirmadoEVaiUmaVezParaAFilaDeFalhas() {
+        fila.adicionarClienteNaFila("invalido");
+
+        ResponseEntity<?> resposta = controller.receberProximoClienteDaFila();
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, resposta.getStatusCode());
+        assertEquals(0, fila.getEmProcessamento(), "O recibo foi confirmado e o cliente não volta para a fila");
+        assertEquals(0, fila.getTamanho());
+        assertEquals(1, filaDeFalhas.getTamanho());
+    }
+
+    @Test
+    void testCadastroExcluidoRecebidoEConfirmadoSemResponder200() {
+        fila.adicionarClienteNaFila("22222222222");
+
+        ResponseEntity<?> resposta = controller.receberProximoClienteDaFila();
+
+        assertEquals(HttpStatus.NOT_FOUND, resposta.getStatusCode());
+        assertEquals(0, fila.getEmProcessamento());
+        assertEquals(0, fila.getTamanho());
+        assertEquals(1, fila.getContadores().getConfirmados());
+    }
+}
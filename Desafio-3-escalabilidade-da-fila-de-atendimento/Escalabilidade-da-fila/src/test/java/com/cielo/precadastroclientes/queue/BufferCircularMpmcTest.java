@@ -0,0 +1,79 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferCircularMpmcTest {
+
+    @Test
+    void testMantemOrdemFifoERespeitaCapacidade() {
+        BufferCircularMpmc<String> buffer = new BufferCircularMpmc<>(3);
+
+        assertTrue(buffer.offer("a"));
+        assertTrue(buffer.offer("b"));
+        assertTrue(buffer.offer("c"));
+        assertFalse(buffer.offer("d"), "O buffer cheio deve recusar novos elementos");
+        assertEquals(List.of("a", "b", "c"), buffer.snapshot());
+
+        assertEquals("a", buffer.poll());
+        assertTrue(buffer.offer("d"));
+        assertEquals("b", buffer.poll());
+        assertEquals("c", buffer.poll());
+        assertEquals("d", buffer.poll());
+        assertNull(buffer.poll(), "O buffer vazio deve retornar null");
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void testProdutoresEConsumidoresConcorrentesNaoPerdemNemDuplicamElementos() throws InterruptedException {
+        BufferCircularMpmc<Integer> buffer = new BufferCircularMpmc<>(64);
+        int produtores = 4;
+        int porProdutor = 2_000;
+        int total = produtores * porProdutor;
+
+        ExecutorService executor = Executors.newFixedThreadPool(produtores * 2);
+        Set<Integer> recebidos = ConcurrentHashMap.newKeySet();
+        AtomicInteger consumidos = new AtomicInteger();
+        CountDownLatch fim = new CountDownLatch(produtores * 2);
+
+        for (int p = 0; p < produtores; p++) {
+            int base = p * porProdutor;
+            executor.execute(() -> {
+                for (int i = 0; i < porProdutor; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+                fim.countDown();
+            });
+            executor.execute(() -> {
+                while (consumidos.get() < total) {
+                    Integer elemento = buffer.poll();
+                    if (elemento != null) {
+                        assertTrue(recebidos.add(elemento), "Elemento entregue mais de uma vez");
+                        consumidos.incrementAndGet();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                fim.countDown();
+            });
+        }
+
+        assertTrue(fim.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(total, recebidos.size());
+        assertTrue(buffer.isEmpty());
+    }
+}
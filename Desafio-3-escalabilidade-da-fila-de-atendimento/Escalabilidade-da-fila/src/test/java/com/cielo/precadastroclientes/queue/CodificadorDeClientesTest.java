@@ -0,0 +1,108 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CodificadorDeClientesTest {
+
+    @Test
+    void testCpfECnpjVoltamComZerosAEsquerdaESemTabela() {
+        CodificadorDeClientes codificador = new CodificadorDeClientes();
+        long cpf = codificador.codificar("00012345678");
+        long cnpj = codificador.codificar("00012345678000");
+
+        assertNotEquals(cpf, cnpj);
+        assertEquals("00012345678", codificador.decodificar(cpf));
+        assertEquals("00012345678000", codificador.retirar(cnpj));
+        assertEquals(TipoDeCliente.PF, CodificadorDeClientes.tipo(cpf));
+        assertEquals(TipoDeCliente.PJ, CodificadorDeClientes.tipo(cnpj));
+        assertEquals(0, codificador.getOutros());
+        assertNotEquals(FilaSegmentadaDeLongs.VAZIO, codificador.codificar("00000000000"));
+    }
+
+    @Test
+    void testIdentificadorForaDoPadraoSaiDaTabelaAoSerRetirado() {
+        CodificadorDeClientes codificador = new CodificadorDeClientes();
+        long codigo = codificador.codificar("1234567890a");
+
+        assertEquals(TipoDeCliente.DESCONHECIDO, CodificadorDeClientes.tipo(codigo));
+        assertEquals(1, codificador.getOutros());
+        assertEquals("1234567890a", codificador.decodificar(codigo));
+        assertEquals("1234567890a", codificador.retirar(codigo));
+        assertEquals(0, codificador.getOutros());
+        assertNull(codificador.decodificar(codigo));
+    }
+
+    @Test
+    void testFilaDeLongsEntregaCadaValorUmaVezComVariosProdutoresEConsumidores() throws Exception {
+        FilaSegmentadaDeLongs fila = new FilaSegmentadaDeLongs(64, true);
+        int produtores = 4;
+        int porProdutor = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(produtores * 2);
+        CountDownLatch produzidos = new CountDownLatch(produtores);
+        List<Set<Long>> recebidos = new ArrayList<>();
+
+        for (int p = 0; p < produtores; p++) {
+            long primeiro = (long) p * porProdutor + 1;
+            executor.submit(() -> {
+                for (long v = primeiro; v < primeiro + porProdutor; v++) {
+                    fila.offer(v, v * 10);
+                }
+                produzidos.countDown();
+            });
+        }
+        for (int c = 0; c < produtores; c++) {
+            Set<Long> meus = new HashSet<>();
+            recebidos.add(meus);
+            executor.submit(() -> {
+                while (produzidos.getCount() > 0 || !fila.isEmpty()) {
+                    if (fila.drenar(16, meus::add) == 0) {
+                        long valor = fila.poll();
+                        if (valor != FilaSegmentadaDeLongs.VAZIO) {
+                            meus.add(valor);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Set<Long> todos = new HashSet<>();
+        int total = 0;
+        for (Set<Long> meus : recebidos) {
+            total += meus.size();
+            todos.addAll(meus);
+        }
+        assertEquals(produtores * porProdutor, total);
+        assertEquals(produtores * porProdutor, todos.size());
+        assertEquals(Long.MAX_VALUE, fila.carimboDaFrente());
+    }
+
+    @Test
+    void testCarimboAcompanhaOValor() {
+        FilaSegmentadaDeLongs fila = new FilaSegmentadaDeLongs(2, true);
+        fila.offer(5, 50);
+        fila.offer(6, 60);
+        fila.offer(7, 70);
+
+        assertEquals(50, fila.carimboDaFrente());
+        assertEquals(5, fila.poll());
+        assertEquals(60, fila.carimboDaFrente());
+        List<long[]> vistos = new ArrayList<>();
+        fila.percorrerComCarimbos((valor, carimbo) -> vistos.add(new long[]{valor, carimbo}));
+        assertEquals(2, vistos.size());
+        assertArrayEquals(new long[]{7, 70}, vistos.get(1));
+        assertThrows(IllegalArgumentException.class, () -> fila.offer(FilaSegmentadaDeLongs.VAZIO, 0));
+    }
+}
@@ -0,0 +1,114 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CopiasNaFilaTest {
+
+    private static final String CPF = "11111111111";
+
+    private final ContadoresDaFila contadores = new ContadoresDaFila();
+
+    private CopiasNaFila copias(ModoDeDeduplicacao modo) {
+        return new CopiasNaFila(modo, 2, contadores);
+    }
+
+    @Test
+    void testManterPosicaoRecusaACopiaDeQuemJaEstaNaFila() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.MANTER_POSICAO);
+        assertEquals(EntradaNaFila.NOVA, copias.entrar(CPF));
+        assertEquals(EntradaNaFila.DUPLICADA, copias.entrar(CPF));
+        assertEquals(1, contadores.duplicados.sum());
+
+        assertEquals(SaidaDaFila.ENTREGAR, copias.sair(CPF, IndiceDeClientes.chave(CPF)));
+        assertEquals(EntradaNaFila.NOVA, copias.entrar(CPF), "Depois de sair, o cliente pode entrar de novo");
+    }
+
+    @Test
+    void testMoverParaOFimTornaObsoletaACopiaAnterior() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.MOVER_PARA_O_FIM);
+        long chave = IndiceDeClientes.chave(CPF);
+        assertEquals(EntradaNaFila.NOVA, copias.entrar(CPF));
+        assertEquals(EntradaNaFila.MOVIDA, copias.entrar(CPF));
+
+        assertEquals(SaidaDaFila.OBSOLETA, copias.sair(CPF, chave));
+        assertEquals(SaidaDaFila.ENTREGAR, copias.sair(CPF, chave));
+        assertEquals(1, contadores.copiasObsoletas.sum());
+    }
+
+    @Test
+    void testEntradaDesfeitaDevolveAValidadeACopiaAnterior() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.MOVER_PARA_O_FIM);
+        copias.entrar(CPF);
+        assertEquals(EntradaNaFila.MOVIDA, copias.entrar(CPF));
+        copias.desfazerEntrada(CPF);
+
+        assertEquals(SaidaDaFila.ENTREGAR, copias.sair(CPF, IndiceDeClientes.chave(CPF)));
+    }
+
+    @Test
+    void testIdentificadorSemChaveNaoParticipaDaDeduplicacao() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.MANTER_POSICAO);
+        assertEquals(EntradaNaFila.NOVA, copias.entrar("invalido"));
+        assertEquals(EntradaNaFila.NOVA, copias.entrar("invalido"));
+        assertEquals(SaidaDaFila.ENTREGAR, copias.sair("invalido", IndiceDeClientes.SEM_CHAVE));
+    }
+
+    @Test
+    void testEntregasAnterioresValemAteACopiaDevolvidaSair() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.DESLIGADO);
+        assertEquals(EntradaNaFila.NOVA, copias.voltar(CPF, 2));
+        assertEquals(2, copias.entregasAnteriores(CPF));
+
+        copias.sair(CPF, IndiceDeClientes.chave(CPF));
+        assertEquals(0, copias.entregasAnteriores(CPF));
+    }
+
+    @Test
+    void testCopiaDevolvidaDeQuemVoltouAFilaEDescartadaComManterPosicao() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.MANTER_POSICAO);
+        // O cliente foi recebido (saiu) e cadastrado de novo antes de o recebimento expirar
+        copias.entrar(CPF);
+        copias.sair(CPF, IndiceDeClientes.chave(CPF));
+        copias.entrar(CPF);
+
+        assertEquals(EntradaNaFila.DUPLICADA, copias.voltar(CPF, 1));
+        assertEquals(0, copias.entregasAnteriores(CPF));
+    }
+
+    @Test
+    void testCanceladasSaemDescartadasEPedemCompactacaoNoLimite() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.DESLIGADO);
+        long chave = IndiceDeClientes.chave(CPF);
+        copias.entrar(CPF);
+        copias.entrar(CPF);
+        assertFalse(copias.compactacaoNecessaria());
+
+        assertEquals(2, copias.cancelar(chave));
+        assertTrue(copias.compactacaoNecessaria());
+        assertEquals(0, copias.cancelar(chave), "As cópias já estavam canceladas");
+
+        assertEquals(SaidaDaFila.CANCELADA, copias.sair(CPF, chave));
+        assertFalse(copias.compactacaoNecessaria());
+        assertEquals(1, contadores.copiasCanceladas.sum());
+    }
+
+    @Test
+    void testCompactarRemoveSoAsCopiasCanceladas() {
+        CopiasNaFila copias = copias(ModoDeDeduplicacao.DESLIGADO);
+        FilaEmMemoria<String> fila = new FilaCompactada(16, RegistroDeTempoNaFila.NENHUM);
+        for (String cliente : new String[]{CPF, "22222222222", CPF}) {
+            copias.entrar(cliente);
+            fila.offer(cliente, FaixaDeMcc.DESCONHECIDA);
+        }
+        copias.cancelar(IndiceDeClientes.chave(CPF));
+
+        assertEquals(2, copias.compactar(fila));
+        assertEquals(List.of("22222222222"), fila.snapshot());
+        assertEquals(2, contadores.copiasCanceladas.sum());
+        assertFalse(copias.compactacaoNecessaria());
+    }
+}
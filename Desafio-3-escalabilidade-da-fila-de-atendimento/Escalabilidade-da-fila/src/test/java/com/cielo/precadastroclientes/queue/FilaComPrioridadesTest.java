@@ -0,0 +1,107 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilaComPrioridadesTest {
+
+    private static final String PJ = "12345678000199";
+    private static final String PF = "12345678901";
+
+    private static List<RaiaDeAtendimento> pjEVarejo(int pesoPj) {
+        return List.of(new RaiaDeAtendimento("pj", TipoDeCliente.PJ, List.of(), pesoPj),
+                new RaiaDeAtendimento("varejo", null, List.of(FaixaDeMcc.VAREJO, FaixaDeMcc.SERVICOS), 1));
+    }
+
+    @Test
+    void testPesosIntercalamAsRaiasNaProporcaoConfigurada() {
+        FilaComPrioridades fila = new FilaComPrioridades(pjEVarejo(3), 1, ModoDePrioridade.PESOS, 60000, 4);
+        for (int i = 0; i < 8; i++) {
+            fila.offer(String.format("%014d", i), FaixaDeMcc.DESCONHECIDA);
+            fila.offer(String.format("%011d", i), FaixaDeMcc.VAREJO);
+            fila.offer(String.format("%011d", 100 + i), FaixaDeMcc.GOVERNO);
+        }
+        assertArrayEquals(new String[]{"pj", "varejo", "padrao"}, fila.nomes());
+        assertArrayEquals(new long[]{8, 8, 8}, fila.profundidades());
+
+        // Pesos 3, 1 e 1: a cada cinco atendimentos, três PJ intercalados com um de cada das outras raias
+        StringBuilder ordem = new StringBuilder();
+        for (String cliente : fila.drenar(10)) {
+            ordem.append(cliente.length() == 14 ? 'J' : cliente.startsWith("000000001") ? 'G' : 'V');
+        }
+        assertEquals("JVJGJJVJGJ", ordem.toString());
+
+        // Com a raia PJ vazia as outras continuam sendo atendidas
+        fila.drenar(4);
+        assertEquals(10, fila.drenar(100).size());
+        assertTrue(fila.isEmpty());
+    }
+
+    @Test
+    void testEstritaAtendeAPrioridadeMaiorAteAOutraEnvelhecer() throws InterruptedException {
+        FilaComPrioridades fila = new FilaComPrioridades(pjEVarejo(1), 1, ModoDePrioridade.ESTRITA, 100, 4);
+        fila.offer(PF, FaixaDeMcc.GOVERNO);
+        fila.offer(PJ, FaixaDeMcc.GOVERNO);
+        assertEquals(PJ, fila.poll());
+
+        fila.offer(PJ, FaixaDeMcc.GOVERNO);
+        TimeUnit.MILLISECONDS.sleep(150);
+        fila.offer("98765432000100", FaixaDeMcc.GOVERNO);
+        assertEquals(PF, fila.poll(), "A frente da raia padrão passou do envelhecimento");
+        assertEquals(PJ, fila.poll());
+        assertEquals("98765432000100", fila.poll());
+        assertNull(fila.poll());
+    }
+
+    @Test
+    void testProdutoresEConsumidoresConcorrentesNaoPerdemNemDuplicamElementos() throws Exception {
+        FilaComPrioridades fila = new FilaComPrioridades(pjEVarejo(2), 1, ModoDePrioridade.PESOS, 60000, 16);
+        int porProdutor = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Set<String> retirados = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicados = new AtomicInteger();
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                int produtor = p;
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < porProdutor; i++) {
+                        String cliente = produtor % 2 == 0
+                                ? String.format("%014d", produtor * porProdutor + i)
+                                : String.format("%011d", produtor * porProdutor + i);
+                        fila.offer(cliente, produtor == 1 ? FaixaDeMcc.VAREJO : FaixaDeMcc.DESCONHECIDA);
+                    }
+                }));
+            }
+            for (int c = 0; c < 4; c++) {
+                tarefas.add(executor.submit(() -> {
+                    while (retirados.size() < 4 * porProdutor) {
+                        String cliente = fila.poll();
+                        if (cliente != null && !retirados.add(cliente)) {
+                            duplicados.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, duplicados.get());
+        assertEquals(4 * porProdutor, retirados.size());
+        assertArrayEquals(new long[]{0, 0, 0}, fila.profundidades());
+    }
+}
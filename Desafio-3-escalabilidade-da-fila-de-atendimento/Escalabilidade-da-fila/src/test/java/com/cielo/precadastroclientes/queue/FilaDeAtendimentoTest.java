@@ -0,0 +1,547 @@
+package com.cielo.precadastroclientes.queue;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilaDeAtendimentoTest {
+
+    private FilaProperties propriedades(int capacidade, PoliticaDeTransbordo politica) {
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidade(capacidade);
+        properties.setTamanhoDoSegmento(2);
+        properties.setPoliticaDeTransbordo(politica);
+        properties.setTempoDeBloqueioMs(10);
+        return properties;
+    }
+
+    @Test
+    void testCresceEmSegmentosMantendoAOrdem() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(10, PoliticaDeTransbordo.REJEITAR));
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(fila.adicionarClienteNaFila("cliente-" + i));
+        }
+
+        assertEquals(7, fila.getTamanho());
+        assertArrayEquals(new String[]{"cliente-0", "cliente-1", "cliente-2", "cliente-3", "cliente-4", "cliente-5", "cliente-6"},
+                fila.obterConteudoDaFila());
+        for (int i = 0; i < 7; i++) {
+            assertEquals("cliente-" + i, fila.poll());
+        }
+        assertNull(fila.poll());
+        assertTrue(fila.filaVazia());
+    }
+
+    @Test
+    void testRejeitarContaClientesRecusados() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(2, PoliticaDeTransbordo.REJEITAR));
+
+        assertTrue(fila.adicionarClienteNaFila("a"));
+        assertTrue(fila.adicionarClienteNaFila("b"));
+        assertFalse(fila.adicionarClienteNaFila("c"), "A fila cheia deve recusar o cliente");
+
+        assertEquals(1, fila.getContadores().getRejeitados());
+        assertEquals(2, fila.getTamanho());
+    }
+
+    @Test
+    void testBloquearExpiraQuandoNaoHaVaga() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(1, PoliticaDeTransbordo.BLOQUEAR));
+
+        assertTrue(fila.adicionarClienteNaFila("a"));
+        assertFalse(fila.adicionarClienteNaFila("b"));
+
+        assertEquals(1, fila.getContadores().getBloqueios());
+        assertEquals(1, fila.getContadores().getBloqueiosExpirados());
+    }
+
+    @Test
+    void testDescartarMaisAntigoAbreEspacoParaONovoCliente() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(2, PoliticaDeTransbordo.DESCARTAR_MAIS_ANTIGO));
+
+        fila.adicionarClienteNaFila("a");
+        fila.adicionarClienteNaFila("b");
+        assertTrue(fila.adicionarClienteNaFila("c"));
+
+        assertArrayEquals(new String[]{"b", "c"}, fila.obterConteudoDaFila());
+        assertEquals(1, fila.getContadores().getDescartados());
+    }
+
+    @Test
+    void testDerramarEmDiscoDevolveOsExcedentesNaOrdem(@TempDir Path diretorio) {
+        FilaProperties properties = propriedades(2, PoliticaDeTransbordo.DERRAMAR_EM_DISCO);
+        properties.setDiretorioDeTransbordo(diretorio.toString());
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+
+        for (String cliente : new String[]{"a", "b", "c", "d"}) {
+            assertTrue(fila.adicionarClienteNaFila(cliente));
+        }
+        assertEquals(4, fila.getTamanho());
+        assertEquals(2, fila.getContadores().getDerramadosEmDisco());
+
+        assertEquals("a", fila.poll());
+        assertTrue(fila.adicionarClienteNaFila("e"));
+        assertEquals("b", fila.poll());
+        assertEquals("c", fila.poll());
+        assertEquals("d", fila.poll());
+        assertEquals("e", fila.poll());
+        assertNull(fila.poll());
+        assertTrue(fila.filaVazia());
+    }
+
+    @Test
+    void testRetirarClientesDevolveUmLoteNaOrdemLimitadoAoMaximo() {
+        FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+        properties.setMaximoPorLote(4);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        for (int i = 0; i < 7; i++) {
+            fila.adicionarClienteNaFila("cliente-" + i);
+        }
+
+        assertEquals(List.of("cliente-0", "cliente-1", "cliente-2", "cliente-3"), fila.retirarClientes(50));
+        assertEquals(List.of("cliente-4", "cliente-5", "cliente-6"), fila.retirarClientes(4));
+        assertTrue(fila.retirarClientes(4).isEmpty());
+        assertEquals(0, fila.getTamanho());
+        assertEquals(7, fila.getContadores().getRetirados());
+    }
+
+    @Test
+    void testPaginasContinuamDoCursorMesmoComRetiradasEntreElas() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(10, PoliticaDeTransbordo.REJEITAR));
+        for (int i = 0; i < 7; i++) {
+            fila.adicionarClienteNaFila("cliente-" + i);
+        }
+
+        List<String> pagina = new ArrayList<>();
+        long cursor = fila.percorrerConteudo(0, cliente -> pagina.size() < 3 && pagina.add(cliente));
+        assertEquals(List.of("cliente-0", "cliente-1", "cliente-2"), pagina);
+
+        // Os clientes já vistos saem da fila; a próxima página não repete nem pula ninguém
+        fila.retirarClientes(4);
+        pagina.clear();
+        cursor = fila.percorrerConteudo(cursor, cliente -> pagina.size() < 3 && pagina.add(cliente));
+        assertEquals(List.of("cliente-4", "cliente-5", "cliente-6"), pagina);
+
+        fila.adicionarClienteNaFila("cliente-7");
+        pagina.clear();
+        fila.percorrerConteudo(cursor, pagina::add);
+        assertEquals(List.of("cliente-7"), pagina);
+    }
+
+    @Test
+    void testClienteRecebidoVoltaParaAFilaSeNaoForConfirmado() {
+        FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+        properties.setTempoDeVisibilidadeMs(1000);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        fila.adicionarClienteNaFila("cliente-0");
+
+        Recebimento primeiro = fila.receber();
+        assertEquals("cliente-0", primeiro.getCliente());
+        assertEquals(1, primeiro.getEntregas());
+        assertNull(fila.receber());
+        assertEquals(1, fila.getTamanho());
+
+        fila.expirarRecebimentos(FilaDeAtendimento.agoraMs() + 2000);
+
+        Recebimento segundo = fila.receber();
+        assertEquals("cliente-0", segundo.getCliente());
+        assertEquals(2, segundo.getEntregas());
+        assertFalse(fila.confirmar(primeiro.getRecibo()));
+        assertTrue(fila.confirmar(segundo.getRecibo()));
+        assertEquals(0, fila.getTamanho());
+        assertEquals(1, fila.getContadores().getExpirados());
+        assertEquals(1, fila.getContadores().getReentregas());
+        fila.encerrar();
+    }
+
+    @Test
+    void testDevolverDisponibilizaOClienteImediatamente() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(10, PoliticaDeTransbordo.REJEITAR));
+        fila.adicionarClienteNaFila("cliente-0");
+
+        Recebimento recebimento = fila.receber();
+        assertTrue(fila.devolver(recebimento.getRecibo()));
+        assertFalse(fila.confirmar(recebimento.getRecibo()));
+        assertEquals("cliente-0", fila.poll());
+        assertEquals(1, fila.getContadores().getDevolvidos());
+        fila.encerrar();
+    }
+
+    @Test
+    void testEntregasAnterioresSaemComACopiaDevolvida() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(10, PoliticaDeTransbordo.REJEITAR));
+
+        // Devolvido e depois retirado de vez: um novo cadastro começa da primeira entrega
+        fila.adicionarClienteNaFila("11111111111");
+        assertTrue(fila.devolver(fila.receber().getRecibo()));
+        assertEquals("11111111111", fila.poll());
+        fila.adicionarClienteNaFila("11111111111");
+        assertEquals(1, fila.receber().getEntregas());
+
+        // Devolvido e cancelado, com a cópia removida pela compactação
+        fila.adicionarClienteNaFila("22222222222");
+        Recebimento recebimento = fila.receber();
+        assertEquals("22222222222", recebimento.getCliente());
+        assertTrue(fila.devolver(recebimento.getRecibo()));
+        assertTrue(fila.removerClienteDaFila("22222222222"));
+        fila.compactar();
+        fila.adicionarClienteNaFila("22222222222");
+        assertEquals(1, fila.receber().getEntregas());
+        fila.encerrar();
+    }
+
+    @Test
+    void testManterPosicaoIgnoraClienteQueJaEstaNaFila() {
+        FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+        properties.setDeduplicacao(ModoDeDeduplicacao.MANTER_POSICAO);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+
+        assertTrue(fila.adicionarClienteNaFila("11111111111"));
+        assertTrue(fila.adicionarClienteNaFila("22222222222"));
+        assertTrue(fila.adicionarClienteNaFila("11111111111"));
+
+        assertEquals(2, fila.getTamanho());
+        assertArrayEquals(new String[]{"11111111111", "22222222222"}, fila.obterConteudoDaFila());
+        assertEquals(1, fila.getContadores().getDuplicados());
+        assertEquals("11111111111", fila.poll());
+        // Depois de sair da fila, o cliente pode entrar de novo
+        assertTrue(fila.adicionarClienteNaFila("11111111111"));
+        assertEquals(List.of("22222222222", "11111111111"), fila.retirarClientes(10));
+    }
+
+    @Test
+    void testMoverParaOFimEntregaOClienteApenasNaPosicaoNova() {
+        FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+        properties.setDeduplicacao(ModoDeDeduplicacao.MOVER_PARA_O_FIM);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+
+        fila.adicionarClienteNaFila("11111111111");
+        fila.adicionarClienteNaFila("22222222222");
+        fila.adicionarClienteNaFila("11111111111");
+
+        assertEquals("22222222222", fila.poll());
+        assertEquals("11111111111", fila.poll());
+        assertNull(fila.poll());
+        assertEquals(0, fila.getTamanho());
+        assertEquals(1, fila.getContadores().getCopiasObsoletas());
+    }
+
+    @Test
+    void testPosicaoNaFilaAcompanhaAsRetiradas() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(20, PoliticaDeTransbordo.REJEITAR));
+        for (int i = 0; i < 7; i++) {
+            fila.adicionarClienteNaFila(String.format("%011d", i));
+        }
+        fila.adicionarClienteNaFila("cliente-7");
+
+        assertEquals(1, fila.posicaoNaFila("00000000000"));
+        assertEquals(7, fila.posicaoNaFila("00000000006"));
+        assertEquals(FilaEmMemoria.SEM_POSICAO, fila.posicaoNaFila("99999999999"));
+        assertEquals(FilaEmMemoria.SEM_POSICAO, fila.posicaoNaFila("cliente-7"), "Apenas CPF/CNPJ têm posição");
+
+        fila.poll();
+        fila.retirarClientes(2);
+        Recebimento recebimento = fila.receber();
+        assertEquals("00000000003", recebimento.getCliente());
+        assertEquals(FilaEmMemoria.SEM_POSICAO, fila.posicaoNaFila("00000000003"), "Em processamento não está aguardando");
+        assertEquals(FilaEmMemoria.SEM_POSICAO, fila.posicaoNaFila("00000000000"));
+        assertEquals(3, fila.posicaoNaFila("00000000006"));
+
+        // Devolvido, o cliente volta para o fim
+        assertTrue(fila.devolver(recebimento.getRecibo()));
+        assertEquals(5, fila.posicaoNaFila("00000000003"));
+    }
+
+    @Test
+    void testPosicaoNaFilaDescontaCopiasMovidasParaOFim() {
+        FilaProperties properties = propriedades(20, PoliticaDeTransbordo.REJEITAR);
+        properties.setDeduplicacao(ModoDeDeduplicacao.MOVER_PARA_O_FIM);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        for (int i = 0; i < 5; i++) {
+            fila.adicionarClienteNaFila(String.format("%011d", i));
+        }
+
+        fila.adicionarClienteNaFila("00000000001");
+        fila.adicionarClienteNaFila("00000000002");
+        // A cópia antiga de 1 e de 2 continua ocupando posição, mas não conta para quem está atrás
+        assertEquals(2, fila.posicaoNaFila("00000000003"));
+        assertEquals(4, fila.posicaoNaFila("00000000001"));
+        assertEquals(5, fila.posicaoNaFila("00000000002"));
+
+        assertEquals("00000000000", fila.poll());
+        assertEquals("00000000003", fila.poll());
+        assertEquals(2, fila.posicaoNaFila("00000000001"));
+        assertEquals(3, fila.posicaoNaFila("00000000002"));
+    }
+
+    @Test
+    void testPosicaoNaFilaComParticoesOuRaiasERecusadaAoSubir() {
+        FilaProperties comParticoes = propriedades(20, PoliticaDeTransbordo.REJEITAR);
+        comParticoes.setParticoes(2);
+        assertThrows(IllegalArgumentException.class, () -> new FilaDeAtendimento(comParticoes));
+
+        FilaProperties comRaias = propriedades(20, PoliticaDeTransbordo.REJEITAR);
+        comRaias.setPrioridade(ModoDePrioridade.PESOS);
+        assertThrows(IllegalArgumentException.class, () -> new FilaDeAtendimento(comRaias));
+
+        // Desligada, a fila particionada sobe e a consulta responde que não está disponível
+        comParticoes.setPosicaoNaFila(false);
+        FilaDeAtendimento fila = new FilaDeAtendimento(comParticoes);
+        fila.adicionarClienteNaFila("00000000001");
+        assertThrows(UnsupportedOperationException.class, () -> fila.posicaoNaFila("00000000001"));
+        fila.encerrar();
+    }
+
+    @Test
+    void testClienteCanceladoEPuladoNaSaidaELiberaAVaga() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(3, PoliticaDeTransbordo.REJEITAR));
+        fila.adicionarClienteNaFila("11111111111");
+        fila.adicionarClienteNaFila("22222222222");
+        fila.adicionarClienteNaFila("22222222222");
+
+        assertTrue(fila.removerClienteDaFila("22222222222"));
+        assertFalse(fila.removerClienteDaFila("22222222222"), "Já foi cancelado");
+        assertFalse(fila.removerClienteDaFila("33333333333"));
+        assertFalse(fila.adicionarClienteNaFila("33333333333"), "As cópias canceladas ocupam vaga até saírem");
+
+        assertEquals("11111111111", fila.poll());
+        assertNull(fila.poll(), "As duas cópias canceladas são descartadas");
+        assertEquals(0, fila.getTamanho());
+        assertEquals(1, fila.getContadores().getCancelados());
+        assertEquals(2, fila.getContadores().getCopiasCanceladas());
+        assertEquals(1, fila.getContadores().getRetirados());
+    }
+
+    @Test
+    void testCancelamentoAtualizaAPosicaoDeQuemEstaAtras() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(20, PoliticaDeTransbordo.REJEITAR));
+        for (int i = 0; i < 5; i++) {
+            fila.adicionarClienteNaFila(String.format("%011d", i));
+        }
+
+        assertTrue(fila.removerClienteDaFila("00000000001"));
+        assertEquals(FilaEmMemoria.SEM_POSICAO, fila.posicaoNaFila("00000000001"));
+        assertEquals(4, fila.posicaoNaFila("00000000004"));
+
+        Recebimento recebimento = fila.receber();
+        assertEquals("00000000000", recebimento.getCliente());
+        assertFalse(fila.removerClienteDaFila("00000000000"), "Em processamento não está aguardando");
+        assertTrue(fila.confirmar(recebimento.getRecibo()));
+        assertEquals(List.of("00000000002", "00000000003", "00000000004"), fila.retirarClientes(10));
+    }
+
+    @Test
+    void testClienteCanceladoPodeVoltarParaAFilaComDeduplicacao() {
+        FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+        properties.setDeduplicacao(ModoDeDeduplicacao.MANTER_POSICAO);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        fila.adicionarClienteNaFila("11111111111");
+        fila.adicionarClienteNaFila("22222222222");
+
+        assertTrue(fila.removerClienteDaFila("11111111111"));
+        assertTrue(fila.adicionarClienteNaFila("11111111111"), "A cópia cancelada não conta como duplicada");
+        assertEquals(2, fila.posicaoNaFila("11111111111"));
+
+        assertEquals("22222222222", fila.poll());
+        assertEquals("11111111111", fila.poll());
+        assertNull(fila.poll());
+        assertEquals(0, fila.getContadores().getDuplicados());
+    }
+
+    @Test
+    void testCompactarRemoveAsCanceladasDoMeioDaFila() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(4, PoliticaDeTransbordo.REJEITAR));
+        for (int i = 0; i < 4; i++) {
+            fila.adicionarClienteNaFila(String.format("%011d", i));
+        }
+        fila.removerClienteDaFila("00000000001");
+        fila.removerClienteDaFila("00000000002");
+
+        fila.compactar();
+        assertEquals(2, fila.getTamanho());
+        assertEquals(2, fila.getContadores().getCopiasCanceladas());
+        assertArrayEquals(new String[]{"00000000000", "00000000003"}, fila.obterConteudoDaFila());
+        assertEquals(2, fila.posicaoNaFila("00000000003"));
+
+        assertTrue(fila.adicionarClienteNaFila("00000000005"));
+        assertTrue(fila.adicionarClienteNaFila("00000000006"));
+        assertEquals(List.of("00000000000", "00000000003", "00000000005", "00000000006"), fila.retirarClientes(10));
+        assertEquals(2, fila.getContadores().getCopiasCanceladas(), "As removidas não são contadas de novo");
+    }
+
+    @Test
+    void testRaiasDePrioridadeSeparamPjDePfComAsMesmasVagas() {
+        FilaProperties properties = propriedades(4, PoliticaDeTransbordo.REJEITAR);
+        properties.setPrioridade(ModoDePrioridade.ESTRITA);
+        properties.setRaias(List.of(new RaiaDeAtendimento("pj", TipoDeCliente.PJ, List.of(), 1)));
+        properties.setPosicaoNaFila(false);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+
+        fila.adicionarClienteNaFila("11111111111", "5411");
+        fila.adicionarClienteNaFila("22222222222");
+        fila.adicionarClienteNaFila("12345678000199", "5411");
+        fila.adicionarClienteNaFila("98765432000100");
+        assertFalse(fila.adicionarClienteNaFila("33333333333"), "As raias dividem a capacidade da fila");
+
+        assertArrayEquals(new String[]{"pj", "padrao"}, fila.getRaias());
+        assertArrayEquals(new long[]{2, 2}, fila.getProfundidadePorRaia());
+        assertThrows(UnsupportedOperationException.class, () -> fila.posicaoNaFila("11111111111"));
+        assertEquals(List.of("12345678000199", "98765432000100", "11111111111", "22222222222"), fila.retirarClientes(10));
+    }
+
+    @Test
+    void testClienteDeUmaRaiaQueExpiraVoltaParaAPropriaRaia() {
+        FilaProperties properties = propriedades(4, PoliticaDeTransbordo.REJEITAR);
+        properties.setPrioridade(ModoDePrioridade.ESTRITA);
+        properties.setRaias(List.of(new RaiaDeAtendimento("pj-varejo", TipoDeCliente.PJ, List.of(FaixaDeMcc.VAREJO), 1)));
+        properties.setPosicaoNaFila(false);
+        properties.setTempoDeVisibilidadeMs(1000);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        List<FaixaDeMcc> faixas = new ArrayList<>();
+        fila.setRegistroDeTempoNaFila((tipo, faixa, nanos) -> faixas.add(faixa));
+
+        fila.adicionarClienteNaFila("12345678000199", "5411");
+        fila.adicionarClienteNaFila("98765432000100");
+        Recebimento primeiro = fila.receber();
+        assertEquals("12345678000199", primeiro.getCliente());
+        fila.expirarRecebimentos(FilaDeAtendimento.agoraMs() + 2000);
+
+        // De volta à raia pj-varejo, e não ao fim da raia padrão
+        assertArrayEquals(new long[]{1, 1}, fila.getProfundidadePorRaia());
+        Recebimento segundo = fila.receber();
+        assertEquals("12345678000199", segundo.getCliente());
+        assertEquals(2, segundo.getEntregas());
+        assertEquals(List.of(FaixaDeMcc.VAREJO, FaixaDeMcc.VAREJO), faixas);
+        fila.encerrar();
+    }
+
+    @Test
+    void testAgendamentoEntraNaFilaNoPrazoEEsperaVagaSemSePerder() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(1, PoliticaDeTransbordo.REJEITAR));
+        long agora = System.currentTimeMillis();
+
+        assertTrue(fila.agendarClienteNaFila("11111111111", "5411", agora + 60_000));
+        assertTrue(fila.agendarClienteNaFila("22222222222", null, agora + 120_000));
+        assertTrue(fila.agendarClienteNaFila("33333333333", null, agora - 1), "Prazo vencido entra na hora");
+        assertArrayEquals(new String[]{"33333333333"}, fila.obterConteudoDaFila());
+        assertEquals(2, fila.getAgendamentosPendentes());
+        assertEquals(-1, fila.posicaoNaFila("11111111111"), "Agendado não ocupa posição antes do prazo");
+
+        // Venceu com a fila cheia: volta para a roda e tenta de novo no tick seguinte
+        fila.amadurecerAgendamentos(agora + 60_100);
+        assertArrayEquals(new String[]{"33333333333"}, fila.obterConteudoDaFila());
+        assertEquals(2, fila.getAgendamentosPendentes());
+
+        assertEquals("33333333333", fila.poll());
+        fila.amadurecerAgendamentos(agora + 60_200);
+        assertArrayEquals(new String[]{"11111111111"}, fila.obterConteudoDaFila());
+        assertEquals(1, fila.getAgendamentosPendentes());
+        assertEquals(2, fila.getContadores().getAgendados());
+        assertEquals(1, fila.getContadores().getAgendamentosLiberados());
+    }
+
+    @Test
+    void testEsperasSaoAtendidasNaOrdemDeChegadaQuandoUmClienteEntra() {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(10, PoliticaDeTransbordo.REJEITAR));
+        List<String> primeiro = new ArrayList<>();
+        List<String> segundo = new ArrayList<>();
+
+        assertNotNull(fila.aguardarCliente(1000, recebimento -> primeiro.add(recebimento.getCliente()), () -> fail("Não deveria expirar")));
+        assertNotNull(fila.aguardarCliente(1000, recebimento -> segundo.add(recebimento.getCliente()), () -> fail("Não deveria expirar")));
+        assertEquals(2, fila.getAtendentesAguardando());
+
+        fila.adicionarClienteNaFila("cliente-0");
+        assertEquals(List.of("cliente-0"), primeiro);
+        assertTrue(segundo.isEmpty());
+        fila.adicionarClienteNaFila("cliente-1");
+        assertEquals(List.of("cliente-1"), segundo);
+        assertEquals(0, fila.getAtendentesAguardando());
+        assertTrue(fila.filaVazia());
+        fila.encerrar();
+    }
+
+    @Test
+    void testClienteEntregueAUmaEsperaVoltaParaAFilaSemConfirmacao() {
+        FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+        properties.setTempoDeVisibilidadeMs(1000);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        List<Recebimento> entregues = new ArrayList<>();
+
+        // O atendente desistiu durante a entrega: quem aguardava devolve o recibo
+        fila.aguardarCliente(1000, recebimento -> fila.devolver(recebimento.getRecibo()), () -> fail("Não deveria expirar"));
+        fila.adicionarClienteNaFila("11111111111");
+        assertEquals(1, fila.getTamanho());
+
+        // Nem confirmado nem devolvido: volta no fim do tempo de visibilidade
+        fila.aguardarCliente(1000, entregues::add, () -> fail("Não deveria expirar"));
+        assertEquals(2, entregues.get(0).getEntregas());
+        assertEquals(0, fila.getContadores().getConfirmados());
+        fila.expirarRecebimentos(FilaDeAtendimento.agoraMs() + 2000);
+        assertEquals("11111111111", fila.poll());
+        fila.encerrar();
+    }
+
+    @Test
+    void testEsperaExpiraECancelamentoLiberaOLimite() {
+        FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+        properties.setMaximoDeEsperas(1);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        AtomicInteger expiradas = new AtomicInteger();
+
+        EsperaPorCliente espera = fila.aguardarCliente(1000, cliente -> fail("Não deveria receber"), expiradas::incrementAndGet);
+        assertNull(fila.aguardarCliente(1000, cliente -> { }, () -> { }), "O limite de esperas deve ser respeitado");
+        espera.cancelar();
+
+        assertNotNull(fila.aguardarCliente(1000, cliente -> fail("Não deveria receber"), expiradas::incrementAndGet));
+        fila.expirarEsperas(FilaDeAtendimento.agoraMs() + 2000);
+        assertEquals(1, expiradas.get());
+        assertEquals(0, fila.getAtendentesAguardando());
+        assertEquals(1, fila.getContadores().getEsperasRecusadas());
+
+        // Sem esperas, o cliente fica na fila
+        fila.adicionarClienteNaFila("cliente-0");
+        assertEquals("cliente-0", fila.poll());
+        fila.encerrar();
+    }
+
+    @Test
+    void testTempoNaFilaERegistradoPorTipoEFaixaDeMcc() throws InterruptedException {
+        for (int particoes : new int[]{1, 4}) {
+            FilaProperties properties = propriedades(10, PoliticaDeTransbordo.REJEITAR);
+            properties.setParticoes(particoes);
+            properties.setOrdemGlobal(particoes > 1);
+            properties.setPosicaoNaFila(particoes == 1);
+            FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+            List<String> registros = new ArrayList<>();
+            List<Long> tempos = new ArrayList<>();
+            fila.setRegistroDeTempoNaFila((tipo, faixa, nanos) -> {
+                registros.add(tipo + "/" + faixa);
+                tempos.add(nanos);
+            });
+
+            fila.adicionarClienteNaFila("12345678901", "5411");
+            fila.adicionarClienteNaFila("12345678000199", "4111");
+            fila.adicionarClienteNaFila("cliente-1", "abc");
+            Thread.sleep(20);
+            assertEquals("12345678901", fila.poll());
+            assertEquals(2, fila.retirarClientes(10).size());
+
+            assertEquals(List.of("PF/VAREJO", "PJ/TRANSPORTE_E_UTILIDADES", "DESCONHECIDO/DESCONHECIDA"), registros);
+            for (long nanos : tempos) {
+                assertTrue(nanos >= 20_000_000L, "Tempo na fila menor que a espera: " + nanos);
+            }
+            fila.encerrar();
+        }
+        assertEquals(FaixaDeMcc.GOVERNO, FaixaDeMcc.de("9399"));
+        assertEquals(FaixaDeMcc.SERVICOS_CONTRATADOS, FaixaDeMcc.de("742"));
+        assertEquals(FaixaDeMcc.DESCONHECIDA, FaixaDeMcc.de(null));
+    }
+}
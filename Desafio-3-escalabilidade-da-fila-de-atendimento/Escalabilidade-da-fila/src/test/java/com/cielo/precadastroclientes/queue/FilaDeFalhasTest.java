@@ -0,0 +1,64 @@
+package com.cielo.precadastroclientes.queue;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilaDeFalhasTest {
+
+    private static FilaDeFalhas filaDeFalhas(int capacidade) {
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidadeDaFilaDeFalhas(capacidade);
+        return new FilaDeFalhas(properties);
+    }
+
+    @Test
+    void testCheiaDescartaAFalhaMaisAntigaESomaTentativasDoMesmoCliente() {
+        FilaDeFalhas falhas = filaDeFalhas(2);
+        falhas.falhaDeConsulta("11111111111", new IllegalStateException("banco indisponível"));
+        falhas.identificadorInvalido("abc");
+        falhas.falhaDeConsulta("11111111111", new IllegalStateException("tempo esgotado"));
+        falhas.falhaDeConsulta("22222222222", new IllegalStateException("banco indisponível"));
+
+        List<FalhaNaFila> lista = falhas.listar(10);
+        assertEquals(2, lista.size());
+        assertEquals("11111111111", lista.get(0).getCliente());
+        assertEquals(2, lista.get(0).getTentativas());
+        assertEquals("IllegalStateException: tempo esgotado", lista.get(0).getMotivo());
+        assertEquals("22222222222", lista.get(1).getCliente());
+        assertEquals(1, falhas.getDescartadas(), "O identificador inválido era a falha mais antiga");
+        assertEquals(3, falhas.getFalhasDeConsulta());
+        assertEquals(1, falhas.getIdentificadoresInvalidos());
+    }
+
+    @Test
+    void testReenvioParaNaFilaCheiaEMantemAsTentativasDeQuemFalhaDeNovo() {
+        FilaDeFalhas falhas = filaDeFalhas(10);
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidade(2);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        for (String cliente : new String[]{"11111111111", "22222222222", "33333333333"}) {
+            falhas.falhaDeConsulta(cliente, new IllegalStateException("banco indisponível"));
+        }
+
+        assertEquals(2, falhas.reenviar(10, fila), "A fila só tinha duas vagas");
+        assertArrayEquals(new String[]{"11111111111", "22222222222"}, fila.obterConteudoDaFila());
+        assertEquals(1, falhas.getTamanho());
+
+        fila.poll();
+        falhas.consultou("11111111111");
+        fila.poll();
+        falhas.falhaDeConsulta("22222222222", new IllegalStateException("banco indisponível"));
+
+        List<FalhaNaFila> lista = falhas.listar(10);
+        assertEquals(List.of("33333333333", "22222222222"), lista.stream().map(FalhaNaFila::getCliente).toList());
+        assertEquals(2, lista.get(1).getTentativas(), "Falhou de novo depois do reenvio");
+        assertEquals(2, falhas.getReenvios());
+
+        assertEquals(2, falhas.reenviar(10, fila));
+        assertEquals(0, falhas.getTamanho());
+    }
+}
@@ -0,0 +1,130 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilaParticionadaTest {
+
+    private static List<String> clientes(int quantidade) {
+        List<String> clientes = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            clientes.add(String.format("%011d", i));
+        }
+        return clientes;
+    }
+
+    @Test
+    void testPercorrerEmPaginasVisitaCadaElementoUmaVez() {
+        FilaParticionada fila = new FilaParticionada(3, 4, false);
+        List<String> clientes = clientes(20);
+        clientes.forEach(fila::offer);
+
+        List<String> visitados = new ArrayList<>();
+        long cursor = 0;
+        while (true) {
+            List<String> pagina = new ArrayList<>();
+            cursor = fila.percorrer(cursor, cliente -> pagina.size() < 6 && pagina.add(cliente));
+            visitados.addAll(pagina);
+            if (pagina.size() < 6) {
+                break;
+            }
+        }
+        assertEquals(fila.snapshot(), visitados);
+        assertEquals(Set.copyOf(clientes), Set.copyOf(visitados));
+    }
+
+    @Test
+    void testOrdemGlobalEntregaNaOrdemDeChegada() {
+        FilaParticionada fila = new FilaParticionada(4, 8, true);
+        List<String> clientes = clientes(50);
+        clientes.forEach(fila::offer);
+
+        assertEquals(clientes, fila.snapshot());
+        List<String> retirados = new ArrayList<>();
+        String cliente;
+        while ((cliente = fila.poll()) != null) {
+            retirados.add(cliente);
+        }
+        assertEquals(clientes, retirados);
+        assertTrue(fila.isEmpty());
+    }
+
+    @Test
+    void testConsumidorRoubaDasOutrasParticoesQuandoASuaEstaVazia() {
+        FilaParticionada fila = new FilaParticionada(4, 8, false);
+        List<String> clientes = clientes(40);
+        clientes.forEach(fila::offer);
+
+        assertEquals(40, somar(fila.profundidades()));
+        List<String> retirados = new ArrayList<>(fila.drenar(15));
+        String cliente;
+        while ((cliente = fila.poll()) != null) {
+            retirados.add(cliente);
+        }
+
+        assertEquals(Set.copyOf(clientes), Set.copyOf(retirados));
+        assertEquals(40, retirados.size());
+        assertEquals(0, somar(fila.profundidades()));
+        // Uma única thread consumiu tudo: o que não estava na partição dela foi roubado
+        assertTrue(somar(fila.roubos()) > 0);
+    }
+
+    @Test
+    void testProdutoresEConsumidoresConcorrentesNaoPerdemNemDuplicamElementos() throws InterruptedException {
+        FilaParticionada fila = new FilaParticionada(4, 16, false);
+        int produtores = 4;
+        int porProdutor = 2_000;
+        int total = produtores * porProdutor;
+
+        ExecutorService executor = Executors.newFixedThreadPool(produtores * 2);
+        Set<String> recebidos = ConcurrentHashMap.newKeySet();
+        AtomicInteger consumidos = new AtomicInteger();
+        CountDownLatch fim = new CountDownLatch(produtores * 2);
+
+        for (int p = 0; p < produtores; p++) {
+            int base = p * porProdutor;
+            executor.execute(() -> {
+                for (int i = 0; i < porProdutor; i++) {
+                    fila.offer(String.format("%011d", base + i));
+                }
+                fim.countDown();
+            });
+            executor.execute(() -> {
+                while (consumidos.get() < total) {
+                    String elemento = fila.poll();
+                    if (elemento != null) {
+                        assertTrue(recebidos.add(elemento), "Elemento entregue mais de uma vez");
+                        consumidos.incrementAndGet();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                fim.countDown();
+            });
+        }
+
+        assertTrue(fim.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(total, recebidos.size());
+        assertTrue(fila.isEmpty());
+    }
+
+    private static long somar(long[] valores) {
+        long total = 0;
+        for (long valor : valores) {
+            total += valor;
+        }
+        return total;
+    }
+}
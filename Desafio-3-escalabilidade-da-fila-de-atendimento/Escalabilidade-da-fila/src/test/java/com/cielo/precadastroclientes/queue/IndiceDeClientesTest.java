@@ -0,0 +1,79 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndiceDeClientesTest {
+
+    @Test
+    void testChaveDiferenciaCpfDeCnpjComOMesmoValor() {
+        assertNotEquals(IndiceDeClientes.chave("12345678901"), IndiceDeClientes.chave("00012345678901"));
+        assertEquals(IndiceDeClientes.SEM_CHAVE, IndiceDeClientes.chave("cliente-1"));
+        assertEquals(IndiceDeClientes.SEM_CHAVE, IndiceDeClientes.chave("1234567890"));
+    }
+
+    @Test
+    void testAdicionarSeAusenteAceitaApenasAPrimeiraCopia() {
+        IndiceDeClientes indice = new IndiceDeClientes();
+        long chave = IndiceDeClientes.chave("12345678901");
+
+        assertTrue(indice.adicionarSeAusente(chave));
+        assertFalse(indice.adicionarSeAusente(chave));
+        assertEquals(0, indice.decrementar(chave));
+        assertFalse(indice.contem(chave));
+        assertTrue(indice.adicionarSeAusente(chave));
+    }
+
+    @Test
+    void testCopiasCanceladasSaemAntesDasAdicionadasDepois() {
+        IndiceDeClientes indice = new IndiceDeClientes();
+        long chave = IndiceDeClientes.chave("12345678000199");
+        indice.incrementar(chave);
+        indice.incrementar(chave);
+
+        assertEquals(2, indice.cancelar(chave));
+        assertEquals(0, indice.cancelar(chave));
+        assertFalse(indice.contem(chave));
+        assertTrue(indice.temCancelada(chave));
+        assertTrue(indice.adicionarSeAusente(chave));
+        assertEquals(1, indice.tamanho());
+
+        assertEquals(IndiceDeClientes.CANCELADA, indice.sair(chave));
+        assertTrue(indice.retirarCancelada(chave));
+        assertFalse(indice.temCancelada(chave));
+        assertEquals(0, indice.sair(chave));
+        assertEquals(0, indice.tamanho());
+    }
+
+    @Test
+    void testContagensConferemComUmMapaDeReferencia() {
+        IndiceDeClientes indice = new IndiceDeClientes();
+        Map<Long, Integer> referencia = new HashMap<>();
+        Random random = new Random(42);
+
+        // Poucas chaves e muitas operações: força redimensionamentos e remoções no meio dos agrupamentos
+        for (int i = 0; i < 200_000; i++) {
+            long chave = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                int esperado = referencia.merge(chave, -1, Integer::sum);
+                if (esperado <= 0) {
+                    referencia.remove(chave);
+                    esperado = 0;
+                }
+                assertEquals(esperado, indice.decrementar(chave));
+            } else {
+                assertEquals((int) referencia.merge(chave, 1, Integer::sum), indice.incrementar(chave));
+            }
+        }
+
+        assertEquals(referencia.size(), indice.tamanho());
+        for (long chave = 0; chave < 5_000; chave++) {
+            assertEquals(referencia.containsKey(chave), indice.contem(chave));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LapidesDaFilaTest {
+
+    @Test
+    void testMarcasQueACabecaPassouSaoDescartadas() {
+        LapidesDaFila lapides = new LapidesDaFila();
+
+        assertTrue(lapides.marcar(10, 0));
+        assertFalse(lapides.marcar(10, 0), "Cada posição é marcada uma única vez");
+        assertTrue(lapides.marcar(70, 0));
+        assertEquals(2, lapides.contar(0, 100, 0));
+        assertEquals(1, lapides.contar(11, 100, 0));
+
+        assertEquals(1, lapides.contar(11, 100, 11));
+        assertFalse(lapides.contem(10));
+        assertFalse(lapides.marcar(5, 11), "Posição que a cabeça já passou");
+        assertEquals(1, lapides.getTotal());
+    }
+
+    @Test
+    void testContagensConferemComUmConjuntoDeReferencia() {
+        LapidesDaFila lapides = new LapidesDaFila();
+        TreeSet<Long> referencia = new TreeSet<>();
+        Random random = new Random(7);
+        long frente = 0;
+
+        // A cabeça avança e as marcas se espalham além da janela inicial: força voltas e crescimento
+        for (int i = 0; i < 50_000; i++) {
+            if (random.nextInt(4) == 0) {
+                frente += random.nextInt(300);
+                referencia.headSet(frente).clear();
+            }
+            long posicao = frente + random.nextInt(i < 25_000 ? 900 : 5_000);
+            assertEquals(referencia.add(posicao), lapides.marcar(posicao, frente));
+
+            long de = frente + random.nextInt(2_000);
+            long ate = de + random.nextInt(4_000);
+            assertEquals(referencia.subSet(de, ate).size(), lapides.contar(de, ate, frente));
+        }
+        assertEquals(referencia.size(), lapides.getTotal());
+    }
+}
@@ -0,0 +1,158 @@
+package com.cielo.precadastroclientes.queue;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogDaFilaTest {
+
+    private FilaProperties propriedades(Path diretorio) {
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidade(1000);
+        properties.setDuravel(true);
+        properties.setDiretorioDoLog(diretorio.toString());
+        properties.setSincronizacao(PoliticaDeSincronizacao.POR_OPERACAO);
+        properties.setTamanhoDoSegmentoDoLogMb(1);
+        return properties;
+    }
+
+    @Test
+    void testRecuperaAFilaDepoisDeUmaQuedaSemCheckpoint(@TempDir Path diretorio) {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(diretorio));
+        fila.adicionarClienteNaFila("12345678901");
+        fila.adicionarClienteNaFila("12345678912354");
+        fila.adicionarClienteNaFila("98765432109");
+        fila.poll();
+
+        // Nova instância sem encerrar a anterior, como após uma queda da aplicação
+        FilaDeAtendimento recuperada = new FilaDeAtendimento(propriedades(diretorio));
+
+        assertArrayEquals(new String[]{"12345678912354", "98765432109"}, recuperada.obterConteudoDaFila());
+        assertEquals(2, recuperada.getTamanho());
+    }
+
+    @Test
+    void testCheckpointCompactaOsSegmentosAntigos(@TempDir Path diretorio) throws IOException {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(diretorio));
+        for (int i = 0; i < 200; i++) {
+            fila.adicionarClienteNaFila(String.format("%011d", i));
+        }
+        for (int i = 0; i < 150; i++) {
+            fila.poll();
+        }
+
+        fila.checkpoint();
+        fila.adicionarClienteNaFila("99999999999");
+        fila.encerrar();
+
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            assertEquals(1, arquivos.filter(arquivo -> arquivo.toString().endsWith(".seg")).count(),
+                    "Apenas o segmento posterior ao checkpoint deve existir");
+        }
+
+        FilaDeAtendimento recuperada = new FilaDeAtendimento(propriedades(diretorio));
+        String[] conteudo = recuperada.obterConteudoDaFila();
+        assertEquals(51, conteudo.length);
+        assertEquals("00000000150", conteudo[0]);
+        assertEquals("99999999999", conteudo[50]);
+    }
+
+    @Test
+    void testAgendamentosSobrevivemAoReinicio(@TempDir Path diretorio) {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(diretorio));
+        long agora = System.currentTimeMillis();
+        fila.agendarClienteNaFila("12345678901", "5411", agora + 3_600_000);
+        fila.agendarClienteNaFila("98765432109", null, agora + 60_000);
+        fila.checkpoint();
+        fila.agendarClienteNaFila("12345678912354", null, agora + 7_200_000);
+        fila.amadurecerAgendamentos(agora + 60_100);
+        assertArrayEquals(new String[]{"98765432109"}, fila.obterConteudoDaFila());
+
+        // Nova instância sem encerrar a anterior: o agendamento liberado não volta, os pendentes continuam
+        FilaDeAtendimento recuperada = new FilaDeAtendimento(propriedades(diretorio));
+        assertArrayEquals(new String[]{"98765432109"}, recuperada.obterConteudoDaFila());
+        assertEquals(2, recuperada.getAgendamentosPendentes());
+
+        recuperada.amadurecerAgendamentos(agora + 3_600_100);
+        assertArrayEquals(new String[]{"98765432109", "12345678901"}, recuperada.obterConteudoDaFila());
+        assertEquals(1, recuperada.getAgendamentosPendentes());
+    }
+
+    @Test
+    void testFaixaDeMccSobreviveAoTransbordoEAoReinicio(@TempDir Path diretorio) {
+        FilaProperties properties = propriedades(diretorio);
+        properties.setCapacidade(1);
+        properties.setPoliticaDeTransbordo(PoliticaDeTransbordo.DERRAMAR_EM_DISCO);
+        properties.setDiretorioDeTransbordo(diretorio.resolve("transbordo").toString());
+        properties.setPrioridade(ModoDePrioridade.ESTRITA);
+        properties.setRaias(List.of(new RaiaDeAtendimento("pj-varejo", TipoDeCliente.PJ, List.of(FaixaDeMcc.VAREJO), 1)));
+        properties.setPosicaoNaFila(false);
+        FilaDeAtendimento fila = new FilaDeAtendimento(properties);
+        fila.adicionarClienteNaFila("98765432000100");
+        fila.adicionarClienteNaFila("12345678000199", "5411");
+
+        // Recarregado do disco na vaga liberada, o cliente entra na própria raia
+        assertEquals("98765432000100", fila.poll());
+        assertArrayEquals(new long[]{1, 0}, fila.getProfundidadePorRaia());
+        fila.adicionarClienteNaFila("11111111111");
+        fila.checkpoint();
+        fila.adicionarClienteNaFila("22222222000155", "5411");
+
+        // Nova instância sem encerrar a anterior: checkpoint (memória e disco) e log depois dele
+        properties.setCapacidade(10);
+        FilaDeAtendimento recuperada = new FilaDeAtendimento(properties);
+        assertArrayEquals(new long[]{2, 1}, recuperada.getProfundidadePorRaia());
+        assertEquals(List.of("12345678000199", "22222222000155", "11111111111"), recuperada.retirarClientes(10));
+    }
+
+    @Test
+    void testIgnoraRegistroIncompletoNoFimDoLog(@TempDir Path diretorio) throws IOException {
+        LogDaFila log = new LogDaFila(diretorio, PoliticaDeSincronizacao.SISTEMA_OPERACIONAL, 0, 4096);
+        log.recuperar();
+        log.registrarEntrada("12345678901");
+        log.registrarEntrada("98765432109");
+        log.close();
+
+        // Corrompe o CRC do segundo registro, simulando uma escrita interrompida
+        Path segmento = diretorio.resolve(String.format("%020d.seg", 0));
+        byte[] dados = Files.readAllBytes(segmento);
+        int tamanhoDoRegistro = 2 + 11 + 4;
+        dados[2 * tamanhoDoRegistro - 1] ^= 0x7F;
+        Files.write(segmento, dados);
+
+        LogDaFila recuperado = new LogDaFila(diretorio, PoliticaDeSincronizacao.SISTEMA_OPERACIONAL, 0, 4096);
+        assertEquals(List.of("12345678901"), recuperado.recuperar());
+        recuperado.close();
+    }
+
+    @Test
+    void testRecusaIdentificadorQueNaoCabeNoRegistro(@TempDir Path diretorio) {
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedades(diretorio));
+        String longo = "1".repeat(FilaDeAtendimento.TAMANHO_MAXIMO_DO_CLIENTE + 1);
+        fila.adicionarClienteNaFila("12345678901");
+        assertThrows(IllegalArgumentException.class, () -> fila.adicionarClienteNaFila(longo));
+        assertThrows(IllegalArgumentException.class,
+                () -> fila.agendarClienteNaFila(longo, null, System.currentTimeMillis() + 60_000));
+        fila.adicionarClienteNaFila("98765432109");
+        assertEquals(2, fila.getTamanho());
+
+        // O log continua legível depois da recusa
+        FilaDeAtendimento recuperada = new FilaDeAtendimento(propriedades(diretorio));
+        assertArrayEquals(new String[]{"12345678901", "98765432109"}, recuperada.obterConteudoDaFila());
+        assertEquals(0, recuperada.getAgendamentosPendentes());
+
+        LogDaFila log = new LogDaFila(diretorio.resolve("direto"), PoliticaDeSincronizacao.SISTEMA_OPERACIONAL, 0, 4096);
+        log.recuperar();
+        assertThrows(IllegalArgumentException.class,
+                () -> log.registrarEntrada("é".repeat(LogDaFila.TAMANHO_MAXIMO_DO_IDENTIFICADOR / 2 + 1)));
+        log.close();
+    }
+}
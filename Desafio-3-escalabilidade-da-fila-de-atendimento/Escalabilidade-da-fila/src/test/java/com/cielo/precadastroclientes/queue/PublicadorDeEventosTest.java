@@ -0,0 +1,90 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublicadorDeEventosTest {
+
+    // Despacho automático praticamente desligado: o teste chama despachar() diretamente
+    private PublicadorDeEventos publicador(List<String> conteudo, int bufferPorAssinatura) {
+        return new PublicadorDeEventos(() -> List.copyOf(conteudo), 16, bufferPorAssinatura, 3_600_000);
+    }
+
+    private static List<EventoDaFila> enviados(AssinaturaDeEventos assinatura) {
+        List<EventoDaFila> eventos = new ArrayList<>();
+        assinatura.enviarPendentes(eventos::add);
+        return eventos;
+    }
+
+    @Test
+    void testEnviaSnapshotEDepoisAsMudancasNumeradas() {
+        PublicadorDeEventos publicador = publicador(List.of("11111111111"), 8);
+        List<AssinaturaDeEventos> notificadas = new ArrayList<>();
+        AssinaturaDeEventos assinatura = publicador.assinar(null, notificadas::add, () -> fail("Não deveria ser descartada"));
+
+        List<EventoDaFila> inicio = enviados(assinatura);
+        assertEquals(1, inicio.size());
+        assertEquals(EventoDaFila.Tipo.SNAPSHOT, inicio.get(0).getTipo());
+        assertEquals(List.of("11111111111"), inicio.get(0).getConteudo());
+
+        publicador.publicar(EventoDaFila.Tipo.ENTRADA, "22222222222");
+        publicador.publicar(EventoDaFila.Tipo.SAIDA, "11111111111");
+        publicador.despachar();
+
+        assertEquals(2, notificadas.size(), "Uma notificação ao assinar e outra após o despacho");
+        List<EventoDaFila> mudancas = enviados(assinatura);
+        assertEquals(2, mudancas.size());
+        assertEquals(EventoDaFila.Tipo.ENTRADA, mudancas.get(0).getTipo());
+        assertEquals("22222222222", mudancas.get(0).getCliente());
+        assertEquals(1, mudancas.get(0).getSequencia());
+        assertEquals(2, mudancas.get(1).getSequencia());
+        publicador.encerrar();
+    }
+
+    @Test
+    void testReconexaoRetomaDoHistoricoAPartirDoUltimoEvento() {
+        PublicadorDeEventos publicador = publicador(List.of(), 8);
+        for (int i = 0; i < 5; i++) {
+            publicador.publicar(EventoDaFila.Tipo.ENTRADA, "cliente-" + i);
+        }
+        publicador.despachar();
+
+        AssinaturaDeEventos retomada = publicador.assinar(3L, assinatura -> { }, () -> { });
+        List<EventoDaFila> eventos = enviados(retomada);
+        assertEquals(2, eventos.size());
+        assertEquals("cliente-3", eventos.get(0).getCliente());
+        assertEquals(5, eventos.get(1).getSequencia());
+
+        // Um id que o histórico não alcança recebe um SNAPSHOT
+        AssinaturaDeEventos antiga = publicador.assinar(99L, assinatura -> { }, () -> { });
+        assertEquals(EventoDaFila.Tipo.SNAPSHOT, enviados(antiga).get(0).getTipo());
+        publicador.encerrar();
+    }
+
+    @Test
+    void testAssinaturaLentaEDescartadaSemAtrasarAsDemais() {
+        PublicadorDeEventos publicador = publicador(List.of(), 2);
+        AtomicBoolean descartada = new AtomicBoolean();
+        AssinaturaDeEventos lenta = publicador.assinar(null, assinatura -> { }, () -> descartada.set(true));
+        AssinaturaDeEventos rapida = publicador.assinar(null, assinatura -> { }, () -> fail("Não deveria ser descartada"));
+        enviados(rapida);
+
+        publicador.publicar(EventoDaFila.Tipo.ENTRADA, "cliente-0");
+        publicador.despachar();
+        enviados(rapida);
+        publicador.publicar(EventoDaFila.Tipo.ENTRADA, "cliente-1");
+        publicador.despachar();
+
+        assertTrue(descartada.get());
+        assertTrue(lenta.isEncerrada());
+        assertEquals(1, publicador.getAssinaturas());
+        assertEquals(1, publicador.getAssinaturasDescartadas());
+        assertEquals("cliente-1", enviados(rapida).get(0).getCliente());
+        publicador.encerrar();
+    }
+}
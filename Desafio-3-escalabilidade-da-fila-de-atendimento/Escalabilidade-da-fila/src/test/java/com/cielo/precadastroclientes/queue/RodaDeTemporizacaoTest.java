@@ -0,0 +1,55 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RodaDeTemporizacaoTest {
+
+    @Test
+    void testExpiraApenasOsPrazosVencidos() {
+        RodaDeTemporizacao<String> roda = new RodaDeTemporizacao<>(10, 8, 0);
+        roda.agendar("a", 25);
+        roda.agendar("b", 40);
+        roda.agendar("c", 5);
+
+        assertEquals(List.of("c"), roda.avancar(20));
+        assertEquals(List.of("a"), roda.avancar(35));
+        assertEquals(List.of("b"), roda.avancar(40));
+        assertEquals(0, roda.size());
+    }
+
+    @Test
+    void testPrazoAlemDeUmaVoltaEsperaAsRodadasRestantes() {
+        RodaDeTemporizacao<String> roda = new RodaDeTemporizacao<>(10, 4, 0);
+        // 4 casas de 10 ms: o prazo de 130 ms cai na mesma casa do tick 1, três voltas depois
+        roda.agendar("longo", 130);
+        roda.agendar("curto", 10);
+
+        assertEquals(List.of("curto"), roda.avancar(120));
+        assertEquals(List.of("longo"), roda.avancar(130));
+    }
+
+    @Test
+    void testCancelarRemoveSemEsperarOPrazo() {
+        RodaDeTemporizacao<String> roda = new RodaDeTemporizacao<>(10, 8, 0);
+        RodaDeTemporizacao.Temporizador<String> cancelado = roda.agendar("cancelado", 30);
+        roda.agendar("mantido", 30);
+
+        assertTrue(roda.cancelar(cancelado));
+        assertFalse(roda.cancelar(cancelado));
+        assertEquals(List.of("mantido"), roda.avancar(30));
+    }
+
+    @Test
+    void testPrazoNoPassadoExpiraNoProximoTick() {
+        RodaDeTemporizacao<String> roda = new RodaDeTemporizacao<>(10, 8, 0);
+        roda.avancar(100);
+        roda.agendar("atrasado", 50);
+
+        assertTrue(roda.avancar(105).isEmpty());
+        assertEquals(List.of("atrasado"), roda.avancar(110));
+    }
+}
@@ -0,0 +1,75 @@
+package com.cielo.precadastroclientes.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RodaHierarquicaTest {
+
+    @Test
+    void testPrazosDeNiveisDiferentesExpiramNoTickCerto() {
+        // 4 casas de 10 ms por nível: o nível 0 cobre 40 ms, o 1 160 ms e o 2 640 ms
+        RodaHierarquica<String> roda = new RodaHierarquica<>(10, 4, 3, 0);
+        roda.agendar("curto", 20);
+        roda.agendar("medio", 150);
+        roda.agendar("longo", 600);
+        // Além do último nível: espera na casa mais distante e desce quando ela chega
+        roda.agendar("alem", 2000);
+        assertEquals(4, roda.size());
+
+        assertTrue(roda.avancar(19).isEmpty());
+        assertEquals(List.of("curto"), roda.avancar(20));
+        assertTrue(roda.avancar(149).isEmpty());
+        assertEquals(List.of("medio"), roda.avancar(150));
+        assertTrue(roda.avancar(599).isEmpty());
+        assertEquals(List.of("longo"), roda.avancar(600));
+        assertTrue(roda.avancar(1999).isEmpty());
+        assertEquals(List.of("alem"), roda.avancar(2000));
+        assertEquals(0, roda.size());
+    }
+
+    @Test
+    void testPrazosDoMesmoTickSaemNaOrdemDeChegadaMesmoAposACascata() {
+        RodaHierarquica<String> roda = new RodaHierarquica<>(10, 4, 3, 0);
+        roda.agendar("a", 500);
+        roda.agendar("b", 495);
+        // No tick 48 "a" e "b" descem do nível 2 para o nível 0, na ordem em que foram agendados
+        assertTrue(roda.avancar(480).isEmpty());
+        roda.agendar("c", 500);
+        roda.agendar("atrasado", 50);
+
+        assertEquals(List.of("atrasado"), roda.avancar(490));
+        assertEquals(3, roda.valores().size());
+        assertEquals(List.of("a", "b", "c"), roda.avancar(500));
+    }
+
+    @Test
+    void testNenhumPrazoExpiraAntesDaHoraNemDepoisDoTickSeguinte() {
+        RodaHierarquica<Integer> roda = new RodaHierarquica<>(10, 8, 3, 0);
+        Random aleatorio = new Random(42);
+        Map<Integer, Long> prazos = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            long prazo = aleatorio.nextInt(60_000);
+            prazos.put(i, prazo);
+            roda.agendar(i, prazo);
+        }
+
+        long agora = 0;
+        while (!prazos.isEmpty()) {
+            agora += 1 + aleatorio.nextInt(300);
+            for (Integer vencido : roda.avancar(agora)) {
+                long prazo = prazos.remove(vencido);
+                assertTrue(prazo <= agora, "Expirou antes do prazo");
+            }
+            for (long prazo : prazos.values()) {
+                assertTrue(prazo > agora - 10, "Um prazo vencido ficou na roda");
+            }
+        }
+        assertEquals(0, roda.size());
+    }
+}
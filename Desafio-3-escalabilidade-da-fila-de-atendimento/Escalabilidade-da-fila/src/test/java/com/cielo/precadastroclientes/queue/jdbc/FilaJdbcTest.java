@@ -0,0 +1,274 @@
+package com.cielo.precadastroclientes.queue.jdbc;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.ModoDePrioridade;
+import com.cielo.precadastroclientes.queue.Recebimento;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.h2.tools.RunScript;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Duas "instâncias" da aplicação no mesmo processo, cada uma com o seu pool de conexões,
+// compartilhando um H2 em modo servidor como fariam dois nós atrás de um balanceador
+public class FilaJdbcTest {
+
+    private Server servidor;
+    private final List<JdbcConnectionPool> pools = new ArrayList<>();
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int porta;
+        try (ServerSocket livre = new ServerSocket(0)) {
+            porta = livre.getLocalPort();
+        }
+        servidor = Server.createTcpServer("-tcpPort", String.valueOf(porta), "-ifNotExists").start();
+        url = "jdbc:h2:tcp://localhost:" + porta + "/mem:fila-" + porta + ";DB_CLOSE_DELAY=-1";
+        // Sem o Flyway da aplicação: a migração das tabelas da fila é aplicada aqui
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "");
+             Reader migracao = new InputStreamReader(
+                     getClass().getResourceAsStream("/db/migration/V4__fila_de_atendimento.sql"), StandardCharsets.UTF_8)) {
+            RunScript.execute(conexao, migracao);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pools.forEach(JdbcConnectionPool::dispose);
+        servidor.stop();
+    }
+
+    private FilaJdbc novaInstancia(long tempoDeVisibilidadeMs) {
+        return novaInstancia(tempoDeVisibilidadeMs, 10_000);
+    }
+
+    private FilaJdbc novaInstancia(long tempoDeVisibilidadeMs, int capacidade) {
+        FilaProperties properties = new FilaProperties();
+        properties.setCapacidade(capacidade);
+        properties.setMaximoPorLote(50);
+        properties.setTempoDeVisibilidadeMs(tempoDeVisibilidadeMs);
+        // Os testes liberam os agendamentos vencidos explicitamente
+        properties.setIntervaloDeLiberacaoDeAgendamentosMs(600_000);
+        JdbcConnectionPool pool = JdbcConnectionPool.create(url, "sa", "");
+        pools.add(pool);
+        return new FilaJdbc(properties, pool);
+    }
+
+    @Test
+    void testLoteDeClientesEntraNaOrdemAteACapacidade() {
+        FilaJdbc fila = novaInstancia(30000, 4);
+        assertTrue(fila.adicionarClienteNaFila("11111111111"));
+
+        List<String> lote = List.of("22222222222", "33333333333", "44444444444", "55555555555");
+        assertEquals(3, fila.adicionarClientesNaFila(lote, Collections.nCopies(lote.size(), null)));
+        assertEquals(0, fila.adicionarClientesNaFila(List.of("55555555555"), Collections.singletonList(null)));
+        assertEquals(List.of("11111111111", "22222222222", "33333333333", "44444444444"), fila.retirarClientes(10));
+    }
+
+    // Como na retransmissão da caixa de saída: o lote só entra na fila com o commit da transação que o envia
+    @Test
+    void testLoteEnviadoNumaTransacaoDoSpringEntraSoComOCommitDela() {
+        FilaJdbc fila = novaInstancia(30000);
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(pools.get(0)));
+        List<String> lote = List.of("11111111111", "22222222222");
+        List<String> mccs = Collections.nCopies(lote.size(), null);
+
+        transacao.executeWithoutResult(status -> {
+            assertEquals(2, fila.adicionarClientesNaFila(lote, mccs));
+            assertTrue(fila.agendarClienteNaFila("33333333333", null, System.currentTimeMillis() + 3_600_000));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, fila.getTamanho(), "A queda antes do commit não deixa o lote na fila");
+        assertEquals(0, fila.getAgendamentosPendentes());
+
+        transacao.executeWithoutResult(status -> assertEquals(2, fila.adicionarClientesNaFila(lote, mccs)));
+        assertEquals(lote, fila.retirarClientes(10));
+    }
+
+    @Test
+    void testRaiasDePrioridadeImpedemASubida() {
+        FilaProperties comRaias = new FilaProperties();
+        comRaias.setPrioridade(ModoDePrioridade.PESOS);
+        JdbcConnectionPool pool = JdbcConnectionPool.create(url, "sa", "");
+        pools.add(pool);
+        assertThrows(IllegalArgumentException.class, () -> new FilaJdbc(comRaias, pool));
+    }
+
+    @Test
+    void testClienteCadastradoNumaInstanciaEAtendidoNaOutraNaOrdemDaFila() {
+        FilaJdbc noA = novaInstancia(30000);
+        FilaJdbc noB = novaInstancia(30000);
+        assertFalse(noA.isSkipLocked(), "O H2 usa a reserva condicional");
+
+        assertTrue(noA.adicionarClienteNaFila("12345678901"));
+        assertTrue(noA.adicionarClienteNaFila("12345678000199"));
+        assertTrue(noB.adicionarClienteNaFila("98765432100"));
+        assertTrue(noA.adicionarClienteNaFila("11111111111"));
+        assertTrue(noB.removerClienteDaFila("11111111111"));
+        assertFalse(noA.removerClienteDaFila("11111111111"));
+
+        assertEquals(3, noB.getTamanho());
+        assertEquals(2, noA.posicaoNaFila("12345678000199"));
+        assertEquals(-1, noA.posicaoNaFila("11111111111"));
+        assertArrayEquals(new String[]{"12345678901", "12345678000199", "98765432100"}, noB.obterConteudoDaFila());
+        assertEquals("12345678901", noB.poll());
+        assertEquals(List.of("12345678000199", "98765432100"), noA.retirarClientes(10));
+        assertTrue(noA.filaVazia());
+        assertNull(noB.poll());
+    }
+
+    @Test
+    void testInstanciasConcorrentesRetiramCadaClienteUmaUnicaVez() throws Exception {
+        List<FilaJdbc> instancias = List.of(novaInstancia(30000), novaInstancia(30000), novaInstancia(30000));
+        int total = 600;
+        for (int i = 0; i < total; i++) {
+            assertTrue(instancias.get(i % instancias.size()).adicionarClienteNaFila(String.format("%011d", i)));
+        }
+
+        ExecutorService atendentes = Executors.newFixedThreadPool(6);
+        List<String> retirados = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger recebidos = new AtomicInteger();
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 6; t++) {
+                FilaJdbc fila = instancias.get(t % instancias.size());
+                boolean emLote = t % 2 == 0;
+                tarefas.add(atendentes.submit(() -> {
+                    while (true) {
+                        if (emLote) {
+                            List<String> lote = fila.retirarClientes(7);
+                            if (lote.isEmpty() && fila.filaVazia()) {
+                                return;
+                            }
+                            retirados.addAll(lote);
+                        } else {
+                            Recebimento recebimento = fila.receber();
+                            if (recebimento == null) {
+                                if (fila.filaVazia()) {
+                                    return;
+                                }
+                                continue;
+                            }
+                            assertTrue(fila.confirmar(recebimento.getRecibo()));
+                            recebidos.incrementAndGet();
+                            retirados.add(recebimento.getCliente());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            atendentes.shutdownNow();
+        }
+
+        assertEquals(total, retirados.size(), "Nenhum cliente pode ser entregue duas vezes");
+        assertEquals(total, new HashSet<>(retirados).size());
+        assertTrue(recebidos.get() > 0);
+        assertEquals(0, instancias.get(0).getTamanho());
+    }
+
+    @Test
+    void testRecebidoSemConfirmacaoVoltaParaOutraInstanciaEReciboAntigoDeixaDeValer() throws Exception {
+        FilaJdbc noA = novaInstancia(200);
+        FilaJdbc noB = novaInstancia(200);
+        noA.adicionarClienteNaFila("12345678901");
+
+        Recebimento primeiro = noA.receber();
+        assertEquals(1, primeiro.getEntregas());
+        assertNull(noB.receber(), "Invisível enquanto o prazo não vence");
+        assertTrue(noB.filaVazia());
+        assertEquals(1, noB.getTamanho());
+
+        Thread.sleep(300);
+        Recebimento segundo = noB.receber();
+        assertEquals("12345678901", segundo.getCliente());
+        assertEquals(2, segundo.getEntregas());
+        assertFalse(noA.confirmar(primeiro.getRecibo()));
+
+        assertTrue(noB.devolver(segundo.getRecibo()));
+        assertFalse(noB.confirmar(segundo.getRecibo()));
+        Recebimento terceiro = noA.receber();
+        assertTrue(noA.confirmar(terceiro.getRecibo()));
+        assertEquals(0, noB.getTamanho());
+    }
+
+    @Test
+    void testAgendamentoVencidoEntraNaFilaUmaUnicaVezComDuasInstanciasLiberando() throws Exception {
+        FilaJdbc noA = novaInstancia(30000);
+        FilaJdbc noB = novaInstancia(30000);
+        // Prazo com folga para os 100 agendamentos serem gravados antes de vencer, mesmo numa máquina carregada
+        long prazo = System.currentTimeMillis() + 3_000;
+        assertTrue(noA.adicionarClienteNaFila("12345678901"));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(noA.agendarClienteNaFila(String.format("%014d", i), null, prazo));
+        }
+        assertTrue(noB.agendarClienteNaFila("98765432109", null, prazo + 3_600_000));
+        assertEquals(101, noA.getAgendamentosPendentes());
+        assertEquals(0, noB.liberarAgendamentos(), "Nenhum agendamento venceu ainda");
+        assertEquals(1, noB.getTamanho());
+
+        Thread.sleep(Math.max(0, prazo + 100 - System.currentTimeMillis()));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> liberacoes = new ArrayList<>();
+            for (FilaJdbc no : List.of(noA, noB)) {
+                liberacoes.add(executor.submit(() -> {
+                    int total = 0;
+                    int liberados;
+                    while ((liberados = no.liberarAgendamentos()) > 0) {
+                        total += liberados;
+                    }
+                    return total;
+                }));
+            }
+            assertEquals(100, liberacoes.get(0).get() + liberacoes.get(1).get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(101, noA.getTamanho());
+        assertEquals(1, noB.getAgendamentosPendentes());
+        assertEquals("12345678901", noB.poll(), "Os agendados entram no fim da fila");
+    }
+
+    @Test
+    void testPercorrerContinuaDoCursorMesmoComRetiradasEntreAsPaginas() {
+        FilaJdbc fila = novaInstancia(30000);
+        for (int i = 0; i < 10; i++) {
+            fila.adicionarClienteNaFila(String.format("%011d", i));
+        }
+        List<String> pagina = new ArrayList<>();
+        long cursor = fila.percorrerConteudo(0, cliente -> pagina.size() < 4 && pagina.add(cliente));
+        assertEquals(4, pagina.size());
+
+        fila.retirarClientes(2);
+        Set<String> resto = new HashSet<>();
+        fila.percorrerConteudo(cursor, resto::add);
+        assertEquals(6, resto.size());
+        assertFalse(resto.contains(pagina.get(3)));
+        assertTrue(resto.contains(String.format("%011d", 9)));
+    }
+}
@@ -0,0 +1,161 @@
+package com.cielo.precadastroclientes.queue.sqs;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.queue.Recebimento;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilaSqsTest {
+
+    private static FilaSqs novaFila(long tempoDeVisibilidadeMs) {
+        FilaProperties properties = new FilaProperties();
+        properties.setSqsEmbarcado(true);
+        properties.setTempoDeVisibilidadeMs(tempoDeVisibilidadeMs);
+        properties.setSqsEsperaDoLongPollingSegundos(1);
+        return new FilaSqs(properties);
+    }
+
+    // A reserva local é preenchida pela thread receptora; aguarda a mensagem chegar até ela
+    private static Recebimento receberAte(FilaSqs fila, long prazoMs) throws InterruptedException {
+        long limite = System.currentTimeMillis() + prazoMs;
+        Recebimento recebimento;
+        while ((recebimento = fila.receber()) == null && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        return recebimento;
+    }
+
+    @Test
+    void testCadastrosSimultaneosSaoEnviadosEmLotesERetirados() throws Exception {
+        FilaSqs fila = novaFila(30000);
+        ExecutorService cadastros = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            Set<String> esperados = new HashSet<>();
+            for (int i = 0; i < 50; i++) {
+                String cpf = String.format("%011d", i);
+                esperados.add(cpf);
+                resultados.add(cadastros.submit(() -> fila.adicionarClienteNaFila(cpf)));
+            }
+            for (Future<Boolean> resultado : resultados) {
+                assertTrue(resultado.get());
+            }
+
+            Set<String> retirados = new HashSet<>();
+            long limite = System.currentTimeMillis() + 5000;
+            while (retirados.size() < 50 && System.currentTimeMillis() < limite) {
+                retirados.addAll(fila.retirarClientes(50));
+            }
+            assertEquals(esperados, retirados);
+            assertNull(fila.poll());
+        } finally {
+            cadastros.shutdownNow();
+            fila.encerrar();
+        }
+    }
+
+    @Test
+    void testLoteDeClientesEEnviadoDeUmaVez() {
+        FilaSqs fila = novaFila(30000);
+        try {
+            List<String> lote = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                lote.add(String.format("%011d", i));
+            }
+            assertEquals(25, fila.adicionarClientesNaFila(lote, Collections.nCopies(lote.size(), null)));
+
+            Set<String> retirados = new HashSet<>();
+            long limite = System.currentTimeMillis() + 5000;
+            while (retirados.size() < 25 && System.currentTimeMillis() < limite) {
+                retirados.addAll(fila.retirarClientes(25));
+            }
+            assertEquals(new HashSet<>(lote), retirados);
+        } finally {
+            fila.encerrar();
+        }
+    }
+
+    @Test
+    void testRecebidoSemConfirmacaoVoltaParaAFilaEReciboAntigoDeixaDeValer() throws Exception {
+        FilaSqs fila = novaFila(1000);
+        try {
+            assertTrue(fila.adicionarClienteNaFila("12345678901"));
+            Recebimento primeiro = receberAte(fila, 2000);
+            assertNotNull(primeiro);
+            assertEquals(1, primeiro.getEntregas());
+
+            // Com 1 s de visibilidade o SQS entrega o cliente de novo
+            Recebimento segundo = receberAte(fila, 4000);
+            assertNotNull(segundo);
+            assertEquals("12345678901", segundo.getCliente());
+            assertEquals(2, segundo.getEntregas());
+
+            assertFalse(fila.confirmar(primeiro.getRecibo()));
+            assertTrue(fila.confirmar(segundo.getRecibo()));
+            assertEquals(0, fila.getTamanho());
+        } finally {
+            fila.encerrar();
+        }
+    }
+
+    @Test
+    void testDevolverEntregaOClienteDeNovoSemEsperarAVisibilidade() throws Exception {
+        FilaSqs fila = novaFila(30000);
+        try {
+            assertTrue(fila.adicionarClienteNaFila("12345678000199"));
+            Recebimento recebimento = receberAte(fila, 2000);
+            assertNotNull(recebimento);
+            assertTrue(fila.devolver(recebimento.getRecibo()));
+            assertFalse(fila.devolver("recibo-invalido"));
+
+            Recebimento novamente = receberAte(fila, 3000);
+            assertNotNull(novamente);
+            assertEquals("12345678000199", novamente.getCliente());
+            assertEquals(2, novamente.getEntregas());
+        } finally {
+            fila.encerrar();
+        }
+    }
+
+    @Test
+    void testSqsEmbarcadoRespondeLongPollingAssimQueAMensagemChega() throws Exception {
+        SqsEmbarcado sqs = new SqsEmbarcado(0);
+        try {
+            ClienteSqs cliente = new ClienteSqs(sqs.getEndpoint(), "us-east-1", null, null);
+            String url = cliente.criarFila("espera");
+
+            long inicio = System.nanoTime();
+            assertTrue(cliente.receber(url, 10, 1, 30).isEmpty());
+            assertTrue(System.nanoTime() - inicio >= 900_000_000L);
+
+            Thread envio = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                cliente.enviarLote(url, List.of("a", "b"));
+            });
+            envio.start();
+            inicio = System.nanoTime();
+            List<MensagemSqs> mensagens = cliente.receber(url, 10, 5, 30);
+            assertTrue(System.nanoTime() - inicio < 3_000_000_000L);
+            assertFalse(mensagens.isEmpty());
+
+            ErroSqs erro = assertThrows(ErroSqs.class, () -> cliente.enviarLote(url, Collections.nCopies(11, "x")));
+            assertEquals("TooManyEntriesInBatchRequest", erro.getCodigo());
+        } finally {
+            sqs.encerrar();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.cielo.precadastroclientes.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Plano (EXPLAIN) das consultas da listagem no esquema das migrações: com o filtro de MCC o H2 percorre só a
+// faixa do MCC no índice (mcc, id) da V3, já na ordem do id, em vez da chave primária inteira. As consultas são
+// as que o Hibernate gera para os métodos listarPagina* de ClientePfRepository e ClientePjRepository.
+public class PlanoDaListagemTest {
+
+    private Connection conexao;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:plano-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+        conexao = DriverManager.getConnection(url, "sa", "");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement comando = conexao.createStatement()) {
+            comando.execute("SHUTDOWN");
+        }
+    }
+
+    // Parâmetros ligados como o Hibernate faz, para o plano ser o da consulta preparada
+    private String plano(String consulta, Object... parametros) throws SQLException {
+        try (PreparedStatement comando = conexao.prepareStatement("EXPLAIN " + consulta)) {
+            for (int i = 0; i < parametros.length; i++) {
+                comando.setObject(i + 1, parametros[i]);
+            }
+            try (ResultSet resultado = comando.executeQuery()) {
+                assertTrue(resultado.next());
+                return resultado.getString(1).toUpperCase();
+            }
+        }
+    }
+
+    @Test
+    void testFiltroDeMccPercorreAFaixaDoIndiceDoMcc() throws SQLException {
+        String pf = plano("SELECT id, cpf, mcc, nome, email FROM cliente_pf "
+                + "WHERE mcc = ? AND id > ? ORDER BY id FETCH FIRST ? ROWS ONLY", "5411", 100L, 101);
+        assertTrue(pf.contains("IDX_CLIENTE_PF_MCC_ID: MCC = ?1"), pf);
+        assertTrue(pf.contains("ID > ?2"), pf);
+
+        String pj = plano("SELECT id, cnpj, razao_social, mcc, cpf_contato_estabelecimento, nome_contato_estabelecimento, "
+                + "email FROM cliente_pj WHERE mcc = ? AND id > ? AND razao_social LIKE ? ESCAPE '\\' "
+                + "ORDER BY id FETCH FIRST ? ROWS ONLY", "5411", 100L, "Padaria%", 101);
+        assertTrue(pj.contains("IDX_CLIENTE_PJ_MCC_ID: MCC = ?1"), pj);
+        assertTrue(pj.contains("ID > ?2"), pj);
+    }
+
+    // O formato anterior, uma só consulta com os filtros opcionais, caía na chave primária mesmo com o MCC informado
+    @Test
+    void testFiltroOpcionalNaMesmaConsultaNaoUsaOIndiceDoMcc() throws SQLException {
+        String pf = plano("SELECT id, cpf, mcc, nome, email FROM cliente_pf "
+                + "WHERE id > ? AND (? IS NULL OR mcc = ?) ORDER BY id FETCH FIRST ? ROWS ONLY", 100L, "5411", "5411", 101);
+        assertFalse(pf.contains("IDX_CLIENTE_PF_MCC_ID"), pf);
+    }
+}
@@ -0,0 +1,161 @@
+package com.cielo.precadastroclientes.service;
+
+import com.cielo.precadastroclientes.configuration.FilaProperties;
+import com.cielo.precadastroclientes.model.EnvioParaFila;
+import com.cielo.precadastroclientes.queue.FilaDeAtendimento;
+import com.cielo.precadastroclientes.queue.QueueBackend;
+import com.cielo.precadastroclientes.repository.EnvioParaFilaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CaixaDeSaidaDaFilaTest {
+
+    // Tabela caixa_de_saida_da_fila em memória, na ordem do id
+    private final List<EnvioParaFila> tabela = new ArrayList<>();
+    private long proximoId = 1;
+    private EnvioParaFilaRepository repositorio;
+    private FilaProperties properties;
+    private final List<CaixaDeSaidaDaFila> caixas = new ArrayList<>();
+    private final List<FilaDeAtendimento> filas = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repositorio = mock(EnvioParaFilaRepository.class);
+        when(repositorio.save(any(EnvioParaFila.class))).thenAnswer(chamada -> {
+            EnvioParaFila envio = chamada.getArgument(0);
+            envio.setId(proximoId++);
+            tabela.add(envio);
+            return envio;
+        });
+        when(repositorio.findAllByOrderByIdAsc(any(Pageable.class))).thenAnswer(chamada -> {
+            Pageable pagina = chamada.getArgument(0);
+            return new ArrayList<>(tabela.subList(0, Math.min(pagina.getPageSize(), tabela.size())));
+        });
+        doAnswer(chamada -> {
+            Collection<Long> ids = chamada.getArgument(0);
+            tabela.removeIf(envio -> ids.contains(envio.getId()));
+            return null;
+        }).when(repositorio).deleteAllByIdInBatch(any(Iterable.class));
+        when(repositorio.count()).thenAnswer(chamada -> (long) tabela.size());
+
+        properties = new FilaProperties();
+        // A retransmissão periódica não interfere: os testes a disparam com retransmitirPendentes
+        properties.setIntervaloDaCaixaDeSaidaMs(3_600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        caixas.forEach(CaixaDeSaidaDaFila::encerrar);
+        filas.forEach(FilaDeAtendimento::encerrar);
+    }
+
+    private FilaDeAtendimento novaFila(int capacidade) {
+        FilaProperties propriedadesDaFila = new FilaProperties();
+        propriedadesDaFila.setCapacidade(capacidade);
+        FilaDeAtendimento fila = new FilaDeAtendimento(propriedadesDaFila);
+        filas.add(fila);
+        return fila;
+    }
+
+    private CaixaDeSaidaDaFila novaCaixa(QueueBackend fila) {
+        CaixaDeSaidaDaFila caixa = new CaixaDeSaidaDaFila(repositorio, fila, mock(PlatformTransactionManager.class), properties);
+        caixas.add(caixa);
+        return caixa;
+    }
+
+    // Registra dentro de uma transação cujo afterCommit nunca roda, como numa queda logo depois do commit do
+    // cadastro; a retransmissão fica a cargo do teste
+    private static void registrar(CaixaDeSaidaDaFila caixa, String cliente, String mcc) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            caixa.registrar(cliente, mcc, null);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testEntradaGravadaSobreviveAQuedaAntesDaRetransmissao() {
+        FilaDeAtendimento fila = novaFila(10);
+        registrar(novaCaixa(fila), "11111111111", "5812");
+        assertEquals(0, fila.getTamanho());
+
+        CaixaDeSaidaDaFila depoisDoReinicio = novaCaixa(fila);
+        assertEquals(1, depoisDoReinicio.getPendentes());
+        depoisDoReinicio.retransmitirPendentes();
+
+        assertEquals("11111111111", fila.poll());
+        assertEquals(0, depoisDoReinicio.getPendentes());
+        assertEquals(1, depoisDoReinicio.getRetransmitidos());
+    }
+
+    @Test
+    void testFilaCheiaMantemAEntradaNaTabela() {
+        FilaDeAtendimento fila = novaFila(1);
+        CaixaDeSaidaDaFila caixa = novaCaixa(fila);
+        registrar(caixa, "1", null);
+        registrar(caixa, "2", null);
+        caixa.retransmitirPendentes();
+
+        assertEquals(1, fila.getTamanho());
+        assertEquals(1, caixa.getPendentes(), "O cliente recusado espera na tabela");
+
+        assertEquals("1", fila.poll());
+        caixa.retransmitirPendentes();
+        assertEquals("2", fila.poll());
+        assertEquals(0, caixa.getPendentes());
+    }
+
+    @Test
+    void testEnviosDoMesmoClienteSaemNaOrdemDoCadastro() {
+        FilaDeAtendimento fila = novaFila(1);
+        CaixaDeSaidaDaFila caixa = novaCaixa(fila);
+        registrar(caixa, "1", null);
+        registrar(caixa, "2", null);
+        registrar(caixa, "1", null);
+
+        List<String> atendidos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            caixa.retransmitirPendentes();
+            atendidos.add(fila.poll());
+        }
+        assertEquals(List.of("1", "2", "1"), atendidos);
+        assertEquals(0, caixa.getPendentes());
+    }
+
+    @Test
+    void testLoteVaiNumaChamadaEParaNoPrimeiroRecusado() {
+        QueueBackend fila = mock(QueueBackend.class);
+        when(fila.suportaAgendamento()).thenReturn(true);
+        when(fila.adicionarClientesNaFila(anyList(), anyList())).thenReturn(1, 2);
+        CaixaDeSaidaDaFila caixa = novaCaixa(fila);
+        registrar(caixa, "a", "5812");
+        registrar(caixa, "b", "5812");
+        registrar(caixa, "c", "5812");
+
+        caixa.retransmitirPendentes();
+        assertEquals(2, caixa.getPendentes(), "b foi recusado e c não passa à frente dele");
+        caixa.retransmitirPendentes();
+
+        assertEquals(0, caixa.getPendentes());
+        verify(fila).adicionarClientesNaFila(List.of("a", "b", "c"), List.of("5812", "5812", "5812"));
+        verify(fila).adicionarClientesNaFila(List.of("b", "c"), List.of("5812", "5812"));
+        verify(fila, never()).adicionarClienteNaFila(anyString(), anyString());
+        verify(fila, never()).adicionarClienteNaFila(anyString());
+    }
+}